@@ -19,12 +19,9 @@
  */
 package org.eobjects.analyzer.beans.transform;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-
-import javax.el.ValueExpression;
+import java.util.Set;
 
 import org.eobjects.analyzer.beans.api.Categorized;
 import org.eobjects.analyzer.beans.api.Configured;
@@ -35,13 +32,11 @@ import org.eobjects.analyzer.beans.api.StringProperty;
 import org.eobjects.analyzer.beans.api.Transformer;
 import org.eobjects.analyzer.beans.api.TransformerBean;
 import org.eobjects.analyzer.beans.categories.NumbersCategory;
+import org.eobjects.analyzer.data.CompiledELExpression;
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.util.StringUtils;
 
-import de.odysseus.el.ExpressionFactoryImpl;
-import de.odysseus.el.util.SimpleContext;
-
 @TransformerBean("Math formula")
 @Description("Provide a mathematical formula to perform arbitrary calculations.\n"
         + "Formulas support basic operators like plus (+), minus (-), divide (/), multiply (*) and modulus (%).")
@@ -55,8 +50,8 @@ public class MathFormulaTransformer implements Transformer<Number> {
     @StringProperty(emptyString = false, mimeType = "text/groovy")
     String _formula = "(col1 + col2) / col3";
 
-    private ExpressionFactoryImpl _factory;
-    private Map<String, List<String>> _columnAliases;
+    private CompiledELExpression _compiledFormula;
+    private Map<String, InputColumn<?>> _variables;
 
     @Override
     public OutputColumns getOutputColumns() {
@@ -65,41 +60,30 @@ public class MathFormulaTransformer implements Transformer<Number> {
 
     @Initialize
     public void init() {
-        _factory = new ExpressionFactoryImpl();
+        _compiledFormula = new CompiledELExpression("#{" + _formula.toLowerCase() + "}", Number.class, Number.class);
 
-        _columnAliases = new HashMap<String, List<String>>();
+        // bind the aliases of the columns that are referenced in the formula
+        final Set<String> variableNames = _compiledFormula.getVariableNames();
+        _variables = new HashMap<String, InputColumn<?>>();
         int i = 1;
         for (InputColumn<Number> inputColumn : _input) {
             final String name = inputColumn.getName();
-            final List<String> list = new ArrayList<String>(3);
             final String variableName1 = StringUtils.replaceWhitespaces(name.toLowerCase(), "_");
             final String variableName2 = StringUtils.replaceWhitespaces(name.toLowerCase(), "");
-            list.add(variableName1);
-            list.add(variableName2);
-            list.add("col" + i);
+            final String variableName3 = "col" + i;
             i++;
-            _columnAliases.put(name, list);
+            for (String alias : new String[] { variableName1, variableName2, variableName3 }) {
+                if (variableNames.contains(alias)) {
+                    _variables.put(alias, inputColumn);
+                }
+            }
         }
     }
 
     @Override
     public Number[] transform(InputRow inputRow) {
-        final SimpleContext context = new SimpleContext();
-
-        for (InputColumn<Number> inputColumn : _input) {
-            Number value = inputRow.getValue(inputColumn);
-            ValueExpression valueExpression = _factory.createValueExpression(value, Number.class);
-            List<String> aliases = _columnAliases.get(inputColumn.getName());
-            for (String alias : aliases) {
-                context.setVariable(alias, valueExpression);
-            }
-        }
-
-        final String expression = "#{" + _formula.toLowerCase() + "}";
-        final ValueExpression valueExpression = _factory.createValueExpression(context, expression, Number.class);
-
         try {
-            final Object value = valueExpression.getValue(context);
+            final Object value = _compiledFormula.evaluate(inputRow, _variables);
             assert value instanceof Number;
 
             if (value instanceof Double) {
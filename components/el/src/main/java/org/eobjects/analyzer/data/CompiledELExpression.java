@@ -0,0 +1,217 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.data;
+
+import java.beans.FeatureDescriptor;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.el.CompositeELResolver;
+import javax.el.ELContext;
+import javax.el.ELException;
+import javax.el.ELResolver;
+import javax.el.ExpressionFactory;
+import javax.el.FunctionMapper;
+import javax.el.ValueExpression;
+import javax.el.VariableMapper;
+
+import de.odysseus.el.ExpressionFactoryImpl;
+import de.odysseus.el.tree.IdentifierNode;
+import de.odysseus.el.tree.Tree;
+import de.odysseus.el.tree.impl.Builder;
+import de.odysseus.el.util.SimpleContext;
+import de.odysseus.el.util.SimpleResolver;
+
+/**
+ * An EL expression which is parsed once and then evaluated against any number
+ * of {@link InputRow}s.
+ * 
+ * Identifiers in the expression are not bound when parsing, but resolved at
+ * evaluation time, directly from the {@link InputRow} that is being evaluated.
+ * Only the identifiers that the expression references are looked up. Each
+ * thread reuses it's own evaluation context, so evaluation is thread-safe and
+ * does not create any EL objects per row.
+ */
+public final class CompiledELExpression {
+
+    private final ExpressionFactory _factory;
+    private final ValueExpression _valueExpression;
+    private final Set<String> _variableNames;
+    private final Class<?> _variableType;
+    private final ELResolver _resolver;
+    private final ThreadLocal<InputRowELContext> _contexts;
+
+    /**
+     * Parses an EL expression.
+     * 
+     * @param expression
+     *            the expression, eg. "Hello #{name}"
+     * @param expectedType
+     *            the type that the result of the expression is coerced to
+     * @param variableType
+     *            the type that variable values are coerced to, or null if
+     *            they should be coerced to the data type of their column
+     * @throws ELException
+     *             if the expression could not be parsed
+     */
+    public CompiledELExpression(String expression, Class<?> expectedType, Class<?> variableType) throws ELException {
+        _factory = new ExpressionFactoryImpl();
+        _variableType = variableType;
+
+        // parse without any variables, so that all identifiers are resolved
+        // through the ELResolver at evaluation time
+        _valueExpression = _factory.createValueExpression(new SimpleContext(), expression, expectedType);
+
+        // parse with the same features as the expression factory, so that
+        // eg. method invocations are accepted
+        final Tree tree = new Builder(Builder.Feature.METHOD_INVOCATIONS, Builder.Feature.VARARGS).build(expression);
+        final Set<String> variableNames = new LinkedHashSet<String>();
+        for (IdentifierNode identifierNode : tree.getIdentifierNodes()) {
+            variableNames.add(identifierNode.getName());
+        }
+        _variableNames = Collections.unmodifiableSet(variableNames);
+
+        final CompositeELResolver resolver = new CompositeELResolver();
+        resolver.add(new InputRowELResolver());
+        // resolves properties of values and makes unknown variables null
+        resolver.add(new SimpleResolver(true));
+        _resolver = resolver;
+
+        _contexts = new ThreadLocal<InputRowELContext>() {
+            @Override
+            protected InputRowELContext initialValue() {
+                return new InputRowELContext();
+            }
+        };
+    }
+
+    /**
+     * Gets the names of the variables that the expression references.
+     * 
+     * @return
+     */
+    public Set<String> getVariableNames() {
+        return _variableNames;
+    }
+
+    /**
+     * Evaluates the expression for a row.
+     * 
+     * @param row
+     *            the row to evaluate
+     * @param variables
+     *            the columns that variables of the expression are bound to,
+     *            by variable name
+     * @return the result of the expression
+     * @throws ELException
+     *             if the expression could not be evaluated
+     */
+    public Object evaluate(InputRow row, Map<String, InputColumn<?>> variables) throws ELException {
+        final InputRowELContext context = _contexts.get();
+        context._row = row;
+        context._variables = variables;
+        try {
+            return _valueExpression.getValue(context);
+        } finally {
+            context._row = null;
+            context._variables = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledELExpression[" + _valueExpression.getExpressionString() + "]";
+    }
+
+    private final class InputRowELContext extends ELContext {
+
+        private InputRow _row;
+        private Map<String, InputColumn<?>> _variables;
+
+        @Override
+        public ELResolver getELResolver() {
+            return _resolver;
+        }
+
+        @Override
+        public FunctionMapper getFunctionMapper() {
+            return null;
+        }
+
+        @Override
+        public VariableMapper getVariableMapper() {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves top-level identifiers to the values of the bound columns of the
+     * current row.
+     */
+    private final class InputRowELResolver extends ELResolver {
+
+        @Override
+        public Object getValue(ELContext context, Object base, Object property) {
+            if (base != null || !(context instanceof InputRowELContext)) {
+                return null;
+            }
+            final InputRowELContext rowContext = (InputRowELContext) context;
+            final InputColumn<?> column = rowContext._variables.get(property);
+            if (column == null) {
+                return null;
+            }
+            context.setPropertyResolved(true);
+
+            final Object value = rowContext._row.getValue(column);
+            final Class<?> type = (_variableType == null ? column.getDataType() : _variableType);
+            if (type == null) {
+                return value;
+            }
+            return _factory.coerceToType(value, type);
+        }
+
+        @Override
+        public Class<?> getType(ELContext context, Object base, Object property) {
+            return null;
+        }
+
+        @Override
+        public void setValue(ELContext context, Object base, Object property, Object value) {
+        }
+
+        @Override
+        public boolean isReadOnly(ELContext context, Object base, Object property) {
+            return true;
+        }
+
+        @Override
+        public Iterator<FeatureDescriptor> getFeatureDescriptors(ELContext context, Object base) {
+            return null;
+        }
+
+        @Override
+        public Class<?> getCommonPropertyType(ELContext context, Object base) {
+            return base == null ? Object.class : null;
+        }
+    }
+}
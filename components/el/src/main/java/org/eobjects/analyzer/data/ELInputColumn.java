@@ -19,24 +19,26 @@
  */
 package org.eobjects.analyzer.data;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.el.ELException;
-import javax.el.ExpressionFactory;
-import javax.el.ValueExpression;
 
 import org.eobjects.analyzer.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.odysseus.el.ExpressionFactoryImpl;
-import de.odysseus.el.util.SimpleContext;
-
 /**
  * InputColumn that evaluates an EL expression in order to return a computed
  * value. This can be used as a lightweight alternative to eg. JavaScript
  * transformation.
  * 
+ * The expression is parsed once, on first evaluation. Variables of the
+ * expression are bound to the columns of the evaluated rows by name, and the
+ * binding is reused as long as the rows contain the bound columns.
+ * 
  * 
  */
 public class ELInputColumn extends AbstractExpressionBasedInputColumn<String> {
@@ -46,39 +48,74 @@ public class ELInputColumn extends AbstractExpressionBasedInputColumn<String> {
 	private static final Logger logger = LoggerFactory
 			.getLogger(ELInputColumn.class);
 
-	private final ExpressionFactory _factory;
 	private final String _expression;
+	private transient volatile CompiledELExpression _compiledExpression;
+	private transient volatile Map<String, InputColumn<?>> _variables;
 
 	public ELInputColumn(String expression) {
 		_expression = expression;
-		_factory = new ExpressionFactoryImpl();
 	}
 
 	@Override
 	public String evaluate(InputRow row) {
-		SimpleContext context = new SimpleContext();
-		List<InputColumn<?>> inputColumns = row.getInputColumns();
+		try {
+			final CompiledELExpression compiledExpression = getCompiledExpression();
+			final Map<String, InputColumn<?>> variables = getVariables(
+					compiledExpression, row);
+			return (String) compiledExpression.evaluate(row, variables);
+		} catch (ELException e) {
+			logger.error("Could not evaluate EL expression", e);
+			return null;
+		}
+	}
+
+	private CompiledELExpression getCompiledExpression() throws ELException {
+		CompiledELExpression compiledExpression = _compiledExpression;
+		if (compiledExpression == null) {
+			compiledExpression = new CompiledELExpression(_expression,
+					String.class, null);
+			_compiledExpression = compiledExpression;
+		}
+		return compiledExpression;
+	}
+
+	/**
+	 * Gets the columns that the variables of the expression are bound to. The
+	 * previous binding is reused as long as the row contains all of it's
+	 * columns, also when some variables could not be bound to any column.
+	 */
+	private Map<String, InputColumn<?>> getVariables(
+			CompiledELExpression compiledExpression, InputRow row) {
+		Map<String, InputColumn<?>> variables = _variables;
+		if (variables != null && containsAll(row, variables)) {
+			return variables;
+		}
+
+		final Set<String> variableNames = compiledExpression
+				.getVariableNames();
+		variables = new HashMap<String, InputColumn<?>>();
+		final List<InputColumn<?>> inputColumns = row.getInputColumns();
 		for (InputColumn<?> inputColumn : inputColumns) {
 			if (!(inputColumn instanceof ExpressionBasedInputColumn)) {
-				Object value = row.getValue(inputColumn);
-				Class<?> javaType = inputColumn.getDataType();
-				ValueExpression valueExpression = _factory
-						.createValueExpression(value, javaType);
-				String variableName = inputColumn.getName();
-				variableName = StringUtils
-						.replaceWhitespaces(variableName, "_");
-				context.setVariable(variableName, valueExpression);
+				final String variableName = StringUtils.replaceWhitespaces(
+						inputColumn.getName(), "_");
+				if (variableNames.contains(variableName)) {
+					variables.put(variableName, inputColumn);
+				}
 			}
 		}
+		_variables = variables;
+		return variables;
+	}
 
-		try {
-			ValueExpression valueExpression = _factory.createValueExpression(
-					context, _expression, String.class);
-			return (String) valueExpression.getValue(context);
-		} catch (ELException e) {
-			logger.error("Could not evaluate EL expression", e);
-			return null;
+	private boolean containsAll(InputRow row,
+			Map<String, InputColumn<?>> variables) {
+		for (InputColumn<?> inputColumn : variables.values()) {
+			if (!row.containsInputColumn(inputColumn)) {
+				return false;
+			}
 		}
+		return true;
 	}
 
 	@Override
@@ -0,0 +1,145 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.transform;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.el.ValueExpression;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.data.ELInputColumn;
+import org.eobjects.analyzer.data.ExpressionBasedInputColumn;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.eobjects.analyzer.util.StringUtils;
+import org.junit.Ignore;
+
+import de.odysseus.el.ExpressionFactoryImpl;
+import de.odysseus.el.util.SimpleContext;
+
+/**
+ * A benchmark program (which is why it is @Ignore'd) used to show the number
+ * of rows per second that EL expressions are evaluated with on a 20 column
+ * input, compared to the previous approach of parsing the expression and
+ * binding all columns for every row.
+ */
+@Ignore
+public class ELBenchmarkTest extends TestCase {
+
+    private static final int NUM_COLUMNS = 20;
+    private static final int NUM_ROWS = 200000;
+
+    private final List<InputColumn<?>> columns = new ArrayList<InputColumn<?>>();
+    private final List<InputRow> rows = new ArrayList<InputRow>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        for (int i = 1; i <= NUM_COLUMNS; i++) {
+            columns.add(new MockInputColumn<Number>("col" + i, Number.class));
+        }
+        for (int i = 0; i < NUM_ROWS; i++) {
+            final MockInputRow row = new MockInputRow();
+            for (int j = 0; j < NUM_COLUMNS; j++) {
+                row.put(columns.get(j), i + j);
+            }
+            rows.add(row);
+        }
+    }
+
+    public void testExpressions() throws Exception {
+        System.out.println(getName() + " beginning.");
+        System.out.println("(" + NUM_ROWS + " rows of " + NUM_COLUMNS + " columns)");
+
+        runLegacyELInputColumn("1) EL input column, parsed per row", "Value: #{col3} and #{col7}");
+        runELInputColumn("2) EL input column, compiled", "Value: #{col3} and #{col7}");
+        runLegacyMathFormula("3) Math formula, parsed per row", "(col1 + col2) / col3");
+        runMathFormula("4) Math formula, compiled", "(col1 + col2) / col3");
+
+        System.out.println(getName() + " finished.");
+    }
+
+    private void runELInputColumn(String name, String expression) {
+        final ELInputColumn column = new ELInputColumn(expression);
+        final long timeBefore = System.currentTimeMillis();
+        for (InputRow row : rows) {
+            assertNotNull(column.evaluate(row));
+        }
+        report(name, timeBefore);
+    }
+
+    private void runLegacyELInputColumn(String name, String expression) {
+        final ExpressionFactoryImpl factory = new ExpressionFactoryImpl();
+        final long timeBefore = System.currentTimeMillis();
+        for (InputRow row : rows) {
+            final SimpleContext context = new SimpleContext();
+            for (InputColumn<?> inputColumn : row.getInputColumns()) {
+                if (!(inputColumn instanceof ExpressionBasedInputColumn)) {
+                    final ValueExpression valueExpression = factory.createValueExpression(row.getValue(inputColumn),
+                            inputColumn.getDataType());
+                    context.setVariable(StringUtils.replaceWhitespaces(inputColumn.getName(), "_"), valueExpression);
+                }
+            }
+            final ValueExpression valueExpression = factory.createValueExpression(context, expression, String.class);
+            assertNotNull(valueExpression.getValue(context));
+        }
+        report(name, timeBefore);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runMathFormula(String name, String formula) {
+        final MathFormulaTransformer transformer = new MathFormulaTransformer();
+        transformer._input = columns.toArray(new InputColumn[columns.size()]);
+        transformer._formula = formula;
+        transformer.init();
+
+        final long timeBefore = System.currentTimeMillis();
+        for (InputRow row : rows) {
+            assertNotNull(transformer.transform(row)[0]);
+        }
+        report(name, timeBefore);
+    }
+
+    private void runLegacyMathFormula(String name, String formula) {
+        final ExpressionFactoryImpl factory = new ExpressionFactoryImpl();
+        final long timeBefore = System.currentTimeMillis();
+        for (InputRow row : rows) {
+            final SimpleContext context = new SimpleContext();
+            for (InputColumn<?> inputColumn : columns) {
+                final ValueExpression valueExpression = factory.createValueExpression(row.getValue(inputColumn),
+                        Number.class);
+                context.setVariable(inputColumn.getName().toLowerCase(), valueExpression);
+            }
+            final ValueExpression valueExpression = factory.createValueExpression(context, "#{"
+                    + formula.toLowerCase() + "}", Number.class);
+            assertNotNull(valueExpression.getValue(context));
+        }
+        report(name, timeBefore);
+    }
+
+    private void report(String name, long timeBefore) {
+        final long millis = Math.max(1, System.currentTimeMillis() - timeBefore);
+        System.out.println(name + ": " + millis + " ms, " + (NUM_ROWS * 1000l / millis) + " rows/s");
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import javax.el.PropertyNotFoundException;
+
+import junit.framework.TestCase;
+
+public class CompiledELExpressionTest extends TestCase {
+
+    public void testVariableNames() throws Exception {
+        CompiledELExpression expression = new CompiledELExpression("#{foo} and #{bar.class.name} and #{foo}",
+                String.class, null);
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("foo", "bar")), expression.getVariableNames());
+    }
+
+    public void testVariableNamesWithMethodInvocation() throws Exception {
+        CompiledELExpression expression = new CompiledELExpression("#{foo.substring(bar, 2)}", String.class, null);
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("foo", "bar")), expression.getVariableNames());
+    }
+
+    public void testEvaluateMultipleRows() throws Exception {
+        MockInputColumn<String> fooCol = new MockInputColumn<String>("foo", String.class);
+        MockInputColumn<Integer> barCol = new MockInputColumn<Integer>("bar", Integer.class);
+
+        CompiledELExpression expression = new CompiledELExpression("#{foo}: #{bar + 1}", String.class, null);
+        Map<String, InputColumn<?>> variables = new HashMap<String, InputColumn<?>>();
+        variables.put("foo", fooCol);
+        variables.put("bar", barCol);
+
+        assertEquals("a: 2", expression.evaluate(new MockInputRow().put(fooCol, "a").put(barCol, 1), variables));
+        assertEquals("b: 11", expression.evaluate(new MockInputRow().put(fooCol, "b").put(barCol, 10), variables));
+
+        // null values are coerced to the column's data type
+        assertEquals(": 1", expression.evaluate(new MockInputRow().put(fooCol, null).put(barCol, null), variables));
+    }
+
+    public void testUnboundVariable() throws Exception {
+        CompiledELExpression expression = new CompiledELExpression("Hello #{foo}", String.class, null);
+        Map<String, InputColumn<?>> variables = new HashMap<String, InputColumn<?>>();
+        try {
+            expression.evaluate(new MockInputRow(), variables);
+            fail("Exception expected");
+        } catch (PropertyNotFoundException e) {
+            assertEquals("Cannot find property foo", e.getMessage());
+        }
+    }
+
+    public void testVariableType() throws Exception {
+        MockInputColumn<Object> fooCol = new MockInputColumn<Object>("foo", Object.class);
+
+        CompiledELExpression expression = new CompiledELExpression("#{foo * 2}", Number.class, Number.class);
+        Map<String, InputColumn<?>> variables = new HashMap<String, InputColumn<?>>();
+        variables.put("foo", fooCol);
+
+        assertEquals(42l, expression.evaluate(new MockInputRow().put(fooCol, 21), variables));
+
+        // null values are coerced to zero
+        assertEquals(0l, expression.evaluate(new MockInputRow().put(fooCol, null), variables));
+    }
+}
@@ -41,4 +41,23 @@ public class ELInputColumnTest extends TestCase {
 		MockInputColumn<String> fooCol = new MockInputColumn<String>("foo bar", String.class);
 		assertEquals("Hello World", elCol.evaluate(new MockInputRow().put(fooCol, "World")));
 	}
+
+	public void testMethodInvocation() throws Exception {
+		ELInputColumn elCol = new ELInputColumn("Hello #{name.toUpperCase()}");
+
+		MockInputColumn<String> nameCol = new MockInputColumn<String>("name", String.class);
+		assertEquals("Hello FOO", elCol.evaluate(new MockInputRow().put(nameCol, "foo")));
+		assertEquals("Hello BAR", elCol.evaluate(new MockInputRow().put(nameCol, "bar")));
+	}
+
+	public void testColumnsChangeBetweenRows() throws Exception {
+		ELInputColumn elCol = new ELInputColumn("Hello #{foo}");
+
+		MockInputColumn<String> fooCol1 = new MockInputColumn<String>("foo", String.class);
+		MockInputColumn<String> fooCol2 = new MockInputColumn<String>("foo", String.class);
+		MockInputColumn<String> barCol = new MockInputColumn<String>("bar", String.class);
+		assertEquals("Hello World", elCol.evaluate(new MockInputRow().put(fooCol1, "World").put(barCol, "x")));
+		assertEquals("Hello There", elCol.evaluate(new MockInputRow().put(fooCol2, "There")));
+		assertNull(elCol.evaluate(new MockInputRow().put(barCol, "x")));
+	}
 }
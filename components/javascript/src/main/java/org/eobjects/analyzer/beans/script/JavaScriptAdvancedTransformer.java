@@ -37,7 +37,6 @@ import org.eobjects.analyzer.beans.categories.ScriptingCategory;
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.mozilla.javascript.Context;
-import org.mozilla.javascript.ContextFactory;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.NativeObject;
 import org.mozilla.javascript.Script;
@@ -77,7 +76,7 @@ public class JavaScriptAdvancedTransformer implements Transformer<Object> {
     @Provided
     OutputRowCollector rowCollector;
 
-    private ContextFactory _contextFactory;
+    private JavaScriptContextFactory _contextFactory;
     private Script _script;
     private ScriptableObject _sharedScope;
     private NativeObject _transformerObj;
@@ -86,6 +85,8 @@ public class JavaScriptAdvancedTransformer implements Transformer<Object> {
     private Function _transformFunction;
     private Function _closeFunction;
 
+    private String[] _columnNames;
+
     @Override
     public OutputColumns getOutputColumns() {
         String[] names = new String[returnTypes.length];
@@ -100,11 +101,16 @@ public class JavaScriptAdvancedTransformer implements Transformer<Object> {
 
     @Initialize
     public void init() {
-        _contextFactory = new ContextFactory();
+        _contextFactory = new JavaScriptContextFactory();
+
+        _columnNames = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            _columnNames[i] = columns[i].getName();
+        }
 
         Context context = _contextFactory.enterContext();
         try {
-            _script = context.compileString(sourceCode, this.getClass().getSimpleName(), 1, null);
+            _script = _contextFactory.compileString(context, sourceCode, this.getClass().getSimpleName());
             _sharedScope = context.initStandardObjects();
 
             JavaScriptUtils.addToScope(_sharedScope, logger, "logger", "log");
@@ -140,13 +146,11 @@ public class JavaScriptAdvancedTransformer implements Transformer<Object> {
     public Object[] transform(InputRow inputRow) {
         Context context = _contextFactory.enterContext();
         try {
-            String[] columnNames = new String[columns.length];
             Object[] values = new Object[columns.length];
             for (int i = 0; i < columns.length; i++) {
-                columnNames[i] = columns[i].getName();
                 values[i] = inputRow.getValue(columns[i]);
             }
-            Object[] args = { columnNames, values, rowCollector };
+            Object[] args = { _columnNames, values, rowCollector };
             _transformFunction.call(context, _sharedScope, _sharedScope, args);
             return null;
         } finally {
@@ -0,0 +1,90 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.script;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ContextFactory} for the JavaScript components. Contexts are created
+ * with an optimization level that makes Rhino compile scripts into Java
+ * classes, instead of running them in interpreted mode.
+ */
+final class JavaScriptContextFactory extends ContextFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(JavaScriptContextFactory.class);
+
+    public static final int DEFAULT_OPTIMIZATION_LEVEL = 9;
+
+    private final int _optimizationLevel;
+
+    public JavaScriptContextFactory() {
+        this(DEFAULT_OPTIMIZATION_LEVEL);
+    }
+
+    /**
+     * 
+     * @param optimizationLevel
+     *            the Rhino optimization level, from -1 (interpreted mode) to
+     *            9
+     */
+    public JavaScriptContextFactory(int optimizationLevel) {
+        _optimizationLevel = optimizationLevel;
+    }
+
+    @Override
+    protected void onContextCreated(Context context) {
+        super.onContextCreated(context);
+        context.setOptimizationLevel(_optimizationLevel);
+    }
+
+    /**
+     * Compiles a script. If the script cannot be compiled into a Java class
+     * (eg. because a function exceeds the size limit of a Java method), it is
+     * compiled for interpreted mode instead.
+     * 
+     * @param context
+     *            a context entered with this factory
+     * @param sourceCode
+     * @param sourceName
+     * @return
+     */
+    public Script compileString(Context context, String sourceCode, String sourceName) {
+        final int optimizationLevel = context.getOptimizationLevel();
+        try {
+            return context.compileString(sourceCode, sourceName, 1, null);
+        } catch (RuntimeException e) {
+            if (optimizationLevel < 0) {
+                throw e;
+            }
+            logger.warn("Could not compile {} to bytecode, falling back to interpreted mode: {}", sourceName,
+                    e.getMessage());
+            context.setOptimizationLevel(-1);
+            try {
+                return context.compileString(sourceCode, sourceName, 1, null);
+            } finally {
+                context.setOptimizationLevel(optimizationLevel);
+            }
+        }
+    }
+}
@@ -30,7 +30,6 @@ import org.eobjects.analyzer.beans.categories.ScriptingCategory;
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.mozilla.javascript.Context;
-import org.mozilla.javascript.ContextFactory;
 import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
@@ -56,23 +55,28 @@ public class JavaScriptFilter implements Filter<JavaScriptFilter.Category> {
     @StringProperty(multiline = true, mimeType = { "text/javascript", "application/x-javascript" })
     String sourceCode = "function eval() {\n  return values[0] != null;\n}\n\neval();";
 
-    private ContextFactory _contextFactory;
+    private JavaScriptContextFactory _contextFactory;
     private Script _script;
 
     // this scope is shared between all threads
     private ScriptableObject _sharedScope;
 
+    // the scopes of rows, one per thread
+    private RowScopePool _rowScopes;
+
     @Initialize
     public void init() {
-        _contextFactory = new ContextFactory();
+        _contextFactory = new JavaScriptContextFactory();
         Context context = _contextFactory.enterContext();
 
         try {
-            _script = context.compileString(sourceCode, this.getClass().getSimpleName(), 1, null);
+            _script = _contextFactory.compileString(context, sourceCode, this.getClass().getSimpleName());
             _sharedScope = context.initStandardObjects();
 
             JavaScriptUtils.addToScope(_sharedScope, logger, "logger", "log");
             JavaScriptUtils.addToScope(_sharedScope, System.out, "out");
+
+            _rowScopes = new RowScopePool(_sharedScope, columns, "values");
         } finally {
             Context.exit();
         }
@@ -82,14 +86,10 @@ public class JavaScriptFilter implements Filter<JavaScriptFilter.Category> {
     public Category categorize(InputRow inputRow) {
         Context context = _contextFactory.enterContext();
 
+        Scriptable scope = null;
         try {
-
-            // this scope is local to the execution of a single row
-            Scriptable scope = context.newObject(_sharedScope);
-            scope.setPrototype(_sharedScope);
-            scope.setParentScope(null);
-
-            JavaScriptUtils.addToScope(scope, inputRow, columns, "values");
+            // this scope is local to the thread and reset after each row
+            scope = _rowScopes.getScope(context, inputRow);
 
             Object result = _script.exec(context, scope);
             boolean booleanResult = Context.toBoolean(result);
@@ -99,6 +99,9 @@ public class JavaScriptFilter implements Filter<JavaScriptFilter.Category> {
             }
             return JavaScriptFilter.Category.INVALID;
         } finally {
+            if (scope != null) {
+                _rowScopes.reset(scope);
+            }
             Context.exit();
         }
     }
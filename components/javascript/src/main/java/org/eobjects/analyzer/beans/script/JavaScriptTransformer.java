@@ -32,7 +32,6 @@ import org.eobjects.analyzer.beans.categories.ScriptingCategory;
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.mozilla.javascript.Context;
-import org.mozilla.javascript.ContextFactory;
 import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
@@ -67,12 +66,15 @@ public class JavaScriptTransformer implements Transformer<Object> {
 			"application/x-javascript" })
 	String sourceCode = "function eval() {\n\treturn \"hello \" + values[0];\n}\n\neval();";
 
-	private ContextFactory _contextFactory;
+	private JavaScriptContextFactory _contextFactory;
 	private Script _script;
 
 	// this scope is shared between all threads
 	private ScriptableObject _sharedScope;
 
+	// the scopes of rows, one per thread
+	private RowScopePool _rowScopes;
+
 	@Override
 	public OutputColumns getOutputColumns() {
 		OutputColumns outputColumns = new OutputColumns("JavaScript output");
@@ -88,16 +90,18 @@ public class JavaScriptTransformer implements Transformer<Object> {
 
 	@Initialize
 	public void init() {
-		_contextFactory = new ContextFactory();
+		_contextFactory = new JavaScriptContextFactory();
 		Context context = _contextFactory.enterContext();
 
 		try {
-			_script = context.compileString(sourceCode, this.getClass()
-					.getSimpleName(), 1, null);
+			_script = _contextFactory.compileString(context, sourceCode, this
+					.getClass().getSimpleName());
 			_sharedScope = context.initStandardObjects();
 
 			JavaScriptUtils.addToScope(_sharedScope, logger, "logger", "log");
 			JavaScriptUtils.addToScope(_sharedScope, System.out, "out");
+
+			_rowScopes = new RowScopePool(_sharedScope, columns, "values");
 		} finally {
 			Context.exit();
 		}
@@ -107,14 +111,10 @@ public class JavaScriptTransformer implements Transformer<Object> {
 	public Object[] transform(InputRow inputRow) {
 		Context context = _contextFactory.enterContext();
 
+		Scriptable scope = null;
 		try {
-
-			// this scope is local to the execution of a single row
-			Scriptable scope = context.newObject(_sharedScope);
-			scope.setPrototype(_sharedScope);
-			scope.setParentScope(null);
-
-			JavaScriptUtils.addToScope(scope, inputRow, columns, "values");
+			// this scope is local to the thread and reset after each row
+			scope = _rowScopes.getScope(context, inputRow);
 
 			Object result = _script.exec(context, scope);
 			// String stringResult = Context.toString(result);
@@ -130,6 +130,9 @@ public class JavaScriptTransformer implements Transformer<Object> {
 			}
 			return new Object[] { result };
 		} finally {
+			if (scope != null) {
+				_rowScopes.reset(scope);
+			}
 			Context.exit();
 		}
 	}
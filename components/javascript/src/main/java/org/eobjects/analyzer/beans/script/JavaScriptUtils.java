@@ -19,6 +19,9 @@
  */
 package org.eobjects.analyzer.beans.script;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.util.ReflectionUtils;
@@ -53,6 +56,22 @@ final class JavaScriptUtils {
 		}
 	}
 
+	/**
+	 * Gets the variable names that the value of a column is available as in
+	 * JavaScript.
+	 * 
+	 * @param column
+	 * @return
+	 */
+	public static String[] getVariableNames(InputColumn<?> column) {
+		final String name = column.getName();
+		final Set<String> names = new LinkedHashSet<String>(3);
+		names.add(name.replace(' ', '_'));
+		names.add(name.toLowerCase().replace(' ', '_'));
+		names.add(name.toUpperCase().replace(' ', '_'));
+		return names.toArray(new String[names.size()]);
+	}
+
 	/**
 	 * Adds the values of a row to the JavaScript scope
 	 * 
@@ -62,6 +81,26 @@ final class JavaScriptUtils {
 	 * @param arrayName
 	 */
 	public static void addToScope(Scriptable scope, InputRow inputRow, InputColumn<?>[] columns, String arrayName) {
+		final String[][] variableNames = new String[columns.length][];
+		for (int i = 0; i < columns.length; i++) {
+			variableNames[i] = getVariableNames(columns[i]);
+		}
+		addToScope(scope, inputRow, columns, variableNames, arrayName);
+	}
+
+	/**
+	 * Adds the values of a row to the JavaScript scope
+	 * 
+	 * @param scope
+	 * @param inputRow
+	 * @param columns
+	 * @param variableNames
+	 *            the variable names of each column, see
+	 *            {@link #getVariableNames(InputColumn)}
+	 * @param arrayName
+	 */
+	public static void addToScope(Scriptable scope, InputRow inputRow, InputColumn<?>[] columns,
+			String[][] variableNames, String arrayName) {
 		NativeArray values = new NativeArray(columns.length * 2);
 		for (int i = 0; i < columns.length; i++) {
 			InputColumn<?> column = columns[i];
@@ -79,7 +118,10 @@ final class JavaScriptUtils {
 			values.put(i, values, value);
 			values.put(column.getName(), values, value);
 
-			addToScope(scope, value, column.getName(), column.getName().toLowerCase(), column.getName().toUpperCase());
+			Object jsObject = Context.javaToJS(value, scope);
+			for (String name : variableNames[i]) {
+				ScriptableObject.putProperty(scope, name, jsObject);
+			}
 		}
 
 		addToScope(scope, values, arrayName);
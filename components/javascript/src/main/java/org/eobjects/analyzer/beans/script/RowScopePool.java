@@ -0,0 +1,116 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.script;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+
+/**
+ * Pool of the JavaScript scopes that rows are evaluated in. Each thread has
+ * it's own scope, which is reused for every row. The row variables are
+ * overwritten for each row, and anything else that a script defines in the
+ * scope is reset after each row, so that rows do not see each other's state.
+ */
+final class RowScopePool {
+
+    private final ScriptableObject _sharedScope;
+    private final InputColumn<?>[] _columns;
+    private final String[][] _variableNames;
+    private final String _arrayName;
+    private final Set<String> _rowVariableNames;
+    private final ThreadLocal<Scriptable> _scopes;
+
+    /**
+     * 
+     * @param sharedScope
+     *            the scope shared by all threads, which the row scopes
+     *            inherit from
+     * @param columns
+     *            the columns to expose as variables
+     * @param arrayName
+     *            the name of the array/map of all values
+     */
+    public RowScopePool(ScriptableObject sharedScope, InputColumn<?>[] columns, String arrayName) {
+        _sharedScope = sharedScope;
+        _columns = columns;
+        _arrayName = arrayName;
+        _variableNames = new String[columns.length][];
+        _rowVariableNames = new HashSet<String>();
+        _rowVariableNames.add(arrayName);
+        for (int i = 0; i < columns.length; i++) {
+            _variableNames[i] = JavaScriptUtils.getVariableNames(columns[i]);
+            for (String variableName : _variableNames[i]) {
+                _rowVariableNames.add(variableName);
+            }
+        }
+        _scopes = new ThreadLocal<Scriptable>();
+    }
+
+    /**
+     * Gets the scope of the current thread, with the values of a row added.
+     * The scope should be passed to {@link #reset(Scriptable)} once the row
+     * has been evaluated.
+     * 
+     * @param context
+     * @param inputRow
+     * @return
+     */
+    public Scriptable getScope(Context context, InputRow inputRow) {
+        Scriptable scope = _scopes.get();
+        if (scope == null) {
+            scope = context.newObject(_sharedScope);
+            scope.setPrototype(_sharedScope);
+            scope.setParentScope(null);
+            _scopes.set(scope);
+        }
+        JavaScriptUtils.addToScope(scope, inputRow, _columns, _variableNames, _arrayName);
+        return scope;
+    }
+
+    /**
+     * Removes the variables that a script has defined in the scope of a row.
+     * Variables that cannot be removed (such as top-level var and function
+     * declarations) are set to undefined.
+     * 
+     * @param scope
+     */
+    public void reset(Scriptable scope) {
+        for (Object id : ((ScriptableObject) scope).getAllIds()) {
+            if (id instanceof String) {
+                final String name = (String) id;
+                if (!_rowVariableNames.contains(name)) {
+                    scope.delete(name);
+                    if (scope.has(name, scope)) {
+                        scope.put(name, scope, Undefined.instance);
+                    }
+                }
+            } else if (id instanceof Integer) {
+                scope.delete(((Integer) id).intValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.script;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.junit.Ignore;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+/**
+ * A benchmark program (which is why it is @Ignore'd) used to show the number
+ * of rows per second that the {@link JavaScriptTransformer} evaluates, compared
+ * to the previous approach of an interpreted script and a new scope per row.
+ */
+@Ignore
+public class JavaScriptBenchmarkTest extends TestCase {
+
+    private static final int NUM_COLUMNS = 10;
+    private static final int NUM_ROWS = 100000;
+    private static final String SOURCE_CODE = "function clean(str) {\n"
+            + "  if (str == null) return null;\n"
+            + "  return str.toUpperCase().replace(/[^A-Z0-9]/g, '');\n" + "}\n"
+            + "var result = '';\n" + "for (var i = 0; i < values.length; i++) {\n"
+            + "  result = result + clean(values[i]);\n" + "}\n" + "result;";
+
+    private final InputColumn<?>[] columns = new InputColumn[NUM_COLUMNS];
+    private final List<InputRow> rows = new ArrayList<InputRow>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        for (int i = 0; i < NUM_COLUMNS; i++) {
+            columns[i] = new MockInputColumn<String>("col " + i, String.class);
+        }
+        for (int i = 0; i < NUM_ROWS; i++) {
+            final MockInputRow row = new MockInputRow();
+            for (int j = 0; j < NUM_COLUMNS; j++) {
+                row.put(columns[j], "value-" + i + "-" + j);
+            }
+            rows.add(row);
+        }
+    }
+
+    public void testTransformer() throws Exception {
+        System.out.println(getName() + " beginning.");
+        System.out.println("(" + NUM_ROWS + " rows of " + NUM_COLUMNS + " columns)");
+
+        // run twice, to also have numbers with a warmed up JIT compiler
+        for (int i = 0; i < 2; i++) {
+            runLegacy("1) Interpreted, new scope per row");
+            runTransformer("2) Compiled, reused scope per thread");
+        }
+
+        System.out.println(getName() + " finished.");
+    }
+
+    private void runTransformer(String name) {
+        final JavaScriptTransformer transformer = new JavaScriptTransformer();
+        transformer.setColumns(columns);
+        transformer.setSourceCode(SOURCE_CODE);
+        transformer.init();
+
+        final long timeBefore = System.currentTimeMillis();
+        for (InputRow row : rows) {
+            assertNotNull(transformer.transform(row)[0]);
+        }
+        report(name, timeBefore);
+    }
+
+    private void runLegacy(String name) {
+        final ContextFactory contextFactory = new ContextFactory();
+        final Script script;
+        final ScriptableObject sharedScope;
+        Context context = contextFactory.enterContext();
+        try {
+            context.setOptimizationLevel(-1);
+            script = context.compileString(SOURCE_CODE, name, 1, null);
+            sharedScope = context.initStandardObjects();
+        } finally {
+            Context.exit();
+        }
+
+        final long timeBefore = System.currentTimeMillis();
+        for (InputRow row : rows) {
+            context = contextFactory.enterContext();
+            try {
+                final Scriptable scope = context.newObject(sharedScope);
+                scope.setPrototype(sharedScope);
+                scope.setParentScope(null);
+                JavaScriptUtils.addToScope(scope, row, columns, "values");
+                assertNotNull(Context.toString(script.exec(context, scope)));
+            } finally {
+                Context.exit();
+            }
+        }
+        report(name, timeBefore);
+    }
+
+    private void report(String name, long timeBefore) {
+        final long millis = Math.max(1, System.currentTimeMillis() - timeBefore);
+        System.out.println(name + ": " + millis + " ms, " + (NUM_ROWS * 1000l / millis) + " rows/s");
+    }
+}
@@ -19,6 +19,8 @@
  */
 package org.eobjects.analyzer.beans.script;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import junit.framework.TestCase;
 
 import org.eobjects.analyzer.data.InputColumn;
@@ -52,4 +54,34 @@ public class JavaScriptFilterTest extends TestCase {
 		assertEquals(JavaScriptFilter.Category.VALID, filter.categorize(new MockInputRow().put(myCol, 0)));
 		assertEquals(JavaScriptFilter.Category.INVALID, filter.categorize(new MockInputRow().put(myCol, null)));
 	}
+
+	public void testConcurrentEvaluation() throws Exception {
+		final JavaScriptFilter filter = new JavaScriptFilter();
+		filter.setSourceCode("var v = my_col; v % 2 == 0;");
+		final InputColumn<Number> myCol = new MockInputColumn<Number>("my_col", Number.class);
+		filter.setColumns(new InputColumn[] { myCol });
+		filter.init();
+
+		final AtomicInteger errors = new AtomicInteger();
+		final Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						JavaScriptFilter.Category expected = (j % 2 == 0 ? JavaScriptFilter.Category.VALID
+								: JavaScriptFilter.Category.INVALID);
+						if (expected != filter.categorize(new MockInputRow().put(myCol, j))) {
+							errors.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, errors.get());
+	}
 }
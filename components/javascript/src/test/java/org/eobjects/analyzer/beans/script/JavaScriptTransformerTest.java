@@ -101,4 +101,52 @@ public class JavaScriptTransformerTest extends TestCase {
 		assertEquals("3", t.transform(new MockInputRow().put(col, 1.0))[0]);
 		assertEquals("3.5", t.transform(new MockInputRow().put(col, 1.5))[0]);
 	}
+
+	/**
+	 * Tests that variables defined by the script while evaluating a row are
+	 * not visible when evaluating the next row, although the scope is reused
+	 * 
+	 * @throws Exception
+	 */
+	public void testScopeIsResetBetweenRows() throws Exception {
+		JavaScriptTransformer t = new JavaScriptTransformer();
+		t.setSourceCode("var declared; if (declared == undefined) { declared = values[0]; }\n"
+				+ "if (typeof(undeclared) == 'undefined') { undeclared = values[0]; }\n"
+				+ "function f() { return declared + undeclared; }\n" + "f();");
+		InputColumn<String> col = new MockInputColumn<String>("my col", String.class);
+		t.setColumns(new InputColumn[] { col });
+		t.init();
+
+		assertEquals("aa", t.transform(new MockInputRow().put(col, "a"))[0]);
+		assertEquals("bb", t.transform(new MockInputRow().put(col, "b"))[0]);
+	}
+
+	public void testColumnVariableNames() throws Exception {
+		JavaScriptTransformer t = new JavaScriptTransformer();
+		t.setSourceCode("My_Col + my_col + MY_COL + values['My Col'];");
+		InputColumn<String> col = new MockInputColumn<String>("My Col", String.class);
+		t.setColumns(new InputColumn[] { col });
+		t.init();
+
+		assertEquals("aaaa", t.transform(new MockInputRow().put(col, "a"))[0]);
+		assertEquals("bbbb", t.transform(new MockInputRow().put(col, "b"))[0]);
+	}
+
+	public void testInterpretedModeFallback() throws Exception {
+		// a script which is too large to be compiled into a single Java method
+		StringBuilder sb = new StringBuilder("var x = 0;\n");
+		for (int i = 0; i < 10000; i++) {
+			sb.append("x = x + values[0];\n");
+		}
+		sb.append("x;");
+
+		JavaScriptTransformer t = new JavaScriptTransformer();
+		t.setSourceCode(sb.toString());
+		InputColumn<Number> col = new MockInputColumn<Number>("my number", Number.class);
+		t.setColumns(new InputColumn[] { col });
+		t.returnType = JavaScriptTransformer.ReturnType.NUMBER;
+		t.init();
+
+		assertEquals(20000.0, t.transform(new MockInputRow().put(col, 2))[0]);
+	}
 }
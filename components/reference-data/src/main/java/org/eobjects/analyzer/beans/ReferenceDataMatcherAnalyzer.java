@@ -122,6 +122,7 @@ public class ReferenceDataMatcherAnalyzer implements Analyzer<BooleanAnalyzerRes
 				// create matcher for string patterns
 				StringPatternMatcherTransformer stringPatternMatcher = new StringPatternMatcherTransformer(
 						columns[i], stringPatterns);
+				stringPatternMatcher.init();
 				outputColumns = stringPatternMatcher.getOutputColumns();
 				addMatchColumns(outputColumns);
 				_stringPatternMatchers[i] = stringPatternMatcher;
@@ -22,6 +22,7 @@ package org.eobjects.analyzer.beans.transform;
 import org.eobjects.analyzer.beans.api.Categorized;
 import org.eobjects.analyzer.beans.api.Configured;
 import org.eobjects.analyzer.beans.api.Description;
+import org.eobjects.analyzer.beans.api.Initialize;
 import org.eobjects.analyzer.beans.api.OutputColumns;
 import org.eobjects.analyzer.beans.api.Transformer;
 import org.eobjects.analyzer.beans.api.TransformerBean;
@@ -30,6 +31,7 @@ import org.eobjects.analyzer.beans.convert.ConvertToStringTransformer;
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.reference.StringPattern;
+import org.eobjects.analyzer.reference.StringPatternSet;
 
 @TransformerBean("String pattern matcher")
 @Description("Matches string values against a set of string patterns, producing a corresponding set of output columns specifying whether or not the values matched those string patterns")
@@ -45,6 +47,8 @@ public class StringPatternMatcherTransformer implements Transformer<Object> {
 	@Configured
 	MatchOutputType _outputType = MatchOutputType.TRUE_FALSE;
 
+	private volatile StringPatternSet _stringPatternSet;
+
 	public StringPatternMatcherTransformer(InputColumn<?> column, StringPattern[] stringPatterns) {
 		this();
 		_column = column;
@@ -54,6 +58,21 @@ public class StringPatternMatcherTransformer implements Transformer<Object> {
 	public StringPatternMatcherTransformer() {
 	}
 
+	@Initialize
+	public void init() {
+		_stringPatternSet = new StringPatternSet(_stringPatterns);
+	}
+
+	private StringPatternSet getStringPatternSet() {
+		StringPatternSet stringPatternSet = _stringPatternSet;
+		if (stringPatternSet == null) {
+			// not initialized, eg. when used outside of a job
+			stringPatternSet = new StringPatternSet(_stringPatterns);
+			_stringPatternSet = stringPatternSet;
+		}
+		return stringPatternSet;
+	}
+
 	@Override
 	public OutputColumns getOutputColumns() {
 		String columnName = _column.getName();
@@ -79,8 +98,10 @@ public class StringPatternMatcherTransformer implements Transformer<Object> {
 		Object[] result = new Object[_stringPatterns.length];
 		String stringValue = ConvertToStringTransformer.transformValue(value);
 
+		boolean[] matchResults = getStringPatternSet().matches(stringValue);
+
 		for (int i = 0; i < result.length; i++) {
-			boolean matches = _stringPatterns[i].matches(stringValue);
+			boolean matches = matchResults[i];
 			if (_outputType == MatchOutputType.TRUE_FALSE) {
 				result[i] = matches;
 			} else if (_outputType == MatchOutputType.INPUT_OR_NULL) {
@@ -96,6 +117,7 @@ public class StringPatternMatcherTransformer implements Transformer<Object> {
 
 	public void setStringPatterns(StringPattern[] stringPatterns) {
 		_stringPatterns = stringPatterns;
+		_stringPatternSet = null;
 	}
 
 	public void setColumn(InputColumn<?> column) {
@@ -0,0 +1,137 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.transform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.reference.RegexStringPattern;
+import org.eobjects.analyzer.reference.StringPattern;
+import org.junit.Ignore;
+
+/**
+ * A benchmark program (which is why it is @Ignore'd) used to show the number
+ * of values per second that the {@link StringPatternMatcherTransformer}
+ * matches against a large set of string patterns, compared to the previous
+ * approach of matching every pattern in sequence.
+ */
+@Ignore
+public class StringPatternBenchmarkTest extends TestCase {
+
+    private static final int NUM_PATTERNS = 60;
+    private static final int NUM_VALUES = 100000;
+
+    private final StringPattern[] stringPatterns = new StringPattern[NUM_PATTERNS];
+    private final List<String> values = new ArrayList<String>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // phone number and postal code like patterns of different countries
+        for (int i = 0; i < NUM_PATTERNS; i++) {
+            final String expression;
+            switch (i % 3) {
+            case 0:
+                expression = "\\+" + (i + 10) + " ?\\d{2}[ -]?\\d{2}[ -]?\\d{2}[ -]?\\d{2}";
+                break;
+            case 1:
+                expression = "[A-Z]{2}-" + (i % 10) + "\\d{3}";
+                break;
+            default:
+                expression = "(?:0" + (i + 10) + "|\\(0" + (i + 10) + "\\)) ?\\d{3,4}[ /-]?\\d{4}";
+                break;
+            }
+            stringPatterns[i] = new RegexStringPattern("pattern " + i, expression, i % 2 == 0);
+        }
+
+        final Random random = new Random(0);
+        for (int i = 0; i < NUM_VALUES; i++) {
+            switch (i % 4) {
+            case 0:
+                values.add("+" + (10 + random.nextInt(NUM_PATTERNS)) + " 12 34 56 78");
+                break;
+            case 1:
+                values.add("DK-" + random.nextInt(10000));
+                break;
+            case 2:
+                values.add("0" + (10 + random.nextInt(NUM_PATTERNS)) + " 123 4567");
+                break;
+            default:
+                values.add("Some street " + random.nextInt(1000));
+                break;
+            }
+        }
+    }
+
+    public void testMatching() throws Exception {
+        System.out.println(getName() + " beginning.");
+        System.out.println("(" + NUM_VALUES + " values, " + NUM_PATTERNS + " string patterns)");
+
+        // run twice, to also have numbers with a warmed up JIT compiler
+        for (int i = 0; i < 2; i++) {
+            final int matches1 = runLegacy("1) Every pattern in sequence");
+            final int matches2 = runTransformer("2) Combined automaton");
+            assertEquals(matches1, matches2);
+        }
+
+        System.out.println(getName() + " finished.");
+    }
+
+    private int runTransformer(String name) {
+        final StringPatternMatcherTransformer transformer = new StringPatternMatcherTransformer(
+                new MockInputColumn<String>("value", String.class), stringPatterns);
+        transformer.init();
+
+        int matches = 0;
+        final long timeBefore = System.currentTimeMillis();
+        for (String value : values) {
+            for (Object match : transformer.doMatching(value)) {
+                if (Boolean.TRUE.equals(match)) {
+                    matches++;
+                }
+            }
+        }
+        report(name, timeBefore);
+        return matches;
+    }
+
+    private int runLegacy(String name) {
+        int matches = 0;
+        final long timeBefore = System.currentTimeMillis();
+        for (String value : values) {
+            for (StringPattern stringPattern : stringPatterns) {
+                if (stringPattern.matches(value)) {
+                    matches++;
+                }
+            }
+        }
+        report(name, timeBefore);
+        return matches;
+    }
+
+    private void report(String name, long timeBefore) {
+        final long millis = Math.max(1, System.currentTimeMillis() - timeBefore);
+        System.out.println(name + ": " + millis + " ms, " + (NUM_VALUES * 1000l / millis) + " values/s");
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.uniqueness;
+
+import org.eobjects.analyzer.beans.api.Analyzer;
+import org.eobjects.analyzer.beans.api.AnalyzerBean;
+import org.eobjects.analyzer.beans.api.Configured;
+import org.eobjects.analyzer.beans.api.Description;
+import org.eobjects.analyzer.beans.api.Distributed;
+import org.eobjects.analyzer.beans.api.Initialize;
+import org.eobjects.analyzer.beans.api.NumberProperty;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.util.sketch.HyperLogLog;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary;
+
+/**
+ * Approximate variant of the {@link UniqueKeyCheckAnalyzer}, which uses a fixed
+ * amount of memory and no temporary files. The number of distinct keys is
+ * estimated using a {@link HyperLogLog} and the most repeated keys are tracked
+ * using a {@link SpaceSavingSummary}.
+ * 
+ * Since the sketches can be merged, this analyzer is distributable. This also
+ * allows it to be run as one partition per thread within a single job, instead
+ * of sharing a single pair of sketches between threads.
+ */
+@AnalyzerBean("Approximate unique key check")
+@Description("Estimates the uniqueness of your keys (or other fields) using a fixed amount of memory.\nUse this analyzer for very large datasets, where the exact number of non-unique keys is not needed.")
+@Distributed(reducer = ApproximateUniqueKeyCheckAnalyzerResultReducer.class)
+public class ApproximateUniqueKeyCheckAnalyzer implements Analyzer<ApproximateUniqueKeyCheckAnalyzerResult> {
+
+    @Configured(order = 1)
+    InputColumn<?> column;
+
+    @Configured(value = "Distinct count precision", required = false, order = 2)
+    @Description("Precision (4-18) of the distinct count estimate. Memory usage is 2^precision bytes and the relative standard error is 1.04/sqrt(2^precision), ie. 0.8% for the default precision of 14.")
+    @NumberProperty(negative = false, zero = false)
+    int precision = HyperLogLog.DEFAULT_PRECISION;
+
+    @Configured(value = "Non-unique samples capacity", required = false, order = 3)
+    @Description("The number of keys to monitor when looking for the most repeated keys.")
+    @NumberProperty(negative = false, zero = false)
+    int capacity = SpaceSavingSummary.DEFAULT_CAPACITY;
+
+    private HyperLogLog _hyperLogLog;
+    private SpaceSavingSummary _summary;
+    private long _rowCount;
+    private long _nullCount;
+
+    @Initialize
+    public void init() {
+        if (precision < HyperLogLog.MIN_PRECISION || precision > HyperLogLog.MAX_PRECISION) {
+            throw new IllegalStateException("Distinct count precision must be between " + HyperLogLog.MIN_PRECISION
+                    + " and " + HyperLogLog.MAX_PRECISION + ", got: " + precision);
+        }
+        _hyperLogLog = new HyperLogLog(precision);
+        _summary = new SpaceSavingSummary(capacity);
+        _rowCount = 0;
+        _nullCount = 0;
+    }
+
+    @Override
+    public void run(InputRow row, int distinctCount) {
+        final Object value = row.getValue(column);
+        _rowCount += distinctCount;
+        if (value == null) {
+            _nullCount += distinctCount;
+        } else {
+            final String str = value.toString();
+            _hyperLogLog.add(str);
+            _summary.add(str, distinctCount);
+        }
+    }
+
+    @Override
+    public ApproximateUniqueKeyCheckAnalyzerResult getResult() {
+        return new ApproximateUniqueKeyCheckAnalyzerResult(_rowCount, _nullCount, _hyperLogLog, _summary);
+    }
+}
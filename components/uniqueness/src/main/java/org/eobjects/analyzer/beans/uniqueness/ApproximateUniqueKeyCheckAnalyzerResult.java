@@ -0,0 +1,133 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.uniqueness;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eobjects.analyzer.result.AnalyzerResult;
+import org.eobjects.analyzer.result.Metric;
+import org.eobjects.analyzer.util.sketch.HyperLogLog;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary.Counter;
+
+/**
+ * {@link AnalyzerResult} class for {@link ApproximateUniqueKeyCheckAnalyzer}.
+ * Holds the sketches that the approximations are based on, so that results can
+ * be merged by the {@link ApproximateUniqueKeyCheckAnalyzerResultReducer}.
+ */
+public class ApproximateUniqueKeyCheckAnalyzerResult implements AnalyzerResult {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long _rowCount;
+    private final long _nullCount;
+    private final HyperLogLog _hyperLogLog;
+    private final SpaceSavingSummary _summary;
+
+    public ApproximateUniqueKeyCheckAnalyzerResult(long rowCount, long nullCount, HyperLogLog hyperLogLog,
+            SpaceSavingSummary summary) {
+        _rowCount = rowCount;
+        _nullCount = nullCount;
+        _hyperLogLog = hyperLogLog;
+        _summary = summary;
+    }
+
+    @Metric("Row count")
+    public long getRowCount() {
+        return _rowCount;
+    }
+
+    @Metric("Null count")
+    public long getNullCount() {
+        return _nullCount;
+    }
+
+    /**
+     * Gets the estimated number of distinct (non-null) keys.
+     * 
+     * @return
+     */
+    @Metric("Distinct count")
+    public long getDistinctCount() {
+        return _hyperLogLog.estimate();
+    }
+
+    /**
+     * Gets the estimated number of rows that repeat a key of a previous row.
+     * If the keys are unique, this number will be (close to) zero.
+     * 
+     * @return
+     */
+    @Metric("Duplicate count")
+    public long getDuplicateCount() {
+        return Math.max(0, _rowCount - _nullCount - getDistinctCount());
+    }
+
+    @Metric("Distinct count relative error")
+    public double getDistinctCountRelativeError() {
+        return _hyperLogLog.getRelativeStandardError();
+    }
+
+    /**
+     * Gets the maximum overestimation of the counts in
+     * {@link #getNonUniqueSamples()}.
+     * 
+     * @return
+     */
+    public int getMaxCountError() {
+        return (int) _summary.getMaxError();
+    }
+
+    /**
+     * Gets samples of the non-unique values. Only values that are guaranteed to
+     * be non-unique are included, but their counts may be overestimated by at
+     * most {@link #getMaxCountError()}.
+     * 
+     * @return
+     */
+    public Map<String, Integer> getNonUniqueSamples() {
+        final Map<String, Integer> samples = new LinkedHashMap<String, Integer>();
+        final List<Counter> counters = _summary.getTopCounters(_summary.getCapacity());
+        for (Counter counter : counters) {
+            if (counter.getGuaranteedCount() > 1) {
+                samples.put(counter.getValue(), (int) counter.getCount());
+            }
+        }
+        return samples;
+    }
+
+    public HyperLogLog getHyperLogLog() {
+        return _hyperLogLog;
+    }
+
+    public SpaceSavingSummary getSummary() {
+        return _summary;
+    }
+
+    @Override
+    public String toString() {
+        return "Approximate unique key check result:" + "\n - Row count: " + getRowCount() + "\n - Null count: "
+                + getNullCount() + "\n - Distinct count: " + getDistinctCount() + " (+/- "
+                + Math.round(getDistinctCountRelativeError() * 1000) / 10.0 + "%)" + "\n - Duplicate count: "
+                + getDuplicateCount();
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.uniqueness;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.eobjects.analyzer.result.AnalyzerResultReducer;
+import org.eobjects.analyzer.util.sketch.HyperLogLog;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary;
+
+/**
+ * {@link AnalyzerResultReducer} for results of the
+ * {@link ApproximateUniqueKeyCheckAnalyzer}. Merges the sketches of the partial
+ * results.
+ */
+public class ApproximateUniqueKeyCheckAnalyzerResultReducer implements
+        AnalyzerResultReducer<ApproximateUniqueKeyCheckAnalyzerResult> {
+
+    @Override
+    public ApproximateUniqueKeyCheckAnalyzerResult reduce(
+            Collection<? extends ApproximateUniqueKeyCheckAnalyzerResult> partialResults) {
+        final Iterator<? extends ApproximateUniqueKeyCheckAnalyzerResult> it = partialResults.iterator();
+        final ApproximateUniqueKeyCheckAnalyzerResult firstResult = it.next();
+
+        long rowCount = firstResult.getRowCount();
+        long nullCount = firstResult.getNullCount();
+        final HyperLogLog hyperLogLog = new HyperLogLog(firstResult.getHyperLogLog());
+        final SpaceSavingSummary summary = new SpaceSavingSummary(firstResult.getSummary());
+
+        while (it.hasNext()) {
+            final ApproximateUniqueKeyCheckAnalyzerResult partialResult = it.next();
+            rowCount += partialResult.getRowCount();
+            nullCount += partialResult.getNullCount();
+            hyperLogLog.merge(partialResult.getHyperLogLog());
+            summary.merge(partialResult.getSummary());
+        }
+
+        return new ApproximateUniqueKeyCheckAnalyzerResult(rowCount, nullCount, hyperLogLog, summary);
+    }
+}
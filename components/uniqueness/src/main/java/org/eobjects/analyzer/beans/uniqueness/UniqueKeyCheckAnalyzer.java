@@ -43,6 +43,7 @@ import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.util.WriteBuffer;
 import org.eobjects.analyzer.util.sort.SortMergeWriter;
+import org.eobjects.analyzer.util.sort.StringKeyCodec;
 
 @AnalyzerBean("Unique key check")
 @Description("Check your keys (or other fields) for uniqueness")
@@ -74,7 +75,8 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
     public void init() {
         _rowCount = new AtomicInteger();
         _nullCount = new AtomicInteger();
-        _sorter = new SortMergeWriter<String, Writer>(_bufferSize, ToStringComparator.getComparator()) {
+        _sorter = new SortMergeWriter<String, Writer>(_bufferSize, ToStringComparator.getComparator(),
+                new StringKeyCodec(), false) {
             private final CsvWriter csvWriter = new CsvWriter(CSV_CONFIGURATION);
 
             @Override
@@ -138,6 +140,7 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
         }
 
         _sorter.write(file);
+        _sorter.close();
 
         final AtomicInteger nonUniques = new AtomicInteger();
 
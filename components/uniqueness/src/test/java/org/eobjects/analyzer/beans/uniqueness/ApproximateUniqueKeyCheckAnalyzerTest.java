@@ -0,0 +1,132 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.uniqueness;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.util.FileHelper;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.eobjects.analyzer.descriptors.AnalyzerBeanDescriptor;
+import org.eobjects.analyzer.descriptors.Descriptors;
+import org.eobjects.analyzer.util.sketch.HyperLogLog;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary;
+
+import com.google.common.base.Splitter;
+
+public class ApproximateUniqueKeyCheckAnalyzerTest extends TestCase {
+
+    private final MockInputColumn<String> col = new MockInputColumn<String>("foo");
+
+    public void testDescriptor() throws Exception {
+        final AnalyzerBeanDescriptor<?> descriptor = Descriptors.ofAnalyzer(ApproximateUniqueKeyCheckAnalyzer.class);
+        assertTrue(descriptor.isDistributable());
+        assertEquals(ApproximateUniqueKeyCheckAnalyzerResultReducer.class, descriptor.getResultReducerClass());
+    }
+
+    public void testSimpleScenario() throws Exception {
+        final ApproximateUniqueKeyCheckAnalyzer analyzer = createAnalyzer();
+
+        analyzer.run(new MockInputRow().put(col, "foo"), 1);
+        analyzer.run(new MockInputRow().put(col, "bar"), 1);
+
+        final Splitter splitter = Splitter.on(' ').omitEmptyStrings();
+        final Iterable<String> it = splitter.split(FileHelper.readFileAsString(new File(
+                "src/test/resources/loremipsum.txt")));
+        for (String str : it) {
+            analyzer.run(new MockInputRow().put(col, str), 1);
+        }
+
+        analyzer.run(new MockInputRow().put(col, "foo"), 1);
+        analyzer.run(new MockInputRow().put(col, "bar"), 1);
+        analyzer.run(new MockInputRow().put(col, null), 1);
+
+        final ApproximateUniqueKeyCheckAnalyzerResult result = analyzer.getResult();
+        assertEquals(74, result.getRowCount());
+        assertEquals(1, result.getNullCount());
+        assertEquals(66, result.getDistinctCount());
+        assertEquals(7, result.getDuplicateCount());
+        assertEquals(0, result.getMaxCountError());
+
+        final Map<String, Integer> samples = result.getNonUniqueSamples();
+        assertEquals("[bar, dolor, dolore, foo, in, ut]", new TreeSet<String>(samples.keySet()).toString());
+        assertEquals(3, samples.get("in").intValue());
+        assertEquals(2, samples.get("foo").intValue());
+
+        assertEquals("Approximate unique key check result:\n - Row count: 74\n - Null count: 1\n"
+                + " - Distinct count: 66 (+/- 0.8%)\n - Duplicate count: 7", result.toString());
+    }
+
+    public void testReduce() throws Exception {
+        final ApproximateUniqueKeyCheckAnalyzer analyzer1 = createAnalyzer();
+        final ApproximateUniqueKeyCheckAnalyzer analyzer2 = createAnalyzer();
+        for (int i = 0; i < 1000; i++) {
+            analyzer1.run(new MockInputRow().put(col, "key" + i), 1);
+            analyzer2.run(new MockInputRow().put(col, "key" + (i + 1000)), 1);
+        }
+        // a key that is unique within each partition, but not in total
+        analyzer1.run(new MockInputRow().put(col, "duplicate"), 1);
+        analyzer2.run(new MockInputRow().put(col, "duplicate"), 1);
+
+        final ApproximateUniqueKeyCheckAnalyzerResult result = new ApproximateUniqueKeyCheckAnalyzerResultReducer()
+                .reduce(Arrays.asList(analyzer1.getResult(), analyzer2.getResult()));
+
+        assertEquals(2002, result.getRowCount());
+        assertEquals(0, result.getNullCount());
+        assertEquals(2001, result.getDistinctCount(), 2001 * 3 * result.getDistinctCountRelativeError());
+    }
+
+    public void testInvalidPrecision() throws Exception {
+        final ApproximateUniqueKeyCheckAnalyzer analyzer = new ApproximateUniqueKeyCheckAnalyzer();
+        analyzer.column = col;
+        analyzer.precision = 19;
+        try {
+            analyzer.init();
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("Distinct count precision must be between 4 and 18, got: 19", e.getMessage());
+        }
+    }
+
+    public void testReduceCountsBeyondIntRange() throws Exception {
+        final ApproximateUniqueKeyCheckAnalyzerResult result1 = new ApproximateUniqueKeyCheckAnalyzerResult(
+                Integer.MAX_VALUE, 10, new HyperLogLog(), new SpaceSavingSummary());
+        final ApproximateUniqueKeyCheckAnalyzerResult result2 = new ApproximateUniqueKeyCheckAnalyzerResult(
+                Integer.MAX_VALUE, 20, new HyperLogLog(), new SpaceSavingSummary());
+
+        final ApproximateUniqueKeyCheckAnalyzerResult result = new ApproximateUniqueKeyCheckAnalyzerResultReducer()
+                .reduce(Arrays.asList(result1, result2));
+        assertEquals(2L * Integer.MAX_VALUE, result.getRowCount());
+        assertEquals(30, result.getNullCount());
+        assertEquals(2L * Integer.MAX_VALUE - 30, result.getDuplicateCount());
+    }
+
+    private ApproximateUniqueKeyCheckAnalyzer createAnalyzer() {
+        final ApproximateUniqueKeyCheckAnalyzer analyzer = new ApproximateUniqueKeyCheckAnalyzer();
+        analyzer.column = col;
+        analyzer.init();
+        return analyzer;
+    }
+}
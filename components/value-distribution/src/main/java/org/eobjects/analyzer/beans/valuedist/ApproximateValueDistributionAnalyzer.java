@@ -0,0 +1,128 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.valuedist;
+
+import javax.inject.Inject;
+
+import org.eobjects.analyzer.beans.api.Analyzer;
+import org.eobjects.analyzer.beans.api.AnalyzerBean;
+import org.eobjects.analyzer.beans.api.Configured;
+import org.eobjects.analyzer.beans.api.Description;
+import org.eobjects.analyzer.beans.api.Distributed;
+import org.eobjects.analyzer.beans.api.Initialize;
+import org.eobjects.analyzer.beans.api.NumberProperty;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.util.sketch.HyperLogLog;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary;
+
+/**
+ * Approximate variant of the {@link ValueDistributionAnalyzer}, which uses a
+ * fixed amount of memory regardless of the number of distinct values. The
+ * distinct count is estimated using a {@link HyperLogLog} and the most frequent
+ * values are tracked using a {@link SpaceSavingSummary}.
+ * 
+ * Since the sketches can be merged, this analyzer is distributable. This also
+ * allows it to be run as one partition per thread within a single job, instead
+ * of sharing a single pair of sketches between threads.
+ */
+@AnalyzerBean("Approximate value distribution")
+@Description("Estimates the distribution of values in a dataset using a fixed amount of memory.\nUse this analyzer for very large datasets, where the exact distinct count and the exact counts of the most frequent values are not needed.")
+@Distributed(reducer = ApproximateValueDistributionResultReducer.class)
+public class ApproximateValueDistributionAnalyzer implements Analyzer<ApproximateValueDistributionResult> {
+
+    public static final int DEFAULT_TOP_FREQUENT_VALUES = 20;
+
+    @Inject
+    @Configured(value = "Column", order = 1)
+    InputColumn<?> _column;
+
+    @Inject
+    @Configured(value = "Top n most frequent values", required = false, order = 2)
+    @NumberProperty(negative = false, zero = false)
+    int _topFrequentValues = DEFAULT_TOP_FREQUENT_VALUES;
+
+    @Inject
+    @Configured(value = "Distinct count precision", required = false, order = 3)
+    @Description("Precision (4-18) of the distinct count estimate. Memory usage is 2^precision bytes and the relative standard error is 1.04/sqrt(2^precision), ie. 0.8% for the default precision of 14.")
+    @NumberProperty(negative = false, zero = false)
+    int _precision = HyperLogLog.DEFAULT_PRECISION;
+
+    @Inject
+    @Configured(value = "Frequent values capacity", required = false, order = 4)
+    @Description("The number of values to monitor when tracking the most frequent values. The counts of the frequent values are overestimated by at most (total count / capacity).")
+    @NumberProperty(negative = false, zero = false)
+    int _capacity = SpaceSavingSummary.DEFAULT_CAPACITY;
+
+    private HyperLogLog _hyperLogLog;
+    private SpaceSavingSummary _summary;
+    private long _totalCount;
+    private long _nullCount;
+
+    public ApproximateValueDistributionAnalyzer() {
+    }
+
+    /**
+     * Constructor used for testing and ad-hoc purposes
+     * 
+     * @param column
+     * @param topFrequentValues
+     * @param precision
+     * @param capacity
+     */
+    public ApproximateValueDistributionAnalyzer(InputColumn<?> column, int topFrequentValues, int precision,
+            int capacity) {
+        _column = column;
+        _topFrequentValues = topFrequentValues;
+        _precision = precision;
+        _capacity = capacity;
+    }
+
+    @Initialize
+    public void init() {
+        if (_precision < HyperLogLog.MIN_PRECISION || _precision > HyperLogLog.MAX_PRECISION) {
+            throw new IllegalStateException("Distinct count precision must be between " + HyperLogLog.MIN_PRECISION
+                    + " and " + HyperLogLog.MAX_PRECISION + ", got: " + _precision);
+        }
+        _hyperLogLog = new HyperLogLog(_precision);
+        _summary = new SpaceSavingSummary(_capacity);
+        _totalCount = 0;
+        _nullCount = 0;
+    }
+
+    @Override
+    public void run(InputRow row, int distinctCount) {
+        final Object value = row.getValue(_column);
+        _totalCount += distinctCount;
+        if (value == null) {
+            _nullCount += distinctCount;
+        } else {
+            final String str = value.toString();
+            _hyperLogLog.add(str);
+            _summary.add(str, distinctCount);
+        }
+    }
+
+    @Override
+    public ApproximateValueDistributionResult getResult() {
+        return new ApproximateValueDistributionResult(_column.getName(), _totalCount, _nullCount,
+                _topFrequentValues, _hyperLogLog, _summary);
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.valuedist;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.eobjects.analyzer.result.AnnotatedRowsResult;
+import org.eobjects.analyzer.result.Metric;
+import org.eobjects.analyzer.result.SingleValueFrequency;
+import org.eobjects.analyzer.result.ValueCountList;
+import org.eobjects.analyzer.result.ValueCountListImpl;
+import org.eobjects.analyzer.result.ValueFrequency;
+import org.eobjects.analyzer.util.sketch.HyperLogLog;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary.Counter;
+
+/**
+ * Result of the {@link ApproximateValueDistributionAnalyzer}. Holds the
+ * sketches that the approximations are based on, so that results can be merged
+ * by the {@link ApproximateValueDistributionResultReducer}.
+ * 
+ * The distinct count is an estimate with a relative standard error of
+ * {@link #getDistinctCountRelativeError()}. The counts of the top values are
+ * overestimated by at most {@link #getMaxCountError()}. The unique count is not
+ * known in approximate mode.
+ */
+public class ApproximateValueDistributionResult extends ValueDistributionAnalyzerResult {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String _name;
+    private final long _totalCount;
+    private final long _nullCount;
+    private final int _topFrequentValues;
+    private final HyperLogLog _hyperLogLog;
+    private final SpaceSavingSummary _summary;
+
+    public ApproximateValueDistributionResult(String name, long totalCount, long nullCount, int topFrequentValues,
+            HyperLogLog hyperLogLog, SpaceSavingSummary summary) {
+        _name = name;
+        _totalCount = totalCount;
+        _nullCount = nullCount;
+        _topFrequentValues = topFrequentValues;
+        _hyperLogLog = hyperLogLog;
+        _summary = summary;
+    }
+
+    @Override
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * Gets the total count, capped at {@link Integer#MAX_VALUE}. Use
+     * {@link #getTotalCountAsLong()} for tables with more rows.
+     */
+    @Override
+    public int getTotalCount() {
+        return (int) Math.min(Integer.MAX_VALUE, _totalCount);
+    }
+
+    /**
+     * Gets the null count, capped at {@link Integer#MAX_VALUE}. Use
+     * {@link #getNullCountAsLong()} for tables with more rows.
+     */
+    @Override
+    public int getNullCount() {
+        return (int) Math.min(Integer.MAX_VALUE, _nullCount);
+    }
+
+    public long getTotalCountAsLong() {
+        return _totalCount;
+    }
+
+    public long getNullCountAsLong() {
+        return _nullCount;
+    }
+
+    /**
+     * Gets the estimated number of distinct (non-null) values.
+     */
+    @Override
+    public Integer getDistinctCount() {
+        return (int) _hyperLogLog.estimate();
+    }
+
+    /**
+     * The unique count is not known in approximate mode.
+     * 
+     * @return null
+     */
+    @Override
+    public Integer getUniqueCount() {
+        return null;
+    }
+
+    @Metric("Distinct count relative error")
+    public double getDistinctCountRelativeError() {
+        return _hyperLogLog.getRelativeStandardError();
+    }
+
+    @Metric("Max count error")
+    public int getMaxCountError() {
+        return (int) _summary.getMaxError();
+    }
+
+    public int getTopFrequentValues() {
+        return _topFrequentValues;
+    }
+
+    public HyperLogLog getHyperLogLog() {
+        return _hyperLogLog;
+    }
+
+    public SpaceSavingSummary getSummary() {
+        return _summary;
+    }
+
+    public ValueCountList getTopValues() {
+        final ValueCountListImpl list = ValueCountListImpl.createFullList();
+        final List<Counter> counters = _summary.getTopCounters(_topFrequentValues);
+        for (Counter counter : counters) {
+            list.register(new SingleValueFrequency(counter.getValue(), (int) counter.getCount()));
+        }
+        return list;
+    }
+
+    @Override
+    public Collection<ValueFrequency> getValueCounts() {
+        final Collection<ValueFrequency> result = new TreeSet<ValueFrequency>();
+        result.addAll(getTopValues().getValueCounts());
+        if (_nullCount > 0) {
+            result.add(new SingleValueFrequency(null, getNullCount()));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the approximate count of a value, if the value is among the
+     * monitored frequent values.
+     */
+    @Override
+    public Integer getCount(String value) {
+        if (value == null) {
+            return getNullCount();
+        }
+        final Counter counter = _summary.getCounter(value);
+        if (counter == null) {
+            return null;
+        }
+        return (int) counter.getCount();
+    }
+
+    @Override
+    public Collection<String> getUniqueValues() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Integer getUnexpectedValueCount() {
+        // not applicable
+        return null;
+    }
+
+    @Override
+    public boolean hasAnnotatedRows(String value) {
+        return false;
+    }
+
+    @Override
+    public AnnotatedRowsResult getAnnotatedRowsForValue(String value) {
+        return null;
+    }
+
+    @Override
+    public AnnotatedRowsResult getAnnotatedRowsForNull() {
+        return null;
+    }
+
+    @Override
+    public AnnotatedRowsResult getAnnotatedRowsForUnexpectedValues() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("Approximate value distribution for: ");
+        sb.append(getName());
+        sb.append("\n - Distinct count: ");
+        sb.append(getDistinctCount());
+        sb.append(" (+/- ");
+        sb.append(Math.round(getDistinctCountRelativeError() * 1000) / 10.0);
+        sb.append("%)\n - Max count error: ");
+        sb.append(getMaxCountError());
+        appendToString(sb, this, 4);
+        return sb.toString();
+    }
+}
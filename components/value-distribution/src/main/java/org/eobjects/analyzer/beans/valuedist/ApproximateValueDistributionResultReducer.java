@@ -0,0 +1,60 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.valuedist;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.eobjects.analyzer.result.AnalyzerResultReducer;
+import org.eobjects.analyzer.util.sketch.HyperLogLog;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary;
+
+/**
+ * {@link AnalyzerResultReducer} for results of the
+ * {@link ApproximateValueDistributionAnalyzer}. Merges the sketches of the
+ * partial results, which gives the same error bounds as if all values had been
+ * processed by a single analyzer.
+ */
+public class ApproximateValueDistributionResultReducer implements
+        AnalyzerResultReducer<ApproximateValueDistributionResult> {
+
+    @Override
+    public ApproximateValueDistributionResult reduce(
+            Collection<? extends ApproximateValueDistributionResult> partialResults) {
+        final Iterator<? extends ApproximateValueDistributionResult> it = partialResults.iterator();
+        final ApproximateValueDistributionResult firstResult = it.next();
+
+        long totalCount = firstResult.getTotalCountAsLong();
+        long nullCount = firstResult.getNullCountAsLong();
+        final HyperLogLog hyperLogLog = new HyperLogLog(firstResult.getHyperLogLog());
+        final SpaceSavingSummary summary = new SpaceSavingSummary(firstResult.getSummary());
+
+        while (it.hasNext()) {
+            final ApproximateValueDistributionResult partialResult = it.next();
+            totalCount += partialResult.getTotalCountAsLong();
+            nullCount += partialResult.getNullCountAsLong();
+            hyperLogLog.merge(partialResult.getHyperLogLog());
+            summary.merge(partialResult.getSummary());
+        }
+
+        return new ApproximateValueDistributionResult(firstResult.getName(), totalCount, nullCount,
+                firstResult.getTopFrequentValues(), hyperLogLog, summary);
+    }
+}
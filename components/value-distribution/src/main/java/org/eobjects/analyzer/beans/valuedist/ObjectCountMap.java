@@ -0,0 +1,145 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.valuedist;
+
+/**
+ * An open-addressing hash map from object keys to int counts. Compared to a
+ * {@link java.util.HashMap} with {@link Integer} values, it neither boxes the
+ * counts nor allocates an entry object per key.
+ * 
+ * Since counts are always positive, a count of zero marks an unused slot.
+ * 
+ * @param <K>
+ *            the key type
+ */
+final class ObjectCountMap<K> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] _keys;
+    private int[] _counts;
+    private int _size;
+    private int _threshold;
+
+    public ObjectCountMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        _keys = new Object[capacity];
+        _counts = new int[capacity];
+        _threshold = capacity / 2;
+    }
+
+    /**
+     * Adds to the count of a key.
+     * 
+     * @param key
+     *            the key, cannot be null
+     * @param count
+     *            a positive number to add to the count of the key
+     */
+    public void add(K key, int count) {
+        final int mask = _keys.length - 1;
+        int i = hash(key) & mask;
+        while (_counts[i] != 0) {
+            if (key.equals(_keys[i])) {
+                _counts[i] += count;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        _keys[i] = key;
+        _counts[i] = count;
+        _size++;
+        if (_size > _threshold) {
+            rehash(_keys.length << 1);
+        }
+    }
+
+    /**
+     * Gets the count of a key.
+     * 
+     * @param key
+     * @return the count, or 0 if the key has not been counted
+     */
+    public int get(K key) {
+        final int mask = _keys.length - 1;
+        int i = hash(key) & mask;
+        while (_counts[i] != 0) {
+            if (key.equals(_keys[i])) {
+                return _counts[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    private void rehash(int capacity) {
+        final Object[] oldKeys = _keys;
+        final int[] oldCounts = _counts;
+        allocate(capacity);
+        final int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldCounts[j] != 0) {
+                int i = hash(oldKeys[j]) & mask;
+                while (_counts[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                _keys[i] = oldKeys[j];
+                _counts[i] = oldCounts[j];
+            }
+        }
+    }
+
+    private static int hash(Object key) {
+        final int h = key.hashCode() * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the number of distinct keys in the map
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * @return the number of slots in the map. Slots are iterated using
+     *         {@link #isUsed(int)}, {@link #getKeyAt(int)} and
+     *         {@link #getCountAt(int)}.
+     */
+    public int getCapacity() {
+        return _keys.length;
+    }
+
+    public boolean isUsed(int slot) {
+        return _counts[slot] != 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public K getKeyAt(int slot) {
+        return (K) _keys[slot];
+    }
+
+    public int getCountAt(int slot) {
+        return _counts[slot];
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.valuedist;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eobjects.analyzer.result.SingleValueFrequency;
+import org.eobjects.analyzer.result.ValueFrequency;
+import org.eobjects.analyzer.util.LongHashMap;
+
+/**
+ * Counts (non-null) values of a {@link ValueDistributionGroup}.
+ * 
+ * Values of integral, floating point and date types are counted in a
+ * {@link LongHashMap} keyed by a primitive representation of the value, as
+ * long as all values are of the same type. Other values are counted by their
+ * string representation in an {@link ObjectCountMap}. In both cases values are
+ * only converted to strings when the counted values are iterated.
+ * 
+ * If a value of another type than the specialized type is encountered, the
+ * counted keys are converted to strings and all further counting is done by
+ * string representation.
+ */
+final class ValueCounter implements Iterable<ValueFrequency> {
+
+    /**
+     * The types of values that can be counted by a primitive long key. Each
+     * type can convert a value to a key and a key back to the string
+     * representation of the value.
+     */
+    static enum KeyType {
+        LONG {
+            @Override
+            long toKey(Object value) {
+                return ((Long) value).longValue();
+            }
+
+            @Override
+            String toString(long key) {
+                return Long.toString(key);
+            }
+        },
+        INTEGER {
+            @Override
+            long toKey(Object value) {
+                return ((Integer) value).intValue();
+            }
+
+            @Override
+            String toString(long key) {
+                return Integer.toString((int) key);
+            }
+        },
+        SHORT {
+            @Override
+            long toKey(Object value) {
+                return ((Short) value).shortValue();
+            }
+
+            @Override
+            String toString(long key) {
+                return Short.toString((short) key);
+            }
+        },
+        BYTE {
+            @Override
+            long toKey(Object value) {
+                return ((Byte) value).byteValue();
+            }
+
+            @Override
+            String toString(long key) {
+                return Byte.toString((byte) key);
+            }
+        },
+        DOUBLE {
+            @Override
+            long toKey(Object value) {
+                return Double.doubleToLongBits(((Double) value).doubleValue());
+            }
+
+            @Override
+            String toString(long key) {
+                return Double.toString(Double.longBitsToDouble(key));
+            }
+        },
+        FLOAT {
+            @Override
+            long toKey(Object value) {
+                return Float.floatToIntBits(((Float) value).floatValue());
+            }
+
+            @Override
+            String toString(long key) {
+                return Float.toString(Float.intBitsToFloat((int) key));
+            }
+        },
+        DATE {
+            @Override
+            long toKey(Object value) {
+                return ((Date) value).getTime();
+            }
+
+            @Override
+            String toString(long key) {
+                return new Date(key).toString();
+            }
+        },
+        SQL_DATE {
+            @Override
+            long toKey(Object value) {
+                return ((java.sql.Date) value).getTime();
+            }
+
+            @Override
+            String toString(long key) {
+                return new java.sql.Date(key).toString();
+            }
+        },
+        TIME {
+            @Override
+            long toKey(Object value) {
+                return ((Time) value).getTime();
+            }
+
+            @Override
+            String toString(long key) {
+                return new Time(key).toString();
+            }
+        },
+        TIMESTAMP {
+            @Override
+            long toKey(Object value) {
+                return ((Timestamp) value).getTime();
+            }
+
+            @Override
+            String toString(long key) {
+                return new Timestamp(key).toString();
+            }
+        };
+
+        abstract long toKey(Object value);
+
+        abstract String toString(long key);
+
+        /**
+         * Gets the key type of a value.
+         * 
+         * @param value
+         * @return the key type, or null if the value cannot be represented
+         *         by a primitive key
+         */
+        static KeyType of(Object value) {
+            final Class<?> cls = value.getClass();
+            if (cls == Long.class) {
+                return LONG;
+            } else if (cls == Integer.class) {
+                return INTEGER;
+            } else if (cls == Short.class) {
+                return SHORT;
+            } else if (cls == Byte.class) {
+                return BYTE;
+            } else if (cls == Double.class) {
+                return DOUBLE;
+            } else if (cls == Float.class) {
+                return FLOAT;
+            } else if (cls == Date.class) {
+                return DATE;
+            } else if (cls == java.sql.Date.class) {
+                return SQL_DATE;
+            } else if (cls == Time.class) {
+                return TIME;
+            } else if (cls == Timestamp.class) {
+                // only millisecond precision is retained by the key
+                if (((Timestamp) value).getNanos() % 1000000 == 0) {
+                    return TIMESTAMP;
+                }
+            }
+            return null;
+        }
+    }
+
+    private KeyType _keyType;
+    private LongHashMap _longCounts;
+    private ObjectCountMap<String> _stringCounts;
+
+    /**
+     * Adds to the count of a value.
+     * 
+     * @param value
+     *            the value, cannot be null
+     * @param count
+     */
+    public void add(Object value, int count) {
+        if (_stringCounts == null) {
+            final KeyType keyType = KeyType.of(value);
+            if (_keyType == null && keyType != null) {
+                _keyType = keyType;
+                _longCounts = new LongHashMap();
+            }
+            if (keyType != null && keyType == _keyType) {
+                _longCounts.addTo(keyType.toKey(value), count);
+                return;
+            }
+            switchToStringCounts();
+        }
+        _stringCounts.add(value.toString(), count);
+    }
+
+    private void switchToStringCounts() {
+        _stringCounts = new ObjectCountMap<String>();
+        if (_longCounts != null) {
+            final int capacity = _longCounts.getCapacity();
+            for (int i = 0; i < capacity; i++) {
+                if (_longCounts.isUsed(i)) {
+                    _stringCounts.add(_keyType.toString(_longCounts.getKeyAt(i)), (int) _longCounts.getValueAt(i));
+                }
+            }
+            _longCounts = null;
+        }
+    }
+
+    /**
+     * Gets the key type used for counting values.
+     * 
+     * @return the key type, or null if values are counted by their string
+     *         representation (or if nothing has been counted yet)
+     */
+    KeyType getKeyType() {
+        if (_stringCounts != null) {
+            return null;
+        }
+        return _keyType;
+    }
+
+    /**
+     * @return the number of distinct values counted
+     */
+    public int size() {
+        if (_stringCounts != null) {
+            return _stringCounts.size();
+        }
+        if (_longCounts != null) {
+            return _longCounts.size();
+        }
+        return 0;
+    }
+
+    /**
+     * Iterates the counted values and their counts, converting values to
+     * strings as they are iterated.
+     */
+    @Override
+    public Iterator<ValueFrequency> iterator() {
+        final int capacity;
+        if (_stringCounts != null) {
+            capacity = _stringCounts.getCapacity();
+        } else if (_longCounts != null) {
+            capacity = _longCounts.getCapacity();
+        } else {
+            capacity = 0;
+        }
+
+        return new Iterator<ValueFrequency>() {
+            private int _slot = nextSlot(0);
+
+            private int nextSlot(int slot) {
+                while (slot < capacity && !isUsed(slot)) {
+                    slot++;
+                }
+                return slot;
+            }
+
+            private boolean isUsed(int slot) {
+                if (_stringCounts != null) {
+                    return _stringCounts.isUsed(slot);
+                }
+                return _longCounts.isUsed(slot);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return _slot < capacity;
+            }
+
+            @Override
+            public ValueFrequency next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final ValueFrequency result;
+                if (_stringCounts != null) {
+                    result = new SingleValueFrequency(_stringCounts.getKeyAt(_slot), _stringCounts.getCountAt(_slot));
+                } else {
+                    result = new SingleValueFrequency(_keyType.toString(_longCounts.getKeyAt(_slot)),
+                            (int) _longCounts.getValueAt(_slot));
+                }
+                _slot = nextSlot(_slot + 1);
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
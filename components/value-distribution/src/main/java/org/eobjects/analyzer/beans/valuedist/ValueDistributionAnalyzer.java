@@ -28,6 +28,7 @@ import javax.inject.Inject;
 
 import org.eobjects.analyzer.beans.api.Analyzer;
 import org.eobjects.analyzer.beans.api.AnalyzerBean;
+import org.eobjects.analyzer.beans.api.Close;
 import org.eobjects.analyzer.beans.api.ColumnProperty;
 import org.eobjects.analyzer.beans.api.Concurrent;
 import org.eobjects.analyzer.beans.api.Configured;
@@ -37,9 +38,11 @@ import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.storage.CollectionFactory;
 import org.eobjects.analyzer.storage.CollectionFactoryImpl;
+import org.eobjects.analyzer.storage.CombinedStorageProvider;
 import org.eobjects.analyzer.storage.InMemoryRowAnnotationFactory;
 import org.eobjects.analyzer.storage.InMemoryStorageProvider;
 import org.eobjects.analyzer.storage.RowAnnotationFactory;
+import org.eobjects.analyzer.storage.StorageProvider;
 import org.eobjects.analyzer.util.NullTolerableComparator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +54,12 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
 
     private static final Logger logger = LoggerFactory.getLogger(ValueDistributionAnalyzer.class);
 
+    /**
+     * The max number of distinct values (per group) to keep in memory, if
+     * not configured, when the provided collections are stored on disk.
+     */
+    public static final int DEFAULT_MAX_VALUES_IN_MEMORY = 100000;
+
     @Inject
     @Configured(value = "Column", order = 1)
     @ColumnProperty(escalateToMultipleJobs = true)
@@ -79,6 +88,11 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     @Deprecated
     Integer _bottomFrequentValues;
 
+    @Inject
+    @Configured(value = "Max distinct values in memory", required = false, order = 7)
+    @Description("The max number of distinct values (per group) to keep in memory. Above this limit values are spilled to temporary files and drill-down information is no longer recorded. If not set, all values are kept in memory, unless the configured storage provider stores collections on disk.")
+    Integer _maxValuesInMemory;
+
     @Inject
     @Provided
     CollectionFactory _collectionFactory;
@@ -148,17 +162,13 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
 
     public void runInternal(InputRow row, Object value, String group, int distinctCount) {
         final ValueDistributionGroup valueDistributionGroup = getValueDistributionGroup(group);
-        final String stringValue;
         if (value == null) {
             logger.debug("value is null");
-            stringValue = null;
-        } else {
-            stringValue = value.toString();
         }
-        valueDistributionGroup.run(row, stringValue, distinctCount);
+        valueDistributionGroup.run(row, value, distinctCount);
     }
 
-    private ValueDistributionGroup getValueDistributionGroup(String group) {
+    ValueDistributionGroup getValueDistributionGroup(String group) {
         ValueDistributionGroup valueDistributionGroup = _valueDistributionGroups.get(group);
         if (valueDistributionGroup == null) {
             synchronized (this) {
@@ -170,8 +180,8 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
                     } else {
                         inputColumns = new InputColumn[] { _column, _groupColumn };
                     }
-                    valueDistributionGroup = new ValueDistributionGroup(group, _collectionFactory, _annotationFactory,
-                            _recordDrillDownInformation, inputColumns);
+                    valueDistributionGroup = new ValueDistributionGroup(group, _annotationFactory,
+                            _recordDrillDownInformation, inputColumns, getMaxValuesInMemory());
                     _valueDistributionGroups.put(group, valueDistributionGroup);
                 }
             }
@@ -179,6 +189,29 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
         return valueDistributionGroup;
     }
 
+    /**
+     * Gets the max number of distinct values (per group) to keep in memory.
+     * If not configured, values are only spilled to temporary files when the
+     * provided {@link CollectionFactory} stores collections on disk.
+     * 
+     * @return
+     */
+    private int getMaxValuesInMemory() {
+        if (_maxValuesInMemory != null) {
+            return _maxValuesInMemory.intValue();
+        }
+        if (_collectionFactory instanceof CollectionFactoryImpl) {
+            StorageProvider storageProvider = ((CollectionFactoryImpl) _collectionFactory).getStorageProvider();
+            if (storageProvider instanceof CombinedStorageProvider) {
+                storageProvider = ((CombinedStorageProvider) storageProvider).getCollectionsStorageProvider();
+            }
+            if (storageProvider != null && !(storageProvider instanceof InMemoryStorageProvider)) {
+                return DEFAULT_MAX_VALUES_IN_MEMORY;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
     @Override
     public ValueDistributionAnalyzerResult getResult() {
         if (_groupColumn == null) {
@@ -201,6 +234,13 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
         }
     }
 
+    @Close
+    public void close() {
+        for (ValueDistributionGroup valueDistributionGroup : _valueDistributionGroups.values()) {
+            valueDistributionGroup.close();
+        }
+    }
+
     public void setAnnotationFactory(RowAnnotationFactory annotationFactory) {
         _annotationFactory = annotationFactory;
     }
@@ -220,6 +260,10 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
         _bottomFrequentValues = bottomFrequentValues;
     }
 
+    public void setMaxValuesInMemory(Integer maxValuesInMemory) {
+        _maxValuesInMemory = maxValuesInMemory;
+    }
+
     public void setColumn(InputColumn<?> column) {
         _column = column;
     }
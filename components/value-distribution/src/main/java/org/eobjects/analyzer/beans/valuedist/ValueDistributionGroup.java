@@ -19,22 +19,25 @@
  */
 package org.eobjects.analyzer.beans.valuedist;
 
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
+import org.apache.metamodel.util.ToStringComparator;
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.result.SingleValueFrequency;
-import org.eobjects.analyzer.result.ValueFrequency;
 import org.eobjects.analyzer.result.ValueCountListImpl;
-import org.eobjects.analyzer.storage.CollectionFactory;
+import org.eobjects.analyzer.result.ValueFrequency;
 import org.eobjects.analyzer.storage.RowAnnotation;
 import org.eobjects.analyzer.storage.RowAnnotationFactory;
 import org.eobjects.analyzer.storage.RowAnnotationImpl;
+import org.eobjects.analyzer.util.sort.SortMerger;
+import org.eobjects.analyzer.util.sort.SortedRowHandler;
+import org.eobjects.analyzer.util.sort.StringKeyCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,118 +46,150 @@ import org.slf4j.LoggerFactory;
  * {@link ValueDistributionGroup} contains the counted values within a single
  * group.
  * 
- * 
+ * Values are counted in memory until the number of distinct values exceeds a
+ * limit. From then on, values are counted by a {@link SortMerger} which spills
+ * sorted runs of values to temporary files and merges them when the result is
+ * created. Drill-down information is not recorded for values in a spilled
+ * group. By default there is no limit, ie. values are never spilled.
  */
-class ValueDistributionGroup {
+class ValueDistributionGroup implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(ValueDistributionGroup.class);
 
-    private final Map<String, Integer> _counterMap;
-    private final Map<String, RowAnnotation> _annotationMap;
     private final RowAnnotation _nullValueAnnotation;
     private final RowAnnotationFactory _annotationFactory;
     private final String _groupName;
     private final boolean _recordAnnotations;
     private final InputColumn<?>[] _inputColumns;
+    private final int _maxValuesInMemory;
+    private ValueCounter _valueCounter;
+    private Map<String, RowAnnotation> _annotationMap;
+    private SortMerger<String> _spilledValues;
     private int _totalCount;
 
-    public ValueDistributionGroup(String groupName, CollectionFactory collectionFactory,
-            RowAnnotationFactory annotationFactory, boolean recordAnnotations, InputColumn<?>[] inputColumns) {
+    public ValueDistributionGroup(String groupName, RowAnnotationFactory annotationFactory, boolean recordAnnotations,
+            InputColumn<?>[] inputColumns) {
+        this(groupName, annotationFactory, recordAnnotations, inputColumns, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 
+     * @param groupName
+     * @param annotationFactory
+     * @param recordAnnotations
+     * @param inputColumns
+     * @param maxValuesInMemory
+     *            the max number of distinct values to keep in memory before
+     *            spilling values to temporary files
+     */
+    public ValueDistributionGroup(String groupName, RowAnnotationFactory annotationFactory, boolean recordAnnotations,
+            InputColumn<?>[] inputColumns, int maxValuesInMemory) {
         _groupName = groupName;
         _annotationFactory = annotationFactory;
         _recordAnnotations = recordAnnotations;
         _inputColumns = inputColumns;
+        _maxValuesInMemory = maxValuesInMemory;
         if (recordAnnotations) {
             _annotationMap = new HashMap<String, RowAnnotation>();
-            _counterMap = null;
+            _valueCounter = null;
             _nullValueAnnotation = _annotationFactory.createAnnotation();
         } else {
             _annotationMap = null;
-            _counterMap = collectionFactory.createMap(String.class, Integer.class);
+            _valueCounter = new ValueCounter();
             _nullValueAnnotation = new RowAnnotationImpl();
         }
     }
 
-    public synchronized void run(InputRow row, String value, int distinctCount) {
+    public synchronized void run(InputRow row, Object value, int distinctCount) {
         if (value == null) {
             if (_recordAnnotations) {
                 _annotationFactory.annotate(row, distinctCount, _nullValueAnnotation);
             } else {
-                ((RowAnnotationImpl)_nullValueAnnotation).incrementRowCount(distinctCount);
+                ((RowAnnotationImpl) _nullValueAnnotation).incrementRowCount(distinctCount);
             }
-        } else if (_recordAnnotations) {
-            RowAnnotation annotation = _annotationMap.get(value);
+        } else if (_spilledValues != null) {
+            _spilledValues.append(value.toString(), distinctCount);
+        } else if (_annotationMap != null) {
+            final String stringValue = value.toString();
+            RowAnnotation annotation = _annotationMap.get(stringValue);
             if (annotation == null) {
                 annotation = _annotationFactory.createAnnotation();
-                _annotationMap.put(value, annotation);
+                _annotationMap.put(stringValue, annotation);
             }
             _annotationFactory.annotate(row, distinctCount, annotation);
-
+            if (_annotationMap.size() > _maxValuesInMemory) {
+                spillValues();
+            }
         } else {
-            Integer count = _counterMap.get(value);
-            if (count == null) {
-                count = 0;
+            _valueCounter.add(value, distinctCount);
+            if (_valueCounter.size() > _maxValuesInMemory) {
+                spillValues();
             }
-            count = count + distinctCount;
-            _counterMap.put(value, count);
         }
         _totalCount += distinctCount;
     }
 
-    public SingleValueDistributionResult createResult(Integer topFrequentValues, Integer bottomFrequentValues,
-            boolean recordUniqueValues) {
-        final ValueCountListImpl topValues;
-        final ValueCountListImpl bottomValues;
-        if (topFrequentValues == null || bottomFrequentValues == null) {
-            topValues = ValueCountListImpl.createFullList();
-            bottomValues = null;
-        } else {
-            topValues = ValueCountListImpl.createTopList(topFrequentValues);
-            bottomValues = ValueCountListImpl.createBottomList(bottomFrequentValues);
-        }
+    /**
+     * Moves the counted values from memory to a {@link SortMerger} which
+     * will count all further values.
+     */
+    private void spillValues() {
+        logger.info("Number of distinct values in group '{}' exceeds {}, spilling values to disk", _groupName,
+                _maxValuesInMemory);
 
-        final List<String> uniqueValues;
-        if (recordUniqueValues) {
-            uniqueValues = new ArrayList<String>();
+        _spilledValues = new SortMerger<String>(_maxValuesInMemory, ToStringComparator.getComparator(),
+                new StringKeyCodec(), false);
+
+        if (_annotationMap != null) {
+            logger.warn("Drill-down information of group '{}' is discarded since values are spilled to disk",
+                    _groupName);
+            for (Entry<String, RowAnnotation> entry : _annotationMap.entrySet()) {
+                final RowAnnotation annotation = entry.getValue();
+                _spilledValues.append(entry.getKey(), annotation.getRowCount());
+                _annotationFactory.reset(annotation);
+            }
+            _annotationMap = null;
         } else {
-            uniqueValues = null;
+            for (ValueFrequency valueFrequency : _valueCounter) {
+                _spilledValues.append(valueFrequency.getValue(), valueFrequency.getCount());
+            }
+            _valueCounter = null;
         }
+    }
 
-        int uniqueCount = 0;
-        final int entryCount;
+    /**
+     * Determines if values of this group have been spilled to disk.
+     * 
+     * @return
+     */
+    public boolean isSpilled() {
+        return _spilledValues != null;
+    }
 
-        if (_recordAnnotations) {
-            entryCount = _annotationMap.size();
-            final Set<Entry<String, RowAnnotation>> entrySet = _annotationMap.entrySet();
+    public SingleValueDistributionResult createResult(Integer topFrequentValues, Integer bottomFrequentValues,
+            boolean recordUniqueValues) {
+        final ValueCountCollector collector = new ValueCountCollector(topFrequentValues, bottomFrequentValues,
+                recordUniqueValues);
 
-            int i = 0;
-            for (Entry<String, RowAnnotation> entry : entrySet) {
-                if (i % 100000 == 0 && i != 0) {
-                    logger.info("Processing unique value entry no. {}", i);
-                }
-                final String value = entry.getKey();
-                final RowAnnotation annotation = entry.getValue();
-                final int count = annotation.getRowCount();
-                uniqueCount = countValue(recordUniqueValues, topValues, bottomValues, uniqueValues, uniqueCount, value,
-                        count);
-                i++;
+        final Map<String, RowAnnotation> annotations;
+        if (_spilledValues != null) {
+            annotations = null;
+            _spilledValues.merge(collector);
+        } else if (_annotationMap != null) {
+            annotations = _annotationMap;
+            for (Entry<String, RowAnnotation> entry : _annotationMap.entrySet()) {
+                collector.add(entry.getKey(), entry.getValue().getRowCount());
             }
         } else {
-            entryCount = _counterMap.size();
-            final Set<Entry<String, Integer>> entrySet = _counterMap.entrySet();
-            int i = 0;
-            for (Entry<String, Integer> entry : entrySet) {
-                if (i % 100000 == 0 && i != 0) {
-                    logger.info("Processing unique value entry no. {}", i);
-                }
-                final String value = entry.getKey();
-                final Integer count = entry.getValue();
-                uniqueCount = countValue(recordUniqueValues, topValues, bottomValues, uniqueValues, uniqueCount, value,
-                        count);
-                i++;
+            annotations = null;
+            for (ValueFrequency valueFrequency : _valueCounter) {
+                collector.add(valueFrequency.getValue(), valueFrequency.getCount());
             }
         }
 
+        final int entryCount = collector.getEntryCount();
+        final int uniqueCount = collector.getUniqueCount();
+
         final int distinctCount;
         if (_nullValueAnnotation.getRowCount() > 0) {
             distinctCount = 1 + entryCount;
@@ -162,36 +197,101 @@ class ValueDistributionGroup {
             distinctCount = entryCount;
         }
 
-        final Map<String, RowAnnotation> annotations;
-        if (_recordAnnotations) {
-            annotations = _annotationMap;
+        if (recordUniqueValues) {
+            return new SingleValueDistributionResult(_groupName, collector.getTopValues(),
+                    collector.getBottomValues(), collector.getUniqueValues(), uniqueCount, distinctCount, _totalCount,
+                    annotations, _nullValueAnnotation, _annotationFactory, _inputColumns);
         } else {
-            annotations = null;
+            return new SingleValueDistributionResult(_groupName, collector.getTopValues(),
+                    collector.getBottomValues(), uniqueCount, distinctCount, _totalCount, annotations,
+                    _nullValueAnnotation, _annotationFactory, _inputColumns);
         }
+    }
 
-        if (recordUniqueValues) {
-            return new SingleValueDistributionResult(_groupName, topValues, bottomValues, uniqueValues, uniqueCount,
-                    distinctCount, _totalCount, annotations, _nullValueAnnotation, _annotationFactory, _inputColumns);
-        } else {
-            return new SingleValueDistributionResult(_groupName, topValues, bottomValues, uniqueCount, distinctCount,
-                    _totalCount, annotations, _nullValueAnnotation, _annotationFactory, _inputColumns);
+    /**
+     * Deletes temporary files, if values have been spilled to disk.
+     */
+    @Override
+    public synchronized void close() {
+        if (_spilledValues != null) {
+            _spilledValues.close();
         }
     }
 
-    private int countValue(boolean recordUniqueValues, ValueCountListImpl topValues, ValueCountListImpl bottomValues,
-            final List<String> uniqueValues, int uniqueCount, final String value, final int count) {
-        if (count == 1) {
+    /**
+     * Collects values and counts into the top/bottom lists and unique values
+     * of a result.
+     */
+    private static final class ValueCountCollector implements SortedRowHandler<String> {
+
+        private final ValueCountListImpl _topValues;
+        private final ValueCountListImpl _bottomValues;
+        private final List<String> _uniqueValues;
+        private final boolean _recordUniqueValues;
+        private int _uniqueCount;
+        private int _entryCount;
+
+        public ValueCountCollector(Integer topFrequentValues, Integer bottomFrequentValues,
+                boolean recordUniqueValues) {
+            if (topFrequentValues == null || bottomFrequentValues == null) {
+                _topValues = ValueCountListImpl.createFullList();
+                _bottomValues = null;
+            } else {
+                _topValues = ValueCountListImpl.createTopList(topFrequentValues);
+                _bottomValues = ValueCountListImpl.createBottomList(bottomFrequentValues);
+            }
+
+            _recordUniqueValues = recordUniqueValues;
             if (recordUniqueValues) {
-                uniqueValues.add(value);
+                _uniqueValues = new ArrayList<String>();
+            } else {
+                _uniqueValues = null;
             }
-            uniqueCount++;
-        } else {
-            ValueFrequency vc = new SingleValueFrequency(value, count);
-            topValues.register(vc);
-            if (bottomValues != null) {
-                bottomValues.register(vc);
+        }
+
+        @Override
+        public void handleRow(String value, int count) {
+            add(value, count);
+        }
+
+        public void add(String value, int count) {
+            if (_entryCount % 100000 == 0 && _entryCount != 0) {
+                logger.info("Processing unique value entry no. {}", _entryCount);
             }
+            _entryCount++;
+
+            if (count == 1) {
+                if (_recordUniqueValues) {
+                    _uniqueValues.add(value);
+                }
+                _uniqueCount++;
+            } else {
+                ValueFrequency vc = new SingleValueFrequency(value, count);
+                _topValues.register(vc);
+                if (_bottomValues != null) {
+                    _bottomValues.register(vc);
+                }
+            }
+        }
+
+        public ValueCountListImpl getTopValues() {
+            return _topValues;
+        }
+
+        public ValueCountListImpl getBottomValues() {
+            return _bottomValues;
+        }
+
+        public List<String> getUniqueValues() {
+            return _uniqueValues;
+        }
+
+        public int getUniqueCount() {
+            return _uniqueCount;
+        }
+
+        public int getEntryCount() {
+            return _entryCount;
         }
-        return uniqueCount;
     }
 }
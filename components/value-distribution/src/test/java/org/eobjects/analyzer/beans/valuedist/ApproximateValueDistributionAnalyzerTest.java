@@ -0,0 +1,142 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.valuedist;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.eobjects.analyzer.descriptors.AnalyzerBeanDescriptor;
+import org.eobjects.analyzer.descriptors.Descriptors;
+import org.eobjects.analyzer.result.ValueFrequency;
+import org.eobjects.analyzer.util.sketch.HyperLogLog;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary;
+
+public class ApproximateValueDistributionAnalyzerTest extends TestCase {
+
+    private final InputColumn<String> column = new MockInputColumn<String>("foo", String.class);
+
+    public void testDescriptor() throws Exception {
+        AnalyzerBeanDescriptor<?> desc = Descriptors.ofAnalyzer(ApproximateValueDistributionAnalyzer.class);
+        assertEquals("Approximate value distribution", desc.getDisplayName());
+        assertEquals(4, desc.getConfiguredProperties().size());
+        assertTrue(desc.isDistributable());
+        assertEquals(ApproximateValueDistributionResultReducer.class, desc.getResultReducerClass());
+    }
+
+    public void testSmallDistribution() throws Exception {
+        final ApproximateValueDistributionAnalyzer analyzer = new ApproximateValueDistributionAnalyzer(column, 2,
+                12, 100);
+        analyzer.init();
+        analyzer.run(new MockInputRow().put(column, "hello"), 3);
+        analyzer.run(new MockInputRow().put(column, "world"), 1);
+        analyzer.run(new MockInputRow().put(column, "hi"), 2);
+        analyzer.run(new MockInputRow().put(column, null), 1);
+
+        final ApproximateValueDistributionResult result = analyzer.getResult();
+        assertEquals("foo", result.getName());
+        assertEquals(7, result.getTotalCount());
+        assertEquals(1, result.getNullCount());
+        assertEquals(3, result.getDistinctCount().intValue());
+        assertNull(result.getUniqueCount());
+        assertEquals(0, result.getMaxCountError());
+        assertEquals(3, result.getCount("hello").intValue());
+        assertEquals(1, result.getCount(null).intValue());
+
+        final List<ValueFrequency> topValues = result.getTopValues().getValueCounts();
+        assertEquals("[[hello->3], [hi->2]]", topValues.toString());
+
+        assertEquals("Approximate value distribution for: foo\n - Distinct count: 3 (+/- 1.6%)\n"
+                + " - Max count error: 0\n - hello: 3\n - hi: 2\n - <null>: 1", result.toString());
+    }
+
+    public void testReduce() throws Exception {
+        final ApproximateValueDistributionResult result1 = runManyValues(0, 60000);
+        final ApproximateValueDistributionResult result2 = runManyValues(40000, 100000);
+
+        final ApproximateValueDistributionResult result = new ApproximateValueDistributionResultReducer()
+                .reduce(Arrays.asList(result1, result2));
+
+        assertEquals(result1.getTotalCount() + result2.getTotalCount(), result.getTotalCount());
+        assertEquals(0, result.getNullCount());
+
+        final int distinctCount = result.getDistinctCount();
+        final double error = Math.abs(distinctCount - 100000) / 100000d;
+        assertTrue("Distinct count was " + distinctCount, error < 3 * result.getDistinctCountRelativeError());
+
+        // the frequent value is repeated in both partial results
+        final List<ValueFrequency> topValues = result.getTopValues().getValueCounts();
+        assertEquals("frequent", topValues.get(0).getValue());
+        final int frequentCount = topValues.get(0).getCount();
+        assertTrue(frequentCount >= 12000);
+        assertTrue(frequentCount <= 12000 + result.getMaxCountError());
+
+        // partial results should not be modified by the reduction
+        assertEquals(result1.getTotalCount(), result1.getSummary().getTotalCount());
+
+        // results must be serializable to be sent between cluster nodes
+        final ApproximateValueDistributionResult copy = (ApproximateValueDistributionResult) SerializationUtils
+                .clone(result);
+        assertEquals(result.getDistinctCount(), copy.getDistinctCount());
+        assertEquals(result.getTopValues().getValueCounts(), copy.getTopValues().getValueCounts());
+    }
+
+    public void testInvalidPrecision() throws Exception {
+        final ApproximateValueDistributionAnalyzer analyzer = new ApproximateValueDistributionAnalyzer(column, 2, 3,
+                100);
+        try {
+            analyzer.init();
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("Distinct count precision must be between 4 and 18, got: 3", e.getMessage());
+        }
+    }
+
+    public void testReduceCountsBeyondIntRange() throws Exception {
+        final ApproximateValueDistributionResult result1 = new ApproximateValueDistributionResult("foo",
+                Integer.MAX_VALUE, 10, 5, new HyperLogLog(), new SpaceSavingSummary());
+        final ApproximateValueDistributionResult result2 = new ApproximateValueDistributionResult("foo",
+                Integer.MAX_VALUE, 20, 5, new HyperLogLog(), new SpaceSavingSummary());
+
+        final ApproximateValueDistributionResult result = new ApproximateValueDistributionResultReducer()
+                .reduce(Arrays.asList(result1, result2));
+        assertEquals(2L * Integer.MAX_VALUE, result.getTotalCountAsLong());
+        assertEquals(30, result.getNullCountAsLong());
+        assertEquals(Integer.MAX_VALUE, result.getTotalCount());
+    }
+
+    private ApproximateValueDistributionResult runManyValues(int from, int to) {
+        final ApproximateValueDistributionAnalyzer analyzer = new ApproximateValueDistributionAnalyzer(column, 5,
+                12, 100);
+        analyzer.init();
+        for (int i = from; i < to; i++) {
+            analyzer.run(new MockInputRow().put(column, "value" + i), 1);
+            if (i % 10 == 0) {
+                analyzer.run(new MockInputRow().put(column, "frequent"), 1);
+            }
+        }
+        return analyzer.getResult();
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.valuedist;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.junit.Ignore;
+
+/**
+ * A benchmark program (which is why it is @Ignore'd) used to show the memory
+ * consumption per distinct value of the {@link ValueCounter}, compared to the
+ * previously used HashMap of strings and integers.
+ */
+@Ignore
+public class ValueCounterBenchmarkTest extends TestCase {
+
+    private static final int NUM_DISTINCT_VALUES = 2000000;
+
+    public void testMemoryPerDistinctValue() throws Exception {
+        System.out.println(getName() + " beginning.");
+        System.out.println("(" + NUM_DISTINCT_VALUES + " distinct values)");
+
+        runHashMap("1) HashMap<String,Integer>, long values", false);
+        runValueCounter("2) ValueCounter, long values", false);
+        runHashMap("3) HashMap<String,Integer>, double values", true);
+        runValueCounter("4) ValueCounter, double values", true);
+        runValueCounter("5) ValueCounter, string values", null);
+
+        System.out.println(getName() + " finished.");
+    }
+
+    private void runHashMap(String name, boolean doubles) {
+        final long memoryBefore = usedMemory();
+        final long timeBefore = System.currentTimeMillis();
+
+        final Map<String, Integer> map = new HashMap<String, Integer>();
+        for (int i = 0; i < NUM_DISTINCT_VALUES; i++) {
+            final String value;
+            if (doubles) {
+                value = Double.valueOf(i + 0.5).toString();
+            } else {
+                value = Long.valueOf(i).toString();
+            }
+            Integer count = map.get(value);
+            if (count == null) {
+                count = 0;
+            }
+            map.put(value, count + 1);
+        }
+
+        report(name, memoryBefore, timeBefore);
+
+        // (also keeps the map reachable while measuring memory)
+        assertEquals(NUM_DISTINCT_VALUES, map.size());
+    }
+
+    private void runValueCounter(String name, Boolean doubles) {
+        final long memoryBefore = usedMemory();
+        final long timeBefore = System.currentTimeMillis();
+
+        final ValueCounter counter = new ValueCounter();
+        for (int i = 0; i < NUM_DISTINCT_VALUES; i++) {
+            final Object value;
+            if (doubles == null) {
+                value = "value" + i;
+            } else if (doubles.booleanValue()) {
+                value = Double.valueOf(i + 0.5);
+            } else {
+                value = Long.valueOf(i);
+            }
+            counter.add(value, 1);
+        }
+
+        report(name, memoryBefore, timeBefore);
+
+        // (also keeps the counter reachable while measuring memory)
+        assertEquals(NUM_DISTINCT_VALUES, counter.size());
+    }
+
+    private void report(String name, long memoryBefore, long timeBefore) {
+        final long timeAfter = System.currentTimeMillis();
+        final long memoryAfter = usedMemory();
+
+        System.out.println(name + " results:");
+        System.out.println("- TOTAL time: " + (timeAfter - timeBefore));
+        System.out.println("- bytes per distinct value: " + ((memoryAfter - memoryBefore) / NUM_DISTINCT_VALUES));
+    }
+
+    private long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
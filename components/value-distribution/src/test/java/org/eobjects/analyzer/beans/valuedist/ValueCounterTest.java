@@ -0,0 +1,119 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.beans.valuedist;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.beans.valuedist.ValueCounter.KeyType;
+import org.eobjects.analyzer.result.ValueFrequency;
+
+public class ValueCounterTest extends TestCase {
+
+    public void testCountIntegers() throws Exception {
+        ValueCounter counter = new ValueCounter();
+        counter.add(1, 1);
+        counter.add(2, 1);
+        counter.add(-3, 2);
+        counter.add(1, 3);
+
+        assertEquals(KeyType.INTEGER, counter.getKeyType());
+        assertEquals(3, counter.size());
+        assertEquals("{-3=2, 1=4, 2=1}", toMap(counter).toString());
+    }
+
+    public void testCountManyLongs() throws Exception {
+        ValueCounter counter = new ValueCounter();
+        for (long i = 0; i < 10000; i++) {
+            counter.add(i, 1);
+            counter.add(i % 10, 1);
+        }
+        assertEquals(KeyType.LONG, counter.getKeyType());
+        assertEquals(10000, counter.size());
+
+        Map<String, Integer> map = toMap(counter);
+        assertEquals(1001, map.get("5").intValue());
+        assertEquals(1, map.get("9999").intValue());
+    }
+
+    public void testCountDoubles() throws Exception {
+        ValueCounter counter = new ValueCounter();
+        counter.add(1.5, 1);
+        counter.add(0.0, 1);
+        counter.add(-0.0, 1);
+        counter.add(Double.NaN, 1);
+        counter.add(0.0 / 0.0, 1);
+
+        assertEquals(KeyType.DOUBLE, counter.getKeyType());
+        assertEquals("{-0.0=1, 0.0=1, 1.5=1, NaN=2}", toMap(counter).toString());
+    }
+
+    public void testCountDatesAsStrings() throws Exception {
+        Date date = new Date(1400000000000l);
+        Timestamp timestamp = new Timestamp(1400000000123l);
+
+        ValueCounter counter = new ValueCounter();
+        counter.add(timestamp, 1);
+        counter.add(new Timestamp(timestamp.getTime()), 1);
+        assertEquals(KeyType.TIMESTAMP, counter.getKeyType());
+        assertEquals("{" + timestamp + "=2}", toMap(counter).toString());
+
+        counter = new ValueCounter();
+        counter.add(date, 1);
+        assertEquals(KeyType.DATE, counter.getKeyType());
+        assertEquals("{" + date + "=1}", toMap(counter).toString());
+    }
+
+    public void testTimestampWithNanosIsCountedAsString() throws Exception {
+        Timestamp timestamp = new Timestamp(1400000000123l);
+        timestamp.setNanos(123456789);
+
+        ValueCounter counter = new ValueCounter();
+        counter.add(timestamp, 1);
+        assertNull(counter.getKeyType());
+        assertEquals("{" + timestamp + "=1}", toMap(counter).toString());
+    }
+
+    public void testSwitchToStringsOnMixedTypes() throws Exception {
+        ValueCounter counter = new ValueCounter();
+        counter.add(1, 2);
+        counter.add(2, 1);
+        assertEquals(KeyType.INTEGER, counter.getKeyType());
+
+        counter.add(1l, 1);
+        counter.add("2", 1);
+        counter.add("foo", 1);
+        assertNull(counter.getKeyType());
+
+        assertEquals("{1=3, 2=2, foo=1}", toMap(counter).toString());
+    }
+
+    private Map<String, Integer> toMap(ValueCounter counter) {
+        Map<String, Integer> map = new TreeMap<String, Integer>();
+        for (ValueFrequency valueFrequency : counter) {
+            assertNull(map.put(valueFrequency.getValue(), valueFrequency.getCount()));
+        }
+        return map;
+    }
+}
@@ -19,8 +19,11 @@
  */
 package org.eobjects.analyzer.beans.valuedist;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import junit.framework.TestCase;
 
@@ -35,6 +38,9 @@ import org.eobjects.analyzer.descriptors.MetricParameters;
 import org.eobjects.analyzer.result.GroupedValueCountingAnalyzerResult;
 import org.eobjects.analyzer.result.ValueCountList;
 import org.eobjects.analyzer.result.ValueCountingAnalyzerResult;
+import org.eobjects.analyzer.result.ValueFrequency;
+import org.eobjects.analyzer.storage.CollectionFactoryImpl;
+import org.eobjects.analyzer.storage.MemoryMappedStorageProvider;
 import org.apache.metamodel.schema.MutableColumn;
 
 public class ValueDistributionAnalyzerTest extends TestCase {
@@ -42,7 +48,7 @@ public class ValueDistributionAnalyzerTest extends TestCase {
     public void testDescriptor() throws Exception {
         AnalyzerBeanDescriptor<?> desc = Descriptors.ofAnalyzer(ValueDistributionAnalyzer.class);
         assertEquals(0, desc.getInitializeMethods().size());
-        assertEquals(6, desc.getConfiguredProperties().size());
+        assertEquals(7, desc.getConfiguredProperties().size());
         assertEquals(2, desc.getProvidedProperties().size());
         assertEquals("Value distribution", desc.getDisplayName());
     }
@@ -177,4 +183,74 @@ public class ValueDistributionAnalyzerTest extends TestCase {
         assertEquals("Group: 2200", resultLines[i++]);
         assertEquals(" - Copenhagen N: 3", resultLines[i++]);
     }
+
+    public void testSpillValuesToDisk() throws Exception {
+        final SingleValueDistributionResult inMemoryResult = runManyValues(true, null);
+        assertTrue(inMemoryResult.hasAnnotatedRows("v2"));
+
+        for (boolean recordDrillDownInformation : new boolean[] { true, false }) {
+            final SingleValueDistributionResult spilledResult = runManyValues(recordDrillDownInformation, 3);
+
+            assertEquals(inMemoryResult.getTotalCount(), spilledResult.getTotalCount());
+            assertEquals(inMemoryResult.getNullCount(), spilledResult.getNullCount());
+            assertEquals(inMemoryResult.getDistinctCount(), spilledResult.getDistinctCount());
+            assertEquals(inMemoryResult.getUniqueCount(), spilledResult.getUniqueCount());
+            assertEquals(new TreeSet<String>(inMemoryResult.getUniqueValues()),
+                    new TreeSet<String>(spilledResult.getUniqueValues()));
+            // (values with the same count may be ordered differently)
+            assertEquals(getCounts(inMemoryResult.getTopValues()), getCounts(spilledResult.getTopValues()));
+            assertEquals(getCounts(inMemoryResult.getBottomValues()), getCounts(spilledResult.getBottomValues()));
+
+            // drill-down information is discarded when values are spilled
+            assertFalse(spilledResult.hasAnnotatedRows("v2"));
+        }
+    }
+
+    public void testSpillByDefaultWithDiskBasedStorageProvider() throws Exception {
+        final ValueDistributionAnalyzer vd = new ValueDistributionAnalyzer(new MetaModelInputColumn(new MutableColumn(
+                "col")), true, null, null);
+        assertFalse(vd.getValueDistributionGroup("col").isSpilled());
+
+        final ValueDistributionAnalyzer spillingVd = new ValueDistributionAnalyzer(new MetaModelInputColumn(
+                new MutableColumn("col")), true, null, null);
+        spillingVd.setRecordDrillDownInformation(false);
+        spillingVd.setCollectionFactory(new CollectionFactoryImpl(new MemoryMappedStorageProvider()));
+        try {
+            for (int i = 0; i <= ValueDistributionAnalyzer.DEFAULT_MAX_VALUES_IN_MEMORY; i++) {
+                spillingVd.runInternal(new MockInputRow(), "v" + i, 1);
+            }
+            assertTrue(spillingVd.getValueDistributionGroup("col").isSpilled());
+            assertEquals(ValueDistributionAnalyzer.DEFAULT_MAX_VALUES_IN_MEMORY + 1, spillingVd.getResult()
+                    .getUniqueCount().intValue());
+        } finally {
+            spillingVd.close();
+        }
+    }
+
+    private List<Integer> getCounts(ValueCountList valueCountList) {
+        final List<Integer> counts = new ArrayList<Integer>();
+        for (ValueFrequency valueFrequency : valueCountList.getValueCounts()) {
+            counts.add(valueFrequency.getCount());
+        }
+        return counts;
+    }
+
+    private SingleValueDistributionResult runManyValues(boolean recordDrillDownInformation, Integer maxValuesInMemory) {
+        final ValueDistributionAnalyzer vd = new ValueDistributionAnalyzer(new MetaModelInputColumn(new MutableColumn(
+                "col")), true, 2, 2);
+        vd.setRecordDrillDownInformation(recordDrillDownInformation);
+        vd.setMaxValuesInMemory(maxValuesInMemory);
+
+        for (int i = 0; i < 20; i++) {
+            vd.runInternal(new MockInputRow(), "v" + i, 1);
+            vd.runInternal(new MockInputRow(), "v" + (i % 5), i % 3 + 1);
+        }
+        vd.runInternal(new MockInputRow(), null, 2);
+
+        try {
+            return (SingleValueDistributionResult) vd.getResult();
+        } finally {
+            vd.close();
+        }
+    }
 }
@@ -24,6 +24,10 @@ import org.eobjects.analyzer.job.AnalysisJob;
 import org.eobjects.analyzer.job.ComponentJob;
 import org.eobjects.analyzer.job.runner.AnalysisListener;
 import org.eobjects.analyzer.job.runner.ComponentContextImpl;
+import org.eobjects.analyzer.storage.CollectionFactoryImpl;
+import org.eobjects.analyzer.storage.CollectionSpillListener;
+import org.eobjects.analyzer.storage.CollectionSpilledMessage;
+import org.eobjects.analyzer.storage.SpillableCollection;
 
 /**
  * {@link InjectionManager} that will wrap an existing {@link InjectionManager}
@@ -54,7 +58,30 @@ public class ContextAwareInjectionManager implements InjectionManager {
             return (E) componentContext;
         }
 
-        return _delegate.getInstance(injectionPoint);
+        final E instance = _delegate.getInstance(injectionPoint);
+        if (instance instanceof SpillableCollection) {
+            ((SpillableCollection) instance).addSpillListener(createSpillListener());
+        } else if (instance instanceof CollectionFactoryImpl) {
+            ((CollectionFactoryImpl) instance).addSpillListener(createSpillListener());
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a listener which publishes spills of provided collections as
+     * component messages, like {@link ComponentContextImpl} does.
+     * 
+     * @return
+     */
+    private CollectionSpillListener createSpillListener() {
+        return new CollectionSpillListener() {
+            @Override
+            public void onCollectionSpilled(CollectionSpilledMessage message) {
+                if (_listener != null) {
+                    _listener.onComponentMessage(_job, _componentJob, message);
+                }
+            }
+        };
     }
 
 }
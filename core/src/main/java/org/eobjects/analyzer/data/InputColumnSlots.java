@@ -0,0 +1,118 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A fixed layout of {@link InputColumn}s, assigning every column an integer
+ * slot. Rows which share a layout can store and look up values in arrays
+ * instead of maps, see {@link TransformedInputRow} and
+ * {@link MetaModelInputRow}.
+ * 
+ * The column-to-slot lookup is kept within the layout, so the (shared) column
+ * objects of a job are never modified and several layouts of the same columns
+ * can be used at the same time, eg. by concurrent runs of a job. Columns are
+ * looked up by identity, and equal, but not identical, columns by a linear
+ * search.
+ */
+public final class InputColumnSlots implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final InputColumn<?>[] _columns;
+    private final Map<InputColumn<?>, Integer> _slots;
+
+    /**
+     * Creates a layout where the slots of the columns are their positions in
+     * the collection.
+     * 
+     * @param columns
+     */
+    public InputColumnSlots(Collection<? extends InputColumn<?>> columns) {
+        this(columns.toArray(new InputColumn<?>[columns.size()]));
+    }
+
+    /**
+     * Creates a layout where the slots of the columns are their indices in the
+     * array. The array may contain null elements, representing unused slots.
+     * If a column occurs more than once, the first slot is used.
+     * 
+     * @param columns
+     */
+    public InputColumnSlots(InputColumn<?>[] columns) {
+        _columns = Arrays.copyOf(columns, columns.length);
+        _slots = new IdentityHashMap<InputColumn<?>, Integer>(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            final InputColumn<?> column = columns[i];
+            if (column != null && !_slots.containsKey(column)) {
+                _slots.put(column, i);
+            }
+        }
+    }
+
+    /**
+     * Gets the slot of a column.
+     * 
+     * @param column
+     * @return the slot of the column, or -1 if the column is not part of this
+     *         layout
+     */
+    public int getSlot(InputColumn<?> column) {
+        final Integer slot = _slots.get(column);
+        if (slot != null) {
+            return slot.intValue();
+        }
+        for (int i = 0; i < _columns.length; i++) {
+            if (_columns[i] != null && _columns[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the column of a particular slot.
+     * 
+     * @param slot
+     * @return the column, or null if the slot is unused
+     */
+    public InputColumn<?> getColumn(int slot) {
+        return _columns[slot];
+    }
+
+    /**
+     * Gets the number of slots in this layout.
+     * 
+     * @return
+     */
+    public int size() {
+        return _columns.length;
+    }
+
+    @Override
+    public String toString() {
+        return "InputColumnSlots" + Arrays.toString(_columns);
+    }
+}
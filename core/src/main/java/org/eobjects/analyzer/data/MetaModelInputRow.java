@@ -36,6 +36,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A physical {@link InputRow} originating from a MetaModel {@link Row} object.
+ * 
+ * If the row is created with {@link InputColumnSlots} that map physical
+ * columns to the indices of the row's select items, values are looked up by
+ * index instead of by resolving the column in the row's header.
  */
 public final class MetaModelInputRow extends AbstractInputRow {
 
@@ -45,10 +49,25 @@ public final class MetaModelInputRow extends AbstractInputRow {
 
     private final Row _row;
     private final int _rowNumber;
+    private final transient InputColumnSlots _slots;
 
     public MetaModelInputRow(int rowNumber, Row row) {
+        this(rowNumber, row, null);
+    }
+
+    /**
+     * 
+     * @param rowNumber
+     * @param row
+     * @param slots
+     *            a layout of physical columns where the slots are the indices
+     *            of the select items of the row, or null if columns should be
+     *            resolved by the row itself
+     */
+    public MetaModelInputRow(int rowNumber, Row row, InputColumnSlots slots) {
         _rowNumber = rowNumber;
         _row = row;
+        _slots = slots;
     }
 
     @Override
@@ -84,8 +103,14 @@ public final class MetaModelInputRow extends AbstractInputRow {
         if (!column.isPhysicalColumn()) {
             return null;
         }
-        Column physicalColumn = column.getPhysicalColumn();
-        Object value = _row.getValue(physicalColumn);
+        final int slot = (_slots == null ? -1 : _slots.getSlot(column));
+        Object value;
+        if (slot == -1) {
+            Column physicalColumn = column.getPhysicalColumn();
+            value = _row.getValue(physicalColumn);
+        } else {
+            value = _row.getValue(slot);
+        }
 
         value = convertValue(value);
 
@@ -19,9 +19,12 @@
  */
 package org.eobjects.analyzer.data;
 
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -30,6 +33,15 @@ import org.slf4j.LoggerFactory;
 /**
  * Represents a row with transformed values as well as a delegate row (typically
  * a {@link MetaModelInputRow} delegate).
+ * 
+ * If the row is created with {@link InputColumnSlots}, values of the columns in
+ * the layout are stored in a "frame" of flat arrays, which only holds the
+ * values that are added to this row. Values of other rows are looked up in the
+ * chain of delegate rows (parent frames) with the same layout, by slot, so
+ * the column only has to be looked up in the layout once. Values of columns
+ * outside of the layout are kept in a map. The order in which values are added
+ * is recorded, so that {@link #getTransformedInputColumns()} returns the
+ * columns in that order.
  */
 public final class TransformedInputRow extends AbstractInputRow {
 
@@ -37,15 +49,41 @@ public final class TransformedInputRow extends AbstractInputRow {
 
     private static final Logger logger = LoggerFactory.getLogger(TransformedInputRow.class);
 
+    private static final int INITIAL_FRAME_CAPACITY = 4;
+
     private final InputRow _delegate;
-    private final Map<InputColumn<?>, Object> _values;
     private final int _rowId;
+    private final InputColumnSlots _slots;
+    private Map<InputColumn<?>, Object> _values;
+
+    /**
+     * The slots of the added values, in the order that they were added, or -1
+     * for values that are kept in the map.
+     */
+    private int[] _addedSlots;
+    private Object[] _addedValues;
+    private int _addedCount;
 
     public TransformedInputRow(InputRow delegate) {
         this(delegate, null);
     }
 
     public TransformedInputRow(InputRow delegate, Integer rowId) {
+        this(delegate, rowId, null);
+    }
+
+    /**
+     * 
+     * @param delegate
+     *            the row to delegate to for values that are not in this row
+     * @param rowId
+     *            the id of the row, or null if the id of the delegate should
+     *            be used
+     * @param slots
+     *            the layout of transformed columns, or null if no fixed layout
+     *            is available
+     */
+    public TransformedInputRow(InputRow delegate, Integer rowId, InputColumnSlots slots) {
         if (delegate == null) {
             throw new IllegalArgumentException("Delegate cannot be null");
         }
@@ -55,7 +93,7 @@ public final class TransformedInputRow extends AbstractInputRow {
         } else {
             _rowId = rowId;
         }
-        _values = new LinkedHashMap<InputColumn<?>, Object>();
+        _slots = slots;
     }
 
     @Override
@@ -65,8 +103,14 @@ public final class TransformedInputRow extends AbstractInputRow {
 
     @Override
     public boolean containsInputColumn(InputColumn<?> inputColumn) {
-        if (inputColumn.isVirtualColumn() && _values.containsKey(inputColumn)) {
-            return true;
+        if (inputColumn.isVirtualColumn()) {
+            final int slot = getSlot(inputColumn);
+            if (slot != -1) {
+                return getFrame(slot) != null || getLastFrame()._delegate.containsInputColumn(inputColumn);
+            }
+            if (_values != null && _values.containsKey(inputColumn)) {
+                return true;
+            }
         }
         return _delegate.containsInputColumn(inputColumn);
     }
@@ -75,7 +119,93 @@ public final class TransformedInputRow extends AbstractInputRow {
         if (inputColumn.isPhysicalColumn()) {
             throw new IllegalArgumentException("Cannot add physical column values to transformed InputRow.");
         }
-        _values.put(inputColumn, value);
+        final int slot = getSlot(inputColumn);
+        if (slot == -1) {
+            if (_values == null) {
+                _values = new LinkedHashMap<InputColumn<?>, Object>();
+            }
+            if (_slots != null && !_values.containsKey(inputColumn)) {
+                addToFrame(-1, null);
+            }
+            _values.put(inputColumn, value);
+        } else {
+            final int index = indexOfSlot(slot);
+            if (index == -1) {
+                addToFrame(slot, value);
+            } else {
+                _addedValues[index] = value;
+            }
+        }
+    }
+
+    private void addToFrame(int slot, Object value) {
+        if (_addedSlots == null) {
+            _addedSlots = new int[INITIAL_FRAME_CAPACITY];
+            _addedValues = new Object[INITIAL_FRAME_CAPACITY];
+        } else if (_addedCount == _addedSlots.length) {
+            _addedSlots = Arrays.copyOf(_addedSlots, _addedCount * 2);
+            _addedValues = Arrays.copyOf(_addedValues, _addedCount * 2);
+        }
+        _addedSlots[_addedCount] = slot;
+        _addedValues[_addedCount] = value;
+        _addedCount++;
+    }
+
+    /**
+     * Gets the index of a slot in the frame of this row.
+     * 
+     * @param slot
+     * @return the index, or -1 if no value has been added for the slot
+     */
+    private int indexOfSlot(int slot) {
+        for (int i = 0; i < _addedCount; i++) {
+            if (_addedSlots[i] == slot) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the row (this row or a parent frame) which holds the value of a
+     * slot.
+     * 
+     * @param slot
+     * @return the row, or null if none of the frames holds a value of the slot
+     */
+    private TransformedInputRow getFrame(int slot) {
+        TransformedInputRow frame = this;
+        while (frame != null) {
+            if (frame.indexOfSlot(slot) != -1) {
+                return frame;
+            }
+            frame = frame.getParentFrame();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the last row in the chain of frames with the same layout, ie. the
+     * row that delegates to a row without (or with another) layout.
+     */
+    private TransformedInputRow getLastFrame() {
+        TransformedInputRow frame = this;
+        TransformedInputRow parentFrame = getParentFrame();
+        while (parentFrame != null) {
+            frame = parentFrame;
+            parentFrame = frame.getParentFrame();
+        }
+        return frame;
+    }
+
+    private TransformedInputRow getParentFrame() {
+        if (_delegate instanceof TransformedInputRow) {
+            final TransformedInputRow transformedDelegate = (TransformedInputRow) _delegate;
+            if (transformedDelegate._slots == _slots) {
+                return transformedDelegate;
+            }
+        }
+        return null;
     }
 
     @SuppressWarnings("unchecked")
@@ -85,12 +215,27 @@ public final class TransformedInputRow extends AbstractInputRow {
             logger.debug("Column is physical, delegating.");
             return _delegate.getValue(column);
         }
-        if (_values.containsKey(column)) {
+        final int slot = getSlot(column);
+        if (slot != -1) {
+            final TransformedInputRow frame = getFrame(slot);
+            if (frame != null) {
+                return (E) frame._addedValues[frame.indexOfSlot(slot)];
+            }
+            return getLastFrame()._delegate.getValue(column);
+        }
+        if (_values != null && _values.containsKey(column)) {
             return (E) _values.get(column);
         }
         return _delegate.getValue(column);
     }
 
+    private int getSlot(InputColumn<?> column) {
+        if (_slots == null) {
+            return -1;
+        }
+        return _slots.getSlot(column);
+    }
+
     public InputRow getDelegate() {
         return _delegate;
     }
@@ -98,16 +243,44 @@ public final class TransformedInputRow extends AbstractInputRow {
     @Override
     public List<InputColumn<?>> getInputColumns() {
         List<InputColumn<?>> inputColumns = _delegate.getInputColumns();
-        inputColumns.addAll(_values.keySet());
+        inputColumns.addAll(getTransformedInputColumns());
         return inputColumns;
     }
 
+    /**
+     * Gets the columns that values have been added for in this row (as opposed
+     * to the delegate row), in the order that they were added.
+     * 
+     * @return
+     */
     public Set<InputColumn<?>> getTransformedInputColumns() {
-        return _values.keySet();
+        return getTransformedValues().keySet();
+    }
+
+    private Map<InputColumn<?>, Object> getTransformedValues() {
+        final Map<InputColumn<?>, Object> result = new LinkedHashMap<InputColumn<?>, Object>();
+        if (_slots == null) {
+            if (_values != null) {
+                result.putAll(_values);
+            }
+            return result;
+        }
+        final Iterator<Entry<InputColumn<?>, Object>> entries = (_values == null ? null : _values.entrySet()
+                .iterator());
+        for (int i = 0; i < _addedCount; i++) {
+            final int slot = _addedSlots[i];
+            if (slot == -1) {
+                final Entry<InputColumn<?>, Object> entry = entries.next();
+                result.put(entry.getKey(), entry.getValue());
+            } else {
+                result.put(_slots.getColumn(slot), _addedValues[i]);
+            }
+        }
+        return result;
     }
 
     @Override
     public String toString() {
-        return "TransformedInputRow[values=" + _values + ",delegate=" + _delegate + "]";
+        return "TransformedInputRow[values=" + getTransformedValues() + ",delegate=" + _delegate + "]";
     }
 }
@@ -21,7 +21,7 @@ package org.eobjects.analyzer.descriptors;
 
 import java.lang.reflect.Method;
 
-import org.eobjects.analyzer.beans.api.Close;
+import org.eobjects.analyzer.beans.api.Initialize;
 
 final class InitializeMethodDescriptorImpl extends AbstractMethodDescriptor implements InitializeMethodDescriptor {
 
@@ -33,7 +33,7 @@ final class InitializeMethodDescriptorImpl extends AbstractMethodDescriptor impl
 
     @Override
     public boolean isDistributed() {
-        Close annotation = getAnnotation(Close.class);
+        Initialize annotation = getAnnotation(Initialize.class);
         if (annotation == null) {
             return true;
         }
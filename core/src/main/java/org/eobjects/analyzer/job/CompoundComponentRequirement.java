@@ -67,8 +67,10 @@ public class CompoundComponentRequirement implements ComponentRequirement {
 
     @Override
     public boolean isSatisfied(InputRow row, FilterOutcomes outcomes) {
-        for (FilterOutcome outcome : outcomes.getOutcomes()) {
-            if (_outcomes.contains(outcome)) {
+        // look up each of the (few) required outcomes, instead of iterating
+        // the outcomes of the record, which may require copying them
+        for (FilterOutcome outcome : _outcomes) {
+            if (outcomes.contains(outcome)) {
                 return true;
             }
         }
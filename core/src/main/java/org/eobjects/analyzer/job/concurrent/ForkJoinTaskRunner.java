@@ -0,0 +1,205 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eobjects.analyzer.job.tasks.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TaskRunner} implementation based on a work-stealing
+ * {@link ForkJoinPool}. Tasks that are submitted from within the pool (which
+ * is the case for row processing as well as the initialization, result
+ * collection and closing of components) are forked onto the submitting
+ * thread's own work queue, from where idle threads will steal them.
+ * 
+ * Since the work queues of a {@link ForkJoinPool} are unbounded, the number of
+ * pending tasks is capped. When the cap is reached, tasks are run by the
+ * submitting thread, like the caller-runs policy of the
+ * {@link MultiThreadedTaskRunner}.
+ */
+public final class ForkJoinTaskRunner implements ConfigurableTaskRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForkJoinTaskRunner.class);
+
+    private final TaskRunnerPool _pool;
+    private final TaskRunnerSettings _settings;
+    private final int _taskCapacity;
+    private final AtomicInteger _pendingTasks;
+
+    public ForkJoinTaskRunner() {
+        this(new TaskRunnerSettings());
+    }
+
+    public ForkJoinTaskRunner(int numThreads) {
+        this(new TaskRunnerSettings().setNumThreads(numThreads));
+    }
+
+    /**
+     * Creates a {@link ForkJoinTaskRunner}.
+     * 
+     * @param settings
+     *            the settings of the task runner. If no number of threads is
+     *            set, the parallelism level of the pool is the number of
+     *            available processors.
+     */
+    public ForkJoinTaskRunner(TaskRunnerSettings settings) {
+        final int numThreads = (settings.getNumThreads() == 0 ? Runtime.getRuntime().availableProcessors()
+                : settings.getNumThreads());
+        _settings = new TaskRunnerSettings(settings).setNumThreads(numThreads);
+
+        // same capacity rule as the MultiThreadedTaskRunner's work queue
+        _taskCapacity = Math.max(20, numThreads * 3);
+        _pendingTasks = new AtomicInteger();
+        _pool = new TaskRunnerPool(numThreads);
+    }
+
+    /**
+     * @return the parallelism level of the pool
+     */
+    public int getNumThreads() {
+        return _settings.getNumThreads();
+    }
+
+    @Override
+    public TaskRunnerSettings getSettings() {
+        return new TaskRunnerSettings(_settings);
+    }
+
+    @Override
+    public void run(final Task task, final TaskListener listener) {
+        logger.debug("run({},{})", task, listener);
+        executeInternal(new TaskRunnable(task, listener));
+    }
+
+    @Override
+    public void run(TaskRunnable taskRunnable) {
+        logger.debug("run({})", taskRunnable);
+        executeInternal(taskRunnable);
+    }
+
+    private void executeInternal(TaskRunnable taskRunnable) {
+        if (_pendingTasks.get() >= _taskCapacity) {
+            // too many pending tasks, let the caller run it
+            taskRunnable.run();
+            return;
+        }
+
+        final TaskRunnableAction action = new TaskRunnableAction(taskRunnable, _pendingTasks);
+        _pendingTasks.incrementAndGet();
+        try {
+            if (isPoolThread()) {
+                action.fork();
+            } else {
+                _pool.execute(action);
+            }
+        } catch (RejectedExecutionException e) {
+            _pendingTasks.decrementAndGet();
+            logger.error("Unexpected rejected execution!", e);
+        }
+    }
+
+    private boolean isPoolThread() {
+        return ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == _pool;
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("shutdown() called, shutting down fork/join pool");
+        _pool.shutdown();
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return _pool;
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        shutdown();
+    }
+
+    @Override
+    public void assistExecution() {
+        final ForkJoinTask<?> task;
+        if (isPoolThread()) {
+            task = TaskRunnableAction.pollPendingTask();
+        } else {
+            task = _pool.pollSubmission();
+        }
+
+        if (task == null) {
+            Thread.yield();
+        } else {
+            task.invoke();
+        }
+    }
+
+    /**
+     * {@link ForkJoinPool} subclass which exposes the polling of externally
+     * submitted tasks.
+     */
+    private static final class TaskRunnerPool extends ForkJoinPool {
+
+        public TaskRunnerPool(int parallelism) {
+            super(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+        }
+
+        @Override
+        protected ForkJoinTask<?> pollSubmission() {
+            return super.pollSubmission();
+        }
+    }
+
+    /**
+     * {@link ForkJoinTask} which runs a {@link TaskRunnable} and keeps track of
+     * the number of pending tasks.
+     */
+    private static final class TaskRunnableAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TaskRunnable _taskRunnable;
+        private final AtomicInteger _pendingTasks;
+
+        public TaskRunnableAction(TaskRunnable taskRunnable, AtomicInteger pendingTasks) {
+            _taskRunnable = taskRunnable;
+            _pendingTasks = pendingTasks;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                _taskRunnable.run();
+            } finally {
+                _pendingTasks.decrementAndGet();
+            }
+        }
+
+        public static ForkJoinTask<?> pollPendingTask() {
+            return pollTask();
+        }
+    }
+}
@@ -36,21 +36,39 @@ import org.slf4j.LoggerFactory;
  * java.util.concurrent package (specifically the {@link ExecutorService}
  * class).
  */
-public final class MultiThreadedTaskRunner implements TaskRunner {
+public final class MultiThreadedTaskRunner implements ConfigurableTaskRunner {
+
+    /**
+     * The number of threads that is used if no number of threads is specified
+     */
+    public static final int DEFAULT_NUM_THREADS = 30;
 
     private static final Logger logger = LoggerFactory.getLogger(MultiThreadedTaskRunner.class);
     private final ThreadFactory _threadFactory;
 
     private final ExecutorService _executorService;
-    private final int _numThreads;
+    private final TaskRunnerSettings _settings;
     private final BlockingQueue<Runnable> _workQueue;
 
     public MultiThreadedTaskRunner() {
-        this(30);
+        this(DEFAULT_NUM_THREADS);
     }
 
     public MultiThreadedTaskRunner(int numThreads) {
-        _numThreads = numThreads;
+        this(new TaskRunnerSettings().setNumThreads(numThreads));
+    }
+
+    /**
+     * Creates a {@link MultiThreadedTaskRunner} with full control of the row
+     * processing behaviour.
+     * 
+     * @param settings
+     *            the settings of the task runner. If no number of threads is
+     *            set, {@link #DEFAULT_NUM_THREADS} threads are used.
+     */
+    public MultiThreadedTaskRunner(TaskRunnerSettings settings) {
+        final int numThreads = (settings.getNumThreads() == 0 ? DEFAULT_NUM_THREADS : settings.getNumThreads());
+        _settings = new TaskRunnerSettings(settings).setNumThreads(numThreads);
 
         // if all threads are busy, newly submitted tasks will by run by caller
         final ThreadPoolExecutor.CallerRunsPolicy rejectionHandler = new ThreadPoolExecutor.CallerRunsPolicy();
@@ -70,7 +88,12 @@ public final class MultiThreadedTaskRunner implements TaskRunner {
      *         information is not available
      */
     public int getNumThreads() {
-        return _numThreads;
+        return _settings.getNumThreads();
+    }
+
+    @Override
+    public TaskRunnerSettings getSettings() {
+        return new TaskRunnerSettings(_settings);
     }
 
     @Override
@@ -0,0 +1,192 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.concurrent;
+
+/**
+ * Settings of the thread pool based {@link TaskRunner}s,
+ * {@link MultiThreadedTaskRunner} and {@link ForkJoinTaskRunner}, mostly
+ * regarding how records are dispatched to row processing components.
+ * 
+ * The settings are copied when a task runner is created, so a settings object
+ * can be reused for several task runners.
+ */
+public final class TaskRunnerSettings {
+
+    private int _numThreads;
+    private int _rowBatchSize;
+    private int _rowBufferSize;
+    private boolean _partitionedAnalyzers;
+    private int _maxThreadsPerTable;
+    private int _scanPartitions;
+
+    /**
+     * Creates settings where every record is dispatched as a separate task,
+     * read by the dispatching thread with a single query, and where the task
+     * runner's default number of threads is used.
+     */
+    public TaskRunnerSettings() {
+        _numThreads = 0;
+        _rowBatchSize = 1;
+        _rowBufferSize = 0;
+        _partitionedAnalyzers = false;
+        _maxThreadsPerTable = 0;
+        _scanPartitions = 0;
+    }
+
+    /**
+     * Creates a copy of existing settings.
+     * 
+     * @param settings
+     */
+    public TaskRunnerSettings(TaskRunnerSettings settings) {
+        _numThreads = settings._numThreads;
+        _rowBatchSize = settings._rowBatchSize;
+        _rowBufferSize = settings._rowBufferSize;
+        _partitionedAnalyzers = settings._partitionedAnalyzers;
+        _maxThreadsPerTable = settings._maxThreadsPerTable;
+        _scanPartitions = settings._scanPartitions;
+    }
+
+    /**
+     * @return the number of threads of the task runner, or 0 if the task
+     *         runner's default should be used
+     */
+    public int getNumThreads() {
+        return _numThreads;
+    }
+
+    /**
+     * Sets the number of threads of the task runner.
+     * 
+     * @param numThreads
+     * @return
+     */
+    public TaskRunnerSettings setNumThreads(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be a positive number");
+        }
+        _numThreads = numThreads;
+        return this;
+    }
+
+    public int getRowBatchSize() {
+        return _rowBatchSize;
+    }
+
+    /**
+     * Sets the number of records to consume within a single task. A value of 1
+     * means that every record is dispatched as a separate task.
+     * 
+     * @param rowBatchSize
+     * @return
+     */
+    public TaskRunnerSettings setRowBatchSize(int rowBatchSize) {
+        if (rowBatchSize < 1) {
+            throw new IllegalArgumentException("Row batch size must be a positive number");
+        }
+        _rowBatchSize = rowBatchSize;
+        return this;
+    }
+
+    public int getRowBufferSize() {
+        return _rowBufferSize;
+    }
+
+    /**
+     * Sets the capacity of a buffer that a dedicated reading thread fills with
+     * records, or 0 if records should be read by the same thread that
+     * dispatches them.
+     * 
+     * @param rowBufferSize
+     * @return
+     */
+    public TaskRunnerSettings setRowBufferSize(int rowBufferSize) {
+        if (rowBufferSize < 0) {
+            throw new IllegalArgumentException("Row buffer size cannot be negative");
+        }
+        _rowBufferSize = rowBufferSize;
+        return this;
+    }
+
+    public boolean isPartitionedAnalyzers() {
+        return _partitionedAnalyzers;
+    }
+
+    /**
+     * Sets whether or not distributable analyzers should be run as one
+     * instance per thread, with the partial results reduced into a single
+     * result when row processing is done.
+     * 
+     * @param partitionedAnalyzers
+     * @return
+     */
+    public TaskRunnerSettings setPartitionedAnalyzers(boolean partitionedAnalyzers) {
+        _partitionedAnalyzers = partitionedAnalyzers;
+        return this;
+    }
+
+    public int getMaxThreadsPerTable() {
+        return _maxThreadsPerTable;
+    }
+
+    /**
+     * Sets the maximum number of threads that may process the records of a
+     * single table at the same time, or 0 to share the threads evenly between
+     * the tables that are being processed.
+     * 
+     * @param maxThreadsPerTable
+     * @return
+     */
+    public TaskRunnerSettings setMaxThreadsPerTable(int maxThreadsPerTable) {
+        if (maxThreadsPerTable < 0) {
+            throw new IllegalArgumentException("Max threads per table cannot be negative");
+        }
+        _maxThreadsPerTable = maxThreadsPerTable;
+        return this;
+    }
+
+    public int getScanPartitions() {
+        return _scanPartitions;
+    }
+
+    /**
+     * Sets the number of concurrent queries that a single table is read with,
+     * if the table can be partitioned by a numeric primary key or by cheap
+     * offset windows. A value of 0 or 1 means that every table is read with a
+     * single query.
+     * 
+     * @param scanPartitions
+     * @return
+     */
+    public TaskRunnerSettings setScanPartitions(int scanPartitions) {
+        if (scanPartitions < 0) {
+            throw new IllegalArgumentException("Scan partitions cannot be negative");
+        }
+        _scanPartitions = scanPartitions;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskRunnerSettings[numThreads=" + _numThreads + ",rowBatchSize=" + _rowBatchSize + ",rowBufferSize="
+                + _rowBufferSize + ",partitionedAnalyzers=" + _partitionedAnalyzers + ",maxThreadsPerTable="
+                + _maxThreadsPerTable + ",scanPartitions=" + _scanPartitions + "]";
+    }
+}
@@ -19,8 +19,10 @@
  */
 package org.eobjects.analyzer.job.runner;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.eobjects.analyzer.data.InputColumn;
@@ -46,9 +48,12 @@ abstract class AbstractRowProcessingConsumer implements RowProcessingConsumer {
 
     private final AnalysisJob _analysisJob;
     private final AnalysisListener _analysisListener;
-    private final HasComponentRequirement _hasComponentRequirement;
-    private final Set<HasComponentRequirement> _sourceJobsOfInputColumns;
+
+    // requirements resolved once, since they are evaluated for every record
+    private final ComponentRequirement _componentRequirement;
+    private final ComponentRequirement[] _sourceRequirements;
     private final boolean _alwaysSatisfiedForConsume;
+    private final boolean _alwaysSatisfiedInputsForConsume;
 
     protected AbstractRowProcessingConsumer(RowProcessingPublishers publishers, HasComponentRequirement outcomeSinkJob,
             InputColumnSinkJob inputColumnSinkJob) {
@@ -67,33 +72,61 @@ abstract class AbstractRowProcessingConsumer implements RowProcessingConsumer {
             HasComponentRequirement outcomeSinkJob, Set<HasComponentRequirement> sourceJobsOfInputColumns) {
         _analysisJob = analysisJob;
         _analysisListener = analysisListener;
-        _hasComponentRequirement = outcomeSinkJob;
-        _sourceJobsOfInputColumns = sourceJobsOfInputColumns;
-        _alwaysSatisfiedForConsume = isAlwaysSatisfiedForConsume();
+        _componentRequirement = outcomeSinkJob.getComponentRequirement();
+        _sourceRequirements = buildSourceRequirements(sourceJobsOfInputColumns);
+        _alwaysSatisfiedInputsForConsume = _sourceRequirements.length == 0 || isAlwaysSatisfiedRequirement();
+        _alwaysSatisfiedForConsume = _alwaysSatisfiedInputsForConsume
+                && (_componentRequirement == null || isAlwaysSatisfiedRequirement());
     }
 
-    private boolean isAlwaysSatisfiedForConsume() {
-        if (_sourceJobsOfInputColumns.isEmpty()) {
-            return true;
+    private boolean isAlwaysSatisfiedRequirement() {
+        if (_componentRequirement == null) {
+            return false;
         }
 
-        if (isAlwaysSatisfiedRequirement()) {
+        if (_componentRequirement instanceof AnyComponentRequirement) {
             return true;
         }
+
         return false;
     }
 
-    private boolean isAlwaysSatisfiedRequirement() {
-        final ComponentRequirement componentRequirement = _hasComponentRequirement.getComponentRequirement();
-        if (componentRequirement == null) {
-            return false;
-        }
-        
-        if (componentRequirement instanceof AnyComponentRequirement) {
-            return true;
+    private static ComponentRequirement[] buildSourceRequirements(Set<HasComponentRequirement> sourceJobsOfInputColumns) {
+        final List<ComponentRequirement> result = new ArrayList<ComponentRequirement>(sourceJobsOfInputColumns.size());
+        for (final HasComponentRequirement sourceJob : sourceJobsOfInputColumns) {
+            final ComponentRequirement componentRequirement = sourceJob.getComponentRequirement();
+            if (componentRequirement != null) {
+                result.add(componentRequirement);
+            }
         }
+        return result.toArray(new ComponentRequirement[result.size()]);
+    }
 
-        return false;
+    /**
+     * Determines if this consumer will be satisfied for consuming any record,
+     * regardless of the {@link FilterOutcomes} of the record. In that case
+     * {@link #satisfiedForConsume(FilterOutcomes, InputRow)} does not need to be
+     * invoked per record.
+     * 
+     * @return
+     */
+    boolean isAlwaysSatisfiedForConsume() {
+        return _alwaysSatisfiedForConsume;
+    }
+
+    /**
+     * Gets the requirements of which (at least) one needs to be satisfied in
+     * order for this consumer to consume a record. This is either the
+     * consumer's own requirement, or, if it has none, the requirements of the
+     * sources of its input columns.
+     * 
+     * @return
+     */
+    ComponentRequirement[] getRequirementsForConsume() {
+        if (_componentRequirement != null) {
+            return new ComponentRequirement[] { _componentRequirement };
+        }
+        return _sourceRequirements.clone();
     }
 
     private static Set<HasComponentRequirement> buildSourceJobsOfInputColumns(InputColumnSinkJob inputColumnSinkJob,
@@ -119,12 +152,13 @@ abstract class AbstractRowProcessingConsumer implements RowProcessingConsumer {
      */
     @Override
     public final boolean satisfiedForConsume(FilterOutcomes outcomes, InputRow row) {
-        boolean satisfiedOutcomesForConsume = satisfiedOutcomesForConsume(_hasComponentRequirement, row, outcomes);
-        if (!satisfiedOutcomesForConsume) {
+        if (_alwaysSatisfiedForConsume) {
+            return true;
+        }
+        if (_componentRequirement != null && !_componentRequirement.isSatisfied(row, outcomes)) {
             return false;
         }
-        boolean satisfiedInputsForConsume = satisfiedInputsForConsume(row, outcomes);
-        return satisfiedInputsForConsume;
+        return satisfiedInputsForConsume(row, outcomes);
     }
 
     @Override
@@ -159,20 +193,15 @@ abstract class AbstractRowProcessingConsumer implements RowProcessingConsumer {
     protected abstract void consumeInternal(InputRow row, int distinctCount, FilterOutcomes outcomes, RowProcessingChain chain);
 
     private boolean satisfiedInputsForConsume(InputRow row, FilterOutcomes outcomes) {
-        if (_alwaysSatisfiedForConsume) {
-            return _alwaysSatisfiedForConsume;
+        if (_alwaysSatisfiedInputsForConsume) {
+            return true;
         }
 
-        final ComponentRequirement componentRequirement = _hasComponentRequirement.getComponentRequirement();
-        if (componentRequirement == null) {
-            for (final Object sourceJobsOfInputColumn : _sourceJobsOfInputColumns) {
-                // if any of the source jobs is satisfied, then continue
-                if (sourceJobsOfInputColumn instanceof HasComponentRequirement) {
-                    final HasComponentRequirement hasComponentRequirement = (HasComponentRequirement) sourceJobsOfInputColumn;
-                    final boolean satisfiedOutcomesForConsume = satisfiedOutcomesForConsume(hasComponentRequirement, row, outcomes);
-                    if (satisfiedOutcomesForConsume) {
-                        return true;
-                    }
+        if (_componentRequirement == null) {
+            // if any of the source jobs is satisfied, then continue
+            for (final ComponentRequirement sourceRequirement : _sourceRequirements) {
+                if (sourceRequirement.isSatisfied(row, outcomes)) {
+                    return true;
                 }
             }
             return false;
@@ -181,19 +210,6 @@ abstract class AbstractRowProcessingConsumer implements RowProcessingConsumer {
         return true;
     }
 
-    private boolean satisfiedOutcomesForConsume(HasComponentRequirement component, InputRow row, FilterOutcomes outcomes) {
-        boolean isSatisfiedOutcomes = false;
-        
-        final ComponentRequirement componentRequirement = component.getComponentRequirement();
-        
-        if (componentRequirement == null) {
-            isSatisfiedOutcomes = true;
-        } else {
-            isSatisfiedOutcomes = componentRequirement.isSatisfied(row, outcomes);
-        }
-        return isSatisfiedOutcomes;
-    }
-
     /**
      * Ensures that ALL outcomes are available
      */
@@ -203,10 +219,9 @@ abstract class AbstractRowProcessingConsumer implements RowProcessingConsumer {
             return true;
         }
 
-        final ComponentRequirement componentRequirement = _hasComponentRequirement.getComponentRequirement();
-        if (componentRequirement == null) {
+        if (_componentRequirement == null) {
             return true;
         }
-        return componentRequirement.isSatisfied(null, outcomes);
+        return _componentRequirement.isSatisfied(null, outcomes);
     }
 }
@@ -54,6 +54,10 @@ public interface AnalysisListener {
     /**
      * Notifies the listener about progress in the row processing operation.
      * 
+     * If the task runner is configured to dispatch rows in batches, this
+     * method will only be invoked once per batch, for the last row of the
+     * batch.
+     * 
      * @param job
      *            the job that is being run
      * @param metrics
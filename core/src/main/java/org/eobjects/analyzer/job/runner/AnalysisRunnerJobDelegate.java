@@ -21,7 +21,11 @@ package org.eobjects.analyzer.job.runner;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 
 import org.eobjects.analyzer.beans.api.Initialize;
@@ -169,13 +173,51 @@ final class AnalysisRunnerJobDelegate {
         final TaskListener rowProcessorPublishersDoneCompletionListener = new JoinTaskListener(publishers.size(),
                 finalTaskListener);
 
-        final Collection<RowProcessingPublisher> rowProcessingPublishers = publishers.getRowProcessingPublishers();
+        final List<RowProcessingPublisher> rowProcessingPublishers = sortByExpectedRows(publishers
+                .getRowProcessingPublishers());
         for (RowProcessingPublisher rowProcessingPublisher : rowProcessingPublishers) {
             logger.debug("Scheduling row processing publisher: {}", rowProcessingPublisher);
             rowProcessingPublisher.runRowProcessing(_resultQueue, rowProcessorPublishersDoneCompletionListener);
         }
     }
 
+    /**
+     * Sorts publishers so that the ones with the most expected rows are
+     * started first. Since the largest table typically determines the duration
+     * of the job, it should not wait for threads occupied by smaller tables.
+     * 
+     * The expected rows are only determined for datastores that prefer query
+     * optimization, since counting eg. a CSV file requires a full scan of it.
+     * 
+     * @param rowProcessingPublishers
+     * @return
+     */
+    private List<RowProcessingPublisher> sortByExpectedRows(Collection<RowProcessingPublisher> rowProcessingPublishers) {
+        final List<RowProcessingPublisher> result = new ArrayList<RowProcessingPublisher>(rowProcessingPublishers);
+        if (result.size() < 2) {
+            return result;
+        }
+        if (!_job.getDatastore().getPerformanceCharacteristics().isQueryOptimizationPreferred()) {
+            return result;
+        }
+
+        final Map<RowProcessingPublisher, Integer> expectedRows = new HashMap<RowProcessingPublisher, Integer>();
+        for (RowProcessingPublisher publisher : result) {
+            // the metrics of the publisher are shared, so the expected rows
+            // are not counted again when the row processing begins
+            expectedRows.put(publisher, publisher.getRowProcessingMetrics().getExpectedRows());
+        }
+
+        Collections.sort(result, new Comparator<RowProcessingPublisher>() {
+            @Override
+            public int compare(RowProcessingPublisher o1, RowProcessingPublisher o2) {
+                return expectedRows.get(o2).compareTo(expectedRows.get(o1));
+            }
+        });
+        logger.info("Scheduling row processing publishers by expected rows: {}", expectedRows);
+        return result;
+    }
+
     /**
      * Prevents that any row processing components have input from different
      * tables.
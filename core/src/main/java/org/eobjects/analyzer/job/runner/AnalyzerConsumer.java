@@ -32,6 +32,7 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
     private final Analyzer<?> _analyzer;
     private final InputColumn<?>[] _inputColumns;
     private final boolean _concurrent;
+    private final AnalyzerPartitions _partitions;
 
     public AnalyzerConsumer(Analyzer<?> analyzer, AnalyzerJob analyzerJob, InputColumn<?>[] inputColumns,
             SourceColumnFinder sourceColumnFinder) {
@@ -39,19 +40,42 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
         _analyzer = analyzer;
         _analyzerJob = analyzerJob;
         _inputColumns = inputColumns;
+        _partitions = null;
         _concurrent = determineConcurrent();
     }
 
     public AnalyzerConsumer(Analyzer<?> analyzer, AnalyzerJob analyzerJob, InputColumn<?>[] inputColumns,
             RowProcessingPublishers publishers) {
+        this(analyzer, analyzerJob, inputColumns, publishers, null);
+    }
+
+    /**
+     * Creates an {@link AnalyzerConsumer} which optionally runs the analyzer
+     * as a number of {@link AnalyzerPartitions}.
+     * 
+     * @param analyzer
+     * @param analyzerJob
+     * @param inputColumns
+     * @param publishers
+     * @param partitions
+     *            the partitions to run records through, or null if all
+     *            records should be passed to the analyzer itself.
+     */
+    public AnalyzerConsumer(Analyzer<?> analyzer, AnalyzerJob analyzerJob, InputColumn<?>[] inputColumns,
+            RowProcessingPublishers publishers, AnalyzerPartitions partitions) {
         super(publishers, analyzerJob, analyzerJob);
         _analyzer = analyzer;
         _analyzerJob = analyzerJob;
         _inputColumns = inputColumns;
+        _partitions = partitions;
         _concurrent = determineConcurrent();
     }
 
     private boolean determineConcurrent() {
+        if (_partitions != null) {
+            // every thread has it's own partition
+            return true;
+        }
         Concurrent concurrent = _analyzerJob.getDescriptor().getAnnotation(Concurrent.class);
         if (concurrent == null) {
             // analyzers are by default not concurrent
@@ -65,6 +89,16 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
         return _analyzer;
     }
 
+    /**
+     * Gets the partitions that records are passed to, if the analyzer is
+     * partitioned.
+     * 
+     * @return the partitions, or null if the analyzer is not partitioned
+     */
+    public AnalyzerPartitions getPartitions() {
+        return _partitions;
+    }
+
     @Override
     public boolean isConcurrent() {
         return _concurrent;
@@ -77,7 +111,11 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
 
     @Override
     public void consumeInternal(InputRow row, int distinctCount, FilterOutcomes outcomes, RowProcessingChain chain) {
-        _analyzer.run(row, distinctCount);
+        if (_partitions == null) {
+            _analyzer.run(row, distinctCount);
+        } else {
+            _partitions.run(row, distinctCount);
+        }
         chain.processNext(row, distinctCount, outcomes);
     }
 
@@ -0,0 +1,198 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eobjects.analyzer.beans.api.Analyzer;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.descriptors.AnalyzerBeanDescriptor;
+import org.eobjects.analyzer.descriptors.ComponentDescriptor;
+import org.eobjects.analyzer.descriptors.Descriptors;
+import org.eobjects.analyzer.job.AnalyzerJob;
+import org.eobjects.analyzer.lifecycle.LifeCycleHelper;
+import org.eobjects.analyzer.result.AnalyzerResult;
+import org.eobjects.analyzer.result.AnalyzerResultReducer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a distributable analyzer as a number of partitions, one per thread
+ * that consumes records. Each partition is a separate analyzer instance, so
+ * no synchronization is needed while consuming records. When the result is
+ * requested, the results of the partitions are merged using the analyzer's
+ * {@link AnalyzerResultReducer}, just like results are merged in a
+ * distributed (clustered) job.
+ * 
+ * The primary analyzer instance (the one initialized and closed by the
+ * {@link RowProcessingPublisher}) is used as the first partition. Additional
+ * partitions are created lazily and are initialized without the
+ * non-distributed lifecycle methods, since these are only to be invoked once
+ * per job.
+ */
+final class AnalyzerPartitions implements Analyzer<AnalyzerResult> {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyzerPartitions.class);
+
+    private final Analyzer<?> _primaryAnalyzer;
+    private final AnalyzerJob _analyzerJob;
+    private final LifeCycleHelper _lifeCycleHelper;
+    private final AtomicBoolean _primaryAnalyzerClaimed;
+    private final List<Analyzer<?>> _partitions;
+    private final ConcurrentMap<Thread, Analyzer<?>> _threadPartitions;
+
+    /**
+     * 
+     * @param primaryAnalyzer
+     *            the analyzer instance that is initialized and closed as part
+     *            of the regular job lifecycle
+     * @param analyzerJob
+     * @param lifeCycleHelper
+     *            a {@link LifeCycleHelper} used for initializing and closing
+     *            additional partitions. It should not include non-distributed
+     *            tasks.
+     */
+    public AnalyzerPartitions(Analyzer<?> primaryAnalyzer, AnalyzerJob analyzerJob, LifeCycleHelper lifeCycleHelper) {
+        if (analyzerJob.getDescriptor().getResultReducerClass() == null) {
+            throw new IllegalArgumentException("Analyzer is not distributable: " + analyzerJob);
+        }
+        _primaryAnalyzer = primaryAnalyzer;
+        _analyzerJob = analyzerJob;
+        _lifeCycleHelper = lifeCycleHelper;
+        _primaryAnalyzerClaimed = new AtomicBoolean(false);
+        _partitions = new CopyOnWriteArrayList<Analyzer<?>>();
+        _threadPartitions = new ConcurrentHashMap<Thread, Analyzer<?>>();
+    }
+
+    @Override
+    public void run(InputRow row, int distinctCount) {
+        getPartition().run(row, distinctCount);
+    }
+
+    /**
+     * Gets the partition of the current thread, creating it if necessary.
+     * 
+     * @return
+     */
+    protected Analyzer<?> getPartition() {
+        final Thread thread = Thread.currentThread();
+        Analyzer<?> partition = _threadPartitions.get(thread);
+        if (partition == null) {
+            if (_primaryAnalyzerClaimed.compareAndSet(false, true)) {
+                partition = _primaryAnalyzer;
+            } else {
+                partition = createPartition();
+            }
+            _partitions.add(partition);
+            // only the current thread registers a partition for itself
+            _threadPartitions.put(thread, partition);
+        }
+        return partition;
+    }
+
+    private Analyzer<?> createPartition() {
+        final AnalyzerBeanDescriptor<?> descriptor = _analyzerJob.getDescriptor();
+        final Analyzer<?> analyzer = descriptor.newInstance();
+        _lifeCycleHelper.assignConfiguredProperties(descriptor, analyzer, _analyzerJob.getConfiguration());
+        _lifeCycleHelper.assignProvidedProperties(descriptor, analyzer);
+        _lifeCycleHelper.initialize(descriptor, analyzer);
+        logger.debug("Created partition no. {} of {}", _partitions.size() + 1, _analyzerJob);
+        return analyzer;
+    }
+
+    /**
+     * Gets the number of partitions that have been created so far.
+     * 
+     * @return
+     */
+    public int getPartitionCount() {
+        return _partitions.size();
+    }
+
+    @Override
+    public AnalyzerResult getResult() {
+        if (_partitions.isEmpty()) {
+            // no records were consumed
+            return _primaryAnalyzer.getResult();
+        }
+
+        final List<AnalyzerResult> results = new ArrayList<AnalyzerResult>(_partitions.size());
+        for (Analyzer<?> partition : _partitions) {
+            results.add(partition.getResult());
+        }
+
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+
+        return reduce(results);
+    }
+
+    @SuppressWarnings("unchecked")
+    private AnalyzerResult reduce(List<AnalyzerResult> results) {
+        final ComponentDescriptor<? extends AnalyzerResultReducer<?>> reducerDescriptor = Descriptors
+                .ofComponent(_analyzerJob.getDescriptor().getResultReducerClass());
+
+        AnalyzerResultReducer<AnalyzerResult> reducer = null;
+        boolean success = false;
+        try {
+            reducer = (AnalyzerResultReducer<AnalyzerResult>) reducerDescriptor.newInstance();
+
+            _lifeCycleHelper.assignProvidedProperties(reducerDescriptor, reducer);
+            _lifeCycleHelper.initialize(reducerDescriptor, reducer);
+
+            final AnalyzerResult reducedResult = reducer.reduce(results);
+            success = true;
+            return reducedResult;
+        } finally {
+            if (reducer != null) {
+                _lifeCycleHelper.close(reducerDescriptor, reducer, success);
+            }
+        }
+    }
+
+    /**
+     * Closes all partitions except the primary analyzer, which is closed as
+     * part of the regular job lifecycle. References to the partitions and
+     * to the threads that used them are released.
+     * 
+     * @param success
+     */
+    public void closePartitions(boolean success) {
+        final AnalyzerBeanDescriptor<?> descriptor = _analyzerJob.getDescriptor();
+        for (Analyzer<?> partition : _partitions) {
+            if (partition != _primaryAnalyzer) {
+                _lifeCycleHelper.close(descriptor, partition, success);
+            }
+        }
+        _partitions.clear();
+        _threadPartitions.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "AnalyzerPartitions[" + _primaryAnalyzer + "]";
+    }
+}
@@ -50,8 +50,7 @@ public class ConsumeRowHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(ConsumeRowHandler.class);
 
-    private final List<RowProcessingConsumer> _consumers;
-    private final Collection<? extends FilterOutcome> _alwaysSatisfiedOutcomes;
+    private final RowProcessingPlan _plan;
 
     public static class Configuration {
         public boolean includeNonDistributedTasks = true;
@@ -71,8 +70,8 @@ public class ConsumeRowHandler {
      */
     public ConsumeRowHandler(AnalysisJob job, AnalyzerBeansConfiguration analyzerBeansConfiguration,
             Configuration configuration) {
-        _consumers = extractConsumers(job, analyzerBeansConfiguration, configuration);
-        _alwaysSatisfiedOutcomes = configuration.alwaysSatisfiedOutcomes;
+        _plan = new RowProcessingPlan(extractConsumers(job, analyzerBeansConfiguration, configuration),
+                configuration.alwaysSatisfiedOutcomes);
     }
 
     /**
@@ -86,15 +85,17 @@ public class ConsumeRowHandler {
 
     /**
      * Builds a {@link ConsumeRowHandler} based on a list of consumers as well
-     * as a collection of always-satisfied outcomes.
+     * as a collection of always-satisfied outcomes. The consumers are expected
+     * to be in execution order (see
+     * {@link RowProcessingPublisher#sortConsumers(List)}) and are compiled into
+     * an immutable plan, so later changes to the list have no effect.
      * 
      * @param consumers
      * @param alwaysSatisfiedOutcomes
      */
     public ConsumeRowHandler(List<RowProcessingConsumer> consumers,
             Collection<? extends FilterOutcome> alwaysSatisfiedOutcomes) {
-        _consumers = consumers;
-        _alwaysSatisfiedOutcomes = alwaysSatisfiedOutcomes;
+        _plan = new RowProcessingPlan(consumers, alwaysSatisfiedOutcomes);
     }
 
     /**
@@ -103,7 +104,7 @@ public class ConsumeRowHandler {
      * @return
      */
     public List<RowProcessingConsumer> getConsumers() {
-        return _consumers;
+        return _plan.getConsumers();
     }
 
     /**
@@ -114,7 +115,7 @@ public class ConsumeRowHandler {
      */
     public List<InputColumn<?>> getOutputColumns() {
         final List<InputColumn<?>> result = new ArrayList<InputColumn<?>>();
-        for (final RowProcessingConsumer consumer : _consumers) {
+        for (final RowProcessingConsumer consumer : _plan.getConsumers()) {
             final InputColumn<?>[] outputColumns = consumer.getOutputColumns();
             for (final InputColumn<?> outputColumn : outputColumns) {
                 result.add(outputColumn);
@@ -140,9 +141,9 @@ public class ConsumeRowHandler {
      * @return
      */
     public ConsumeRowResult consumeRow(final InputRow row) {
-        final FilterOutcomes outcomes = new FilterOutcomesImpl(_alwaysSatisfiedOutcomes);
-        final ConsumeRowHandlerDelegate delegate = new ConsumeRowHandlerDelegate(_consumers, row, 0, outcomes);
-        final ConsumeRowResult result = delegate.consume();
+        final FilterOutcomes outcomes = _plan.createFilterOutcomes();
+        final ConsumeRowHandlerDelegate delegate = new ConsumeRowHandlerDelegate(_plan);
+        final ConsumeRowResult result = delegate.consume(row, outcomes);
         return result;
     }
 
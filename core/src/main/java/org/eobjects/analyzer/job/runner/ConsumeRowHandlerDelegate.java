@@ -25,68 +25,70 @@ import java.util.List;
 import org.eobjects.analyzer.data.InputRow;
 
 /**
- * Delegate execution object for {@link ConsumeRowHandler}. Contains state
- * particular to processing of a single consumer in the chain, and also handles
- * recursive logic coming from {@link RowProcessingChain} callbacks.
+ * Delegate execution object for {@link ConsumeRowHandler}. Contains the state
+ * of processing a single record through a {@link RowProcessingPlan}, and also
+ * handles recursive logic coming from {@link RowProcessingChain} callbacks.
+ * 
+ * A single delegate is used for all the steps of the plan: the index of the
+ * consumer currently being invoked is kept in a field and restored when the
+ * consumer returns, so that consumers producing multiple records (calling
+ * {@link #processNext(InputRow, int, FilterOutcomes)} several times) continue
+ * at the right step.
  */
 final class ConsumeRowHandlerDelegate implements RowProcessingChain {
 
-    private final List<RowProcessingConsumer> _consumers;
-    private final InputRow _row;
-    private final int _consumerIndex;
-    private final FilterOutcomes _outcomes;
+    private final RowProcessingPlan _plan;
     private final List<InputRow> _resultRecords;
     private final List<FilterOutcomes> _resultOutcomes;
+    private int _consumerIndex;
 
-    public ConsumeRowHandlerDelegate(final List<RowProcessingConsumer> consumers, final InputRow row,
-            final int consumerIndex, final FilterOutcomes outcomes) {
-        this(consumers, row, consumerIndex, outcomes, new ArrayList<InputRow>(1), new ArrayList<FilterOutcomes>(1));
+    public ConsumeRowHandlerDelegate(final RowProcessingPlan plan) {
+        _plan = plan;
+        _resultRecords = new ArrayList<InputRow>(1);
+        _resultOutcomes = new ArrayList<FilterOutcomes>(1);
+        _consumerIndex = -1;
     }
 
-    private ConsumeRowHandlerDelegate(final List<RowProcessingConsumer> consumers, final InputRow row,
-            final int consumerIndex, final FilterOutcomes outcomes, final List<InputRow> resultRecords,
-            final List<FilterOutcomes> resultOutcomes) {
-        _consumers = consumers;
-        _row = row;
-        _consumerIndex = consumerIndex;
-        _outcomes = outcomes;
-        _resultRecords = resultRecords;
-        _resultOutcomes = resultOutcomes;
-    }
-
-    public ConsumeRowResult consume() {
-        final RowProcessingConsumer consumer = _consumers.get(_consumerIndex);
-
-        final boolean process = consumer.satisfiedForConsume(_outcomes, _row);
-        if (process) {
-            if (consumer.isConcurrent()) {
-                consumer.consume(_row, 1, _outcomes, this);
-            } else {
-                synchronized (consumer) {
-                    consumer.consume(_row, 1, _outcomes, this);
-                }
-            }
-        } else {
-            // jump to the next step
-            processNext(_row, 1, _outcomes);
-        }
-
+    public ConsumeRowResult consume(final InputRow row, final FilterOutcomes outcomes) {
+        consumeFrom(0, row, 1, outcomes);
         return new ConsumeRowResult(_resultRecords, _resultOutcomes);
     }
 
     @Override
     public void processNext(final InputRow row, final int distinctCount, final FilterOutcomes outcomes) {
-        final int nextIndex = _consumerIndex + 1;
-        if (nextIndex >= _consumers.size()) {
-            // finished!
-            _resultRecords.add(row);
-            _resultOutcomes.add(outcomes);
+        consumeFrom(_consumerIndex + 1, row, distinctCount, outcomes);
+    }
+
+    private void consumeFrom(final int startIndex, final InputRow row, final int distinctCount,
+            final FilterOutcomes outcomes) {
+        final int size = _plan.size();
+        for (int i = startIndex; i < size; i++) {
+            final RowProcessingConsumer consumer = _plan.getConsumer(i);
+            if (_plan.isRequirementChecked(i) && !_plan.isSatisfied(i, row, outcomes)) {
+                // jump to the next step
+                continue;
+            }
+
+            // the consumer will call processNext(...) for the records that
+            // should continue down the chain
+            final int previousIndex = _consumerIndex;
+            _consumerIndex = i;
+            try {
+                if (_plan.isConcurrent(i)) {
+                    consumer.consume(row, distinctCount, outcomes, this);
+                } else {
+                    synchronized (consumer) {
+                        consumer.consume(row, distinctCount, outcomes, this);
+                    }
+                }
+            } finally {
+                _consumerIndex = previousIndex;
+            }
             return;
         }
 
-        final ConsumeRowHandlerDelegate subDelegate = new ConsumeRowHandlerDelegate(_consumers, row, nextIndex,
-                outcomes, _resultRecords, _resultOutcomes);
-        subDelegate.consume();
+        // finished!
+        _resultRecords.add(row);
+        _resultOutcomes.add(outcomes);
     }
-
 }
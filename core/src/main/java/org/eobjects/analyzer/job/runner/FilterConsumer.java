@@ -19,6 +19,10 @@
  */
 package org.eobjects.analyzer.job.runner;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.eobjects.analyzer.beans.api.Concurrent;
 import org.eobjects.analyzer.beans.api.Filter;
 import org.eobjects.analyzer.beans.api.Optimizeable;
@@ -37,6 +41,7 @@ final class FilterConsumer extends AbstractRowProcessingConsumer implements RowP
     private final FilterJob _filterJob;
     private final InputColumn<?>[] _inputColumns;
     private final boolean _concurrent;
+    private final FilterOutcome[] _outcomes;
 
     public FilterConsumer(Filter<?> filter, FilterJob filterJob, InputColumn<?>[] inputColumns,
             SourceColumnFinder sourceColumnFinder) {
@@ -45,6 +50,7 @@ final class FilterConsumer extends AbstractRowProcessingConsumer implements RowP
         _filterJob = filterJob;
         _inputColumns = inputColumns;
         _concurrent = determineConcurrent();
+        _outcomes = createOutcomes();
     }
     
     public FilterConsumer(Filter<?> filter, FilterJob filterJob, InputColumn<?>[] inputColumns,
@@ -54,6 +60,29 @@ final class FilterConsumer extends AbstractRowProcessingConsumer implements RowP
         _filterJob = filterJob;
         _inputColumns = inputColumns;
         _concurrent = determineConcurrent();
+        _outcomes = createOutcomes();
+    }
+
+    /**
+     * Creates the possible outcomes of the filter, indexed by the ordinal of
+     * their category, so that they don't have to be created for every record.
+     */
+    private FilterOutcome[] createOutcomes() {
+        final Enum<?>[] categories = _filterJob.getDescriptor().getOutcomeCategoryEnum().getEnumConstants();
+        final FilterOutcome[] outcomes = new FilterOutcome[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            outcomes[i] = new ImmutableFilterOutcome(_filterJob, categories[i]);
+        }
+        return outcomes;
+    }
+
+    /**
+     * Gets all the possible outcomes of the filter.
+     * 
+     * @return
+     */
+    public List<FilterOutcome> getOutcomes() {
+        return Collections.unmodifiableList(Arrays.asList(_outcomes));
     }
 
     private boolean determineConcurrent() {
@@ -82,8 +111,13 @@ final class FilterConsumer extends AbstractRowProcessingConsumer implements RowP
 
     @Override
     public void consumeInternal(InputRow row, int distinctCount, FilterOutcomes outcomes, RowProcessingChain chain) {
-        Enum<?> category = _filter.categorize(row);
-        FilterOutcome outcome = new ImmutableFilterOutcome(_filterJob, category);
+        final Enum<?> category = _filter.categorize(row);
+        final FilterOutcome outcome;
+        if (category == null) {
+            outcome = new ImmutableFilterOutcome(_filterJob, category);
+        } else {
+            outcome = _outcomes[category.ordinal()];
+        }
         outcomes.add(outcome);
         chain.processNext(row, distinctCount, outcomes);
     }
@@ -0,0 +1,131 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eobjects.analyzer.job.FilterOutcome;
+
+/**
+ * Assigns dense integer ids to the {@link FilterOutcome}s that may occur while
+ * processing records, so that the outcomes of a record can be represented as a
+ * bitset (see {@link FilterOutcomesImpl}) and requirements can be evaluated as
+ * mask tests.
+ * 
+ * An index is built once (typically by a {@link RowProcessingPlan}) and is
+ * immutable afterwards, making it safe to share across threads.
+ */
+final class FilterOutcomeIndex {
+
+    /**
+     * An empty index, for {@link FilterOutcomesImpl} instances that are not
+     * associated with any plan.
+     */
+    public static final FilterOutcomeIndex EMPTY = new FilterOutcomeIndex(new ArrayList<FilterOutcome>(0));
+
+    private final FilterOutcome[] _outcomes;
+    private final Map<FilterOutcome, Integer> _identityIds;
+    private final Map<FilterOutcome, Integer> _ids;
+
+    public FilterOutcomeIndex(Collection<? extends FilterOutcome> outcomes) {
+        final List<FilterOutcome> list = new ArrayList<FilterOutcome>(outcomes.size());
+        _identityIds = new IdentityHashMap<FilterOutcome, Integer>();
+        _ids = new HashMap<FilterOutcome, Integer>();
+        for (final FilterOutcome outcome : outcomes) {
+            Integer id = _ids.get(outcome);
+            if (id == null) {
+                id = list.size();
+                list.add(outcome);
+                _ids.put(outcome, id);
+            }
+            // equal outcome instances share the same id
+            _identityIds.put(outcome, id);
+        }
+        _outcomes = list.toArray(new FilterOutcome[list.size()]);
+    }
+
+    /**
+     * Gets the number of outcomes in the index
+     * 
+     * @return
+     */
+    public int size() {
+        return _outcomes.length;
+    }
+
+    /**
+     * Gets the number of 64 bit words needed to represent a bitset of the
+     * outcomes in the index.
+     * 
+     * @return
+     */
+    public int getWordCount() {
+        return (_outcomes.length + 63) >>> 6;
+    }
+
+    /**
+     * Gets the id of an outcome.
+     * 
+     * @param outcome
+     * @return the id of the outcome, or -1 if the outcome is not in the index
+     */
+    public int getId(FilterOutcome outcome) {
+        // the outcome instances registered in the index are looked up by
+        // identity first, which avoids computing the (relatively expensive)
+        // hash code of the outcomes in the common case
+        Integer id = _identityIds.get(outcome);
+        if (id == null) {
+            id = _ids.get(outcome);
+            if (id == null) {
+                return -1;
+            }
+        }
+        return id.intValue();
+    }
+
+    public FilterOutcome getOutcome(int id) {
+        return _outcomes[id];
+    }
+
+    /**
+     * Creates a bitset mask for a collection of outcomes. Outcomes that are not
+     * in the index are ignored.
+     * 
+     * @param outcomes
+     * @return
+     */
+    public long[] createMask(Collection<? extends FilterOutcome> outcomes) {
+        final long[] mask = new long[getWordCount()];
+        if (outcomes != null) {
+            for (final FilterOutcome outcome : outcomes) {
+                final int id = getId(outcome);
+                if (id != -1) {
+                    mask[id >>> 6] |= 1L << id;
+                }
+            }
+        }
+        return mask;
+    }
+}
@@ -19,56 +19,133 @@
  */
 package org.eobjects.analyzer.job.runner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.eobjects.analyzer.job.FilterOutcome;
 
 /**
- * Default implementation of {@link FilterOutcomes}
+ * Default implementation of {@link FilterOutcomes}.
+ * 
+ * Outcomes that are known by the {@link FilterOutcomeIndex} of the instance
+ * are stored in a bitset, which makes adding, checking and cloning cheap.
+ * Other outcomes (or all outcomes, if the instance is not associated with an
+ * index) are stored in a regular set.
  */
 public final class FilterOutcomesImpl implements FilterOutcomes {
 
-    private final Set<FilterOutcome> _outcomes;
+    private final FilterOutcomeIndex _index;
+    private final long[] _bits;
+    private Set<FilterOutcome> _otherOutcomes;
 
-    @SuppressWarnings("unchecked")
     public FilterOutcomesImpl() {
-        this(Collections.EMPTY_LIST);
+        this(null);
     }
 
     public FilterOutcomesImpl(Collection<? extends FilterOutcome> availableOutcomes) {
-        if (availableOutcomes == null) {
-            _outcomes = new HashSet<FilterOutcome>();
-        } else {
+        _index = FilterOutcomeIndex.EMPTY;
+        _bits = new long[0];
+        if (availableOutcomes != null && !availableOutcomes.isEmpty()) {
             // always take a copy of the collection argument
-            _outcomes = new HashSet<FilterOutcome>(availableOutcomes);
+            _otherOutcomes = new HashSet<FilterOutcome>(availableOutcomes);
         }
     }
 
+    /**
+     * Creates a {@link FilterOutcomesImpl} based on an index and an initial
+     * bitset of (always satisfied) outcomes.
+     * 
+     * @param index
+     * @param initialBits
+     *            the initial bitset. The array will be copied, not modified.
+     */
+    FilterOutcomesImpl(FilterOutcomeIndex index, long[] initialBits) {
+        this(index, initialBits.clone(), null);
+    }
+
+    private FilterOutcomesImpl(FilterOutcomeIndex index, long[] bits, Set<FilterOutcome> otherOutcomes) {
+        _index = index;
+        _bits = bits;
+        _otherOutcomes = otherOutcomes;
+    }
+
     @Override
     public void add(FilterOutcome filterOutcome) {
-        _outcomes.add(filterOutcome);
+        final int id = _index.getId(filterOutcome);
+        if (id == -1) {
+            if (_otherOutcomes == null) {
+                _otherOutcomes = new HashSet<FilterOutcome>();
+            }
+            _otherOutcomes.add(filterOutcome);
+        } else {
+            _bits[id >>> 6] |= 1L << id;
+        }
     }
 
     @Override
     public boolean contains(FilterOutcome outcome) {
-        return _outcomes.contains(outcome);
+        final int id = _index.getId(outcome);
+        if (id == -1) {
+            return _otherOutcomes != null && _otherOutcomes.contains(outcome);
+        }
+        return (_bits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Determines if any of the outcomes of a mask (created by the
+     * {@link FilterOutcomeIndex} of this instance) are contained.
+     * 
+     * @param mask
+     * @return
+     */
+    boolean containsAny(long[] mask) {
+        final int length = Math.min(mask.length, _bits.length);
+        for (int i = 0; i < length; i++) {
+            if ((_bits[i] & mask[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    FilterOutcomeIndex getIndex() {
+        return _index;
     }
 
     @Override
     public FilterOutcome[] getOutcomes() {
-        return _outcomes.toArray(new FilterOutcome[_outcomes.size()]);
+        final List<FilterOutcome> result = new ArrayList<FilterOutcome>();
+        for (int i = 0; i < _bits.length; i++) {
+            long word = _bits[i];
+            while (word != 0) {
+                final int bit = Long.numberOfTrailingZeros(word);
+                result.add(_index.getOutcome((i << 6) + bit));
+                word &= word - 1;
+            }
+        }
+        if (_otherOutcomes != null) {
+            result.addAll(_otherOutcomes);
+        }
+        return result.toArray(new FilterOutcome[result.size()]);
     }
 
     @Override
     public String toString() {
-        return "FilterOutcomes[" + _outcomes + "]";
+        return "FilterOutcomes[" + Arrays.asList(getOutcomes()) + "]";
     }
 
     @Override
     public FilterOutcomes clone() {
-        return new FilterOutcomesImpl(_outcomes);
+        final Set<FilterOutcome> otherOutcomes;
+        if (_otherOutcomes == null) {
+            otherOutcomes = null;
+        } else {
+            otherOutcomes = new HashSet<FilterOutcome>(_otherOutcomes);
+        }
+        return new FilterOutcomesImpl(_index, _bits.clone(), otherOutcomes);
     }
 }
@@ -0,0 +1,195 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.eobjects.analyzer.job.concurrent.TaskListener;
+import org.eobjects.analyzer.job.concurrent.TaskRunnable;
+import org.eobjects.analyzer.job.concurrent.TaskRunner;
+import org.eobjects.analyzer.job.tasks.Task;
+
+/**
+ * {@link TaskRunner} which runs the row processing tasks of a single
+ * {@link RowProcessingPublisher} on the shared task runner of the job, but
+ * within a thread budget of the publisher.
+ * 
+ * At most {@link RowProcessingPublishers#getThreadBudget()} tasks are submitted
+ * to the shared task runner at the same time. Further tasks are queued
+ * locally and picked up by the workers of this publisher as they finish. When
+ * also the local queue is full, the submitting thread runs the task itself.
+ * That way a publisher never occupies more than its share of the shared
+ * threads and never fills the shared work queue, which would otherwise make
+ * the reading threads of other publishers run its tasks.
+ */
+final class PublisherTaskRunner implements TaskRunner {
+
+    private static final int QUEUED_TASKS_PER_THREAD = 4;
+
+    private final RowProcessingPublishers _publishers;
+    private final TaskRunner _sharedTaskRunner;
+    private final Deque<TaskRunnable> _queuedTasks;
+    private int _runningWorkers;
+
+    public PublisherTaskRunner(RowProcessingPublishers publishers, TaskRunner sharedTaskRunner) {
+        _publishers = publishers;
+        _sharedTaskRunner = sharedTaskRunner;
+        _queuedTasks = new ArrayDeque<TaskRunnable>();
+        _runningWorkers = 0;
+    }
+
+    @Override
+    public void run(Task task, TaskListener listener) {
+        run(new TaskRunnable(task, listener));
+    }
+
+    @Override
+    public void run(TaskRunnable taskRunnable) {
+        final int threadBudget = _publishers.getThreadBudget();
+        final boolean startWorker;
+        synchronized (this) {
+            if (_runningWorkers < threadBudget) {
+                _runningWorkers++;
+                startWorker = true;
+            } else if (_queuedTasks.size() < threadBudget * QUEUED_TASKS_PER_THREAD) {
+                _queuedTasks.add(taskRunnable);
+                return;
+            } else {
+                startWorker = false;
+            }
+        }
+
+        if (startWorker) {
+            final WorkerTask workerTask = new WorkerTask(taskRunnable);
+            _sharedTaskRunner.run(new TaskRunnable(workerTask, workerTask));
+        } else {
+            taskRunnable.run();
+        }
+    }
+
+    /**
+     * Gets the number of tasks of this publisher that are currently waiting
+     * for a worker.
+     * 
+     * @return
+     */
+    public synchronized int getQueuedTaskCount() {
+        return _queuedTasks.size();
+    }
+
+    /**
+     * Gets the number of workers of this publisher that are currently running
+     * on the shared task runner.
+     * 
+     * @return
+     */
+    public synchronized int getRunningWorkerCount() {
+        return _runningWorkers;
+    }
+
+    private synchronized TaskRunnable pollQueuedTask() {
+        return _queuedTasks.poll();
+    }
+
+    /**
+     * Polls the next task for a worker, or retires the worker if there are no
+     * queued tasks or if the thread budget has shrunk.
+     */
+    private synchronized TaskRunnable nextWorkerTask() {
+        if (_runningWorkers <= _publishers.getThreadBudget()) {
+            final TaskRunnable next = _queuedTasks.poll();
+            if (next != null) {
+                return next;
+            }
+        }
+        _runningWorkers--;
+        if (_runningWorkers == 0 && !_queuedTasks.isEmpty()) {
+            // never leave queued tasks without a worker
+            _runningWorkers++;
+            return _queuedTasks.poll();
+        }
+        return null;
+    }
+
+    @Override
+    public void shutdown() {
+        // the shared task runner is shut down by it's owner
+    }
+
+    /**
+     * Runs a queued task of this publisher in the current thread. Other
+     * publishers' tasks are not run, to respect their thread budgets.
+     */
+    @Override
+    public void assistExecution() {
+        final TaskRunnable taskRunnable = pollQueuedTask();
+        if (taskRunnable == null) {
+            Thread.yield();
+        } else {
+            taskRunnable.run();
+        }
+    }
+
+    /**
+     * A task which runs queued tasks of the publisher until there are no more
+     * or until the thread budget is exceeded. The worker is it's own
+     * {@link TaskListener} so that, if the shared task runner refuses to run it
+     * (eg. because of previous errors), the error is passed on to the tasks
+     * that it was supposed to run.
+     */
+    private final class WorkerTask implements Task, TaskListener {
+
+        private final TaskRunnable _firstTask;
+
+        public WorkerTask(TaskRunnable firstTask) {
+            _firstTask = firstTask;
+        }
+
+        @Override
+        public void execute() throws Exception {
+            TaskRunnable taskRunnable = _firstTask;
+            while (taskRunnable != null) {
+                taskRunnable.run();
+                taskRunnable = nextWorkerTask();
+            }
+        }
+
+        @Override
+        public void onBegin(Task task) {
+        }
+
+        @Override
+        public void onComplete(Task task) {
+        }
+
+        @Override
+        public void onError(Task task, Throwable throwable) {
+            TaskRunnable taskRunnable = _firstTask;
+            while (taskRunnable != null) {
+                final TaskListener listener = taskRunnable.getListener();
+                if (listener != null) {
+                    listener.onError(taskRunnable.getTask(), throwable);
+                }
+                taskRunnable = nextWorkerTask();
+            }
+        }
+    }
+}
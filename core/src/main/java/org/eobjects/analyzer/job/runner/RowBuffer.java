@@ -0,0 +1,254 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.metamodel.data.DataSet;
+import org.eobjects.analyzer.data.InputColumnSlots;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MetaModelInputRow;
+import org.eobjects.analyzer.job.concurrent.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded buffer of records which is filled by a dedicated reading thread.
+ * This allows the reading of a {@link DataSet} (typically I/O bound) to
+ * overlap with the processing of the records, even when the thread
+ * dispatching the records is temporarily busy processing records itself.
+ */
+final class RowBuffer implements RowBufferMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowBuffer.class);
+
+    private static final Object END_OF_ROWS = new Object();
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final int _capacity;
+    private final BlockingQueue<Object> _queue;
+    private final AtomicBoolean _closed = new AtomicBoolean(false);
+    private final AtomicReference<Throwable> _error = new AtomicReference<Throwable>();
+    private final AtomicInteger _rowsRead = new AtomicInteger();
+    private final AtomicLong _producerStallNanos = new AtomicLong();
+    private final AtomicLong _consumerStallNanos = new AtomicLong();
+    private volatile Thread _readerThread;
+
+    /**
+     * Creates a {@link RowBuffer}
+     * 
+     * @param capacity
+     *            the capacity of the buffer, or 0 if records should not be
+     *            buffered at all.
+     */
+    public RowBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Row buffer capacity cannot be negative");
+        }
+        _capacity = capacity;
+        if (capacity == 0) {
+            _queue = null;
+        } else {
+            _queue = new ArrayBlockingQueue<Object>(capacity);
+        }
+    }
+
+    /**
+     * Determines if this buffer is enabled, ie. if it has a positive capacity.
+     * 
+     * @return
+     */
+    public boolean isEnabled() {
+        return _queue != null;
+    }
+
+    /**
+     * Starts a reading thread which will read all records of the
+     * {@link DataSet} into the buffer.
+     * 
+     * @param dataSet
+     * @param idGenerator
+     * @param name
+     *            a name used to identify the reading thread
+     */
+    public void startReading(final DataSet dataSet, final RowIdGenerator idGenerator, final String name) {
+        startReading(dataSet, idGenerator, null, name);
+    }
+
+    /**
+     * Starts a reading thread which will read all records of the
+     * {@link DataSet} into the buffer.
+     * 
+     * @param dataSet
+     * @param idGenerator
+     * @param physicalColumnSlots
+     *            the layout of physical columns in the records, or null if
+     *            not available
+     * @param name
+     *            a name used to identify the reading thread
+     */
+    public void startReading(final DataSet dataSet, final RowIdGenerator idGenerator,
+            final InputColumnSlots physicalColumnSlots, final String name) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Row buffer is not enabled");
+        }
+        final Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!_closed.get() && dataSet.next()) {
+                        final int rowId = idGenerator.nextPhysicalRowId();
+                        final MetaModelInputRow row = new MetaModelInputRow(rowId, dataSet.getRow(),
+                                physicalColumnSlots);
+                        if (!put(row)) {
+                            return;
+                        }
+                        _rowsRead.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    logger.error("Error occurred while reading records of " + name, e);
+                    _error.set(e);
+                } finally {
+                    put(END_OF_ROWS);
+                }
+            }
+        };
+        final ThreadFactory threadFactory = new DaemonThreadFactory();
+        _readerThread = threadFactory.newThread(runnable);
+        _readerThread.setName("analyzerbeans-reader-" + name);
+        _readerThread.start();
+    }
+
+    /**
+     * Puts an object into the queue, blocking while the queue is full.
+     * 
+     * @param obj
+     * @return true if the object was put, false if the buffer was closed.
+     */
+    private boolean put(Object obj) {
+        if (_queue.offer(obj)) {
+            return true;
+        }
+        final long start = System.nanoTime();
+        try {
+            while (!_closed.get()) {
+                if (_queue.offer(obj, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            _producerStallNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Takes the next record from the buffer, blocking while the buffer is
+     * empty.
+     * 
+     * @return the next record, or null if there are no more records.
+     * @throws IllegalStateException
+     *             if reading the records failed or the thread was interrupted.
+     */
+    public InputRow take() throws IllegalStateException {
+        Object obj = _queue.poll();
+        if (obj == null) {
+            final long start = System.nanoTime();
+            try {
+                obj = _queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for records", e);
+            } finally {
+                _consumerStallNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        if (obj == END_OF_ROWS) {
+            // put it back so that subsequent calls will also see the end
+            _queue.offer(END_OF_ROWS);
+
+            final Throwable error = _error.get();
+            if (error != null) {
+                if (error instanceof RuntimeException) {
+                    throw (RuntimeException) error;
+                }
+                throw new IllegalStateException(error);
+            }
+            return null;
+        }
+        return (InputRow) obj;
+    }
+
+    /**
+     * Stops the reading thread (if it is still running) and waits for it to
+     * finish, so that the underlying {@link DataSet} can safely be closed.
+     */
+    public void close() {
+        _closed.set(true);
+        final Thread readerThread = _readerThread;
+        if (readerThread != null) {
+            try {
+                readerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    @Override
+    public int getOccupancy() {
+        if (_queue == null) {
+            return 0;
+        }
+        return _queue.size();
+    }
+
+    @Override
+    public int getRowsRead() {
+        return _rowsRead.get();
+    }
+
+    @Override
+    public long getProducerStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(_producerStallNanos.get());
+    }
+
+    @Override
+    public long getConsumerStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(_consumerStallNanos.get());
+    }
+}
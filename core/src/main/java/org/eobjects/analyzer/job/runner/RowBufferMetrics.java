@@ -0,0 +1,67 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+/**
+ * Provides metrics about the buffer that decouples the reading of records
+ * (the producer) from the dispatching of records to the row processing
+ * components (the consumer). Comparing the stall times of the two sides tells
+ * whether row processing is bound by reading or by processing.
+ */
+public interface RowBufferMetrics {
+
+    /**
+     * Gets the maximum number of records that the buffer can hold.
+     * 
+     * @return the capacity of the buffer, or 0 if records are not buffered.
+     */
+    public int getCapacity();
+
+    /**
+     * Gets the number of records currently held in the buffer.
+     * 
+     * @return the number of records currently held in the buffer.
+     */
+    public int getOccupancy();
+
+    /**
+     * Gets the number of records that have been put into the buffer by the
+     * reading thread.
+     * 
+     * @return the number of records read so far.
+     */
+    public int getRowsRead();
+
+    /**
+     * Gets the accumulated time that the reading thread has been waiting for
+     * space in a full buffer.
+     * 
+     * @return the producer stall time in milliseconds.
+     */
+    public long getProducerStallMillis();
+
+    /**
+     * Gets the accumulated time that the dispatching thread has been waiting
+     * for records in an empty buffer.
+     * 
+     * @return the consumer stall time in milliseconds.
+     */
+    public long getConsumerStallMillis();
+}
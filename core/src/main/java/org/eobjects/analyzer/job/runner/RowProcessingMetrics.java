@@ -66,4 +66,21 @@ public interface RowProcessingMetrics {
 	 *         count could not be determined.
 	 */
 	public int getExpectedRows();
+
+	/**
+	 * Gets metrics about the buffer that records are read into before they are
+	 * dispatched to the row processing components.
+	 * 
+	 * @return metrics about the row buffer. If records are not buffered, the
+	 *         capacity of the buffer will be 0.
+	 */
+	public RowBufferMetrics getRowBufferMetrics();
+
+	/**
+	 * Gets metrics about the throughput of the row processing, and the share
+	 * of the task runner's threads that it may occupy.
+	 * 
+	 * @return metrics about the row processing throughput.
+	 */
+	public RowThroughputMetrics getRowThroughputMetrics();
 }
@@ -62,6 +62,16 @@ final class RowProcessingMetricsImpl implements RowProcessingMetrics {
         return expectedRows.intValue();
     }
 
+    @Override
+    public RowBufferMetrics getRowBufferMetrics() {
+        return _publisher.getRowBufferMetrics();
+    }
+
+    @Override
+    public RowThroughputMetrics getRowThroughputMetrics() {
+        return _publisher.getRowThroughputMetrics();
+    }
+
     @Override
     public AnalyzerJob[] getAnalyzerJobs() {
         return _publisher.getAnalyzerJobs();
@@ -0,0 +1,194 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.job.ComponentRequirement;
+import org.eobjects.analyzer.job.CompoundComponentRequirement;
+import org.eobjects.analyzer.job.FilterOutcome;
+import org.eobjects.analyzer.job.SimpleComponentRequirement;
+
+/**
+ * An immutable, precompiled execution plan for a fixed (already sorted) list of
+ * {@link RowProcessingConsumer}s. The plan resolves everything that does not
+ * vary from record to record (the consumer order, whether a consumer is
+ * concurrent and whether it has any requirements to check) once, so that the
+ * per-record work done by {@link ConsumeRowHandlerDelegate} is reduced to
+ * array lookups.
+ * 
+ * The plan also assigns dense ids to all the {@link FilterOutcome}s involved
+ * (see {@link FilterOutcomeIndex}) and compiles the requirements of the
+ * consumers into bitset masks, so that checking the requirements of a record
+ * is a matter of testing bits in its {@link FilterOutcomesImpl}.
+ */
+final class RowProcessingPlan {
+
+    private final List<RowProcessingConsumer> _consumerList;
+    private final RowProcessingConsumer[] _consumers;
+    private final boolean[] _concurrent;
+    private final boolean[] _requirementChecked;
+    private final long[][] _requirementMasks;
+    private final FilterOutcomeIndex _outcomeIndex;
+    private final long[] _initialOutcomes;
+
+    public RowProcessingPlan(List<RowProcessingConsumer> consumers,
+            Collection<? extends FilterOutcome> alwaysSatisfiedOutcomes) {
+        _consumers = consumers.toArray(new RowProcessingConsumer[consumers.size()]);
+        _consumerList = Collections.unmodifiableList(Arrays.asList(_consumers));
+        _concurrent = new boolean[_consumers.length];
+        _requirementChecked = new boolean[_consumers.length];
+        for (int i = 0; i < _consumers.length; i++) {
+            final RowProcessingConsumer consumer = _consumers[i];
+            _concurrent[i] = consumer.isConcurrent();
+            if (consumer instanceof AbstractRowProcessingConsumer) {
+                _requirementChecked[i] = !((AbstractRowProcessingConsumer) consumer).isAlwaysSatisfiedForConsume();
+            } else {
+                _requirementChecked[i] = true;
+            }
+        }
+
+        _outcomeIndex = new FilterOutcomeIndex(collectOutcomes(alwaysSatisfiedOutcomes));
+        _initialOutcomes = _outcomeIndex.createMask(alwaysSatisfiedOutcomes);
+        _requirementMasks = new long[_consumers.length][];
+        for (int i = 0; i < _consumers.length; i++) {
+            if (_requirementChecked[i]) {
+                _requirementMasks[i] = createRequirementMask(_consumers[i]);
+            }
+        }
+    }
+
+    private List<FilterOutcome> collectOutcomes(Collection<? extends FilterOutcome> alwaysSatisfiedOutcomes) {
+        final List<FilterOutcome> outcomes = new ArrayList<FilterOutcome>();
+        if (alwaysSatisfiedOutcomes != null) {
+            outcomes.addAll(alwaysSatisfiedOutcomes);
+        }
+        for (final RowProcessingConsumer consumer : _consumers) {
+            if (consumer instanceof FilterConsumer) {
+                outcomes.addAll(((FilterConsumer) consumer).getOutcomes());
+            }
+            if (consumer instanceof AbstractRowProcessingConsumer) {
+                // also include outcomes that are not produced by this plan's
+                // consumers, eg. from filters of other tables
+                final ComponentRequirement[] requirements = ((AbstractRowProcessingConsumer) consumer)
+                        .getRequirementsForConsume();
+                for (final ComponentRequirement requirement : requirements) {
+                    outcomes.addAll(requirement.getProcessingDependencies());
+                }
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Creates a mask of outcomes of which any one will satisfy the consumer, or
+     * null if the consumer's requirements cannot be represented as such.
+     * 
+     * @param consumer
+     * @return
+     */
+    private long[] createRequirementMask(RowProcessingConsumer consumer) {
+        if (!(consumer instanceof AbstractRowProcessingConsumer)) {
+            return null;
+        }
+        final ComponentRequirement[] requirements = ((AbstractRowProcessingConsumer) consumer)
+                .getRequirementsForConsume();
+        final List<FilterOutcome> outcomes = new ArrayList<FilterOutcome>();
+        for (final ComponentRequirement requirement : requirements) {
+            if (requirement instanceof SimpleComponentRequirement
+                    || requirement instanceof CompoundComponentRequirement) {
+                // both are satisfied by any one of their outcomes
+                outcomes.addAll(requirement.getProcessingDependencies());
+            } else {
+                return null;
+            }
+        }
+        return _outcomeIndex.createMask(outcomes);
+    }
+
+    /**
+     * Creates a new {@link FilterOutcomes} instance for a record that is about
+     * to be processed by the plan.
+     * 
+     * @return
+     */
+    public FilterOutcomesImpl createFilterOutcomes() {
+        return new FilterOutcomesImpl(_outcomeIndex, _initialOutcomes);
+    }
+
+    /**
+     * Determines if the consumer at a particular index is satisfied for
+     * consuming a record. Should only be invoked if
+     * {@link #isRequirementChecked(int)} is true.
+     * 
+     * @param index
+     * @param row
+     * @param outcomes
+     * @return
+     */
+    public boolean isSatisfied(int index, InputRow row, FilterOutcomes outcomes) {
+        final long[] mask = _requirementMasks[index];
+        if (mask != null && outcomes instanceof FilterOutcomesImpl) {
+            final FilterOutcomesImpl outcomesImpl = (FilterOutcomesImpl) outcomes;
+            if (outcomesImpl.getIndex() == _outcomeIndex) {
+                return outcomesImpl.containsAny(mask);
+            }
+        }
+        return _consumers[index].satisfiedForConsume(outcomes, row);
+    }
+
+    /**
+     * Gets the consumers of the plan, in execution order.
+     * 
+     * @return
+     */
+    public List<RowProcessingConsumer> getConsumers() {
+        return _consumerList;
+    }
+
+    public int size() {
+        return _consumers.length;
+    }
+
+    public RowProcessingConsumer getConsumer(int index) {
+        return _consumers[index];
+    }
+
+    public boolean isConcurrent(int index) {
+        return _concurrent[index];
+    }
+
+    /**
+     * Determines if the consumer at a particular index has any requirements
+     * that need to be checked for each record, or if it can be invoked
+     * unconditionally.
+     * 
+     * @param index
+     * @return
+     */
+    public boolean isRequirementChecked(int index) {
+        return _requirementChecked[index];
+    }
+}
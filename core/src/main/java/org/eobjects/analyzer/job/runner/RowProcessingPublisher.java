@@ -26,13 +26,17 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.jdbc.JdbcDataContext;
 import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.CollectionUtils;
@@ -47,6 +51,8 @@ import org.eobjects.analyzer.configuration.InjectionManager;
 import org.eobjects.analyzer.connection.Datastore;
 import org.eobjects.analyzer.connection.DatastoreConnection;
 import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputColumnSlots;
+import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.data.MetaModelInputRow;
 import org.eobjects.analyzer.descriptors.ComponentDescriptor;
 import org.eobjects.analyzer.job.AnalysisJob;
@@ -58,6 +64,7 @@ import org.eobjects.analyzer.job.FilterJob;
 import org.eobjects.analyzer.job.FilterOutcome;
 import org.eobjects.analyzer.job.HasFilterOutcomes;
 import org.eobjects.analyzer.job.TransformerJob;
+import org.eobjects.analyzer.job.concurrent.DaemonThreadFactory;
 import org.eobjects.analyzer.job.concurrent.ForkTaskListener;
 import org.eobjects.analyzer.job.concurrent.JoinTaskListener;
 import org.eobjects.analyzer.job.concurrent.RunNextTaskTaskListener;
@@ -66,6 +73,7 @@ import org.eobjects.analyzer.job.concurrent.TaskRunnable;
 import org.eobjects.analyzer.job.concurrent.TaskRunner;
 import org.eobjects.analyzer.job.tasks.CloseTaskListener;
 import org.eobjects.analyzer.job.tasks.CollectResultsTask;
+import org.eobjects.analyzer.job.tasks.ConsumeRowBatchTask;
 import org.eobjects.analyzer.job.tasks.ConsumeRowTask;
 import org.eobjects.analyzer.job.tasks.InitializeReferenceDataTask;
 import org.eobjects.analyzer.job.tasks.InitializeTask;
@@ -86,6 +94,10 @@ public final class RowProcessingPublisher {
     private final List<RowProcessingConsumer> _consumers = new ArrayList<RowProcessingConsumer>();
     private final LazyRef<RowProcessingQueryOptimizer> _queryOptimizerRef;
     private final AtomicBoolean _successful = new AtomicBoolean(true);
+    private final RowBuffer _rowBuffer;
+    private final RowThroughput _rowThroughput;
+    private TaskRunner _rowTaskRunner;
+    private RowProcessingMetrics _rowProcessingMetrics;
 
     public RowProcessingPublisher(RowProcessingPublishers publishers, Table table) {
         if (publishers == null) {
@@ -98,6 +110,8 @@ public final class RowProcessingPublisher {
         _table = table;
 
         _queryOptimizerRef = createQueryOptimizerRef();
+        _rowBuffer = new RowBuffer(publishers.getTaskRunnerSettings().getRowBufferSize());
+        _rowThroughput = new RowThroughput(publishers);
 
         if (!"true".equalsIgnoreCase(SystemProperties.QUERY_SELECTCLAUSE_OPTIMIZE)) {
             final Collection<InputColumn<?>> sourceColumns = publishers.getAnalysisJob().getSourceColumns();
@@ -120,9 +134,13 @@ public final class RowProcessingPublisher {
      * 
      * @return
      */
-    public RowProcessingMetrics getRowProcessingMetrics() {
-        RowProcessingMetricsImpl metrics = new RowProcessingMetricsImpl(_publishers, this);
-        return metrics;
+    public synchronized RowProcessingMetrics getRowProcessingMetrics() {
+        // the metrics are shared so that the expected row count is only
+        // determined once
+        if (_rowProcessingMetrics == null) {
+            _rowProcessingMetrics = new RowProcessingMetricsImpl(_publishers, this);
+        }
+        return _rowProcessingMetrics;
     }
 
     public Table getTable() {
@@ -265,7 +283,8 @@ public final class RowProcessingPublisher {
 
         final AnalysisJob analysisJob = _publishers.getAnalysisJob();
         final AnalysisListener analysisListener = _publishers.getAnalysisListener();
-        final TaskRunner taskRunner = _publishers.getTaskRunner();
+
+        final InputColumnSlots transformedColumnSlots = createTransformedColumnSlots();
 
         for (RowProcessingConsumer rowProcessingConsumer : _consumers) {
             if (rowProcessingConsumer instanceof AnalyzerConsumer) {
@@ -278,6 +297,7 @@ public final class RowProcessingPublisher {
 
             if (rowProcessingConsumer instanceof TransformerConsumer) {
                 ((TransformerConsumer) rowProcessingConsumer).setRowIdGenerator(idGenerator);
+                ((TransformerConsumer) rowProcessingConsumer).setColumnSlots(transformedColumnSlots);
             }
         }
         final List<RowProcessingConsumer> consumers = queryOptimizer.getOptimizedConsumers();
@@ -285,8 +305,35 @@ public final class RowProcessingPublisher {
 
         analysisListener.rowProcessingBegin(analysisJob, rowProcessingMetrics);
 
+        // row processing tasks are only budgeted when other publishers compete
+        // for the threads
+        if (_publishers.isThreadBudgeted()) {
+            _rowTaskRunner = new PublisherTaskRunner(_publishers, _publishers.getTaskRunner());
+        } else {
+            _rowTaskRunner = _publishers.getTaskRunner();
+        }
+
         final RowConsumerTaskListener taskListener = new RowConsumerTaskListener(analysisJob, analysisListener,
-                taskRunner);
+                _rowTaskRunner);
+
+        _rowThroughput.begin();
+        try {
+            readAndDispatchRows(rowProcessingMetrics, finalQuery, idGenerator, consumers, availableOutcomes,
+                    taskListener);
+        } finally {
+            _rowThroughput.end();
+            _publishers.onPublisherFinished();
+            logger.info("Processed {} rows of table {} in {} ms ({} rows/s)",
+                    new Object[] { _rowThroughput.getRowCount(), _table.getName(),
+                            _rowThroughput.getElapsedMillis(), (long) _rowThroughput.getRowsPerSecond() });
+        }
+    }
+
+    private void readAndDispatchRows(final RowProcessingMetrics rowProcessingMetrics, final Query finalQuery,
+            final RowIdGenerator idGenerator, final List<RowProcessingConsumer> consumers,
+            final Collection<? extends FilterOutcome> availableOutcomes, final RowConsumerTaskListener taskListener) {
+        final AnalysisJob analysisJob = _publishers.getAnalysisJob();
+        final AnalysisListener analysisListener = _publishers.getAnalysisListener();
 
         final Datastore datastore = _publishers.getDatastore();
 
@@ -305,27 +352,40 @@ public final class RowProcessingPublisher {
                 logger.debug("Final query firstRow={}, maxRows={}", finalQuery.getFirstRow(), finalQuery.getMaxRows());
             }
 
-            // represents the distinct count of rows as well as the number of
-            // tasks to execute
-            int numTasks = 0;
+            final int rowBatchSize = _publishers.getTaskRunnerSettings().getRowBatchSize();
 
-            try (final DataSet dataSet = dataContext.executeQuery(finalQuery)) {
-                final ConsumeRowHandler consumeRowHandler = new ConsumeRowHandler(consumers, availableOutcomes);
-                while (dataSet.next()) {
-                    if (taskListener.isErrornous()) {
-                        break;
-                    }
+            // the number of tasks to execute. Unless rows are batched this
+            // also represents the distinct count of rows
+            final int numTasks;
 
-                    numTasks++;
-
-                    final Row metaModelRow = dataSet.getRow();
-                    final int rowId = idGenerator.nextPhysicalRowId();
-                    final MetaModelInputRow inputRow = new MetaModelInputRow(rowId, metaModelRow);
+            final ConsumeRowHandler consumeRowHandler = new ConsumeRowHandler(consumers, availableOutcomes);
 
-                    final ConsumeRowTask task = new ConsumeRowTask(consumeRowHandler, rowProcessingMetrics, inputRow,
-                            analysisListener, numTasks);
-                    taskRunner.run(task, taskListener);
+            // the layout is created once, so that the slots are compiled into
+            // the physical columns before any records are read
+            final List<SelectItem> selectItems = finalQuery.getSelectClause().getItems();
+            final InputColumnSlots physicalColumnSlots = createPhysicalColumnSlots(selectItems);
 
+            final List<ScanPartition> partitions = new ScanPartitioner(datastore, dataContext).partition(
+                    finalQuery, _publishers.getTaskRunnerSettings().getScanPartitions());
+            if (partitions != null) {
+                numTasks = dispatchPartitions(dataContext, partitions, rowBatchSize, consumeRowHandler, idGenerator,
+                        physicalColumnSlots, selectItems, rowProcessingMetrics, taskListener);
+            } else {
+                try (final DataSet dataSet = dataContext.executeQuery(finalQuery)) {
+                    final InputColumnSlots dataSetColumnSlots = getPhysicalColumnSlots(physicalColumnSlots,
+                            selectItems, dataSet);
+                    if (_rowBuffer.isEnabled()) {
+                        _rowBuffer.startReading(dataSet, idGenerator, dataSetColumnSlots, _table.getName());
+                        try {
+                            numTasks = dispatchRows(dataSet, true, rowBatchSize, consumeRowHandler, idGenerator,
+                                    dataSetColumnSlots, rowProcessingMetrics, taskListener);
+                        } finally {
+                            _rowBuffer.close();
+                        }
+                    } else {
+                        numTasks = dispatchRows(dataSet, false, rowBatchSize, consumeRowHandler, idGenerator,
+                                dataSetColumnSlots, rowProcessingMetrics, taskListener);
+                    }
                 }
             }
             taskListener.awaitTasks(numTasks);
@@ -339,8 +399,237 @@ public final class RowProcessingPublisher {
         analysisListener.rowProcessingSuccess(analysisJob, rowProcessingMetrics);
     }
 
+    /**
+     * Reads the records of a number of {@link ScanPartition}s concurrently and
+     * dispatches them to the {@link TaskRunner}. The first partition is read
+     * by the current thread, the others by dedicated reading threads.
+     * 
+     * @return the number of tasks that was dispatched
+     */
+    private int dispatchPartitions(final DataContext dataContext, final List<ScanPartition> partitions,
+            final int rowBatchSize, final ConsumeRowHandler consumeRowHandler, final RowIdGenerator idGenerator,
+            final InputColumnSlots physicalColumnSlots, final List<SelectItem> selectItems,
+            final RowProcessingMetrics rowProcessingMetrics, final RowConsumerTaskListener taskListener) {
+        final AtomicInteger numTasks = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+        final List<Thread> readerThreads = new ArrayList<Thread>(partitions.size() - 1);
+        final ThreadFactory threadFactory = new DaemonThreadFactory();
+        for (int i = 1; i < partitions.size(); i++) {
+            final ScanPartition partition = partitions.get(i);
+            final Thread readerThread = threadFactory.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        numTasks.addAndGet(dispatchPartition(dataContext, partition, rowBatchSize,
+                                consumeRowHandler, idGenerator, physicalColumnSlots, selectItems,
+                                rowProcessingMetrics, taskListener));
+                    } catch (Throwable e) {
+                        logger.error("Error occurred while reading partition of " + _table.getName(), e);
+                        error.compareAndSet(null, e);
+                    }
+                }
+            });
+            readerThread.setName("analyzerbeans-reader-" + _table.getName() + "-" + i);
+            readerThread.start();
+            readerThreads.add(readerThread);
+        }
+
+        try {
+            numTasks.addAndGet(dispatchPartition(dataContext, partitions.get(0), rowBatchSize, consumeRowHandler,
+                    idGenerator, physicalColumnSlots, selectItems, rowProcessingMetrics, taskListener));
+        } finally {
+            for (Thread readerThread : readerThreads) {
+                try {
+                    readerThread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        final Throwable e = error.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e != null) {
+            throw new IllegalStateException(e);
+        }
+        return numTasks.get();
+    }
+
+    private int dispatchPartition(final DataContext dataContext, final ScanPartition partition,
+            final int rowBatchSize, final ConsumeRowHandler consumeRowHandler, final RowIdGenerator idGenerator,
+            final InputColumnSlots physicalColumnSlots, final List<SelectItem> selectItems,
+            final RowProcessingMetrics rowProcessingMetrics, final RowConsumerTaskListener taskListener) {
+        try (final DataSet dataSet = dataContext.executeQuery(partition.getQuery())) {
+            final InputColumnSlots dataSetColumnSlots = getPhysicalColumnSlots(physicalColumnSlots, selectItems,
+                    dataSet);
+            return dispatchRows(dataSet, false, rowBatchSize, consumeRowHandler,
+                    partition.createRowIdGenerator(idGenerator), dataSetColumnSlots, rowProcessingMetrics,
+                    taskListener);
+        }
+    }
+
+    /**
+     * Reads records and dispatches them to the {@link TaskRunner}, either as
+     * individual {@link ConsumeRowTask}s or in batches of
+     * {@link ConsumeRowBatchTask}s.
+     * 
+     * @param buffered
+     *            whether records should be taken from the {@link RowBuffer}
+     *            instead of the {@link DataSet}
+     * 
+     * @return the number of tasks that was dispatched
+     */
+    private int dispatchRows(final DataSet dataSet, final boolean buffered, final int rowBatchSize,
+            final ConsumeRowHandler consumeRowHandler, final RowIdGenerator idGenerator,
+            final InputColumnSlots physicalColumnSlots, final RowProcessingMetrics rowProcessingMetrics,
+            final RowConsumerTaskListener taskListener) {
+        final AnalysisListener analysisListener = _publishers.getAnalysisListener();
+
+        int numTasks = 0;
+        int numRows = 0;
+        List<InputRow> batch = new ArrayList<InputRow>(rowBatchSize);
+        while (!taskListener.isErrornous()) {
+            final InputRow inputRow = nextRow(dataSet, buffered, idGenerator, physicalColumnSlots);
+            if (inputRow == null) {
+                break;
+            }
+
+            // the row count is shared by the reading threads of all partitions
+            numRows = _rowThroughput.incrementRowCount();
+
+            if (rowBatchSize == 1) {
+                numTasks++;
+                _rowTaskRunner.run(new ConsumeRowTask(consumeRowHandler, rowProcessingMetrics, inputRow,
+                        analysisListener, numRows), taskListener);
+            } else {
+                batch.add(inputRow);
+                if (batch.size() == rowBatchSize) {
+                    numTasks++;
+                    _rowTaskRunner.run(new ConsumeRowBatchTask(consumeRowHandler, rowProcessingMetrics, batch,
+                            analysisListener, numRows), taskListener);
+                    batch = new ArrayList<InputRow>(rowBatchSize);
+                }
+            }
+        }
+
+        if (!batch.isEmpty() && !taskListener.isErrornous()) {
+            numTasks++;
+            _rowTaskRunner.run(new ConsumeRowBatchTask(consumeRowHandler, rowProcessingMetrics, batch, analysisListener,
+                    numRows), taskListener);
+        }
+        return numTasks;
+    }
+
+    /**
+     * Gets the next record to dispatch, either from the {@link RowBuffer} (if
+     * buffered) or directly from the {@link DataSet}.
+     * 
+     * @return the next record, or null if there are no more records
+     */
+    private InputRow nextRow(final DataSet dataSet, final boolean buffered, final RowIdGenerator idGenerator,
+            final InputColumnSlots physicalColumnSlots) {
+        if (buffered) {
+            return _rowBuffer.take();
+        }
+        if (!dataSet.next()) {
+            return null;
+        }
+        final Row metaModelRow = dataSet.getRow();
+        final int rowId = idGenerator.nextPhysicalRowId();
+        return new MetaModelInputRow(rowId, metaModelRow, physicalColumnSlots);
+    }
+
+    /**
+     * Creates a layout of the physical columns of the job, where the slot of
+     * each column is the index of it's select item in the query.
+     * 
+     * @param selectItems
+     * @return
+     */
+    private InputColumnSlots createPhysicalColumnSlots(final List<SelectItem> selectItems) {
+        final InputColumn<?>[] columns = new InputColumn<?>[selectItems.size()];
+        for (InputColumn<?> inputColumn : _publishers.getAnalysisJob().getSourceColumns()) {
+            final Column physicalColumn = inputColumn.getPhysicalColumn();
+            if (physicalColumn == null) {
+                continue;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                final SelectItem selectItem = selectItems.get(i);
+                if (columns[i] == null && selectItem.getFunction() == null
+                        && physicalColumn.equals(selectItem.getColumn())) {
+                    columns[i] = inputColumn;
+                }
+            }
+        }
+        return new InputColumnSlots(columns);
+    }
+
+    /**
+     * Gets the layout of physical columns to use for the records of a
+     * {@link DataSet}. The layout is only used if the {@link DataSet} has the
+     * select items that it was created for, otherwise the records resolve the
+     * columns themselves.
+     * 
+     * @param physicalColumnSlots
+     * @param selectItems
+     * @param dataSet
+     * @return
+     */
+    private InputColumnSlots getPhysicalColumnSlots(final InputColumnSlots physicalColumnSlots,
+            final List<SelectItem> selectItems, final DataSet dataSet) {
+        if (Arrays.asList(dataSet.getSelectItems()).equals(selectItems)) {
+            return physicalColumnSlots;
+        }
+        return null;
+    }
+
+    /**
+     * Creates a layout of all the columns that are produced by the
+     * transformers of this publisher.
+     * 
+     * @return
+     */
+    private InputColumnSlots createTransformedColumnSlots() {
+        final List<InputColumn<?>> columns = new ArrayList<InputColumn<?>>();
+        for (RowProcessingConsumer consumer : _consumers) {
+            if (consumer instanceof TransformerConsumer) {
+                columns.addAll(Arrays.asList(((TransformerConsumer) consumer).getOutputColumns()));
+            }
+        }
+        return new InputColumnSlots(columns);
+    }
+
+    /**
+     * Gets metrics about the buffering of records between the reading thread
+     * and the row processing components.
+     * 
+     * @return
+     */
+    public RowBufferMetrics getRowBufferMetrics() {
+        return _rowBuffer;
+    }
+
+    /**
+     * Gets metrics about the throughput of the row processing of this
+     * publisher.
+     * 
+     * @return
+     */
+    public RowThroughputMetrics getRowThroughputMetrics() {
+        return _rowThroughput;
+    }
+
     public void addAnalyzerBean(Analyzer<?> analyzer, AnalyzerJob analyzerJob, InputColumn<?>[] inputColumns) {
-        addConsumer(new AnalyzerConsumer(analyzer, analyzerJob, inputColumns, _publishers));
+        final AnalyzerPartitions partitions;
+        final boolean partitionedAnalyzers = _publishers.getTaskRunnerSettings().isPartitionedAnalyzers();
+        if (partitionedAnalyzers && analyzerJob.getDescriptor().isDistributable()) {
+            partitions = new AnalyzerPartitions(analyzer, analyzerJob, createLifeCycleHelper(analyzerJob, false));
+        } else {
+            partitions = null;
+        }
+        addConsumer(new AnalyzerConsumer(analyzer, analyzerJob, inputColumns, _publishers, partitions));
     }
 
     public void addTransformerBean(Transformer<?> transformer, TransformerJob transformerJob,
@@ -479,7 +768,12 @@ public final class RowProcessingPublisher {
             return null;
         } else if (consumer instanceof AnalyzerConsumer) {
             final AnalyzerConsumer analyzerConsumer = (AnalyzerConsumer) consumer;
-            final Analyzer<?> analyzer = analyzerConsumer.getComponent();
+            final Analyzer<?> analyzer;
+            if (analyzerConsumer.getPartitions() == null) {
+                analyzer = analyzerConsumer.getComponent();
+            } else {
+                analyzer = analyzerConsumer.getPartitions();
+            }
             final AnalysisJob analysisJob = _publishers.getAnalysisJob();
             final AnalysisListener analysisListener = _publishers.getAnalysisListener();
             return new CollectResultsTask(analyzer, analysisJob, consumer.getComponentJob(), resultQueue,
@@ -493,7 +787,23 @@ public final class RowProcessingPublisher {
         final LifeCycleHelper lifeCycleHelper = _publishers.getLifeCycleHelper();
         final ComponentDescriptor<?> descriptor = consumer.getComponentJob().getDescriptor();
         final Object component = consumer.getComponent();
-        return new TaskRunnable(null, new CloseTaskListener(lifeCycleHelper, descriptor, component, _successful,
+
+        // additional analyzer partitions are closed before the component
+        // itself
+        Task task = null;
+        if (consumer instanceof AnalyzerConsumer) {
+            final AnalyzerPartitions partitions = ((AnalyzerConsumer) consumer).getPartitions();
+            if (partitions != null) {
+                task = new Task() {
+                    @Override
+                    public void execute() throws Exception {
+                        partitions.closePartitions(_successful.get());
+                    }
+                };
+            }
+        }
+
+        return new TaskRunnable(task, new CloseTaskListener(lifeCycleHelper, descriptor, component, _successful,
                 closeTaskListener));
     }
 
@@ -503,26 +813,33 @@ public final class RowProcessingPublisher {
         final BeanConfiguration configuration = ((ConfigurableBeanJob<?>) componentJob).getConfiguration();
         final ComponentDescriptor<?> descriptor = componentJob.getDescriptor();
 
-        // make a component-context specific injection manager
-        final LifeCycleHelper lifeCycleHelper;
-        {
-            final LifeCycleHelper outerLifeCycleHelper = _publishers.getLifeCycleHelper();
-            final boolean includeNonDistributedTasks = outerLifeCycleHelper.isIncludeNonDistributedTasks();
-            final AnalysisJob analysisJob = _publishers.getAnalysisJob();
-            final InjectionManager outerInjectionManager = outerLifeCycleHelper.getInjectionManager();
-            final ReferenceDataActivationManager referenceDataActivationManager = outerLifeCycleHelper
-                    .getReferenceDataActivationManager();
-            final ContextAwareInjectionManager injectionManager = new ContextAwareInjectionManager(
-                    outerInjectionManager, analysisJob, componentJob, _publishers.getAnalysisListener());
-
-            lifeCycleHelper = new LifeCycleHelper(injectionManager, referenceDataActivationManager,
-                    includeNonDistributedTasks);
-        }
+        final boolean includeNonDistributedTasks = _publishers.getLifeCycleHelper().isIncludeNonDistributedTasks();
+        final LifeCycleHelper lifeCycleHelper = createLifeCycleHelper(componentJob, includeNonDistributedTasks);
 
         InitializeTask task = new InitializeTask(lifeCycleHelper, descriptor, component, configuration);
         return new TaskRunnable(task, listener);
     }
 
+    /**
+     * Creates a component-context specific {@link LifeCycleHelper}, ie. one
+     * with a component-context specific injection manager.
+     * 
+     * @param componentJob
+     * @param includeNonDistributedTasks
+     * @return
+     */
+    private LifeCycleHelper createLifeCycleHelper(ComponentJob componentJob, boolean includeNonDistributedTasks) {
+        final LifeCycleHelper outerLifeCycleHelper = _publishers.getLifeCycleHelper();
+        final AnalysisJob analysisJob = _publishers.getAnalysisJob();
+        final InjectionManager outerInjectionManager = outerLifeCycleHelper.getInjectionManager();
+        final ReferenceDataActivationManager referenceDataActivationManager = outerLifeCycleHelper
+                .getReferenceDataActivationManager();
+        final ContextAwareInjectionManager injectionManager = new ContextAwareInjectionManager(outerInjectionManager,
+                analysisJob, componentJob, _publishers.getAnalysisListener());
+
+        return new LifeCycleHelper(injectionManager, referenceDataActivationManager, includeNonDistributedTasks);
+    }
+
     @Override
     public String toString() {
         return "RowProcessingPublisher[table=" + _table.getQualifiedLabel() + ", consumers=" + _consumers.size() + "]";
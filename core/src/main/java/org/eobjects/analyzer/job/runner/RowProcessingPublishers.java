@@ -26,6 +26,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.metamodel.MetaModelHelper;
 import org.apache.metamodel.schema.Column;
@@ -42,7 +43,9 @@ import org.eobjects.analyzer.job.ConfigurableBeanJob;
 import org.eobjects.analyzer.job.FilterJob;
 import org.eobjects.analyzer.job.FilterOutcome;
 import org.eobjects.analyzer.job.TransformerJob;
+import org.eobjects.analyzer.job.concurrent.ConfigurableTaskRunner;
 import org.eobjects.analyzer.job.concurrent.TaskRunner;
+import org.eobjects.analyzer.job.concurrent.TaskRunnerSettings;
 import org.eobjects.analyzer.lifecycle.LifeCycleHelper;
 import org.eobjects.analyzer.util.SourceColumnFinder;
 
@@ -55,15 +58,18 @@ public final class RowProcessingPublishers {
     private final AnalysisJob _analysisJob;
     private final AnalysisListener _analysisListener;
     private final TaskRunner _taskRunner;
+    private final TaskRunnerSettings _taskRunnerSettings;
     private final LifeCycleHelper _lifeCycleHelper;
     private final SourceColumnFinder _sourceColumnFinder;
     private final Map<Table, RowProcessingPublisher> _rowProcessingPublishers;
+    private final AtomicInteger _activePublishers;
 
     public RowProcessingPublishers(AnalysisJob analysisJob, AnalysisListener analysisListener, TaskRunner taskRunner,
             LifeCycleHelper lifeCycleHelper, SourceColumnFinder sourceColumnFinder) {
         _analysisJob = analysisJob;
         _analysisListener = analysisListener;
         _taskRunner = taskRunner;
+        _taskRunnerSettings = getTaskRunnerSettings(taskRunner);
         _lifeCycleHelper = lifeCycleHelper;
 
         if (sourceColumnFinder == null) {
@@ -76,6 +82,8 @@ public final class RowProcessingPublishers {
         _rowProcessingPublishers = new HashMap<Table, RowProcessingPublisher>();
 
         initialize();
+
+        _activePublishers = new AtomicInteger(_rowProcessingPublishers.size());
     }
 
     private void initialize() {
@@ -240,6 +248,65 @@ public final class RowProcessingPublishers {
         return _taskRunner;
     }
 
+    /**
+     * Gets the settings of the configured {@link TaskRunner}, which determine
+     * how records are dispatched to row processing components. Task runners
+     * that are not a {@link ConfigurableTaskRunner} have the default
+     * settings, ie. records are dispatched one by one, without a fixed number
+     * of threads that would be budgeted per publisher.
+     * 
+     * @return
+     */
+    protected TaskRunnerSettings getTaskRunnerSettings() {
+        return _taskRunnerSettings;
+    }
+
+    /**
+     * Determines whether row processing tasks are budgeted per
+     * {@link RowProcessingPublisher}, which is only the case when there's a
+     * fixed number of threads that more than one publisher competes for.
+     * 
+     * @return
+     */
+    protected boolean isThreadBudgeted() {
+        return _rowProcessingPublishers.size() > 1 && _taskRunnerSettings.getNumThreads() > 0;
+    }
+
+    /**
+     * Gets the number of row processing tasks that a single
+     * {@link RowProcessingPublisher} may have executing at the same time. This
+     * is either the configured max threads per table, or an even share of the
+     * threads between the publishers that are still processing rows.
+     * 
+     * @return
+     */
+    protected int getThreadBudget() {
+        final int maxThreadsPerTable = _taskRunnerSettings.getMaxThreadsPerTable();
+        if (maxThreadsPerTable > 0) {
+            return maxThreadsPerTable;
+        }
+        final int activePublishers = Math.max(1, _activePublishers.get());
+        return Math.max(1, _taskRunnerSettings.getNumThreads() / activePublishers);
+    }
+
+    /**
+     * Invoked by a {@link RowProcessingPublisher} when it is done processing
+     * rows, which increases the thread budget of the remaining publishers.
+     */
+    protected void onPublisherFinished() {
+        _activePublishers.decrementAndGet();
+    }
+
+    private static TaskRunnerSettings getTaskRunnerSettings(TaskRunner taskRunner) {
+        if (taskRunner instanceof ErrorAwareTaskRunnerWrapper) {
+            taskRunner = ((ErrorAwareTaskRunnerWrapper) taskRunner).getWrappedTaskRunner();
+        }
+        if (taskRunner instanceof ConfigurableTaskRunner) {
+            return ((ConfigurableTaskRunner) taskRunner).getSettings();
+        }
+        return new TaskRunnerSettings();
+    }
+
     public Datastore getDatastore() {
         return _analysisJob.getDatastore();
     }
@@ -0,0 +1,95 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default {@link RowThroughputMetrics} implementation, updated by the
+ * {@link RowProcessingPublisher}.
+ */
+final class RowThroughput implements RowThroughputMetrics {
+
+    private final RowProcessingPublishers _publishers;
+    private volatile long _beginMillis;
+    private volatile long _endMillis;
+    private final AtomicInteger _rowCount = new AtomicInteger();
+
+    public RowThroughput(RowProcessingPublishers publishers) {
+        _publishers = publishers;
+    }
+
+    public void begin() {
+        _beginMillis = System.currentTimeMillis();
+        _endMillis = 0;
+        _rowCount.set(0);
+    }
+
+    /**
+     * Counts a record that has been read. May be invoked concurrently by
+     * several reading threads of the same table.
+     * 
+     * @return the number of records read so far
+     */
+    public int incrementRowCount() {
+        return _rowCount.incrementAndGet();
+    }
+
+    public void end() {
+        _endMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public int getRowCount() {
+        return _rowCount.get();
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        final long beginMillis = _beginMillis;
+        if (beginMillis == 0) {
+            return 0;
+        }
+        final long endMillis = _endMillis;
+        return (endMillis == 0 ? System.currentTimeMillis() : endMillis) - beginMillis;
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        final long elapsedMillis = getElapsedMillis();
+        if (elapsedMillis == 0) {
+            return 0;
+        }
+        return _rowCount.get() * 1000d / elapsedMillis;
+    }
+
+    @Override
+    public int getThreadBudget() {
+        if (!_publishers.isThreadBudgeted()) {
+            return 0;
+        }
+        return _publishers.getThreadBudget();
+    }
+
+    @Override
+    public String toString() {
+        return "RowThroughput[rows=" + _rowCount.get() + ",millis=" + getElapsedMillis() + "]";
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+/**
+ * Provides metrics about the throughput of the row processing of a single
+ * table, and about the share of the task runner's threads that it was given.
+ */
+public interface RowThroughputMetrics {
+
+    /**
+     * Gets the number of records that have been read and dispatched to the
+     * row processing components.
+     * 
+     * @return the number of records dispatched so far.
+     */
+    public int getRowCount();
+
+    /**
+     * Gets the time that has passed since row processing began, or the total
+     * row processing time if it has finished.
+     * 
+     * @return the elapsed time in milliseconds, or 0 if row processing has
+     *         not begun.
+     */
+    public long getElapsedMillis();
+
+    /**
+     * Gets the average number of records processed per second.
+     * 
+     * @return the number of records per second, or 0 if row processing has
+     *         not begun.
+     */
+    public double getRowsPerSecond();
+
+    /**
+     * Gets the number of threads that the row processing may currently
+     * occupy.
+     * 
+     * @return the thread budget, or 0 if row processing tasks are not
+     *         budgeted (eg. when running single threaded or when
+     *         only a single table is processed).
+     */
+    public int getThreadBudget();
+}
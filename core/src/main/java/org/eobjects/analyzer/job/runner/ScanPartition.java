@@ -0,0 +1,84 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import org.apache.metamodel.query.Query;
+
+/**
+ * Represents one of several queries that together read all records of a table,
+ * see {@link ScanPartitioner}.
+ */
+final class ScanPartition {
+
+    private final Query _query;
+    private final int _rowIdOffset;
+
+    public ScanPartition(Query query, int rowIdOffset) {
+        _query = query;
+        _rowIdOffset = rowIdOffset;
+    }
+
+    /**
+     * Gets the query that reads the records of this partition.
+     * 
+     * @return
+     */
+    public Query getQuery() {
+        return _query;
+    }
+
+    /**
+     * Gets the number of records that precede this partition, ie. the offset
+     * of the physical row ids of this partition's records.
+     * 
+     * @return
+     */
+    public int getRowIdOffset() {
+        return _rowIdOffset;
+    }
+
+    /**
+     * Creates a {@link RowIdGenerator} for this partition. Physical row ids are
+     * generated from the row id offset of the partition, while virtual row ids
+     * are taken from a generator shared by all partitions.
+     * 
+     * @param sharedIdGenerator
+     * @return
+     */
+    public RowIdGenerator createRowIdGenerator(final RowIdGenerator sharedIdGenerator) {
+        final SimpleRowIdGenerator physicalIdGenerator = new SimpleRowIdGenerator(_rowIdOffset);
+        return new RowIdGenerator() {
+            @Override
+            public int nextPhysicalRowId() {
+                return physicalIdGenerator.nextPhysicalRowId();
+            }
+
+            @Override
+            public int nextVirtualRowId() {
+                return sharedIdGenerator.nextVirtualRowId();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "ScanPartition[rowIdOffset=" + _rowIdOffset + ",query=" + _query + "]";
+    }
+}
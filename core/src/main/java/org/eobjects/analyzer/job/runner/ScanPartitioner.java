@@ -0,0 +1,258 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.jdbc.JdbcDataContext;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+import org.eobjects.analyzer.connection.Datastore;
+import org.eobjects.analyzer.connection.JdbcDatastore;
+import org.eobjects.analyzer.connection.PerformanceCharacteristics;
+import org.eobjects.analyzer.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits the query of a {@link RowProcessingPublisher} into a number of
+ * {@link ScanPartition}s which can be read concurrently.
+ * 
+ * If the table has a single numeric primary key, the query is split into
+ * ranges of the key. Otherwise, if the datastore has a native query engine and
+ * a consistent natural record order (see {@link PerformanceCharacteristics}),
+ * the query is split into windows of firstRow/maxRows.
+ * 
+ * Partitions are only created if the datastore is able to execute several
+ * queries concurrently. A JDBC datastore without multiple connections shares a
+ * single {@link java.sql.Connection}, which must not run concurrent statements.
+ * 
+ * Row id offsets of the partitions are based on record counts taken before the
+ * partitions are read, so that the row ids are unique and in the same range as
+ * in a single, unpartitioned scan. The records are not numbered in the same
+ * order as an unpartitioned scan though: key range partitions number them in
+ * the order of the key ranges, whereas an unpartitioned scan numbers them in
+ * the natural record order. The offsets assume that the table is not modified
+ * while it is being read.
+ */
+final class ScanPartitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanPartitioner.class);
+
+    private final Datastore _datastore;
+    private final DataContext _dataContext;
+
+    public ScanPartitioner(Datastore datastore, DataContext dataContext) {
+        _datastore = datastore;
+        _dataContext = dataContext;
+    }
+
+    /**
+     * Splits a query into a number of partitions.
+     * 
+     * @param query
+     *            the query to split
+     * @param numPartitions
+     *            the preferred number of partitions
+     * @return a list of partitions, or null if the query cannot (or should
+     *         not) be partitioned.
+     */
+    public List<ScanPartition> partition(final Query query, final int numPartitions) {
+        if (numPartitions < 2) {
+            return null;
+        }
+        if (query.getFirstRow() != null || query.getMaxRows() != null) {
+            logger.debug("Not partitioning query with firstRow/maxRows: {}", query);
+            return null;
+        }
+        if (query.getSelectClause().isDistinct() || !query.getGroupByClause().isEmpty()
+                || !query.getHavingClause().isEmpty() || !query.getOrderByClause().isEmpty()
+                || query.getFromClause().getItemCount() != 1) {
+            logger.debug("Not partitioning query with distinct, grouping, ordering or joins: {}", query);
+            return null;
+        }
+        final Table table = query.getFromClause().getItem(0).getTable();
+        if (table == null) {
+            return null;
+        }
+        if (!isConcurrentQueryingSupported()) {
+            logger.debug("Datastore {} does not support concurrent queries, not partitioning", _datastore.getName());
+            return null;
+        }
+
+        try {
+            final Column keyColumn = getNumericKeyColumn(table);
+            if (keyColumn != null) {
+                return partitionByKeyRange(query, keyColumn, numPartitions);
+            }
+
+            final PerformanceCharacteristics performanceCharacteristics = _datastore.getPerformanceCharacteristics();
+            if (performanceCharacteristics.isQueryOptimizationPreferred()
+                    && performanceCharacteristics.isNaturalRecordOrderConsistent()) {
+                return partitionByOffset(query, numPartitions);
+            }
+
+            logger.debug("Table {} has no numeric primary key and no cheap offset paging, not partitioning",
+                    table.getName());
+            return null;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to partition query, falling back to a single query: " + query, e);
+            return null;
+        }
+    }
+
+    /**
+     * Determines if the partition queries can be executed concurrently on the
+     * {@link DataContext}.
+     * 
+     * @return
+     */
+    private boolean isConcurrentQueryingSupported() {
+        if (_datastore instanceof JdbcDatastore) {
+            final JdbcDatastore jdbcDatastore = (JdbcDatastore) _datastore;
+            if (!jdbcDatastore.isMultipleConnections()
+                    && StringUtils.isNullOrEmpty(jdbcDatastore.getDatasourceJndiUrl())) {
+                // all queries share a single connection
+                return false;
+            }
+        }
+        if (_dataContext instanceof JdbcDataContext) {
+            // a data source provides a connection per query, whereas a single
+            // connection would be shared by all partitions
+            return ((JdbcDataContext) _dataContext).getDelegate() instanceof DataSource;
+        }
+        return true;
+    }
+
+    private Column getNumericKeyColumn(Table table) {
+        final Column[] primaryKeys = table.getPrimaryKeys();
+        if (primaryKeys == null || primaryKeys.length != 1) {
+            return null;
+        }
+        final Column column = primaryKeys[0];
+        final ColumnType type = column.getType();
+        if (type == null || !type.isNumber()) {
+            return null;
+        }
+        return column;
+    }
+
+    private List<ScanPartition> partitionByKeyRange(final Query query, final Column keyColumn,
+            final int numPartitions) {
+        final Query minMaxQuery = query.clone();
+        minMaxQuery.getSelectClause().removeItems();
+        minMaxQuery.select(FunctionType.MIN, keyColumn).select(FunctionType.MAX, keyColumn);
+
+        final Number min;
+        final Number max;
+        try (DataSet dataSet = _dataContext.executeQuery(minMaxQuery)) {
+            if (!dataSet.next()) {
+                return null;
+            }
+            final Row row = dataSet.getRow();
+            min = (Number) row.getValue(0);
+            max = (Number) row.getValue(1);
+        }
+        if (min == null || max == null) {
+            // no records
+            return null;
+        }
+
+        final long low = (long) Math.floor(min.doubleValue());
+        final long high = (long) Math.ceil(max.doubleValue());
+
+        // the boundaries between partitions. The first partition has no lower
+        // bound and the last partition has no upper bound.
+        final List<Long> boundaries = new ArrayList<Long>(numPartitions - 1);
+        final double step = (high - low + 1) / (double) numPartitions;
+        for (int i = 1; i < numPartitions; i++) {
+            final long boundary = low + (long) (step * i);
+            if (boundary > low && (boundaries.isEmpty() || boundary > boundaries.get(boundaries.size() - 1))) {
+                boundaries.add(boundary);
+            }
+        }
+        if (boundaries.isEmpty()) {
+            return null;
+        }
+
+        final List<ScanPartition> partitions = new ArrayList<ScanPartition>(boundaries.size() + 1);
+        int rowIdOffset = 0;
+        for (int i = 0; i <= boundaries.size(); i++) {
+            final Query partitionQuery = query.clone();
+            if (i > 0) {
+                partitionQuery.where(keyColumn, OperatorType.GREATER_THAN_OR_EQUAL, boundaries.get(i - 1));
+            }
+            if (i < boundaries.size()) {
+                partitionQuery.where(keyColumn, OperatorType.LESS_THAN, boundaries.get(i));
+            }
+            partitions.add(new ScanPartition(partitionQuery, rowIdOffset));
+            rowIdOffset += count(partitionQuery);
+        }
+
+        logger.info("Partitioned scan of table {} into {} key ranges of column {}", new Object[] {
+                keyColumn.getTable().getName(), partitions.size(), keyColumn.getName() });
+        return partitions;
+    }
+
+    private List<ScanPartition> partitionByOffset(final Query query, final int numPartitions) {
+        final int rowCount = count(query);
+        if (rowCount < numPartitions) {
+            return null;
+        }
+
+        final int windowSize = (rowCount + numPartitions - 1) / numPartitions;
+        final List<ScanPartition> partitions = new ArrayList<ScanPartition>(numPartitions);
+        for (int offset = 0; offset < rowCount; offset += windowSize) {
+            final Query partitionQuery = query.clone();
+            partitionQuery.setFirstRow(offset + 1);
+            if (offset + windowSize < rowCount) {
+                partitionQuery.setMaxRows(windowSize);
+            }
+            partitions.add(new ScanPartition(partitionQuery, offset));
+        }
+
+        logger.info("Partitioned scan of table {} into {} windows of {} records", new Object[] {
+                query.getFromClause().getItem(0).getTable().getName(), partitions.size(), windowSize });
+        return partitions;
+    }
+
+    private int count(final Query query) {
+        final Query countQuery = query.clone();
+        countQuery.getSelectClause().removeItems();
+        countQuery.selectCount();
+        try (DataSet dataSet = _dataContext.executeQuery(countQuery)) {
+            if (!dataSet.next()) {
+                return 0;
+            }
+            final Number count = (Number) dataSet.getRow().getValue(0);
+            return count == null ? 0 : count.intValue();
+        }
+    }
+}
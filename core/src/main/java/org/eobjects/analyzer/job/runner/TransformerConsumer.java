@@ -19,6 +19,8 @@
  */
 package org.eobjects.analyzer.job.runner;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -26,6 +28,7 @@ import org.eobjects.analyzer.beans.api.Concurrent;
 import org.eobjects.analyzer.beans.api.OutputRowCollector;
 import org.eobjects.analyzer.beans.api.Transformer;
 import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputColumnSlots;
 import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.data.TransformedInputRow;
 import org.eobjects.analyzer.descriptors.ProvidedPropertyDescriptor;
@@ -44,6 +47,8 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
     private final InputColumn<?>[] _inputColumns;
     private final boolean _concurrent;
     private RowIdGenerator _idGenerator;
+    private InputColumnSlots _columnSlots;
+    private volatile ThreadLocalOutputRowCollector[] _outputRowCollectors;
 
     public TransformerConsumer(Transformer<?> transformer, TransformerJob transformerJob,
             InputColumn<?>[] inputColumns, SourceColumnFinder sourceColumnFinder) {
@@ -81,6 +86,16 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
         _idGenerator = idGenerator;
     }
 
+    /**
+     * Sets the layout of transformed columns to use, when creating new
+     * transformed records.
+     * 
+     * @param columnSlots
+     */
+    public void setColumnSlots(InputColumnSlots columnSlots) {
+        _columnSlots = columnSlots;
+    }
+
     @Override
     public boolean isConcurrent() {
         return _concurrent;
@@ -106,7 +121,8 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
             final RowProcessingChain chain) {
         final InputColumn<?>[] outputColumns = getOutputColumns();
 
-        registerListener(_transformer, row, outcomes, chain, outputColumns);
+        final ThreadLocalOutputRowCollector[] outputRowCollectors = getOutputRowCollectors();
+        registerListener(outputRowCollectors, row, outcomes, chain, outputColumns);
 
         try {
             final Object[] values = _transformer.transform(row);
@@ -118,31 +134,60 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
                 // re-use existing transformed input row.
                 resultRow = (TransformedInputRow) row;
             } else {
-                resultRow = new TransformedInputRow(row);
+                resultRow = new TransformedInputRow(row, null, _columnSlots);
             }
             addValuesToRow(resultRow, outputColumns, values);
             chain.processNext(resultRow, distinctCount, outcomes);
         } finally  {
-            unregisterListener(_transformer);
+            unregisterListener(outputRowCollectors);
+        }
+    }
+
+    /**
+     * Gets the {@link OutputRowCollector}s provided to the transformer. These
+     * are resolved by reflection only once (after the transformer has been
+     * initialized and the collectors injected), and not for every record.
+     * 
+     * @return
+     */
+    private ThreadLocalOutputRowCollector[] getOutputRowCollectors() {
+        ThreadLocalOutputRowCollector[] outputRowCollectors = _outputRowCollectors;
+        if (outputRowCollectors == null) {
+            // benign race - concurrent resolving will yield the same result
+            outputRowCollectors = resolveOutputRowCollectors();
+            _outputRowCollectors = outputRowCollectors;
         }
+        return outputRowCollectors;
     }
 
-    private void unregisterListener(Transformer<?> transformer) {
+    private ThreadLocalOutputRowCollector[] resolveOutputRowCollectors() {
         final Set<ProvidedPropertyDescriptor> outputRowCollectorProperties = _transformerJob.getDescriptor()
                 .getProvidedPropertiesByType(OutputRowCollector.class);
+        if (outputRowCollectorProperties == null || outputRowCollectorProperties.isEmpty()) {
+            return new ThreadLocalOutputRowCollector[0];
+        }
+
+        final List<ThreadLocalOutputRowCollector> result = new ArrayList<ThreadLocalOutputRowCollector>();
         for (ProvidedPropertyDescriptor descriptor : outputRowCollectorProperties) {
-            OutputRowCollector outputRowCollector = (OutputRowCollector) descriptor.getValue(transformer);
+            OutputRowCollector outputRowCollector = (OutputRowCollector) descriptor.getValue(_transformer);
             if (outputRowCollector instanceof ThreadLocalOutputRowCollector) {
-                ((ThreadLocalOutputRowCollector) outputRowCollector).removeListener();
+                result.add((ThreadLocalOutputRowCollector) outputRowCollector);
+            } else {
+                throw new UnsupportedOperationException("Unsupported output row collector type: " + outputRowCollector);
             }
         }
+        return result.toArray(new ThreadLocalOutputRowCollector[result.size()]);
     }
 
-    private void registerListener(final Transformer<?> transformer, final InputRow row, final FilterOutcomes outcomes,
-            final RowProcessingChain chain, final InputColumn<?>[] outputColumns) {
-        final Set<ProvidedPropertyDescriptor> outputRowCollectorProperties = _transformerJob.getDescriptor()
-                .getProvidedPropertiesByType(OutputRowCollector.class);
-        if (outputRowCollectorProperties == null || outputRowCollectorProperties.isEmpty()) {
+    private void unregisterListener(final ThreadLocalOutputRowCollector[] outputRowCollectors) {
+        for (ThreadLocalOutputRowCollector outputRowCollector : outputRowCollectors) {
+            outputRowCollector.removeListener();
+        }
+    }
+
+    private void registerListener(final ThreadLocalOutputRowCollector[] outputRowCollectors, final InputRow row,
+            final FilterOutcomes outcomes, final RowProcessingChain chain, final InputColumn<?>[] outputColumns) {
+        if (outputRowCollectors.length == 0) {
             return;
         }
 
@@ -156,9 +201,9 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
                 final TransformedInputRow resultRow;
                 if (isFirst) {
                     // retain the first record's id
-                    resultRow = new TransformedInputRow(row);
+                    resultRow = new TransformedInputRow(row, null, _columnSlots);
                 } else {
-                    resultRow = new TransformedInputRow(row, getNextVirtualRowId(row, recordNo));
+                    resultRow = new TransformedInputRow(row, getNextVirtualRowId(row, recordNo), _columnSlots);
                 }
 
                 addValuesToRow(resultRow, outputColumns, values);
@@ -168,13 +213,8 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
             }
         };
 
-        for (ProvidedPropertyDescriptor descriptor : outputRowCollectorProperties) {
-            OutputRowCollector outputRowCollector = (OutputRowCollector) descriptor.getValue(transformer);
-            if (outputRowCollector instanceof ThreadLocalOutputRowCollector) {
-                ((ThreadLocalOutputRowCollector) outputRowCollector).setListener(listener);
-            } else {
-                throw new UnsupportedOperationException("Unsupported output row collector type: " + outputRowCollector);
-            }
+        for (ThreadLocalOutputRowCollector outputRowCollector : outputRowCollectors) {
+            outputRowCollector.setListener(listener);
         }
     }
 
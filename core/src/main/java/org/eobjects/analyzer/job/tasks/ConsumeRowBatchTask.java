@@ -0,0 +1,84 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.tasks;
+
+import java.util.List;
+
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.job.runner.AnalysisListener;
+import org.eobjects.analyzer.job.runner.ConsumeRowHandler;
+import org.eobjects.analyzer.job.runner.RowProcessingConsumer;
+import org.eobjects.analyzer.job.runner.RowProcessingMetrics;
+
+/**
+ * A {@link Task} that dispatches ("consumes") a batch of records to all
+ * relevant {@link RowProcessingConsumer}s. Compared to {@link ConsumeRowTask}
+ * this task amortizes the scheduling overhead of the task runner over a number
+ * of records.
+ *
+ * Progress is reported to the {@link AnalysisListener} once per batch, for the
+ * last record of the batch.
+ */
+public final class ConsumeRowBatchTask implements Task {
+
+    private final RowProcessingMetrics _rowProcessingMetrics;
+    private final List<InputRow> _rows;
+    private final AnalysisListener _analysisListener;
+    private final ConsumeRowHandler _consumeRowHandler;
+    private final int _lastRowNumber;
+
+    /**
+     *
+     * @param consumeRowHandler
+     * @param rowProcessingMetrics
+     * @param rows
+     *            the batch of rows to consume
+     * @param analysisListener
+     * @param lastRowNumber
+     *            the row number of the last row in the batch
+     */
+    public ConsumeRowBatchTask(ConsumeRowHandler consumeRowHandler, RowProcessingMetrics rowProcessingMetrics,
+            List<InputRow> rows, AnalysisListener analysisListener, int lastRowNumber) {
+        _consumeRowHandler = consumeRowHandler;
+        _rowProcessingMetrics = rowProcessingMetrics;
+        _rows = rows;
+        _analysisListener = analysisListener;
+        _lastRowNumber = lastRowNumber;
+    }
+
+    @Override
+    public void execute() {
+        if (_rows.isEmpty()) {
+            return;
+        }
+
+        for (InputRow row : _rows) {
+            _consumeRowHandler.consumeRow(row);
+        }
+
+        final InputRow lastRow = _rows.get(_rows.size() - 1);
+        _analysisListener.rowProcessingProgress(_rowProcessingMetrics.getAnalysisJobMetrics().getAnalysisJob(),
+                _rowProcessingMetrics, lastRow, _lastRowNumber);
+    }
+
+    public int getBatchSize() {
+        return _rows.size();
+    }
+}
@@ -19,15 +19,23 @@
  */
 package org.eobjects.analyzer.lifecycle;
 
+import java.io.Closeable;
 import java.util.Set;
 
+import org.apache.metamodel.util.FileHelper;
 import org.eobjects.analyzer.descriptors.CloseMethodDescriptor;
 import org.eobjects.analyzer.descriptors.ComponentDescriptor;
+import org.eobjects.analyzer.descriptors.ProvidedPropertyDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Life cycle callback for closing components after execution.
+ * 
+ * Besides invoking the close methods of the component, provided collections
+ * (lists, sets, maps and collection factories) which hold external resources,
+ * such as files, are closed as well. Provided row annotation factories are not
+ * closed, since they are typically referenced by the results of the job.
  */
 final class CloseCallback implements LifeCycleCallback<Object, ComponentDescriptor<?>> {
 
@@ -54,6 +62,21 @@ final class CloseCallback implements LifeCycleCallback<Object, ComponentDescript
                 }
             }
         }
+
+        closeProvidedCollections(analyzerBean, descriptor);
     }
 
+    private void closeProvidedCollections(Object component, ComponentDescriptor<?> descriptor) {
+        Set<ProvidedPropertyDescriptor> providedProperties = descriptor.getProvidedProperties();
+        for (ProvidedPropertyDescriptor providedProperty : providedProperties) {
+            if (providedProperty.isList() || providedProperty.isSet() || providedProperty.isMap()
+                    || providedProperty.isCollectionFactory()) {
+                Object value = providedProperty.getValue(component);
+                if (value instanceof Closeable) {
+                    logger.debug("Closing provided property {}", providedProperty);
+                    FileHelper.safeClose(value);
+                }
+            }
+        }
+    }
 }
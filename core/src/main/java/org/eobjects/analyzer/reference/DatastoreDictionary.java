@@ -46,6 +46,9 @@ import org.slf4j.LoggerFactory;
  * entirely able to gracefully deserialize. The user of the dictionary will have
  * to inject the DatastoreCatalog using the setter method for this.
  * 
+ * Dictionaries with no more records than the "load into memory" threshold are
+ * loaded into memory when initialized, see {@link DatastoreReferenceValues}.
+ * 
  * 
  */
 public final class DatastoreDictionary extends AbstractReferenceData implements Dictionary {
@@ -54,10 +57,11 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
 
 	private static final Logger logger = LoggerFactory.getLogger(DatastoreDictionary.class);
 	
-	private transient ReferenceValues<String> _cachedRefValues;
+	private transient volatile DatastoreReferenceValues _cachedRefValues;
 	private transient BlockingQueue<DatastoreConnection> _datastoreConnections = new LinkedBlockingQueue<DatastoreConnection>();
 	private final String _datastoreName;
 	private final String _qualifiedColumnName;
+	private int _loadIntoMemoryThreshold = DatastoreReferenceValues.DEFAULT_LOAD_INTO_MEMORY_THRESHOLD;
 	
 	@Inject
 	@Provided
@@ -92,7 +96,8 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
 	}
 
 	/**
-	 * Initializes a DatastoreConnection, which will keep the connection open
+	 * Initializes a DatastoreConnection, which will keep the connection open,
+	 * and loads the values into memory if within the threshold.
 	 */
 	@Initialize
 	public void init() {
@@ -100,6 +105,7 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
 		Datastore datastore = getDatastore();
 		DatastoreConnection con = datastore.openConnection();
 		getDatastoreConnections().add(con);
+		getValues().load();
 	}
 
 	/**
@@ -135,14 +141,36 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
 		return _qualifiedColumnName;
 	}
 
+	/**
+	 * Gets the maximum number of records of the dictionary's table, for the
+	 * dictionary to be loaded into memory.
+	 * 
+	 * @return
+	 */
+	public int getLoadIntoMemoryThreshold() {
+		return _loadIntoMemoryThreshold;
+	}
+
+	/**
+	 * Sets the maximum number of records of the dictionary's table, for the
+	 * dictionary to be loaded into memory. Larger dictionaries are queried per
+	 * value. Zero (the default) means never to load the dictionary into memory.
+	 * 
+	 * @param loadIntoMemoryThreshold
+	 */
+	public void setLoadIntoMemoryThreshold(int loadIntoMemoryThreshold) {
+		_loadIntoMemoryThreshold = loadIntoMemoryThreshold;
+	}
+
 	@Override
 	public boolean containsValue(String value) {
 		// note that caching IS enabled because the ReferenceValues object
-		// returned by getValues() contains a cache!
+		// returned by getValues() either holds the values in memory or
+		// contains a cache!
 		return getValues().containsValue(value);
 	}
 
-	public ReferenceValues<String> getValues() {
+	public DatastoreReferenceValues getValues() {
 		if (_cachedRefValues == null) {
 			synchronized (this) {
 				if (_cachedRefValues == null) {
@@ -154,7 +182,7 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
 					if (column == null) {
 						throw new IllegalStateException("Could not resolve column " + _qualifiedColumnName);
 					}
-					_cachedRefValues = new DatastoreReferenceValues(datastore, column);
+					_cachedRefValues = new DatastoreReferenceValues(datastore, column, _loadIntoMemoryThreshold);
 					datastoreConnection.close();
 				}
 			}
@@ -21,78 +21,242 @@ package org.eobjects.analyzer.reference;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
+import org.eobjects.analyzer.beans.convert.ConvertToNumberTransformer;
 import org.eobjects.analyzer.connection.Datastore;
 import org.eobjects.analyzer.connection.DatastoreConnection;
 import org.eobjects.analyzer.util.CollectionUtils2;
 import org.apache.metamodel.DataContext;
+import org.apache.metamodel.MetaModelException;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.query.Query;
 import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
 import org.apache.metamodel.util.BaseObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.cache.Cache;
 
 /**
  * Reference values implementation based on a datastore column.
  * 
+ * By default each value is looked up with a query, and the results are cached.
+ * If a "load into memory" threshold is set and the table of the column has no
+ * more records than that, all values of the column are instead loaded into an
+ * in-memory set the first time they are needed. Loaded values are compared
+ * numerically for number columns and by their string representation for other
+ * columns. Other comparison rules of the datastore, such as case insensitive
+ * collations, do not apply to loaded values.
+ * 
  * 
  */
 public final class DatastoreReferenceValues extends BaseObject implements ReferenceValues<String> {
 
+    /**
+     * The default maximum number of records to load into memory. Zero, ie.
+     * values are not loaded into memory unless a threshold is set.
+     */
+    public static final int DEFAULT_LOAD_INTO_MEMORY_THRESHOLD = 0;
+
+    private static final Logger logger = LoggerFactory.getLogger(DatastoreReferenceValues.class);
+
     private final Datastore _datastore;
     private final Column _column;
+    private final int _loadIntoMemoryThreshold;
 
-    private transient Cache<String, Boolean> _containsValueCache = CollectionUtils2.createCache(1000, 60);
+    private transient Cache<String, Boolean> _containsValueCache = CollectionUtils2.createCache(10000, 5 * 60);
+    private transient volatile Set<Object> _loadedValues;
+    private transient volatile boolean _loaded;
 
     public DatastoreReferenceValues(Datastore datastore, Column column) {
+        this(datastore, column, DEFAULT_LOAD_INTO_MEMORY_THRESHOLD);
+    }
+
+    /**
+     * 
+     * @param datastore
+     * @param column
+     * @param loadIntoMemoryThreshold
+     *            the maximum number of records in the table of the column, for
+     *            the values to be loaded into memory. If zero, the values are
+     *            never loaded into memory, but queried individually.
+     */
+    public DatastoreReferenceValues(Datastore datastore, Column column, int loadIntoMemoryThreshold) {
         _datastore = datastore;
         _column = column;
+        _loadIntoMemoryThreshold = loadIntoMemoryThreshold;
     }
 
     @Override
     protected void decorateIdentity(List<Object> identifiers) {
         identifiers.add(_datastore);
         identifiers.add(_column);
+        identifiers.add(_loadIntoMemoryThreshold);
     }
 
     public void clearCache() {
         _containsValueCache.invalidateAll();
+        synchronized (this) {
+            _loaded = false;
+            _loadedValues = null;
+        }
+    }
+
+    /**
+     * Loads the values into memory, if the table of the column is within the
+     * "load into memory" threshold. Invoking this method is optional, since
+     * it will otherwise happen on the first lookup.
+     * 
+     * @return whether or not the values are held in memory
+     */
+    public boolean load() {
+        return getLoadedValues() != null;
+    }
+
+    /**
+     * Gets the values held in memory, loading them if it has not already been
+     * attempted.
+     * 
+     * @return the values, or null if the values are not held in memory
+     */
+    private Set<Object> getLoadedValues() {
+        if (!_loaded) {
+            synchronized (this) {
+                if (!_loaded) {
+                    final Set<Object> loadedValues = loadValues();
+                    _loadedValues = loadedValues;
+                    _loaded = true;
+                    return loadedValues;
+                }
+            }
+        }
+        return _loadedValues;
+    }
+
+    private Set<Object> loadValues() {
+        if (_loadIntoMemoryThreshold <= 0) {
+            return null;
+        }
+
+        final boolean numberColumn = isNumberColumn(_column);
+        try (DatastoreConnection con = _datastore.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+
+            final Query query = dataContext.query().from(_column.getTable()).select(_column).toQuery();
+            if (_loadIntoMemoryThreshold < Integer.MAX_VALUE) {
+                // one more record than the threshold tells that it is exceeded
+                query.setMaxRows(_loadIntoMemoryThreshold + 1);
+            }
+
+            final Set<Object> values = new HashSet<Object>();
+            int recordCount = 0;
+            try (DataSet dataSet = dataContext.executeQuery(query)) {
+                while (dataSet.next()) {
+                    recordCount++;
+                    if (recordCount > _loadIntoMemoryThreshold) {
+                        logger.info("Not loading values of {} into memory, record count exceeds {}", _column,
+                                _loadIntoMemoryThreshold);
+                        return null;
+                    }
+                    final Object key = toKey(dataSet.getRow().getValue(0), numberColumn);
+                    if (key != null) {
+                        values.add(key);
+                    }
+                }
+            }
+            logger.info("Loaded {} values of {} into memory", values.size(), _column);
+            return Collections.unmodifiableSet(values);
+        } catch (MetaModelException e) {
+            logger.warn("Could not load values of " + _column + " into memory, will query values individually", e);
+            return null;
+        }
+    }
+
+    /**
+     * Determines if a column is compared numerically when values are looked
+     * up.
+     * 
+     * @param column
+     * @return
+     */
+    static boolean isNumberColumn(Column column) {
+        final ColumnType type = column.getType();
+        return type != null && type.isNumber();
+    }
+
+    /**
+     * Converts a value to the key it is held by in memory, matching the
+     * comparison made when the value is queried: Values of number columns are
+     * converted to numbers and other values to strings.
+     * 
+     * @param value
+     * @param numberColumn
+     * @return the key, or null if the value cannot match any record
+     */
+    static Object toKey(Object value, boolean numberColumn) {
+        if (value == null) {
+            return null;
+        }
+        if (numberColumn) {
+            final Number number = ConvertToNumberTransformer.transformValue(value);
+            if (number == null) {
+                return null;
+            }
+            return Double.valueOf(number.doubleValue());
+        }
+        return value.toString();
     }
 
     @Override
-    public boolean containsValue(String value) {
-        Boolean result = _containsValueCache.getIfPresent(value);
-        if (result == null) {
-            synchronized (_containsValueCache) {
-                result = _containsValueCache.getIfPresent(value);
-                if (result == null) {
-                    result = false;
-                    try (DatastoreConnection con = _datastore.openConnection()) {
-                        DataContext dataContext = con.getDataContext();
-                        Query q = dataContext.query().from(_column.getTable()).selectCount().where(_column).eq(value)
-                                .toQuery();
-                        try (DataSet dataSet = dataContext.executeQuery(q)) {
-                            if (dataSet.next()) {
-                                Row row = dataSet.getRow();
-                                if (row != null) {
-                                    Number count = (Number) row.getValue(0);
-                                    if (count != null && count.intValue() > 0) {
-                                        result = true;
-                                    }
-                                    assert !dataSet.next();
-                                }
-                            }
+    public boolean containsValue(final String value) {
+        if (value == null) {
+            return false;
+        }
+
+        final Set<Object> loadedValues = getLoadedValues();
+        if (loadedValues != null) {
+            final Object key = toKey(value, isNumberColumn(_column));
+            return key != null && loadedValues.contains(key);
+        }
+
+        try {
+            return _containsValueCache.get(value, new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return queryContainsValue(value);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private boolean queryContainsValue(String value) {
+        try (DatastoreConnection con = _datastore.openConnection()) {
+            DataContext dataContext = con.getDataContext();
+            Query q = dataContext.query().from(_column.getTable()).selectCount().where(_column).eq(value).toQuery();
+            try (DataSet dataSet = dataContext.executeQuery(q)) {
+                if (dataSet.next()) {
+                    Row row = dataSet.getRow();
+                    if (row != null) {
+                        Number count = (Number) row.getValue(0);
+                        if (count != null && count.intValue() > 0) {
+                            return true;
                         }
+                        assert !dataSet.next();
                     }
-                    _containsValueCache.put(value, result);
                 }
             }
         }
-        return result;
-
+        return false;
     }
 
     @Override
@@ -24,8 +24,13 @@ import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.inject.Inject;
@@ -43,6 +48,7 @@ import org.eobjects.analyzer.util.ReadObjectBuilder;
 import org.eobjects.analyzer.util.SchemaNavigator;
 import org.eobjects.analyzer.util.StringUtils;
 import org.apache.metamodel.DataContext;
+import org.apache.metamodel.MetaModelException;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.query.FilterItem;
@@ -56,6 +62,17 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.cache.Cache;
 
+/**
+ * A synonym catalog backed by a table in a datastore, with a master term
+ * column and a number of synonym columns.
+ * 
+ * By default each term is looked up with a query, and the results are cached.
+ * If a "load into memory" threshold is set, synonym catalogs with no more
+ * records than that are instead loaded into an in-memory map when initialized.
+ * Like in {@link DatastoreReferenceValues}, loaded synonyms are compared
+ * numerically for number columns and by their string representation for other
+ * columns.
+ */
 public final class DatastoreSynonymCatalog extends AbstractReferenceData implements SynonymCatalog {
 
     private static final long serialVersionUID = 1L;
@@ -63,10 +80,15 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
     private static final Logger logger = LoggerFactory.getLogger(DatastoreSynonymCatalog.class);
 
     private transient Cache<String, String> _masterTermCache;
+    private transient volatile Map<Object, String> _loadedMasterTerms;
+    private transient volatile boolean _loaded;
+    private transient volatile Column _masterTermColumn;
+    private transient volatile Column[] _synonymColumns;
     private transient BlockingQueue<DatastoreConnection> _dataContextProviders = new LinkedBlockingQueue<DatastoreConnection>();
     private final String _datastoreName;
     private final String _masterTermColumnPath;
     private final String[] _synonymColumnPaths;
+    private int _loadIntoMemoryThreshold = DatastoreReferenceValues.DEFAULT_LOAD_INTO_MEMORY_THRESHOLD;
 
     @Inject
     @Provided
@@ -93,7 +115,8 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
     }
 
     /**
-     * Initializes a DatastoreConnection, which will keep the connection open
+     * Initializes a DatastoreConnection, which will keep the connection open,
+     * and loads the synonyms into memory if within the threshold.
      */
     @Initialize
     public void init() {
@@ -101,6 +124,7 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
         Datastore datastore = getDatastore();
         DatastoreConnection dataContextProvider = datastore.openConnection();
         getDatastoreConnections().add(dataContextProvider);
+        load();
     }
 
     /**
@@ -120,7 +144,7 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
         if (_masterTermCache == null) {
             synchronized (this) {
                 if (_masterTermCache == null) {
-                    _masterTermCache = CollectionUtils2.createCache(1000, 5 * 60);
+                    _masterTermCache = CollectionUtils2.createCache(10000, 5 * 60);
                 }
             }
         }
@@ -158,6 +182,114 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
         return Arrays.copyOf(_synonymColumnPaths, _synonymColumnPaths.length);
     }
 
+    /**
+     * Gets the maximum number of records of the synonym catalog's table, for
+     * the synonym catalog to be loaded into memory.
+     * 
+     * @return
+     */
+    public int getLoadIntoMemoryThreshold() {
+        return _loadIntoMemoryThreshold;
+    }
+
+    /**
+     * Sets the maximum number of records of the synonym catalog's table, for
+     * the synonym catalog to be loaded into memory. Larger synonym catalogs are
+     * queried per term. Zero (the default) means never to load the synonym
+     * catalog into memory.
+     * 
+     * @param loadIntoMemoryThreshold
+     */
+    public void setLoadIntoMemoryThreshold(int loadIntoMemoryThreshold) {
+        _loadIntoMemoryThreshold = loadIntoMemoryThreshold;
+    }
+
+    private void resolveColumns(DatastoreConnection datastoreConnection) {
+        if (_synonymColumns == null) {
+            final SchemaNavigator schemaNavigator = datastoreConnection.getSchemaNavigator();
+            _masterTermColumn = schemaNavigator.convertToColumn(_masterTermColumnPath);
+            _synonymColumns = schemaNavigator.convertToColumns(_synonymColumnPaths);
+        }
+    }
+
+    /**
+     * Loads the synonyms into memory, if the table is within the "load into
+     * memory" threshold. Invoking this method is optional, since it will
+     * otherwise happen on the first lookup.
+     * 
+     * @return whether or not the synonyms are held in memory
+     */
+    public boolean load() {
+        if (!_loaded) {
+            synchronized (this) {
+                if (!_loaded) {
+                    _loadedMasterTerms = loadMasterTerms();
+                    _loaded = true;
+                }
+            }
+        }
+        return _loadedMasterTerms != null;
+    }
+
+    private Map<Object, String> loadMasterTerms() {
+        if (_loadIntoMemoryThreshold <= 0) {
+            return null;
+        }
+
+        final Datastore datastore = getDatastore();
+        try (final DatastoreConnection datastoreConnection = datastore.openConnection()) {
+            resolveColumns(datastoreConnection);
+            final Column masterTermColumn = _masterTermColumn;
+            final Column[] columns = _synonymColumns;
+
+            final DataContext dataContext = datastoreConnection.getDataContext();
+            final Table table = masterTermColumn.getTable();
+
+            final boolean[] numberColumns = new boolean[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                numberColumns[i] = DatastoreReferenceValues.isNumberColumn(columns[i]);
+            }
+
+            final Query query = dataContext.query().from(table.getName()).select(masterTermColumn).select(columns)
+                    .toQuery();
+            if (_loadIntoMemoryThreshold < Integer.MAX_VALUE) {
+                // one more record than the threshold tells that it is exceeded
+                query.setMaxRows(_loadIntoMemoryThreshold + 1);
+            }
+
+            final Map<Object, String> masterTerms = new HashMap<Object, String>();
+            int recordCount = 0;
+            try (final DataSet dataSet = dataContext.executeQuery(query)) {
+                while (dataSet.next()) {
+                    recordCount++;
+                    if (recordCount > _loadIntoMemoryThreshold) {
+                        logger.info("Not loading synonym catalog {} into memory, record count exceeds {}",
+                                getName(), _loadIntoMemoryThreshold);
+                        return null;
+                    }
+                    final Row row = dataSet.getRow();
+                    final String masterTerm = getMasterTerm(row, masterTermColumn);
+                    if (masterTerm == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < columns.length; i++) {
+                        final Object synonym = DatastoreReferenceValues.toKey(row.getValue(columns[i]),
+                                numberColumns[i]);
+                        if (synonym != null && !masterTerms.containsKey(synonym)) {
+                            masterTerms.put(synonym, masterTerm);
+                        }
+                    }
+                }
+            }
+            logger.info("Loaded {} synonyms of synonym catalog {} into memory", masterTerms.size(), getName());
+            return Collections.unmodifiableMap(masterTerms);
+        } catch (MetaModelException e) {
+            logger.warn("Could not load synonym catalog " + getName() + " into memory, will query terms individually",
+                    e);
+            return null;
+        }
+    }
+
     @Override
     public Collection<Synonym> getSynonyms() {
         final Datastore datastore = getDatastore();
@@ -189,73 +321,92 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
     }
 
     @Override
-    public String getMasterTerm(String term) {
+    public String getMasterTerm(final String term) {
         if (StringUtils.isNullOrEmpty(term)) {
             return null;
         }
 
-        final Cache<String, String> cache = getMasterTermCache();
+        if (load()) {
+            final Map<Object, String> masterTerms = _loadedMasterTerms;
+            final String masterTerm = masterTerms.get(term);
+            if (masterTerm != null) {
+                return masterTerm;
+            }
+            // synonyms of number columns are held by their number
+            final Object numberKey = DatastoreReferenceValues.toKey(term, true);
+            if (numberKey == null) {
+                return null;
+            }
+            return masterTerms.get(numberKey);
+        }
 
         String result;
+        try {
+            result = getMasterTermCache().get(term, new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return queryMasterTerm(term);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
 
-        synchronized (cache) {
-
-            result = cache.getIfPresent(term);
-
-            if (result == null) {
-                final Datastore datastore = getDatastore();
+        if ("".equals(result)) {
+            result = null;
+        }
 
-                try (final DatastoreConnection datastoreConnection = datastore.openConnection()) {
+        return result;
+    }
 
-                    final SchemaNavigator schemaNavigator = datastoreConnection.getSchemaNavigator();
+    /**
+     * Queries the master term of a term.
+     * 
+     * @param term
+     * @return the master term, or an empty string if not found
+     */
+    private String queryMasterTerm(String term) {
+        final Datastore datastore = getDatastore();
 
-                    final Column masterTermColumn = schemaNavigator.convertToColumn(_masterTermColumnPath);
-                    final Column[] columns = schemaNavigator.convertToColumns(_synonymColumnPaths);
+        try (final DatastoreConnection datastoreConnection = datastore.openConnection()) {
+            resolveColumns(datastoreConnection);
+            final Column masterTermColumn = _masterTermColumn;
+            final Column[] columns = _synonymColumns;
 
-                    final DataContext dataContext = datastoreConnection.getDataContext();
-                    final Table table = masterTermColumn.getTable();
+            final DataContext dataContext = datastoreConnection.getDataContext();
+            final Table table = masterTermColumn.getTable();
 
-                    // create a query that gets the master term where any of the
-                    // synonym columns are equal to the synonym
-                    final Query query = dataContext.query().from(table.getName()).select(masterTermColumn).toQuery();
-                    final List<FilterItem> filterItems = new ArrayList<FilterItem>();
-                    for (int i = 0; i < columns.length; i++) {
-                        final Column column = columns[i];
-                        if (column.getType().isNumber()) {
-                            final Number numberValue = ConvertToNumberTransformer.transformValue(term);
-                            if (numberValue != null) {
-                                filterItems.add(new FilterItem(new SelectItem(column), OperatorType.EQUALS_TO,
-                                        numberValue));
-                            }
-                        } else {
-                            filterItems.add(new FilterItem(new SelectItem(column), OperatorType.EQUALS_TO, term));
-                        }
+            // create a query that gets the master term where any of the
+            // synonym columns are equal to the synonym
+            final Query query = dataContext.query().from(table.getName()).select(masterTermColumn).toQuery();
+            final List<FilterItem> filterItems = new ArrayList<FilterItem>();
+            for (int i = 0; i < columns.length; i++) {
+                final Column column = columns[i];
+                if (column.getType().isNumber()) {
+                    final Number numberValue = ConvertToNumberTransformer.transformValue(term);
+                    if (numberValue != null) {
+                        filterItems.add(new FilterItem(new SelectItem(column), OperatorType.EQUALS_TO, numberValue));
                     }
-                    if (filterItems.isEmpty()) {
-                        result = "";
-                    } else {
-                        query.where(new FilterItem(filterItems.toArray(new FilterItem[0])));
-
-                        try (final DataSet dataSet = dataContext.executeQuery(query)) {
-                            if (dataSet.next()) {
-                                final Row row = dataSet.getRow();
-                                result = getMasterTerm(row, masterTermColumn);
-                            } else {
-                                result = "";
-                            }
-                        }
+                } else {
+                    filterItems.add(new FilterItem(new SelectItem(column), OperatorType.EQUALS_TO, term));
+                }
+            }
+            if (filterItems.isEmpty()) {
+                return "";
+            }
+            query.where(new FilterItem(filterItems.toArray(new FilterItem[0])));
+
+            try (final DataSet dataSet = dataContext.executeQuery(query)) {
+                if (dataSet.next()) {
+                    final Row row = dataSet.getRow();
+                    final String masterTerm = getMasterTerm(row, masterTermColumn);
+                    if (masterTerm != null) {
+                        return masterTerm;
                     }
                 }
-
-                cache.put(term, result);
+                return "";
             }
         }
-
-        if ("".equals(result)) {
-            result = null;
-        }
-
-        return result;
     }
 
     private String getMasterTerm(Row row, Column column) {
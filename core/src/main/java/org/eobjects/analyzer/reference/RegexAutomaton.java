@@ -0,0 +1,274 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.reference;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A deterministic finite automaton (DFA) which tests a string against a number
+ * of regular expressions in a single pass. The DFA is derived from a
+ * {@link RegexNfa} lazily, ie. states are created (and cached) as they are
+ * reached by the strings being matched. The automaton is thread-safe and does
+ * not lock while matching.
+ * 
+ * Since the {@link RegexNfa} may accept more strings than the regular
+ * expressions, the result of matching is a set of candidate expressions, which
+ * should be confirmed using {@link java.util.regex.Pattern}.
+ */
+final class RegexAutomaton {
+
+    private static final int MAX_STATES = 10000;
+
+    private static final int ASCII_SIZE = 128;
+
+    /**
+     * A DFA state, ie. a set of NFA states.
+     */
+    private final class State {
+
+        private final int[] _nfaStates;
+        private final int _hashCode;
+        private final BitSet _findAccepts;
+        private final BitSet _entireAccepts;
+        private final AtomicReferenceArray<State> _asciiTransitions;
+        private final ConcurrentMap<Character, State> _otherTransitions;
+
+        public State(int[] nfaStates) {
+            _nfaStates = nfaStates;
+            _hashCode = Arrays.hashCode(nfaStates);
+
+            BitSet findAccepts = null;
+            BitSet entireAccepts = null;
+            for (int nfaState : nfaStates) {
+                if (_nfa.getType(nfaState) == RegexNfa.TYPE_ACCEPT) {
+                    final int expressionIndex = _nfa.getOut1(nfaState);
+                    if (_findMode[expressionIndex]) {
+                        if (findAccepts == null) {
+                            findAccepts = new BitSet();
+                        }
+                        findAccepts.set(expressionIndex);
+                    } else {
+                        if (entireAccepts == null) {
+                            entireAccepts = new BitSet();
+                        }
+                        entireAccepts.set(expressionIndex);
+                    }
+                }
+            }
+            _findAccepts = findAccepts;
+            _entireAccepts = entireAccepts;
+            _asciiTransitions = new AtomicReferenceArray<State>(ASCII_SIZE);
+            _otherTransitions = new ConcurrentHashMap<Character, State>(4);
+        }
+
+        /**
+         * Gets the next state when reading a character.
+         * 
+         * @param c
+         * @return the next state, or null if the maximum number of states has
+         *         been reached
+         */
+        public State next(char c) {
+            if (c < ASCII_SIZE) {
+                State state = _asciiTransitions.get(c);
+                if (state == null) {
+                    state = computeNext(c);
+                    if (state != null) {
+                        _asciiTransitions.set(c, state);
+                    }
+                }
+                return state;
+            }
+
+            final Character key = c;
+            State state = _otherTransitions.get(key);
+            if (state == null) {
+                state = computeNext(c);
+                if (state != null) {
+                    _otherTransitions.put(key, state);
+                }
+            }
+            return state;
+        }
+
+        private State computeNext(char c) {
+            final BitSet nfaStates = new BitSet();
+            nfaStates.or(_findStartClosure);
+            for (int nfaState : _nfaStates) {
+                if (_nfa.getType(nfaState) == RegexNfa.TYPE_CHAR && _nfa.getCharClass(nfaState).matches(c)) {
+                    addClosure(nfaStates, _nfa.getOut1(nfaState));
+                }
+            }
+            return getState(nfaStates);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof State && Arrays.equals(_nfaStates, ((State) obj)._nfaStates);
+        }
+    }
+
+    private final RegexNfa _nfa;
+    private final boolean[] _findMode;
+    private final BitSet _findStartClosure;
+    private final ConcurrentMap<State, State> _states;
+    private final State _initialState;
+
+    /**
+     * 
+     * @param nfa
+     *            the NFA with the regular expressions to match
+     * @param findMode
+     *            for each expression in the NFA, whether it should match a
+     *            subsequence (true) or the entire string (false)
+     */
+    public RegexAutomaton(RegexNfa nfa, boolean[] findMode) {
+        _nfa = nfa;
+        _findMode = findMode;
+        _states = new ConcurrentHashMap<State, State>();
+
+        _findStartClosure = new BitSet();
+        final BitSet initialStates = new BitSet();
+        for (int i = 0; i < nfa.getExpressionCount(); i++) {
+            if (findMode[i]) {
+                addClosure(_findStartClosure, nfa.getStart(i));
+            }
+            addClosure(initialStates, nfa.getStart(i));
+        }
+        _initialState = getState(initialStates);
+    }
+
+    /**
+     * Matches a string against all the expressions of the automaton.
+     * 
+     * @param string
+     * @return the indexes of the expressions which may match the string, or
+     *         null if the automaton is unable to determine it (in which case
+     *         all expressions should be tested)
+     */
+    public BitSet match(String string) {
+        final BitSet result = new BitSet();
+        State state = _initialState;
+        if (state == null) {
+            return null;
+        }
+        if (state._findAccepts != null) {
+            result.or(state._findAccepts);
+        }
+
+        final int length = string.length();
+        for (int i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            if (Character.isSurrogate(c)) {
+                // java.util.regex may match parts of supplementary characters
+                return null;
+            }
+            state = state.next(c);
+            if (state == null) {
+                return null;
+            }
+            if (state._findAccepts != null) {
+                result.or(state._findAccepts);
+            }
+        }
+
+        if (state._entireAccepts != null) {
+            result.or(state._entireAccepts);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of DFA states that have been created so far.
+     * 
+     * @return
+     */
+    public int getStateCount() {
+        return _states.size();
+    }
+
+    private State getState(BitSet nfaStates) {
+        final int[] array = new int[nfaStates.cardinality()];
+        int index = 0;
+        for (int i = nfaStates.nextSetBit(0); i >= 0; i = nfaStates.nextSetBit(i + 1)) {
+            final int type = _nfa.getType(i);
+            if (type == RegexNfa.TYPE_CHAR || type == RegexNfa.TYPE_ACCEPT) {
+                array[index] = i;
+                index++;
+            }
+        }
+
+        final State state = new State(Arrays.copyOf(array, index));
+        final State existingState = _states.get(state);
+        if (existingState != null) {
+            return existingState;
+        }
+        if (_states.size() >= MAX_STATES) {
+            return null;
+        }
+        final State previousState = _states.putIfAbsent(state, state);
+        if (previousState != null) {
+            return previousState;
+        }
+        return state;
+    }
+
+    /**
+     * Adds a NFA state and all states reachable from it through epsilon
+     * transitions.
+     * 
+     * @param nfaStates
+     * @param nfaState
+     */
+    private void addClosure(BitSet nfaStates, int nfaState) {
+        final Deque<Integer> stack = new ArrayDeque<Integer>();
+        stack.push(nfaState);
+        while (!stack.isEmpty()) {
+            final int state = stack.pop();
+            if (state == -1 || nfaStates.get(state)) {
+                continue;
+            }
+            nfaStates.set(state);
+            switch (_nfa.getType(state)) {
+            case RegexNfa.TYPE_SPLIT:
+                stack.push(_nfa.getOut2(state));
+                stack.push(_nfa.getOut1(state));
+                break;
+            case RegexNfa.TYPE_EPSILON:
+                stack.push(_nfa.getOut1(state));
+                break;
+            default:
+                // char and accept states have no epsilon transitions
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,652 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.reference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A nondeterministic finite automaton (NFA) recognizing a number of regular
+ * expressions at once, used by {@link RegexAutomaton}.
+ * 
+ * Only a subset of the {@link java.util.regex.Pattern} syntax is supported:
+ * literals, character classes, predefined character classes, non-capturing and
+ * capturing groups, alternation and greedy or reluctant quantifiers. Assertions
+ * (anchors and word boundaries) are treated as always satisfied, which means
+ * that the automaton may accept more strings than the regular expression, but
+ * never less.
+ */
+final class RegexNfa {
+
+    static final int TYPE_CHAR = 0;
+    static final int TYPE_SPLIT = 1;
+    static final int TYPE_EPSILON = 2;
+    static final int TYPE_ACCEPT = 3;
+
+    private static final int MAX_STATES_PER_EXPRESSION = 10000;
+
+    private static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+
+    private static final CharClass DIGIT = new CharClass(new int[] { '0', '9' });
+    private static final CharClass WORD = new CharClass(new int[] { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' });
+    private static final CharClass SPACE = new CharClass(new int[] { '\t', '\r', ' ', ' ' });
+    private static final CharClass DOT = new CharClass(new int[] { '\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028,
+            0x2029 }).complement();
+
+    /**
+     * A set of code points, represented as sorted, non-overlapping ranges.
+     */
+    static final class CharClass {
+
+        private final int[] _ranges;
+
+        private CharClass(int[] ranges) {
+            _ranges = ranges;
+        }
+
+        public boolean matches(int codePoint) {
+            for (int i = 0; i < _ranges.length; i += 2) {
+                if (codePoint < _ranges[i]) {
+                    return false;
+                }
+                if (codePoint <= _ranges[i + 1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private CharClass complement() {
+            final List<Integer> ranges = new ArrayList<Integer>();
+            int next = 0;
+            for (int i = 0; i < _ranges.length; i += 2) {
+                if (_ranges[i] > next) {
+                    ranges.add(next);
+                    ranges.add(_ranges[i] - 1);
+                }
+                next = _ranges[i + 1] + 1;
+            }
+            if (next <= MAX_CODE_POINT) {
+                ranges.add(next);
+                ranges.add(MAX_CODE_POINT);
+            }
+            return new CharClass(toArray(ranges));
+        }
+
+        private static CharClass union(List<int[]> ranges) {
+            Collections.sort(ranges, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] o1, int[] o2) {
+                    return Integer.compare(o1[0], o2[0]);
+                }
+            });
+            final List<Integer> result = new ArrayList<Integer>();
+            for (int[] range : ranges) {
+                final int size = result.size();
+                if (size > 0 && range[0] <= result.get(size - 1) + 1) {
+                    if (range[1] > result.get(size - 1)) {
+                        result.set(size - 1, range[1]);
+                    }
+                } else {
+                    result.add(range[0]);
+                    result.add(range[1]);
+                }
+            }
+            return new CharClass(toArray(result));
+        }
+
+        private void addTo(List<int[]> ranges) {
+            for (int i = 0; i < _ranges.length; i += 2) {
+                ranges.add(new int[] { _ranges[i], _ranges[i + 1] });
+            }
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            final int[] result = new int[list.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = list.get(i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Exception thrown while parsing an expression that uses syntax which is
+     * not supported by the automaton.
+     */
+    private static final class UnsupportedExpressionException extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * A part of the automaton with a single entry state and a single (epsilon)
+     * exit state.
+     */
+    private static final class Fragment {
+        final int start;
+        final int end;
+
+        Fragment(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final List<Integer> _types = new ArrayList<Integer>();
+    private final List<Integer> _outs1 = new ArrayList<Integer>();
+    private final List<Integer> _outs2 = new ArrayList<Integer>();
+    private final List<CharClass> _charClasses = new ArrayList<CharClass>();
+    private final List<Integer> _starts = new ArrayList<Integer>();
+
+    // parser state
+    private String _expression;
+    private int _pos;
+    private int _stateLimit;
+
+    /**
+     * Adds an expression to the automaton.
+     * 
+     * @param expression
+     * @return the index of the expression in the automaton, or -1 if the
+     *         expression is not supported.
+     */
+    public int addExpression(String expression) {
+        final int stateCount = _types.size();
+        _expression = expression;
+        _pos = 0;
+        _stateLimit = stateCount + MAX_STATES_PER_EXPRESSION;
+        try {
+            final Fragment fragment = parseAlternation();
+            if (_pos != _expression.length()) {
+                throw new UnsupportedExpressionException();
+            }
+            final int index = _starts.size();
+            final int accept = addState(TYPE_ACCEPT, index, -1, null);
+            _outs1.set(fragment.end, accept);
+            _starts.add(fragment.start);
+            return index;
+        } catch (UnsupportedExpressionException e) {
+            // roll back the states of the expression
+            truncate(_types, stateCount);
+            truncate(_outs1, stateCount);
+            truncate(_outs2, stateCount);
+            truncate(_charClasses, stateCount);
+            return -1;
+        } finally {
+            _expression = null;
+        }
+    }
+
+    private static void truncate(List<?> list, int size) {
+        list.subList(size, list.size()).clear();
+    }
+
+    public int getExpressionCount() {
+        return _starts.size();
+    }
+
+    public int getStart(int expressionIndex) {
+        return _starts.get(expressionIndex);
+    }
+
+    public int getStateCount() {
+        return _types.size();
+    }
+
+    public int getType(int state) {
+        return _types.get(state);
+    }
+
+    /**
+     * Gets the first outgoing state of a state, or the expression index of an
+     * accepting state.
+     * 
+     * @param state
+     * @return
+     */
+    public int getOut1(int state) {
+        return _outs1.get(state);
+    }
+
+    public int getOut2(int state) {
+        return _outs2.get(state);
+    }
+
+    public CharClass getCharClass(int state) {
+        return _charClasses.get(state);
+    }
+
+    private int addState(int type, int out1, int out2, CharClass charClass) throws UnsupportedExpressionException {
+        final int state = _types.size();
+        if (state >= _stateLimit) {
+            throw new UnsupportedExpressionException();
+        }
+        _types.add(type);
+        _outs1.add(out1);
+        _outs2.add(out2);
+        _charClasses.add(charClass);
+        return state;
+    }
+
+    private Fragment empty() throws UnsupportedExpressionException {
+        final int state = addState(TYPE_EPSILON, -1, -1, null);
+        return new Fragment(state, state);
+    }
+
+    private Fragment chars(CharClass charClass) throws UnsupportedExpressionException {
+        final int end = addState(TYPE_EPSILON, -1, -1, null);
+        final int start = addState(TYPE_CHAR, end, -1, charClass);
+        return new Fragment(start, end);
+    }
+
+    private Fragment concat(Fragment f1, Fragment f2) {
+        _outs1.set(f1.end, f2.start);
+        return new Fragment(f1.start, f2.end);
+    }
+
+    private Fragment alternate(Fragment f1, Fragment f2) throws UnsupportedExpressionException {
+        final int end = addState(TYPE_EPSILON, -1, -1, null);
+        final int start = addState(TYPE_SPLIT, f1.start, f2.start, null);
+        _outs1.set(f1.end, end);
+        _outs1.set(f2.end, end);
+        return new Fragment(start, end);
+    }
+
+    private Fragment optional(Fragment f) throws UnsupportedExpressionException {
+        final int end = addState(TYPE_EPSILON, -1, -1, null);
+        final int start = addState(TYPE_SPLIT, f.start, end, null);
+        _outs1.set(f.end, end);
+        return new Fragment(start, end);
+    }
+
+    private Fragment star(Fragment f) throws UnsupportedExpressionException {
+        final int end = addState(TYPE_EPSILON, -1, -1, null);
+        final int start = addState(TYPE_SPLIT, f.start, end, null);
+        _outs1.set(f.end, start);
+        return new Fragment(start, end);
+    }
+
+    private Fragment plus(Fragment f) throws UnsupportedExpressionException {
+        final int end = addState(TYPE_EPSILON, -1, -1, null);
+        final int loop = addState(TYPE_SPLIT, f.start, end, null);
+        _outs1.set(f.end, loop);
+        return new Fragment(f.start, end);
+    }
+
+    private boolean eof() {
+        return _pos >= _expression.length();
+    }
+
+    /**
+     * Gets the next code point without consuming it.
+     * 
+     * @return the next code point, or -1 if there are no more
+     */
+    private int peek() {
+        if (eof()) {
+            return -1;
+        }
+        return _expression.codePointAt(_pos);
+    }
+
+    private int next() throws UnsupportedExpressionException {
+        if (eof()) {
+            throw new UnsupportedExpressionException();
+        }
+        final int c = _expression.codePointAt(_pos);
+        if (Character.isBmpCodePoint(c) && Character.isSurrogate((char) c)) {
+            // unpaired surrogate
+            throw new UnsupportedExpressionException();
+        }
+        _pos += Character.charCount(c);
+        return c;
+    }
+
+    private void expect(int c) throws UnsupportedExpressionException {
+        if (next() != c) {
+            throw new UnsupportedExpressionException();
+        }
+    }
+
+    private Fragment parseAlternation() throws UnsupportedExpressionException {
+        Fragment fragment = parseConcatenation();
+        while (peek() == '|') {
+            next();
+            fragment = alternate(fragment, parseConcatenation());
+        }
+        return fragment;
+    }
+
+    private Fragment parseConcatenation() throws UnsupportedExpressionException {
+        Fragment fragment = empty();
+        while (!eof() && peek() != '|' && peek() != ')') {
+            fragment = concat(fragment, parseRepetition());
+        }
+        return fragment;
+    }
+
+    private Fragment parseRepetition() throws UnsupportedExpressionException {
+        final int atomStart = _pos;
+        final Fragment atom = parseAtom();
+        final int atomEnd = _pos;
+        if (eof()) {
+            return atom;
+        }
+
+        final int min;
+        final int max;
+        switch (peek()) {
+        case '*':
+            next();
+            min = 0;
+            max = -1;
+            break;
+        case '+':
+            next();
+            min = 1;
+            max = -1;
+            break;
+        case '?':
+            next();
+            min = 0;
+            max = 1;
+            break;
+        case '{':
+            next();
+            min = parseNumber();
+            if (peek() == ',') {
+                next();
+                if (peek() == '}') {
+                    max = -1;
+                } else {
+                    max = parseNumber();
+                    if (max < min) {
+                        throw new UnsupportedExpressionException();
+                    }
+                }
+            } else {
+                max = min;
+            }
+            expect('}');
+            break;
+        default:
+            return atom;
+        }
+
+        if (!eof()) {
+            final int c = peek();
+            if (c == '?') {
+                // reluctant quantifiers recognize the same strings
+                next();
+            } else if (c == '+') {
+                // possessive quantifiers may prevent matches
+                throw new UnsupportedExpressionException();
+            }
+            if (!eof()) {
+                final int c2 = peek();
+                if (c2 == '*' || c2 == '+' || c2 == '?' || c2 == '{') {
+                    throw new UnsupportedExpressionException();
+                }
+            }
+        }
+
+        final int quantifierEnd = _pos;
+        Fragment fragment;
+        if (min == 0 && max == -1) {
+            fragment = star(atom);
+        } else if (min == 1 && max == -1) {
+            fragment = plus(atom);
+        } else if (min == 0 && max == 1) {
+            fragment = optional(atom);
+        } else {
+            // bounded repetition, the atom is parsed again for every copy
+            fragment = min == 0 ? empty() : atom;
+            for (int i = 1; i < min; i++) {
+                fragment = concat(fragment, copyAtom(atomStart, atomEnd));
+            }
+            if (max == -1) {
+                fragment = concat(fragment, star(min == 0 ? atom : copyAtom(atomStart, atomEnd)));
+            } else {
+                for (int i = min; i < max; i++) {
+                    final Fragment copy = (i == 0 ? atom : copyAtom(atomStart, atomEnd));
+                    fragment = concat(fragment, optional(copy));
+                }
+            }
+        }
+        _pos = quantifierEnd;
+        return fragment;
+    }
+
+    private Fragment copyAtom(int atomStart, int atomEnd) throws UnsupportedExpressionException {
+        _pos = atomStart;
+        final Fragment copy = parseAtom();
+        assert _pos == atomEnd;
+        return copy;
+    }
+
+    private int parseNumber() throws UnsupportedExpressionException {
+        final int start = _pos;
+        while (peek() >= '0' && peek() <= '9') {
+            next();
+        }
+        if (_pos == start || _pos - start > 4) {
+            throw new UnsupportedExpressionException();
+        }
+        return Integer.parseInt(_expression.substring(start, _pos));
+    }
+
+    private Fragment parseAtom() throws UnsupportedExpressionException {
+        final int c = next();
+        switch (c) {
+        case '(':
+            if (peek() == '?') {
+                next();
+                // only non-capturing groups, no flags or lookaround
+                expect(':');
+            }
+            final Fragment group = parseAlternation();
+            expect(')');
+            return group;
+        case '[':
+            return chars(parseCharClass());
+        case '.':
+            return chars(DOT);
+        case '^':
+        case '$':
+            return empty();
+        case '\\':
+            return parseEscape();
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+        case '}':
+        case ']':
+        case ')':
+            throw new UnsupportedExpressionException();
+        default:
+            return chars(single(c));
+        }
+    }
+
+    private Fragment parseEscape() throws UnsupportedExpressionException {
+        final int c = next();
+        switch (c) {
+        case 'b':
+        case 'B':
+        case 'A':
+        case 'z':
+        case 'Z':
+        case 'G':
+            // assertions are treated as always satisfied
+            return empty();
+        default:
+            final Object escaped = parseEscapedChar(c);
+            if (escaped instanceof CharClass) {
+                return chars((CharClass) escaped);
+            }
+            return chars(single((Integer) escaped));
+        }
+    }
+
+    /**
+     * Parses the character(s) of an escape sequence (after the backslash and
+     * the character following it)
+     * 
+     * @param c
+     *            the character following the backslash
+     * @return a {@link CharClass} or an {@link Integer} code point
+     * @throws UnsupportedExpressionException
+     */
+    private Object parseEscapedChar(int c) throws UnsupportedExpressionException {
+        switch (c) {
+        case 'd':
+            return DIGIT;
+        case 'D':
+            return DIGIT.complement();
+        case 'w':
+            return WORD;
+        case 'W':
+            return WORD.complement();
+        case 's':
+            return SPACE;
+        case 'S':
+            return SPACE.complement();
+        case 't':
+            return (int) '\t';
+        case 'n':
+            return (int) '\n';
+        case 'r':
+            return (int) '\r';
+        case 'f':
+            return (int) '\f';
+        case 'a':
+            return 0x07;
+        case 'e':
+            return 0x1B;
+        case 'x':
+            return parseHex(2);
+        case 'u':
+            return parseHex(4);
+        default:
+            if (c < 128 && !Character.isLetterOrDigit(c)) {
+                // escaped non-alphabetic characters are literals
+                return c;
+            }
+            throw new UnsupportedExpressionException();
+        }
+    }
+
+    private int parseHex(int digits) throws UnsupportedExpressionException {
+        int value = 0;
+        for (int i = 0; i < digits; i++) {
+            final int digit = Character.digit(next(), 16);
+            if (digit == -1) {
+                throw new UnsupportedExpressionException();
+            }
+            value = value * 16 + digit;
+        }
+        if (Character.isSurrogate((char) value)) {
+            throw new UnsupportedExpressionException();
+        }
+        return value;
+    }
+
+    private CharClass parseCharClass() throws UnsupportedExpressionException {
+        final List<int[]> ranges = new ArrayList<int[]>();
+        boolean negated = false;
+        if (peek() == '^') {
+            next();
+            negated = true;
+        }
+        boolean first = true;
+        while (true) {
+            final int c = next();
+            if (c == ']') {
+                if (first) {
+                    throw new UnsupportedExpressionException();
+                }
+                break;
+            }
+            if (c == '[') {
+                throw new UnsupportedExpressionException();
+            }
+            if (c == '&' && peek() == '&') {
+                throw new UnsupportedExpressionException();
+            }
+            if (c == '-' && !first && peek() != ']') {
+                throw new UnsupportedExpressionException();
+            }
+
+            final Object item;
+            if (c == '\\') {
+                item = parseEscapedChar(next());
+            } else {
+                item = c;
+            }
+
+            if (item instanceof CharClass) {
+                ((CharClass) item).addTo(ranges);
+            } else {
+                final int from = (Integer) item;
+                if (c != '-' && peek() == '-' && _pos + 1 < _expression.length()
+                        && _expression.charAt(_pos + 1) != ']') {
+                    // a range
+                    next();
+                    final int c2 = next();
+                    final Object to;
+                    if (c2 == '\\') {
+                        to = parseEscapedChar(next());
+                    } else if (c2 == '[') {
+                        throw new UnsupportedExpressionException();
+                    } else {
+                        to = c2;
+                    }
+                    if (!(to instanceof Integer) || (Integer) to < from) {
+                        throw new UnsupportedExpressionException();
+                    }
+                    ranges.add(new int[] { from, (Integer) to });
+                } else {
+                    ranges.add(new int[] { from, from });
+                }
+            }
+            first = false;
+        }
+
+        final CharClass charClass = CharClass.union(ranges);
+        if (negated) {
+            return charClass.complement();
+        }
+        return charClass;
+    }
+
+    private static CharClass single(int c) {
+        return new CharClass(new int[] { c, c });
+    }
+
+    @Override
+    public String toString() {
+        return "RegexNfa[expressions=" + _starts.size() + ",states=" + _types.size() + ",starts="
+                + Arrays.toString(_starts.toArray()) + "]";
+    }
+}
@@ -41,7 +41,7 @@ public final class RegexStringPattern extends AbstractReferenceData implements S
 
 	private final String _expression;
 	private final boolean _matchEntireString;
-	private transient Pattern _pattern;
+	private transient volatile Pattern _pattern;
 
 	public RegexStringPattern(String name, String expression, boolean matchEntireString) {
 		super(name);
@@ -84,12 +84,14 @@ public final class RegexStringPattern extends AbstractReferenceData implements S
 	}
 
 	public Pattern getPattern() {
-		synchronized (this) {
-			if (_pattern == null) {
-				_pattern = Pattern.compile(_expression);
-			}
+		// Pattern is immutable, so compiling it more than once in a race is
+		// harmless
+		Pattern pattern = _pattern;
+		if (pattern == null) {
+			pattern = Pattern.compile(_expression);
+			_pattern = pattern;
 		}
-		return _pattern;
+		return pattern;
 	}
 
 	public boolean isMatchEntireString() {
@@ -0,0 +1,129 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.reference;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A set of {@link StringPattern}s which are matched against strings together.
+ * 
+ * The {@link RegexStringPattern}s of the set are compiled into a single
+ * {@link RegexAutomaton}, which finds the candidate patterns for a string in a
+ * single pass. Only the candidates are then matched individually, to confirm
+ * the exact semantics of {@link RegexStringPattern#matches(String)}. Regular
+ * expressions that cannot be expressed by the automaton (eg. because of
+ * back-references or lookaround) and other types of string patterns are always
+ * matched individually.
+ */
+public final class StringPatternSet {
+
+    private final StringPattern[] _stringPatterns;
+    private final RegexAutomaton _automaton;
+    private final int[] _automatonPatternIndexes;
+    private final int[] _otherPatternIndexes;
+
+    public StringPatternSet(StringPattern... stringPatterns) {
+        _stringPatterns = stringPatterns;
+
+        final RegexNfa nfa = new RegexNfa();
+        final List<Integer> automatonPatternIndexes = new ArrayList<Integer>();
+        final List<Boolean> findMode = new ArrayList<Boolean>();
+        final List<Integer> otherPatternIndexes = new ArrayList<Integer>();
+        for (int i = 0; i < stringPatterns.length; i++) {
+            final StringPattern stringPattern = stringPatterns[i];
+            if (stringPattern instanceof RegexStringPattern) {
+                final RegexStringPattern regexStringPattern = (RegexStringPattern) stringPattern;
+                if (nfa.addExpression(regexStringPattern.getExpression()) != -1) {
+                    automatonPatternIndexes.add(i);
+                    findMode.add(!regexStringPattern.isMatchEntireString());
+                    continue;
+                }
+            }
+            otherPatternIndexes.add(i);
+        }
+
+        _automatonPatternIndexes = toArray(automatonPatternIndexes);
+        _otherPatternIndexes = toArray(otherPatternIndexes);
+        if (_automatonPatternIndexes.length == 0) {
+            _automaton = null;
+        } else {
+            final boolean[] findModeArray = new boolean[findMode.size()];
+            for (int i = 0; i < findModeArray.length; i++) {
+                findModeArray[i] = findMode.get(i);
+            }
+            _automaton = new RegexAutomaton(nfa, findModeArray);
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        final int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Matches a string against all string patterns of the set.
+     * 
+     * @param string
+     * @return an array with a boolean for each string pattern, indicating
+     *         whether or not the string matched the pattern.
+     */
+    public boolean[] matches(String string) {
+        final boolean[] result = new boolean[_stringPatterns.length];
+
+        if (_automaton != null && string != null) {
+            final BitSet candidates = _automaton.match(string);
+            if (candidates == null) {
+                for (int index : _automatonPatternIndexes) {
+                    result[index] = _stringPatterns[index].matches(string);
+                }
+            } else {
+                for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                    final int index = _automatonPatternIndexes[i];
+                    result[index] = _stringPatterns[index].matches(string);
+                }
+            }
+        }
+
+        for (int index : _otherPatternIndexes) {
+            result[index] = _stringPatterns[index].matches(string);
+        }
+
+        return result;
+    }
+
+    public StringPattern[] getStringPatterns() {
+        return _stringPatterns;
+    }
+
+    /**
+     * Gets the number of string patterns which are matched using the combined
+     * automaton.
+     * 
+     * @return
+     */
+    public int getAutomatonPatternCount() {
+        return _automatonPatternIndexes.length;
+    }
+}
@@ -25,17 +25,16 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.eobjects.analyzer.util.CollectionUtils2;
 import org.eobjects.analyzer.util.ReadObjectBuilder;
 import org.eobjects.analyzer.util.StringUtils;
 import org.eobjects.analyzer.util.filemonitor.FileMonitor;
 import org.eobjects.analyzer.util.filemonitor.FileMonitorFactory;
 import org.apache.metamodel.util.FileHelper;
 
-import com.google.common.cache.Cache;
-
 /**
  * Synonym catalog based on a text file.
  * 
@@ -50,13 +49,17 @@ import com.google.common.cache.Cache;
  * FR,France
  * </pre>
  * 
+ * The file is loaded into an index of all terms (master terms and synonyms),
+ * which is rebuilt when the file changes. If the catalog is not case
+ * sensitive, the terms are case folded when the index is built.
+ * 
  * 
  */
 public final class TextFileSynonymCatalog extends AbstractReferenceData implements SynonymCatalog {
 
     private static final long serialVersionUID = 1L;
 
-    private transient volatile Cache<String, String> _masterTermCache;
+    private transient volatile Map<String, String> _masterTerms;
     private transient File _file;
     private transient FileMonitor _fileMonitor;
 
@@ -147,48 +150,78 @@ public final class TextFileSynonymCatalog extends AbstractReferenceData implemen
         }
     }
 
-    private Cache<String, String> getMasterTermCache() {
-        if (_masterTermCache == null) {
+    /**
+     * Gets the index of master terms, by (case folded) term. The index is
+     * immutable, and replaced as a whole if the file changes.
+     * 
+     * @return
+     */
+    private Map<String, String> getMasterTerms() {
+        Map<String, String> masterTerms = _masterTerms;
+        if (masterTerms == null) {
             synchronized (this) {
-                if (_masterTermCache == null) {
-                    _masterTermCache = CollectionUtils2.createCache(10000, 5 * 60);
+                masterTerms = _masterTerms;
+                if (masterTerms == null) {
+                    // start monitoring before loading, to not miss changes
+                    getFileMonitor();
+                    masterTerms = loadMasterTerms();
+                    _masterTerms = masterTerms;
                 }
             }
-        } else {
-            if (getFileMonitor().hasChanged()) {
-                // reset the cache
-                _masterTermCache.invalidateAll();
+        } else if (getFileMonitor().hasChanged()) {
+            synchronized (this) {
+                masterTerms = loadMasterTerms();
+                _masterTerms = masterTerms;
             }
         }
-        return _masterTermCache;
+        return masterTerms;
     }
 
-    @Override
-    public String getMasterTerm(String term) {
-        if (StringUtils.isNullOrEmpty(term)) {
-            return null;
-        }
-        String masterTerm = getMasterTermCache().getIfPresent(term);
-        if (masterTerm != null) {
-            return masterTerm;
-        }
-
-        BufferedReader reader = FileHelper.getBufferedReader(getFile(), _encoding);
+    private Map<String, String> loadMasterTerms() {
+        final Map<String, String> masterTerms = new HashMap<String, String>();
+        final BufferedReader reader = FileHelper.getBufferedReader(getFile(), _encoding);
         try {
             for (String line = reader.readLine(); line != null; line = reader.readLine()) {
                 line = line.trim();
-                TextFileSynonym synonym = new TextFileSynonym(line, _caseSensitive);
-                masterTerm = synonym.getMasterTerm();
-                if (term.equals(masterTerm) || synonym.getSynonyms().containsValue(term)) {
-                    getMasterTermCache().put(term, masterTerm);
-                    return masterTerm;
+                final String[] terms = line.split("\\,");
+                final String masterTerm = terms[0];
+                for (String term : terms) {
+                    final String key = _caseSensitive ? term : foldCase(term);
+                    // the first line with a term wins
+                    if (!masterTerms.containsKey(key)) {
+                        masterTerms.put(key, masterTerm);
+                    }
                 }
             }
-            return null;
         } catch (IOException e) {
             throw new IllegalStateException(e);
         } finally {
             FileHelper.safeClose(reader);
         }
+        return masterTerms;
+    }
+
+    /**
+     * Folds the case of a term, such that two terms are equal after folding
+     * if they are equal according to {@link String#equalsIgnoreCase(String)}.
+     * 
+     * @param term
+     * @return
+     */
+    private static String foldCase(String term) {
+        final char[] chars = new char[term.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(term.charAt(i)));
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String getMasterTerm(String term) {
+        if (StringUtils.isNullOrEmpty(term)) {
+            return null;
+        }
+        final Map<String, String> masterTerms = getMasterTerms();
+        return masterTerms.get(_caseSensitive ? term : foldCase(term));
     }
 }
@@ -42,7 +42,7 @@ public abstract class AbstractRowAnnotationFactory implements RowAnnotationFacto
     private final Map<RowAnnotationImpl, AtomicInteger> _rowCounts = new ConcurrentHashMap<RowAnnotationImpl, AtomicInteger>();
     private final Integer _storedRowsThreshold;
 
-    private final transient Cache<Integer, Boolean> _cachedRows = CollectionUtils2.createCache(10000, 10 * 60);
+    private transient volatile Cache<Integer, Boolean> _cachedRows;
 
     public AbstractRowAnnotationFactory(Integer storedRowsThreshold) {
         if (storedRowsThreshold == null) {
@@ -76,20 +76,46 @@ public abstract class AbstractRowAnnotationFactory implements RowAnnotationFacto
             // TODO: In clustered scenarios, there's a chance of row ID
             // collision
             final int rowId = row.getId();
-            if (_cachedRows != null) {
-                Boolean previously = _cachedRows.asMap().putIfAbsent(rowId, true);
-                if (previously == null) {
-                    // only store row values when they where not present
-                    // previously
-                    storeRowValues(rowId, row, distinctCount);
-                }
-            }
+            storeRowValuesIfAbsent(rowId, row, distinctCount);
             storeRowAnnotation(rowId, annotation);
         }
 
         ann.incrementRowCount(distinctCount);
     }
 
+    /**
+     * Stores the values of a row, unless they have already been stored. The
+     * default implementation keeps a cache of recently stored row ids to avoid
+     * storing the same row multiple times. Subclasses that are able to detect
+     * already stored rows cheaper can override this method.
+     * 
+     * @param rowId
+     * @param row
+     * @param distinctCount
+     */
+    protected void storeRowValuesIfAbsent(int rowId, InputRow row, int distinctCount) {
+        final Boolean previously = getCachedRows().asMap().putIfAbsent(rowId, true);
+        if (previously == null) {
+            // only store row values when they where not present
+            // previously
+            storeRowValues(rowId, row, distinctCount);
+        }
+    }
+
+    private Cache<Integer, Boolean> getCachedRows() {
+        Cache<Integer, Boolean> cachedRows = _cachedRows;
+        if (cachedRows == null) {
+            synchronized (this) {
+                cachedRows = _cachedRows;
+                if (cachedRows == null) {
+                    cachedRows = CollectionUtils2.createCache(10000, 10 * 60);
+                    _cachedRows = cachedRows;
+                }
+            }
+        }
+        return cachedRows;
+    }
+
     private AtomicInteger getCounter(RowAnnotationImpl ann) {
         AtomicInteger count = _rowCounts.get(ann);
         if (count == null) {
@@ -0,0 +1,261 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A storage provider which starts out with every collection on the heap, and
+ * which migrates ("spills") the largest collections to a disk-backed
+ * {@link StorageProvider} when the heap comes under pressure. Small jobs thereby
+ * run at the speed of in-memory collections, while large jobs don't run out of
+ * memory.
+ * 
+ * Heap pressure is detected through the collection usage thresholds of the
+ * heap memory pools, ie. when the heap usage after a garbage collection
+ * exceeds a certain fraction of the maximum heap size. Note that these
+ * thresholds are JVM-wide settings.
+ * 
+ * Spilled collections are logged and their {@link CollectionSpillListener}s are
+ * notified. Collections provided to components in a job publish a
+ * {@link CollectionSpilledMessage} to the job's listener.
+ * 
+ * Row annotations are not spilled; they are stored by the disk-backed storage
+ * provider. Combine with a {@link CombinedStorageProvider} to store row
+ * annotations differently.
+ */
+public final class AdaptiveStorageProvider implements StorageProvider, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveStorageProvider.class);
+
+    public static final float DEFAULT_HEAP_USAGE_THRESHOLD = 0.7f;
+
+    private final StorageProvider _spillStorageProvider;
+    private final float _heapUsageThreshold;
+    private final List<WeakReference<Spillable>> _collections;
+    private final HeapUsageListener _heapUsageListener;
+
+    public AdaptiveStorageProvider(StorageProvider spillStorageProvider) {
+        this(spillStorageProvider, DEFAULT_HEAP_USAGE_THRESHOLD);
+    }
+
+    /**
+     * 
+     * @param spillStorageProvider
+     *            the disk-backed storage provider to spill collections to
+     * @param heapUsageThreshold
+     *            the fraction (between 0 and 1) of the maximum heap size which
+     *            triggers spilling, when exceeded after a garbage collection.
+     */
+    public AdaptiveStorageProvider(StorageProvider spillStorageProvider, float heapUsageThreshold) {
+        if (spillStorageProvider == null) {
+            throw new IllegalArgumentException("Spill storage provider cannot be null");
+        }
+        if (heapUsageThreshold <= 0 || heapUsageThreshold > 1) {
+            throw new IllegalArgumentException("Heap usage threshold must be between 0 and 1, was: "
+                    + heapUsageThreshold);
+        }
+        _spillStorageProvider = spillStorageProvider;
+        _heapUsageThreshold = heapUsageThreshold;
+        _collections = new ArrayList<WeakReference<Spillable>>();
+        _heapUsageListener = new HeapUsageListener(this);
+        _heapUsageListener.register(heapUsageThreshold);
+    }
+
+    public StorageProvider getSpillStorageProvider() {
+        return _spillStorageProvider;
+    }
+
+    public float getHeapUsageThreshold() {
+        return _heapUsageThreshold;
+    }
+
+    @Override
+    public <E> List<E> createList(Class<E> valueType) throws IllegalStateException {
+        return register(new SpillableList<E>(valueType, _spillStorageProvider));
+    }
+
+    @Override
+    public <E> Set<E> createSet(Class<E> valueType) throws IllegalStateException {
+        return register(new SpillableSet<E>(valueType, _spillStorageProvider));
+    }
+
+    @Override
+    public <K, V> Map<K, V> createMap(Class<K> keyType, Class<V> valueType) throws IllegalStateException {
+        return register(new SpillableMap<K, V>(keyType, valueType, _spillStorageProvider));
+    }
+
+    @Override
+    public RowAnnotationFactory createRowAnnotationFactory() {
+        return _spillStorageProvider.createRowAnnotationFactory();
+    }
+
+    private <C extends Spillable> C register(C collection) {
+        synchronized (_collections) {
+            _collections.add(new WeakReference<Spillable>(collection));
+        }
+        return collection;
+    }
+
+    /**
+     * Requests the largest on-heap collections to be spilled to disk. The
+     * largest collections, which together hold at least half of the elements
+     * of all on-heap collections, are picked. Each collection is migrated upon
+     * its next write operation.
+     * 
+     * This method is invoked when the heap usage threshold is exceeded, but
+     * may also be invoked explicitly.
+     * 
+     * @return the number of collections that were requested to spill
+     */
+    public int spillLargestCollections() {
+        final List<SpillCandidate> candidates = new ArrayList<SpillCandidate>();
+        long totalSize = 0;
+        synchronized (_collections) {
+            for (Iterator<WeakReference<Spillable>> it = _collections.iterator(); it.hasNext();) {
+                final Spillable collection = it.next().get();
+                if (collection == null) {
+                    it.remove();
+                } else if (collection.getSpillSupport().isOnHeap()) {
+                    final SpillCandidate candidate = new SpillCandidate(collection);
+                    candidates.add(candidate);
+                    totalSize += candidate.size;
+                }
+            }
+        }
+
+        Collections.sort(candidates, new Comparator<SpillCandidate>() {
+            @Override
+            public int compare(SpillCandidate o1, SpillCandidate o2) {
+                return Integer.compare(o2.size, o1.size);
+            }
+        });
+
+        int count = 0;
+        long spilledSize = 0;
+        for (SpillCandidate candidate : candidates) {
+            if (candidate.size == 0 || spilledSize * 2 >= totalSize) {
+                break;
+            }
+            candidate.collection.getSpillSupport().requestSpill();
+            spilledSize += candidate.size;
+            count++;
+        }
+
+        logger.info("Requested {} of {} on-heap collections to spill ({} of {} elements)", new Object[] { count,
+                candidates.size(), spilledSize, totalSize });
+        return count;
+    }
+
+    /**
+     * Stops monitoring the heap usage.
+     */
+    @Override
+    public void close() {
+        _heapUsageListener.unregister();
+    }
+
+    private static final class SpillCandidate {
+
+        private final Spillable collection;
+        private final int size;
+
+        public SpillCandidate(Spillable collection) {
+            this.collection = collection;
+            this.size = collection.size();
+        }
+    }
+
+    /**
+     * Listener for heap usage notifications. Only weakly references the
+     * storage provider, so that the JVM-wide registration does not keep it from
+     * being garbage collected.
+     */
+    private static final class HeapUsageListener implements NotificationListener {
+
+        private final WeakReference<AdaptiveStorageProvider> _storageProviderRef;
+        private volatile boolean _registered;
+
+        public HeapUsageListener(AdaptiveStorageProvider storageProvider) {
+            _storageProviderRef = new WeakReference<AdaptiveStorageProvider>(storageProvider);
+        }
+
+        public void register(float heapUsageThreshold) {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+                    final long max = pool.getUsage().getMax();
+                    if (max > 0) {
+                        pool.setCollectionUsageThreshold((long) (max * heapUsageThreshold));
+                    }
+                }
+            }
+            final NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+            emitter.addNotificationListener(this, null, null);
+            _registered = true;
+        }
+
+        public void unregister() {
+            if (!_registered) {
+                return;
+            }
+            _registered = false;
+            final NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                logger.debug("Heap usage listener was already removed", e);
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                return;
+            }
+            final AdaptiveStorageProvider storageProvider = _storageProviderRef.get();
+            if (storageProvider == null) {
+                unregister();
+                return;
+            }
+            logger.info("Heap usage threshold exceeded: {}", notification.getMessage());
+            storageProvider.spillLargestCollections();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eobjects.analyzer.util.LongHashMap;
+
+/**
+ * Concurrent, append-only list of the ids of the rows annotated with a
+ * particular annotation. Appending is lock-free: a slot is reserved with an
+ * atomic increment and written to a segment of primitive ints. Segments double
+ * in size and are allocated on demand, so no copying is ever done while
+ * appending.
+ * 
+ * Duplicate row ids are allowed when appending, and removed when reading the
+ * list (see {@link #toArray()}), since reading is a lot less frequent than
+ * appending.
+ */
+final class AnnotatedRowIds {
+
+    private static final int FIRST_SEGMENT_BITS = 4;
+    private static final int MAX_SEGMENTS = 32 - FIRST_SEGMENT_BITS;
+
+    // marks slots that have been reserved but not yet written
+    private static final int UNWRITTEN = Integer.MIN_VALUE;
+
+    private final AtomicReferenceArray<AtomicIntegerArray> _segments;
+    private final AtomicInteger _reservedSlots;
+
+    // the slot index of the one row id that cannot be stored in a slot (which
+    // is not uncommon, since eg. MockInputRow ids start at that value), or -1
+    private final AtomicInteger _unwrittenValueIndex;
+
+    public AnnotatedRowIds() {
+        _segments = new AtomicReferenceArray<AtomicIntegerArray>(MAX_SEGMENTS);
+        _reservedSlots = new AtomicInteger();
+        _unwrittenValueIndex = new AtomicInteger(-1);
+    }
+
+    public void add(int rowId) {
+        if (rowId == UNWRITTEN && _unwrittenValueIndex.get() != -1) {
+            // already added
+            return;
+        }
+
+        final int index = _reservedSlots.getAndIncrement();
+        if (index < 0) {
+            throw new IllegalStateException("Row id list is full");
+        }
+
+        if (rowId == UNWRITTEN) {
+            // the slot is left unwritten, but its index is recorded
+            _unwrittenValueIndex.compareAndSet(-1, index);
+            return;
+        }
+
+        final int segmentIndex = getSegmentIndex(index);
+        final AtomicIntegerArray segment = getSegment(segmentIndex);
+        segment.set(index - getSegmentStart(segmentIndex), rowId);
+    }
+
+    /**
+     * Gets the distinct row ids of the list, in the order that they were first
+     * added.
+     * 
+     * @return
+     */
+    public int[] toArray() {
+        final int size = Math.max(0, _reservedSlots.get());
+        final LongHashMap seen = new LongHashMap(size);
+        final int unwrittenValueIndex = _unwrittenValueIndex.get();
+
+        int[] result = new int[size];
+        int count = 0;
+        for (int segmentIndex = 0; segmentIndex < MAX_SEGMENTS; segmentIndex++) {
+            final int segmentStart = getSegmentStart(segmentIndex);
+            if (segmentStart >= size) {
+                break;
+            }
+            final AtomicIntegerArray segment = _segments.get(segmentIndex);
+            if (segment == null) {
+                continue;
+            }
+            final int segmentEnd = Math.min(segment.length(), size - segmentStart);
+            for (int i = 0; i < segmentEnd; i++) {
+                final int rowId = segment.get(i);
+                if (rowId != UNWRITTEN) {
+                    if (seen.add(rowId)) {
+                        result[count] = rowId;
+                        count++;
+                    }
+                } else if (segmentStart + i == unwrittenValueIndex) {
+                    result[count] = UNWRITTEN;
+                    count++;
+                }
+            }
+        }
+
+        if (count != result.length) {
+            result = Arrays.copyOf(result, count);
+        }
+        return result;
+    }
+
+    public int size() {
+        return toArray().length;
+    }
+
+    private AtomicIntegerArray getSegment(int segmentIndex) {
+        AtomicIntegerArray segment = _segments.get(segmentIndex);
+        if (segment == null) {
+            final int[] values = new int[1 << (FIRST_SEGMENT_BITS + segmentIndex)];
+            Arrays.fill(values, UNWRITTEN);
+            final AtomicIntegerArray newSegment = new AtomicIntegerArray(values);
+            if (_segments.compareAndSet(segmentIndex, null, newSegment)) {
+                segment = newSegment;
+            } else {
+                // another thread allocated the segment concurrently
+                segment = _segments.get(segmentIndex);
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Gets the index of the segment of a slot. Segment n holds 2^(n+4) slots.
+     */
+    private static int getSegmentIndex(int index) {
+        return 31 - Integer.numberOfLeadingZeros((index >>> FIRST_SEGMENT_BITS) + 1);
+    }
+
+    private static int getSegmentStart(int segmentIndex) {
+        return ((1 << segmentIndex) - 1) << FIRST_SEGMENT_BITS;
+    }
+}
@@ -19,11 +19,14 @@
  */
 package org.eobjects.analyzer.storage;
 
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.metamodel.util.FileHelper;
+
 /**
  * Simple collection factory, which delegates to the storage provider for
  * everything.
@@ -31,34 +34,77 @@ import java.util.Set;
  * 
  * 
  */
-public final class CollectionFactoryImpl implements CollectionFactory {
+public final class CollectionFactoryImpl implements CollectionFactory, Closeable {
 
 	private final StorageProvider _storageProvider;
 	private final List<Object> _collections = new ArrayList<Object>();
+	private final List<CollectionSpillListener> _spillListeners = new ArrayList<CollectionSpillListener>();
 
 	public CollectionFactoryImpl(StorageProvider storageProvider) {
 		super();
 		_storageProvider = storageProvider;
 	}
 
+	public StorageProvider getStorageProvider() {
+		return _storageProvider;
+	}
+
 	@Override
 	public <E> List<E> createList(Class<E> elementClass) {
 		List<E> list = _storageProvider.createList(elementClass);
-		_collections.add(list);
+		register(list);
 		return list;
 	}
 
 	@Override
 	public <E> Set<E> createSet(Class<E> elementClass) {
 		Set<E> set = _storageProvider.createSet(elementClass);
-		_collections.add(set);
+		register(set);
 		return set;
 	}
 
 	@Override
 	public <K, V> Map<K, V> createMap(Class<K> keyClass, Class<V> valueClass) {
 		Map<K, V> map = _storageProvider.createMap(keyClass, valueClass);
-		_collections.add(map);
+		register(map);
 		return map;
 	}
+
+	/**
+	 * Adds a listener which will be notified if any of the created collections
+	 * are spilled to disk, see {@link SpillableCollection}.
+	 * 
+	 * @param listener
+	 */
+	public void addSpillListener(CollectionSpillListener listener) {
+		_spillListeners.add(listener);
+		for (Object collection : _collections) {
+			if (collection instanceof SpillableCollection) {
+				((SpillableCollection) collection).addSpillListener(listener);
+			}
+		}
+	}
+
+	private void register(Object collection) {
+		_collections.add(collection);
+		if (collection instanceof SpillableCollection) {
+			for (CollectionSpillListener listener : _spillListeners) {
+				((SpillableCollection) collection).addSpillListener(listener);
+			}
+		}
+	}
+
+	/**
+	 * Closes the created collections which hold external resources, such as
+	 * files.
+	 */
+	@Override
+	public void close() {
+		for (Object collection : _collections) {
+			if (collection instanceof Closeable) {
+				FileHelper.safeClose(collection);
+			}
+		}
+		_collections.clear();
+	}
 }
@@ -0,0 +1,87 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.util.Date;
+
+import org.eobjects.analyzer.beans.api.ComponentMessage;
+
+/**
+ * {@link ComponentMessage} which tells that a collection provided to a
+ * component has been spilled from the heap to a disk-backed
+ * {@link StorageProvider}.
+ */
+public class CollectionSpilledMessage implements ComponentMessage {
+
+    private final String _collectionDescription;
+    private final int _size;
+    private final Date _date;
+    private final StorageProvider _storageProvider;
+
+    public CollectionSpilledMessage(String collectionDescription, int size, Date date,
+            StorageProvider storageProvider) {
+        _collectionDescription = collectionDescription;
+        _size = size;
+        _date = date;
+        _storageProvider = storageProvider;
+    }
+
+    /**
+     * Gets a description of the collection, eg. "Map<String,Integer>".
+     * 
+     * @return
+     */
+    public String getCollectionDescription() {
+        return _collectionDescription;
+    }
+
+    /**
+     * Gets the number of elements in the collection when it was spilled.
+     * 
+     * @return
+     */
+    public int getSize() {
+        return _size;
+    }
+
+    /**
+     * Gets the time when the collection was spilled.
+     * 
+     * @return
+     */
+    public Date getDate() {
+        return _date;
+    }
+
+    /**
+     * Gets the {@link StorageProvider} that the collection was spilled to.
+     * 
+     * @return
+     */
+    public StorageProvider getStorageProvider() {
+        return _storageProvider;
+    }
+
+    @Override
+    public String toString() {
+        return "CollectionSpilledMessage[" + _collectionDescription + ",size=" + _size + ",storageProvider="
+                + _storageProvider.getClass().getSimpleName() + "]";
+    }
+}
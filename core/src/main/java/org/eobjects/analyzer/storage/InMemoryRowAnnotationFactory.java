@@ -19,11 +19,19 @@
  */
 package org.eobjects.analyzer.storage;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectInputStream.GetField;
+import java.io.ObjectOutputStream;
+import java.io.ObjectOutputStream.PutField;
+import java.io.ObjectStreamField;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.util.ImmutableEntry;
@@ -31,16 +39,28 @@ import org.eobjects.analyzer.util.ImmutableEntry;
 /**
  * Default {@link RowAnnotationFactory} instance. Stores up to 1000 rows in an
  * in memory annotation.
+ * 
+ * The ids of annotated rows are kept in lock-free, append-only lists of
+ * primitive ints (one per annotation) and the row values are kept (once per
+ * row) in a compact store keyed by primitive row ids. The serialized form is
+ * kept compatible with previous versions, which used maps of boxed row ids.
  */
 public class InMemoryRowAnnotationFactory extends AbstractRowAnnotationFactory implements RowAnnotationFactory {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The serialized form of the factory - contains annotations mapped to
+     * row-ids, and row-ids mapped to rows mapped to distinct counts.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("_annotatedRows", Map.class), new ObjectStreamField("_distinctCounts", Map.class) };
+
     // contains annotations, mapped to row-ids
-    private final Map<RowAnnotation, Set<Integer>> _annotatedRows = new ConcurrentHashMap<RowAnnotation, Set<Integer>>();
+    private transient ConcurrentMap<RowAnnotation, AnnotatedRowIds> _annotatedRows = new ConcurrentHashMap<RowAnnotation, AnnotatedRowIds>();
 
-    // contains row id's mapped to rows mapped to distinct counts
-    private final Map<Integer, Map.Entry<InputRow, Integer>> _distinctCounts = new ConcurrentHashMap<Integer, Map.Entry<InputRow, Integer>>();
+    // contains row id's mapped to rows and distinct counts
+    private transient RowValueStore _rowValues = new RowValueStore();
 
     public InMemoryRowAnnotationFactory() {
         this(1000);
@@ -51,11 +71,11 @@ public class InMemoryRowAnnotationFactory extends AbstractRowAnnotationFactory i
     }
 
     protected int getInMemoryRowCount(RowAnnotation annotation) {
-        Set<Integer> rows = _annotatedRows.get(annotation);
-        if (rows == null) {
+        AnnotatedRowIds rowIds = _annotatedRows.get(annotation);
+        if (rowIds == null) {
             return 0;
         }
-        return rows.size();
+        return rowIds.size();
     }
 
     @Override
@@ -65,40 +85,48 @@ public class InMemoryRowAnnotationFactory extends AbstractRowAnnotationFactory i
 
     @Override
     protected int getDistinctCount(InputRow row) {
-        return _distinctCounts.get(row.getId()).getValue();
+        return _rowValues.getDistinctCount(row.getId());
     }
 
     @Override
     protected void storeRowAnnotation(int rowId, RowAnnotation annotation) {
-        Set<Integer> rowIds = getRowIds(annotation);
+        AnnotatedRowIds rowIds = getRowIds(annotation);
         rowIds.add(rowId);
     }
 
-    private Set<Integer> getRowIds(RowAnnotation annotation) {
-        Set<Integer> rowIds = _annotatedRows.get(annotation);
+    private AnnotatedRowIds getRowIds(RowAnnotation annotation) {
+        AnnotatedRowIds rowIds = _annotatedRows.get(annotation);
         if (rowIds == null) {
-            rowIds = Collections.synchronizedSet(new LinkedHashSet<Integer>());
-            _annotatedRows.put(annotation, rowIds);
+            final AnnotatedRowIds newRowIds = new AnnotatedRowIds();
+            rowIds = _annotatedRows.putIfAbsent(annotation, newRowIds);
+            if (rowIds == null) {
+                rowIds = newRowIds;
+            }
         }
         return rowIds;
     }
 
+    @Override
+    protected void storeRowValuesIfAbsent(int rowId, InputRow row, int distinctCount) {
+        // the row value store is itself able to detect already stored rows
+        _rowValues.putIfAbsent(rowId, row, distinctCount);
+    }
+
     @Override
     protected void storeRowValues(int rowId, InputRow row, int distinctCount) {
-        _distinctCounts.put(rowId, new ImmutableEntry<InputRow, Integer>(row, distinctCount));
+        _rowValues.putIfAbsent(rowId, row, distinctCount);
     }
 
     @Override
     public InputRow[] getRows(RowAnnotation annotation) {
-        Set<Integer> rowIds = _annotatedRows.get(annotation);
+        AnnotatedRowIds rowIds = _annotatedRows.get(annotation);
         if (rowIds == null) {
             return new InputRow[0];
         }
-        InputRow[] rows = new InputRow[rowIds.size()];
-        int i = 0;
-        for (Integer rowId : rowIds) {
-            rows[i] = _distinctCounts.get(rowId).getKey();
-            i++;
+        final int[] ids = rowIds.toArray();
+        final InputRow[] rows = new InputRow[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            rows[i] = _rowValues.getRow(ids[i]);
         }
         return rows;
     }
@@ -108,4 +136,55 @@ public class InMemoryRowAnnotationFactory extends AbstractRowAnnotationFactory i
         final int rowCountToAdd = from.getRowCount();
         ((RowAnnotationImpl) to).incrementRowCount(rowCountToAdd);
     }
+
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        final Map<RowAnnotation, Set<Integer>> annotatedRows = new ConcurrentHashMap<RowAnnotation, Set<Integer>>();
+        final Map<Integer, Map.Entry<InputRow, Integer>> distinctCounts = new ConcurrentHashMap<Integer, Map.Entry<InputRow, Integer>>();
+        for (Entry<RowAnnotation, AnnotatedRowIds> entry : _annotatedRows.entrySet()) {
+            final Set<Integer> rowIds = Collections.synchronizedSet(new LinkedHashSet<Integer>());
+            for (int rowId : entry.getValue().toArray()) {
+                final InputRow row = _rowValues.getRow(rowId);
+                if (row != null) {
+                    rowIds.add(rowId);
+                    distinctCounts.put(rowId,
+                            new ImmutableEntry<InputRow, Integer>(row, _rowValues.getDistinctCount(rowId)));
+                }
+            }
+            annotatedRows.put(entry.getKey(), rowIds);
+        }
+
+        final PutField fields = stream.putFields();
+        fields.put("_annotatedRows", annotatedRows);
+        fields.put("_distinctCounts", distinctCounts);
+        stream.writeFields();
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        final GetField fields = stream.readFields();
+
+        @SuppressWarnings("unchecked")
+        final Map<RowAnnotation, Set<Integer>> annotatedRows = (Map<RowAnnotation, Set<Integer>>) fields.get(
+                "_annotatedRows", null);
+        @SuppressWarnings("unchecked")
+        final Map<Integer, Map.Entry<InputRow, Integer>> distinctCounts = (Map<Integer, Entry<InputRow, Integer>>) fields
+                .get("_distinctCounts", null);
+
+        _annotatedRows = new ConcurrentHashMap<RowAnnotation, AnnotatedRowIds>();
+        _rowValues = new RowValueStore();
+
+        if (annotatedRows != null) {
+            for (Entry<RowAnnotation, Set<Integer>> entry : annotatedRows.entrySet()) {
+                final AnnotatedRowIds rowIds = getRowIds(entry.getKey());
+                for (Integer rowId : entry.getValue()) {
+                    rowIds.add(rowId.intValue());
+                }
+            }
+        }
+        if (distinctCounts != null) {
+            for (Entry<Integer, Entry<InputRow, Integer>> entry : distinctCounts.entrySet()) {
+                final Entry<InputRow, Integer> value = entry.getValue();
+                _rowValues.putIfAbsent(entry.getKey().intValue(), value.getKey(), value.getValue().intValue());
+            }
+        }
+    }
 }
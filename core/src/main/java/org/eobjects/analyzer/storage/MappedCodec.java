@@ -0,0 +1,176 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+import org.apache.commons.lang.SerializationUtils;
+
+/**
+ * Encodes and decodes the keys, values and elements of the collections of
+ * {@link MemoryMappedStorageProvider}. Codecs are specialized for the common
+ * types of strings, integers, longs and dates. Other types are encoded in
+ * their serialized form.
+ * 
+ * Equal values must be encoded to equal bytes, since the memory mapped
+ * collections compare keys by their encoded bytes.
+ * 
+ * @param <E>
+ */
+abstract class MappedCodec<E> {
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Codec for the values of sets, which are only present or not
+     */
+    public static final MappedCodec<Boolean> PRESENCE = new MappedCodec<Boolean>(Boolean.class) {
+        private final byte[] EMPTY = new byte[0];
+
+        @Override
+        public byte[] encode(Boolean value) {
+            return EMPTY;
+        }
+
+        @Override
+        public Boolean decode(byte[] bytes) {
+            return Boolean.TRUE;
+        }
+    };
+
+    private static final MappedCodec<String> STRING = new MappedCodec<String>(String.class) {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(CHARSET);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, CHARSET);
+        }
+    };
+
+    private static final MappedCodec<Integer> INTEGER = new MappedCodec<Integer>(Integer.class) {
+        @Override
+        public byte[] encode(Integer value) {
+            return ByteBuffer.allocate(4).putInt(value.intValue()).array();
+        }
+
+        @Override
+        public Integer decode(byte[] bytes) {
+            return ByteBuffer.wrap(bytes).getInt();
+        }
+    };
+
+    private static final MappedCodec<Long> LONG = new MappedCodec<Long>(Long.class) {
+        @Override
+        public byte[] encode(Long value) {
+            return ByteBuffer.allocate(8).putLong(value.longValue()).array();
+        }
+
+        @Override
+        public Long decode(byte[] bytes) {
+            return ByteBuffer.wrap(bytes).getLong();
+        }
+    };
+
+    private static final MappedCodec<Date> DATE = new MappedCodec<Date>(Date.class) {
+        @Override
+        public byte[] encode(Date value) {
+            return ByteBuffer.allocate(8).putLong(value.getTime()).array();
+        }
+
+        @Override
+        public Date decode(byte[] bytes) {
+            return new Date(ByteBuffer.wrap(bytes).getLong());
+        }
+    };
+
+    private static final MappedCodec<Object> SERIALIZED = new MappedCodec<Object>(Serializable.class) {
+        @Override
+        public byte[] encode(Object value) {
+            return SerializationUtils.serialize((Serializable) value);
+        }
+
+        @Override
+        public Object decode(byte[] bytes) {
+            return SerializationUtils.deserialize(bytes);
+        }
+    };
+
+    private final Class<?> _type;
+
+    private MappedCodec(Class<?> type) {
+        _type = type;
+    }
+
+    /**
+     * Determines if an object is of a type that this codec encodes, eg. to
+     * tell if an object can be a key of a map.
+     * 
+     * @param value
+     * @return
+     */
+    public boolean canEncode(Object value) {
+        return _type.isInstance(value);
+    }
+
+    /**
+     * Gets the codec for a particular type
+     * 
+     * @param type
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> MappedCodec<E> forType(Class<E> type) {
+        final MappedCodec<?> codec;
+        if (type == String.class) {
+            codec = STRING;
+        } else if (type == Integer.class) {
+            codec = INTEGER;
+        } else if (type == Long.class) {
+            codec = LONG;
+        } else if (type == Date.class) {
+            codec = DATE;
+        } else {
+            codec = SERIALIZED;
+        }
+        return (MappedCodec<E>) codec;
+    }
+
+    /**
+     * Encodes a (non-null) value
+     * 
+     * @param value
+     * @return
+     */
+    public abstract byte[] encode(E value);
+
+    /**
+     * Decodes a value
+     * 
+     * @param bytes
+     * @return
+     */
+    public abstract E decode(byte[] bytes);
+}
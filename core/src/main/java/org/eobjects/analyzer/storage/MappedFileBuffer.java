@@ -0,0 +1,244 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import org.apache.metamodel.util.FileHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A growable, memory-mapped temporary file, addressed by long positions. The
+ * file is mapped in chunks of a fixed (power of two) size, which are mapped
+ * when first accessed, thereby growing the file.
+ * 
+ * The buffer is not thread-safe. When closed, the file is deleted. The mapped
+ * memory itself is released when the (unreachable) chunks are garbage
+ * collected, since a mapped buffer cannot be safely unmapped explicitly.
+ */
+final class MappedFileBuffer implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileBuffer.class);
+
+    /**
+     * The default chunk size, 1 MB
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private final File _file;
+    private final RandomAccessFile _randomAccessFile;
+    private final FileChannel _channel;
+    private final int _chunkSize;
+    private final int _chunkBits;
+    private final int _chunkMask;
+    private MappedByteBuffer[] _chunks;
+
+    public MappedFileBuffer(File directory, String prefix) {
+        this(directory, prefix, DEFAULT_CHUNK_SIZE);
+    }
+
+    public MappedFileBuffer(File directory, String prefix, int chunkSize) {
+        if (chunkSize < 16 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power of two (and at least 16): " + chunkSize);
+        }
+        _chunkSize = chunkSize;
+        _chunkBits = Integer.numberOfTrailingZeros(chunkSize);
+        _chunkMask = chunkSize - 1;
+        _chunks = new MappedByteBuffer[4];
+        try {
+            _file = File.createTempFile(prefix, ".dat", directory);
+            _randomAccessFile = new RandomAccessFile(_file, "rw");
+            _channel = _randomAccessFile.getChannel();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create memory mapped file in directory: " + directory, e);
+        }
+    }
+
+    public File getFile() {
+        return _file;
+    }
+
+    private MappedByteBuffer getChunk(long position) {
+        final int chunkIndex = (int) (position >>> _chunkBits);
+        final MappedByteBuffer[] chunks = _chunks;
+        if (chunks == null) {
+            throw new IllegalStateException("Memory mapped file has been closed: " + _file);
+        }
+        if (chunkIndex < chunks.length) {
+            final MappedByteBuffer chunk = chunks[chunkIndex];
+            if (chunk != null) {
+                return chunk;
+            }
+        }
+        return mapChunk(chunkIndex);
+    }
+
+    private MappedByteBuffer mapChunk(int chunkIndex) {
+        if (chunkIndex >= _chunks.length) {
+            _chunks = Arrays.copyOf(_chunks, Math.max(_chunks.length * 2, chunkIndex + 1));
+        }
+        try {
+            final MappedByteBuffer chunk = _channel.map(MapMode.READ_WRITE, ((long) chunkIndex) << _chunkBits,
+                    _chunkSize);
+            _chunks[chunkIndex] = chunk;
+            return chunk;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map chunk " + chunkIndex + " of file: " + _file, e);
+        }
+    }
+
+    private int offset(long position) {
+        return (int) (position & _chunkMask);
+    }
+
+    public byte getByte(long position) {
+        return getChunk(position).get(offset(position));
+    }
+
+    public void putByte(long position, byte b) {
+        getChunk(position).put(offset(position), b);
+    }
+
+    public int getInt(long position) {
+        final int offset = offset(position);
+        if (offset + 4 <= _chunkSize) {
+            return getChunk(position).getInt(offset);
+        }
+        final byte[] bytes = new byte[4];
+        getBytes(position, bytes, 0, 4);
+        return ByteBuffer.wrap(bytes).getInt();
+    }
+
+    public void putInt(long position, int value) {
+        final int offset = offset(position);
+        if (offset + 4 <= _chunkSize) {
+            getChunk(position).putInt(offset, value);
+        } else {
+            putBytes(position, ByteBuffer.allocate(4).putInt(value).array(), 0, 4);
+        }
+    }
+
+    public long getLong(long position) {
+        final int offset = offset(position);
+        if (offset + 8 <= _chunkSize) {
+            return getChunk(position).getLong(offset);
+        }
+        final byte[] bytes = new byte[8];
+        getBytes(position, bytes, 0, 8);
+        return ByteBuffer.wrap(bytes).getLong();
+    }
+
+    public void putLong(long position, long value) {
+        final int offset = offset(position);
+        if (offset + 8 <= _chunkSize) {
+            getChunk(position).putLong(offset, value);
+        } else {
+            putBytes(position, ByteBuffer.allocate(8).putLong(value).array(), 0, 8);
+        }
+    }
+
+    public void getBytes(long position, byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            final int chunkOffset = offset(position);
+            final int count = Math.min(length, _chunkSize - chunkOffset);
+            final ByteBuffer chunk = getChunk(position).duplicate();
+            chunk.position(chunkOffset);
+            chunk.get(bytes, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    public void putBytes(long position, byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            final int chunkOffset = offset(position);
+            final int count = Math.min(length, _chunkSize - chunkOffset);
+            final ByteBuffer chunk = getChunk(position).duplicate();
+            chunk.position(chunkOffset);
+            chunk.put(bytes, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Copies a range of bytes within the buffer. The source and target ranges
+     * may overlap.
+     * 
+     * @param from
+     * @param to
+     * @param length
+     */
+    public void move(long from, long to, long length) {
+        if (length <= 0 || from == to) {
+            return;
+        }
+        final byte[] buffer = new byte[(int) Math.min(length, 64 * 1024)];
+        if (to < from) {
+            long done = 0;
+            while (done < length) {
+                final int count = (int) Math.min(buffer.length, length - done);
+                getBytes(from + done, buffer, 0, count);
+                putBytes(to + done, buffer, 0, count);
+                done += count;
+            }
+        } else {
+            // copy backwards, so that overlapping bytes are read before they
+            // are overwritten
+            long remaining = length;
+            while (remaining > 0) {
+                final int count = (int) Math.min(buffer.length, remaining);
+                remaining -= count;
+                getBytes(from + remaining, buffer, 0, count);
+                putBytes(to + remaining, buffer, 0, count);
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return _chunks == null;
+    }
+
+    /**
+     * Closes the buffer and deletes the file.
+     */
+    @Override
+    public void close() {
+        if (_chunks == null) {
+            return;
+        }
+        _chunks = null;
+        FileHelper.safeClose(_channel, _randomAccessFile);
+        if (!_file.delete()) {
+            logger.debug("Could not delete memory mapped file (will be deleted on exit): {}", _file);
+        }
+    }
+}
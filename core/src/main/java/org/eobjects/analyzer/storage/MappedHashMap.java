@@ -0,0 +1,440 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eobjects.analyzer.util.LongHashMap;
+
+/**
+ * A {@link Map} which keeps its entries off-heap, in memory mapped files.
+ * 
+ * Entries are stored as records of encoded keys and values, appended to a data
+ * file. Records are located through an open addressing (linear probing) hash
+ * table in an index file, where each slot holds the hash of the encoded key
+ * and the position of the record. Replacing a value with a value of the same
+ * encoded length (such as a counter) is done in place, other replaced values
+ * are appended as new records.
+ * 
+ * Like the collections of {@link InMemoryStorageProvider}, the map is not
+ * thread-safe.
+ * 
+ * @param <K>
+ * @param <V>
+ */
+final class MappedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Closeable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int SLOT_SIZE = 12;
+    private static final long EMPTY = 0;
+    private static final long REMOVED = -1;
+    private static final int NULL_LENGTH = -1;
+
+    private final File _directory;
+    private final int _chunkSize;
+    private final MappedCodec<K> _keyCodec;
+    private final MappedCodec<V> _valueCodec;
+    private final MappedFileBuffer _data;
+    private MappedFileBuffer _index;
+    private int _capacity;
+    private int _size;
+    private int _removedCount;
+    private long _dataEnd;
+    private int _modCount;
+
+    public MappedHashMap(File directory, MappedCodec<K> keyCodec, MappedCodec<V> valueCodec) {
+        this(directory, keyCodec, valueCodec, MappedFileBuffer.DEFAULT_CHUNK_SIZE);
+    }
+
+    public MappedHashMap(File directory, MappedCodec<K> keyCodec, MappedCodec<V> valueCodec, int chunkSize) {
+        _directory = directory;
+        _chunkSize = chunkSize;
+        _keyCodec = keyCodec;
+        _valueCodec = valueCodec;
+        _data = new MappedFileBuffer(directory, "mm_map_data", chunkSize);
+        _index = new MappedFileBuffer(directory, "mm_map_index", chunkSize);
+        _capacity = INITIAL_CAPACITY;
+        _size = 0;
+        _removedCount = 0;
+        _dataEnd = 0;
+    }
+
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!isKeyType(key)) {
+            return false;
+        }
+        final byte[] keyBytes = encodeKey(key);
+        return findSlot(keyBytes, hash(keyBytes)) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!isKeyType(key)) {
+            return null;
+        }
+        final byte[] keyBytes = encodeKey(key);
+        final int slot = findSlot(keyBytes, hash(keyBytes));
+        if (slot < 0) {
+            return null;
+        }
+        final long recordPosition = getRecordPosition(slot);
+        return readValue(getValuePosition(recordPosition));
+    }
+
+    @Override
+    public V put(K key, V value) {
+        final byte[] keyBytes = encodeKey(key);
+        final byte[] valueBytes = encodeValue(value);
+        final int hash = hash(keyBytes);
+        final int slot = findSlot(keyBytes, hash);
+        if (slot >= 0) {
+            final long recordPosition = getRecordPosition(slot);
+            final long valuePosition = getValuePosition(recordPosition);
+            final V previousValue = readValue(valuePosition);
+            final int previousLength = _data.getInt(valuePosition);
+            final int length = valueBytes == null ? NULL_LENGTH : valueBytes.length;
+            if (previousLength == length) {
+                if (valueBytes != null) {
+                    _data.putBytes(valuePosition + 4, valueBytes, 0, length);
+                }
+            } else {
+                setSlot(slot, hash, appendRecord(keyBytes, valueBytes));
+            }
+            return previousValue;
+        }
+
+        final int insertSlot = -(slot + 1);
+        if (getSlotReference(insertSlot) == REMOVED) {
+            _removedCount--;
+        }
+        setSlot(insertSlot, hash, appendRecord(keyBytes, valueBytes));
+        _size++;
+        _modCount++;
+        if ((_size + _removedCount) * 4L > _capacity * 3L) {
+            // grow when full of entries, or rehash in place when full of
+            // removed slots
+            rehash(_size * 2 > _capacity ? _capacity * 2 : _capacity);
+        }
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!isKeyType(key)) {
+            return null;
+        }
+        final byte[] keyBytes = encodeKey(key);
+        final int slot = findSlot(keyBytes, hash(keyBytes));
+        if (slot < 0) {
+            return null;
+        }
+        final V previousValue = readValue(getValuePosition(getRecordPosition(slot)));
+        removeSlot(slot);
+        return previousValue;
+    }
+
+    private void removeSlot(int slot) {
+        _index.putLong(slot * (long) SLOT_SIZE + 4, REMOVED);
+        _size--;
+        _removedCount++;
+        _modCount++;
+    }
+
+    @Override
+    public void clear() {
+        _index.close();
+        _index = new MappedFileBuffer(_directory, "mm_map_index", _chunkSize);
+        _capacity = INITIAL_CAPACITY;
+        _size = 0;
+        _removedCount = 0;
+        _dataEnd = 0;
+        _modCount++;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return _size;
+            }
+        };
+    }
+
+    /**
+     * Finds the slot of a key.
+     * 
+     * @param keyBytes
+     * @param hash
+     * @return the slot of the key if found, or otherwise (-(insertion slot) -
+     *         1), where the insertion slot is the first removed or empty slot
+     *         in the probe sequence.
+     */
+    private int findSlot(byte[] keyBytes, int hash) {
+        final int mask = _capacity - 1;
+        int slot = hash & mask;
+        int insertSlot = -1;
+        while (true) {
+            final long reference = getSlotReference(slot);
+            if (reference == EMPTY) {
+                return -((insertSlot == -1 ? slot : insertSlot) + 1);
+            }
+            if (reference == REMOVED) {
+                if (insertSlot == -1) {
+                    insertSlot = slot;
+                }
+            } else if (_index.getInt(slot * (long) SLOT_SIZE) == hash && keyEquals(reference - 1, keyBytes)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean keyEquals(long recordPosition, byte[] keyBytes) {
+        final int length = _data.getInt(recordPosition);
+        if (keyBytes == null) {
+            return length == NULL_LENGTH;
+        }
+        if (length != keyBytes.length) {
+            return false;
+        }
+        final byte[] bytes = new byte[length];
+        _data.getBytes(recordPosition + 4, bytes, 0, length);
+        return Arrays.equals(bytes, keyBytes);
+    }
+
+    private long getSlotReference(int slot) {
+        return _index.getLong(slot * (long) SLOT_SIZE + 4);
+    }
+
+    private long getRecordPosition(int slot) {
+        return getSlotReference(slot) - 1;
+    }
+
+    private void setSlot(int slot, int hash, long recordPosition) {
+        final long position = slot * (long) SLOT_SIZE;
+        _index.putInt(position, hash);
+        _index.putLong(position + 4, recordPosition + 1);
+    }
+
+    private long getValuePosition(long recordPosition) {
+        final int keyLength = _data.getInt(recordPosition);
+        return recordPosition + 4 + (keyLength == NULL_LENGTH ? 0 : keyLength);
+    }
+
+    private long appendRecord(byte[] keyBytes, byte[] valueBytes) {
+        final long recordPosition = _dataEnd;
+        long position = recordPosition;
+        position = writeBytes(position, keyBytes);
+        position = writeBytes(position, valueBytes);
+        _dataEnd = position;
+        return recordPosition;
+    }
+
+    private long writeBytes(long position, byte[] bytes) {
+        if (bytes == null) {
+            _data.putInt(position, NULL_LENGTH);
+            return position + 4;
+        }
+        _data.putInt(position, bytes.length);
+        _data.putBytes(position + 4, bytes, 0, bytes.length);
+        return position + 4 + bytes.length;
+    }
+
+    private byte[] readBytes(long position) {
+        final int length = _data.getInt(position);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        _data.getBytes(position + 4, bytes, 0, length);
+        return bytes;
+    }
+
+    private K readKey(long recordPosition) {
+        final byte[] bytes = readBytes(recordPosition);
+        return bytes == null ? null : _keyCodec.decode(bytes);
+    }
+
+    private V readValue(long valuePosition) {
+        final byte[] bytes = readBytes(valuePosition);
+        return bytes == null ? null : _valueCodec.decode(bytes);
+    }
+
+    /**
+     * Determines if an object may be a key of this map. Lookups of keys of
+     * other types have no result, as the {@link Map} contract allows.
+     */
+    private boolean isKeyType(Object key) {
+        return key == null || _keyCodec.canEncode(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] encodeKey(Object key) {
+        return key == null ? null : _keyCodec.encode((K) key);
+    }
+
+    private byte[] encodeValue(V value) {
+        return value == null ? null : _valueCodec.encode(value);
+    }
+
+    private static int hash(byte[] bytes) {
+        if (bytes == null) {
+            return 0;
+        }
+        int hash = 1;
+        for (byte b : bytes) {
+            hash = 31 * hash + b;
+        }
+        return LongHashMap.hash(hash);
+    }
+
+    private void rehash(int newCapacity) {
+        final MappedFileBuffer oldIndex = _index;
+        final int oldCapacity = _capacity;
+        final MappedFileBuffer newIndex = new MappedFileBuffer(_directory, "mm_map_index", _chunkSize);
+        final int mask = newCapacity - 1;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            final long position = slot * (long) SLOT_SIZE;
+            final long reference = oldIndex.getLong(position + 4);
+            if (reference != EMPTY && reference != REMOVED) {
+                final int hash = oldIndex.getInt(position);
+                int newSlot = hash & mask;
+                while (newIndex.getLong(newSlot * (long) SLOT_SIZE + 4) != EMPTY) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                newIndex.putInt(newSlot * (long) SLOT_SIZE, hash);
+                newIndex.putLong(newSlot * (long) SLOT_SIZE + 4, reference);
+            }
+        }
+        _index = newIndex;
+        _capacity = newCapacity;
+        _removedCount = 0;
+        _modCount++;
+        oldIndex.close();
+    }
+
+    /**
+     * Closes the map and deletes its files.
+     */
+    @Override
+    public void close() {
+        _index.close();
+        _data.close();
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        super.finalize();
+        close();
+    }
+
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private int _expectedModCount = _modCount;
+        private int _nextSlot = -1;
+        private int _currentSlot = -1;
+
+        public EntryIterator() {
+            _nextSlot = findNext(0);
+        }
+
+        private int findNext(int slot) {
+            while (slot < _capacity) {
+                final long reference = getSlotReference(slot);
+                if (reference != EMPTY && reference != REMOVED) {
+                    return slot;
+                }
+                slot++;
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _nextSlot != -1;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (_expectedModCount != _modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (_nextSlot == -1) {
+                throw new NoSuchElementException();
+            }
+            _currentSlot = _nextSlot;
+            _nextSlot = findNext(_currentSlot + 1);
+
+            final long recordPosition = getRecordPosition(_currentSlot);
+            final K key = readKey(recordPosition);
+            final V value = readValue(getValuePosition(recordPosition));
+            return new MappedEntry(key, value);
+        }
+
+        @Override
+        public void remove() {
+            if (_currentSlot == -1) {
+                throw new IllegalStateException();
+            }
+            if (_expectedModCount != _modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot(_currentSlot);
+            _currentSlot = -1;
+            _expectedModCount = _modCount;
+        }
+    }
+
+    private final class MappedEntry extends SimpleEntry<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        public MappedEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            super.setValue(value);
+            return put(getKey(), value);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * A {@link Set} which keeps its elements off-heap, in memory mapped files. The
+ * set is backed by a {@link MappedHashMap} with presence-only values.
+ * 
+ * @param <E>
+ */
+final class MappedHashSet<E> extends AbstractSet<E> implements Set<E>, Closeable {
+
+    private final MappedHashMap<E, Boolean> _map;
+
+    public MappedHashSet(File directory, MappedCodec<E> codec) {
+        this(directory, codec, MappedFileBuffer.DEFAULT_CHUNK_SIZE);
+    }
+
+    public MappedHashSet(File directory, MappedCodec<E> codec, int chunkSize) {
+        _map = new MappedHashMap<E, Boolean>(directory, codec, MappedCodec.PRESENCE, chunkSize);
+    }
+
+    @Override
+    public int size() {
+        return _map.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return _map.containsKey(o);
+    }
+
+    @Override
+    public boolean add(E e) {
+        return _map.put(e, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return _map.remove(o) != null;
+    }
+
+    @Override
+    public void clear() {
+        _map.clear();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return _map.keySet().iterator();
+    }
+
+    /**
+     * Closes the set and deletes its files.
+     */
+    @Override
+    public void close() {
+        _map.close();
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A {@link List} which keeps its elements off-heap, in memory mapped files.
+ * 
+ * Elements are appended as encoded records to a data file, and the positions of
+ * the records are kept in order in an offset file. Inserting or removing
+ * elements in the middle of the list only moves the offsets, not the records.
+ * 
+ * Like the collections of {@link InMemoryStorageProvider}, the list is not
+ * thread-safe.
+ * 
+ * @param <E>
+ */
+final class MappedList<E> extends AbstractList<E> implements List<E>, RandomAccess, Closeable {
+
+    private static final int NULL_LENGTH = -1;
+
+    private final MappedCodec<E> _codec;
+    private final MappedFileBuffer _offsets;
+    private final MappedFileBuffer _data;
+    private int _size;
+    private long _dataEnd;
+
+    public MappedList(File directory, MappedCodec<E> codec) {
+        this(directory, codec, MappedFileBuffer.DEFAULT_CHUNK_SIZE);
+    }
+
+    public MappedList(File directory, MappedCodec<E> codec, int chunkSize) {
+        _codec = codec;
+        _offsets = new MappedFileBuffer(directory, "mm_list_offsets", chunkSize);
+        _data = new MappedFileBuffer(directory, "mm_list_data", chunkSize);
+        _size = 0;
+        _dataEnd = 0;
+    }
+
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index, _size);
+        final long recordPosition = getRecordPosition(index);
+        final int length = _data.getInt(recordPosition);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        _data.getBytes(recordPosition + 4, bytes, 0, length);
+        return _codec.decode(bytes);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        final E previousElement = get(index);
+        final byte[] bytes = encode(element);
+        final long recordPosition = getRecordPosition(index);
+        final int length = bytes == null ? NULL_LENGTH : bytes.length;
+        if (_data.getInt(recordPosition) == length) {
+            if (bytes != null) {
+                _data.putBytes(recordPosition + 4, bytes, 0, length);
+            }
+        } else {
+            setRecordPosition(index, appendRecord(bytes));
+        }
+        return previousElement;
+    }
+
+    @Override
+    public boolean add(E element) {
+        setRecordPosition(_size, appendRecord(encode(element)));
+        _size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkIndex(index, _size + 1);
+        final long recordPosition = appendRecord(encode(element));
+        if (index < _size) {
+            _offsets.move(index * 8L, (index + 1) * 8L, (_size - index) * 8L);
+        }
+        setRecordPosition(index, recordPosition);
+        _size++;
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        final E previousElement = get(index);
+        if (index < _size - 1) {
+            _offsets.move((index + 1) * 8L, index * 8L, (_size - index - 1) * 8L);
+        }
+        _size--;
+        modCount++;
+        return previousElement;
+    }
+
+    @Override
+    public void clear() {
+        _size = 0;
+        _dataEnd = 0;
+        modCount++;
+    }
+
+    private void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+        }
+    }
+
+    private byte[] encode(E element) {
+        return element == null ? null : _codec.encode(element);
+    }
+
+    private long getRecordPosition(int index) {
+        return _offsets.getLong(index * 8L);
+    }
+
+    private void setRecordPosition(int index, long recordPosition) {
+        _offsets.putLong(index * 8L, recordPosition);
+    }
+
+    private long appendRecord(byte[] bytes) {
+        final long recordPosition = _dataEnd;
+        if (bytes == null) {
+            _data.putInt(recordPosition, NULL_LENGTH);
+            _dataEnd = recordPosition + 4;
+        } else {
+            _data.putInt(recordPosition, bytes.length);
+            _data.putBytes(recordPosition + 4, bytes, 0, bytes.length);
+            _dataEnd = recordPosition + 4 + bytes.length;
+        }
+        return recordPosition;
+    }
+
+    /**
+     * Closes the list and deletes its files.
+     */
+    @Override
+    public void close() {
+        _offsets.close();
+        _data.close();
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        super.finalize();
+        close();
+    }
+}
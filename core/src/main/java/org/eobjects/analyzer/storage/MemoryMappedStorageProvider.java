@@ -0,0 +1,103 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.metamodel.util.FileHelper;
+
+/**
+ * StorageProvider which stores collections off-heap in memory mapped files.
+ * 
+ * Maps and sets are stored in open addressing hash tables and lists in offset
+ * indexed append logs, with values encoded by specialized codecs for common
+ * types (strings, numbers, dates) and java serialization for other types. The
+ * operating system pages the files in and out of memory, which keeps large
+ * collections away from the java heap without the overhead of a database.
+ * 
+ * Row annotations are stored in compressed pages on disk, see
+ * {@link PagedRowAnnotationFactory}.
+ * 
+ * Files are deleted when collections are closed, which happens at the end of a
+ * job, or at the latest when the JVM exits.
+ */
+public final class MemoryMappedStorageProvider implements StorageProvider {
+
+    private final File _directory;
+    private final int _storedRowsThreshold;
+    private final int _chunkSize;
+
+    public MemoryMappedStorageProvider() {
+        this(FileHelper.getTempDir());
+    }
+
+    public MemoryMappedStorageProvider(File directory) {
+        this(directory, 1000);
+    }
+
+    public MemoryMappedStorageProvider(File directory, int storedRowsThreshold) {
+        this(directory, storedRowsThreshold, MappedFileBuffer.DEFAULT_CHUNK_SIZE);
+    }
+
+    MemoryMappedStorageProvider(File directory, int storedRowsThreshold, int chunkSize) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null");
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IllegalStateException("Could not create directory: " + directory);
+        }
+        _directory = directory;
+        _storedRowsThreshold = storedRowsThreshold;
+        _chunkSize = chunkSize;
+    }
+
+    public File getDirectory() {
+        return _directory;
+    }
+
+    public int getStoredRowsThreshold() {
+        return _storedRowsThreshold;
+    }
+
+    @Override
+    public <E> List<E> createList(Class<E> valueType) throws IllegalStateException {
+        return new MappedList<E>(_directory, MappedCodec.forType(valueType), _chunkSize);
+    }
+
+    @Override
+    public <E> Set<E> createSet(Class<E> valueType) throws IllegalStateException {
+        return new MappedHashSet<E>(_directory, MappedCodec.forType(valueType), _chunkSize);
+    }
+
+    @Override
+    public <K, V> Map<K, V> createMap(Class<K> keyType, Class<V> valueType) throws IllegalStateException {
+        return new MappedHashMap<K, V>(_directory, MappedCodec.forType(keyType), MappedCodec.forType(valueType),
+                _chunkSize);
+    }
+
+    @Override
+    public RowAnnotationFactory createRowAnnotationFactory() {
+        return new PagedRowAnnotationFactory(_storedRowsThreshold, _directory, RowPageCache.getDefault(),
+                PagedRowAnnotationFactory.DEFAULT_PAGE_SIZE);
+    }
+}
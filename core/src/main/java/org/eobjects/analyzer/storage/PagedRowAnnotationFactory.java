@@ -0,0 +1,407 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputRow;
+
+/**
+ * A {@link RowAnnotationFactory} which keeps the values of annotated rows in
+ * compressed pages on disk, instead of keeping the rows themselves in memory.
+ * 
+ * Stored rows are flattened into records of column values - thereby dropping
+ * the references to any parent rows that a (transformed) row may hold - and
+ * appended to an in-memory page. The columns of a record are not part of the
+ * record itself, but are kept once per distinct column layout in memory. When
+ * a page is full, it is compressed and appended to a temporary file. Pages are
+ * read back lazily when the rows of an annotation are requested, through a
+ * {@link RowPageCache} which bounds the memory used for reading pages.
+ * 
+ * Rows are restored as {@link MockInputRow}s, with the same ids and column
+ * values as the original rows. Values of common types (strings, numbers,
+ * booleans and dates) are stored in a compact binary form, other serializable
+ * values are stored in their serialized form and non-serializable values are
+ * stored as strings.
+ * 
+ * When serialized, the factory is replaced by an equivalent
+ * {@link InMemoryRowAnnotationFactory}, so that the serialized form does not
+ * depend on the temporary file.
+ */
+public class PagedRowAnnotationFactory extends AbstractRowAnnotationFactory implements RowAnnotationFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default (uncompressed) size of pages, 64 KB.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_BOOLEAN = 5;
+    private static final byte TYPE_DATE = 6;
+    private static final byte TYPE_SERIALIZED = 7;
+
+    private final transient ConcurrentMap<RowAnnotation, AnnotatedRowIds> _annotatedRows;
+    private final transient RowLocationIndex _rowLocations;
+    private final transient RowPageFile _pageFile;
+    private final transient List<InputColumn<?>[]> _layouts;
+    private final transient Map<List<InputColumn<?>>, Integer> _layoutIndexes;
+    private final transient ByteArrayOutputStream _recordBuffer;
+    private final transient DataOutputStream _recordOutput;
+
+    public PagedRowAnnotationFactory() {
+        this(1000);
+    }
+
+    public PagedRowAnnotationFactory(int storedRowsThreshold) {
+        this(storedRowsThreshold, null, RowPageCache.getDefault(), DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 
+     * @param storedRowsThreshold
+     *            the max number of rows to store per annotation
+     * @param directory
+     *            the directory to place the temporary page file in, or null
+     *            for the default temporary directory
+     * @param pageCache
+     *            the cache to read pages through
+     * @param pageSize
+     *            the (uncompressed) size of pages
+     */
+    public PagedRowAnnotationFactory(int storedRowsThreshold, File directory, RowPageCache pageCache, int pageSize) {
+        super(storedRowsThreshold);
+        if (pageCache == null) {
+            throw new IllegalArgumentException("Page cache cannot be null");
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be a positive number");
+        }
+        try {
+            _pageFile = new RowPageFile(directory, pageCache, pageSize);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create row page file", e);
+        }
+        _annotatedRows = new ConcurrentHashMap<RowAnnotation, AnnotatedRowIds>();
+        _rowLocations = new RowLocationIndex();
+        _layouts = new ArrayList<InputColumn<?>[]>();
+        _layoutIndexes = new HashMap<List<InputColumn<?>>, Integer>();
+        _recordBuffer = new ByteArrayOutputStream();
+        _recordOutput = new DataOutputStream(_recordBuffer);
+    }
+
+    /**
+     * Gets the number of rows that are stored by the factory.
+     * 
+     * @return
+     */
+    public int getStoredRowCount() {
+        return _rowLocations.size();
+    }
+
+    /**
+     * Gets the temporary file that the pages of the factory are written to.
+     * 
+     * @return
+     */
+    public File getPageFile() {
+        return _pageFile.getFile();
+    }
+
+    @Override
+    protected void resetRows(RowAnnotation annotation) {
+        _annotatedRows.remove(annotation);
+    }
+
+    @Override
+    protected int getDistinctCount(InputRow row) {
+        return _rowLocations.getDistinctCount(row.getId());
+    }
+
+    @Override
+    protected void storeRowAnnotation(int rowId, RowAnnotation annotation) {
+        getRowIds(annotation).add(rowId);
+    }
+
+    private AnnotatedRowIds getRowIds(RowAnnotation annotation) {
+        AnnotatedRowIds rowIds = _annotatedRows.get(annotation);
+        if (rowIds == null) {
+            final AnnotatedRowIds newRowIds = new AnnotatedRowIds();
+            rowIds = _annotatedRows.putIfAbsent(annotation, newRowIds);
+            if (rowIds == null) {
+                rowIds = newRowIds;
+            }
+        }
+        return rowIds;
+    }
+
+    @Override
+    protected void storeRowValuesIfAbsent(int rowId, InputRow row, int distinctCount) {
+        // the row location index is itself able to detect already stored rows
+        storeRowValues(rowId, row, distinctCount);
+    }
+
+    @Override
+    protected synchronized void storeRowValues(int rowId, InputRow row, int distinctCount) {
+        if (_rowLocations.contains(rowId)) {
+            return;
+        }
+        try {
+            _recordBuffer.reset();
+            final int layoutIndex = getLayoutIndex(row.getInputColumns());
+            _recordOutput.writeInt(layoutIndex);
+            for (InputColumn<?> column : _layouts.get(layoutIndex)) {
+                writeValue(_recordOutput, row.getValue(column));
+            }
+            _recordOutput.flush();
+
+            final long location = _pageFile.append(_recordBuffer.toByteArray(), _recordBuffer.size());
+            _rowLocations.put(rowId, location, distinctCount);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not store values of row: " + row, e);
+        }
+    }
+
+    /**
+     * Gets the index of the column layout that is equal to a list of columns,
+     * registering the layout if necessary.
+     * 
+     * @param columns
+     * @return
+     */
+    private int getLayoutIndex(List<InputColumn<?>> columns) {
+        Integer index = _layoutIndexes.get(columns);
+        if (index == null) {
+            final InputColumn<?>[] layout = columns.toArray(new InputColumn<?>[columns.size()]);
+            index = _layouts.size();
+            _layouts.add(layout);
+            _layoutIndexes.put(Arrays.asList(layout), index);
+        }
+        return index.intValue();
+    }
+
+    private synchronized InputColumn<?>[][] getLayouts() {
+        return _layouts.toArray(new InputColumn<?>[_layouts.size()][]);
+    }
+
+    @Override
+    public InputRow[] getRows(RowAnnotation annotation) {
+        final AnnotatedRowIds rowIds = _annotatedRows.get(annotation);
+        if (rowIds == null) {
+            return new InputRow[0];
+        }
+        final int[] ids = rowIds.toArray();
+        final InputColumn<?>[][] layouts = getLayouts();
+
+        // read the rows in order of their location, to read each page once
+        final long[] locations = new long[ids.length];
+        final Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            locations[i] = _rowLocations.getLocation(ids[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                final long l1 = locations[o1.intValue()];
+                final long l2 = locations[o2.intValue()];
+                return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+            }
+        });
+
+        final InputRow[] rows = new InputRow[ids.length];
+        int rowCount = 0;
+        try {
+            byte[] page = null;
+            long pageIndex = -1;
+            for (Integer i : order) {
+                final long location = locations[i.intValue()];
+                if (location == -1) {
+                    // the values of the row are not stored
+                    continue;
+                }
+                if (page == null || (location >>> 32) != pageIndex) {
+                    page = _pageFile.getPage(location);
+                    pageIndex = location >>> 32;
+                }
+                rows[i.intValue()] = readRow(ids[i.intValue()], page, RowPageFile.getOffset(location), layouts);
+                rowCount++;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read rows of annotation: " + annotation, e);
+        }
+
+        if (rowCount == rows.length) {
+            return rows;
+        }
+
+        // leave out the rows that were not stored, keeping the annotation order
+        final InputRow[] storedRows = new InputRow[rowCount];
+        int j = 0;
+        for (InputRow row : rows) {
+            if (row != null) {
+                storedRows[j++] = row;
+            }
+        }
+        return storedRows;
+    }
+
+    private InputRow readRow(int rowId, byte[] page, int offset, InputColumn<?>[][] layouts) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(page, offset, page.length - offset));
+        final MockInputRow row = new MockInputRow(rowId);
+        final InputColumn<?>[] layout = layouts[in.readInt()];
+        for (InputColumn<?> column : layout) {
+            row.put(column, readValue(in));
+        }
+        return row;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeBytes(out, ((String) value).getBytes(CHARSET));
+        } else if (value.getClass() == Integer.class) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt(((Integer) value).intValue());
+        } else if (value.getClass() == Long.class) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(((Long) value).longValue());
+        } else if (value.getClass() == Double.class) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Double) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Serializable) {
+            out.writeByte(TYPE_SERIALIZED);
+            writeBytes(out, SerializationUtils.serialize((Serializable) value));
+        } else {
+            out.writeByte(TYPE_STRING);
+            writeBytes(out, value.toString().getBytes(CHARSET));
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+        case TYPE_NULL:
+            return null;
+        case TYPE_STRING:
+            return new String(readBytes(in), CHARSET);
+        case TYPE_INTEGER:
+            return in.readInt();
+        case TYPE_LONG:
+            return in.readLong();
+        case TYPE_DOUBLE:
+            return in.readDouble();
+        case TYPE_BOOLEAN:
+            return in.readBoolean();
+        case TYPE_DATE:
+            return new Date(in.readLong());
+        case TYPE_SERIALIZED:
+            return SerializationUtils.deserialize(readBytes(in));
+        default:
+            throw new IOException("Unexpected value type: " + type);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    @Override
+    public void transferAnnotations(RowAnnotation from, RowAnnotation to) {
+        final int rowCountToAdd = from.getRowCount();
+        ((RowAnnotationImpl) to).incrementRowCount(rowCountToAdd);
+    }
+
+    /**
+     * Replaces the factory with an equivalent
+     * {@link InMemoryRowAnnotationFactory} when serialized.
+     * 
+     * @return
+     * @throws ObjectStreamException
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        final InMemoryRowAnnotationFactory replacement = new InMemoryRowAnnotationFactory(getStoredRowsThreshold());
+        for (Map.Entry<RowAnnotation, AnnotatedRowIds> entry : _annotatedRows.entrySet()) {
+            final RowAnnotation annotation = entry.getKey();
+            for (InputRow row : getRows(annotation)) {
+                final int rowId = row.getId();
+                replacement.storeRowValues(rowId, row, getDistinctCount(row));
+                replacement.storeRowAnnotation(rowId, annotation);
+            }
+        }
+        return replacement;
+    }
+
+    /**
+     * Closes the factory and deletes the temporary page file. The factory
+     * cannot be used after being closed.
+     */
+    public void close() {
+        _pageFile.close();
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        super.finalize();
+        close();
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.util.Arrays;
+
+import org.eobjects.analyzer.util.LongHashMap;
+
+/**
+ * Index of the locations (in a {@link RowPageFile}) and distinct counts of
+ * stored rows, keyed by row id. Row ids are mapped to entries of primitive
+ * arrays of locations and counts using a {@link LongHashMap}.
+ */
+final class RowLocationIndex {
+
+    private final LongHashMap _entries;
+    private long[] _locations;
+    private int[] _distinctCounts;
+
+    public RowLocationIndex() {
+        _entries = new LongHashMap();
+        _locations = new long[64];
+        _distinctCounts = new int[64];
+    }
+
+    public synchronized boolean contains(int rowId) {
+        return _entries.containsKey(rowId);
+    }
+
+    /**
+     * Adds the location of a row. The row must not already be in the index.
+     * 
+     * @param rowId
+     * @param location
+     * @param distinctCount
+     */
+    public synchronized void put(int rowId, long location, int distinctCount) {
+        int entry = (int) _entries.get(rowId, -1);
+        if (entry == -1) {
+            entry = _entries.size();
+            _entries.put(rowId, entry);
+            if (entry == _locations.length) {
+                _locations = Arrays.copyOf(_locations, entry * 2);
+                _distinctCounts = Arrays.copyOf(_distinctCounts, entry * 2);
+            }
+        }
+        _locations[entry] = location;
+        _distinctCounts[entry] = distinctCount;
+    }
+
+    /**
+     * Gets the location of a row.
+     * 
+     * @param rowId
+     * @return the location, or -1 if the row is not in the index.
+     */
+    public synchronized long getLocation(int rowId) {
+        final int entry = (int) _entries.get(rowId, -1);
+        if (entry == -1) {
+            return -1;
+        }
+        return _locations[entry];
+    }
+
+    /**
+     * Gets the distinct count of a row.
+     * 
+     * @param rowId
+     * @return the distinct count, or 0 if the row is not in the index.
+     */
+    public synchronized int getDistinctCount(int rowId) {
+        final int entry = (int) _entries.get(rowId, -1);
+        if (entry == -1) {
+            return 0;
+        }
+        return _distinctCounts[entry];
+    }
+
+    public synchronized int size() {
+        return _entries.size();
+    }
+}
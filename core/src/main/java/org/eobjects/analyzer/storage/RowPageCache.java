@@ -0,0 +1,137 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * A least-recently-used cache of (uncompressed) row pages, read from the page
+ * files of {@link PagedRowAnnotationFactory}s. The cache has a byte budget
+ * which is shared by all the factories that use it, so that the amount of
+ * memory used for reading annotated rows is bounded regardless of the number
+ * of annotations.
+ */
+public final class RowPageCache {
+
+    /**
+     * The default byte budget of a cache, 32 MB.
+     */
+    public static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+
+    private static final RowPageCache DEFAULT_INSTANCE = new RowPageCache(DEFAULT_MAX_BYTES);
+
+    /**
+     * Gets the default (JVM-wide) cache instance.
+     * 
+     * @return
+     */
+    public static RowPageCache getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    private final long _maxBytes;
+    private final LinkedHashMap<PageKey, byte[]> _pages;
+    private long _currentBytes;
+
+    public RowPageCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Max bytes must be a positive number");
+        }
+        _maxBytes = maxBytes;
+        _pages = new LinkedHashMap<PageKey, byte[]>(16, 0.75f, true);
+        _currentBytes = 0;
+    }
+
+    public long getMaxBytes() {
+        return _maxBytes;
+    }
+
+    /**
+     * Gets the number of bytes currently held by the cache.
+     * 
+     * @return
+     */
+    public synchronized long getCurrentBytes() {
+        return _currentBytes;
+    }
+
+    synchronized byte[] get(Object owner, int pageIndex) {
+        return _pages.get(new PageKey(owner, pageIndex));
+    }
+
+    synchronized void put(Object owner, int pageIndex, byte[] page) {
+        final byte[] previous = _pages.put(new PageKey(owner, pageIndex), page);
+        if (previous != null) {
+            _currentBytes -= previous.length;
+        }
+        _currentBytes += page.length;
+
+        // evict the least recently used pages
+        final Iterator<byte[]> it = _pages.values().iterator();
+        while (_currentBytes > _maxBytes && it.hasNext()) {
+            final byte[] evicted = it.next();
+            it.remove();
+            _currentBytes -= evicted.length;
+        }
+    }
+
+    /**
+     * Removes all the pages of a particular owner from the cache.
+     * 
+     * @param owner
+     */
+    synchronized void invalidate(Object owner) {
+        final Iterator<Entry<PageKey, byte[]>> it = _pages.entrySet().iterator();
+        while (it.hasNext()) {
+            final Entry<PageKey, byte[]> entry = it.next();
+            if (entry.getKey()._owner == owner) {
+                _currentBytes -= entry.getValue().length;
+                it.remove();
+            }
+        }
+    }
+
+    private static final class PageKey {
+
+        private final Object _owner;
+        private final int _pageIndex;
+
+        public PageKey(Object owner, int pageIndex) {
+            _owner = owner;
+            _pageIndex = pageIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(_owner) * 31 + _pageIndex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PageKey)) {
+                return false;
+            }
+            final PageKey other = (PageKey) obj;
+            return _owner == other._owner && _pageIndex == other._pageIndex;
+        }
+    }
+}
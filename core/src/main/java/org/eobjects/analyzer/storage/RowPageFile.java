@@ -0,0 +1,228 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.metamodel.util.FileHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A file of compressed pages of records. Records are appended to an in-memory
+ * page which, when full, is compressed and appended to the file. Sealed pages
+ * are read back (and decompressed) through a {@link RowPageCache}.
+ * 
+ * The location of a record is a long, consisting of the page index (high 32
+ * bits) and the offset of the record within the uncompressed page (low 32
+ * bits).
+ */
+final class RowPageFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowPageFile.class);
+
+    private final File _file;
+    private final RandomAccessFile _randomAccessFile;
+    private final FileChannel _channel;
+    private final RowPageCache _cache;
+    private final int _pageSize;
+    private final Deflater _deflater;
+
+    private ByteArrayOutputStream _currentPage;
+    private int _currentPageIndex;
+    private long[] _pageOffsets;
+    private int[] _compressedLengths;
+    private int[] _uncompressedLengths;
+    private long _fileLength;
+    private volatile boolean _closed;
+
+    public RowPageFile(File directory, RowPageCache cache, int pageSize) throws IOException {
+        _file = File.createTempFile("row_pages", ".dat", directory);
+        _randomAccessFile = new RandomAccessFile(_file, "rw");
+        _channel = _randomAccessFile.getChannel();
+        _cache = cache;
+        _pageSize = pageSize;
+        _deflater = new Deflater(Deflater.BEST_SPEED);
+        _currentPage = new ByteArrayOutputStream(pageSize + 1024);
+        _currentPageIndex = 0;
+        _pageOffsets = new long[16];
+        _compressedLengths = new int[16];
+        _uncompressedLengths = new int[16];
+        _fileLength = 0;
+    }
+
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * Appends a record.
+     * 
+     * @param record
+     * @param length
+     * @return the location of the record
+     * @throws IOException
+     */
+    public synchronized long append(byte[] record, int length) throws IOException {
+        final long location = ((long) _currentPageIndex << 32) | _currentPage.size();
+        _currentPage.write(record, 0, length);
+        if (_currentPage.size() >= _pageSize) {
+            sealCurrentPage();
+        }
+        return location;
+    }
+
+    /**
+     * Gets the number of sealed (compressed) pages in the file.
+     * 
+     * @return
+     */
+    public synchronized int getSealedPageCount() {
+        return _currentPageIndex;
+    }
+
+    private void sealCurrentPage() throws IOException {
+        final byte[] uncompressed = _currentPage.toByteArray();
+
+        _deflater.reset();
+        _deflater.setInput(uncompressed);
+        _deflater.finish();
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressed.length / 2 + 64);
+        final byte[] buffer = new byte[8 * 1024];
+        while (!_deflater.finished()) {
+            final int count = _deflater.deflate(buffer);
+            compressed.write(buffer, 0, count);
+        }
+
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(compressed.toByteArray());
+        final long offset = _fileLength;
+        long position = offset;
+        while (byteBuffer.hasRemaining()) {
+            position += _channel.write(byteBuffer, position);
+        }
+
+        final int pageIndex = _currentPageIndex;
+        if (pageIndex == _pageOffsets.length) {
+            final int newLength = pageIndex * 2;
+            _pageOffsets = Arrays.copyOf(_pageOffsets, newLength);
+            _compressedLengths = Arrays.copyOf(_compressedLengths, newLength);
+            _uncompressedLengths = Arrays.copyOf(_uncompressedLengths, newLength);
+        }
+        _pageOffsets[pageIndex] = offset;
+        _compressedLengths[pageIndex] = (int) (position - offset);
+        _uncompressedLengths[pageIndex] = uncompressed.length;
+        _fileLength = position;
+
+        _currentPageIndex++;
+        _currentPage.reset();
+    }
+
+    /**
+     * Gets the (uncompressed) page containing a record location.
+     * 
+     * @param location
+     * @return
+     * @throws IOException
+     */
+    public byte[] getPage(long location) throws IOException {
+        final int pageIndex = (int) (location >>> 32);
+        final long pageOffset;
+        final int compressedLength;
+        final int uncompressedLength;
+        synchronized (this) {
+            if (pageIndex == _currentPageIndex) {
+                // the page is not sealed yet
+                return _currentPage.toByteArray();
+            }
+            pageOffset = _pageOffsets[pageIndex];
+            compressedLength = _compressedLengths[pageIndex];
+            uncompressedLength = _uncompressedLengths[pageIndex];
+        }
+
+        byte[] page = _cache.get(this, pageIndex);
+        if (page == null) {
+            page = readPage(pageOffset, compressedLength, uncompressedLength);
+            _cache.put(this, pageIndex, page);
+        }
+        return page;
+    }
+
+    private byte[] readPage(long offset, int compressedLength, int uncompressedLength) throws IOException {
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(compressedLength);
+        long position = offset;
+        while (byteBuffer.hasRemaining()) {
+            final int count = _channel.read(byteBuffer, position);
+            if (count == -1) {
+                throw new IOException("Unexpected end of page file: " + _file);
+            }
+            position += count;
+        }
+
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(byteBuffer.array());
+            final byte[] page = new byte[uncompressedLength];
+            int length = 0;
+            while (length < uncompressedLength && !inflater.finished()) {
+                length += inflater.inflate(page, length, uncompressedLength - length);
+            }
+            return page;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt page in file: " + _file, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Gets the offset of a record within its page
+     * 
+     * @param location
+     * @return
+     */
+    public static int getOffset(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Closes and deletes the file
+     */
+    public synchronized void close() {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        _cache.invalidate(this);
+        _deflater.end();
+        FileHelper.safeClose(_channel, _randomAccessFile);
+        if (!_file.delete()) {
+            logger.warn("Could not delete row page file: {}", _file);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import org.eobjects.analyzer.data.InputRow;
+
+/**
+ * Compact, concurrent store of annotated rows and their distinct counts, keyed
+ * by row id. Rows are kept in a number of open addressing hash tables of
+ * primitive keys and counts, each guarded by its own lock, instead of in a map
+ * with boxed keys and entry objects.
+ */
+final class RowValueStore {
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    private final Segment[] _segments;
+
+    public RowValueStore() {
+        _segments = new Segment[1 << SEGMENT_BITS];
+        for (int i = 0; i < _segments.length; i++) {
+            _segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Stores a row, unless a row with the same id is already stored.
+     * 
+     * @param rowId
+     * @param row
+     * @param distinctCount
+     * @return true if the row was stored, false if a row with the same id was
+     *         already stored.
+     */
+    public boolean putIfAbsent(int rowId, InputRow row, int distinctCount) {
+        final int hash = hash(rowId);
+        return getSegment(hash).putIfAbsent(hash, rowId, row, distinctCount);
+    }
+
+    /**
+     * Gets a stored row.
+     * 
+     * @param rowId
+     * @return the row, or null if no row with the id is stored.
+     */
+    public InputRow getRow(int rowId) {
+        final int hash = hash(rowId);
+        return getSegment(hash).getRow(hash, rowId);
+    }
+
+    /**
+     * Gets the distinct count of a stored row.
+     * 
+     * @param rowId
+     * @return the distinct count, or 0 if no row with the id is stored.
+     */
+    public int getDistinctCount(int rowId) {
+        final int hash = hash(rowId);
+        return getSegment(hash).getDistinctCount(hash, rowId);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : _segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment getSegment(int hash) {
+        return _segments[hash >>> (32 - SEGMENT_BITS)];
+    }
+
+    private static int hash(int rowId) {
+        // spreads sequential row ids across segments and slots
+        final int hash = rowId * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Segment {
+
+        private int[] _keys;
+        private InputRow[] _rows;
+        private int[] _distinctCounts;
+        private int _size;
+
+        public Segment() {
+            allocate(INITIAL_SEGMENT_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            _keys = new int[capacity];
+            _rows = new InputRow[capacity];
+            _distinctCounts = new int[capacity];
+        }
+
+        public synchronized boolean putIfAbsent(int hash, int rowId, InputRow row, int distinctCount) {
+            final int slot = findSlot(hash, rowId);
+            if (_rows[slot] != null) {
+                return false;
+            }
+            _keys[slot] = rowId;
+            _rows[slot] = row;
+            _distinctCounts[slot] = distinctCount;
+            _size++;
+            if (_size * 4 > _keys.length * 3) {
+                grow();
+            }
+            return true;
+        }
+
+        public synchronized InputRow getRow(int hash, int rowId) {
+            return _rows[findSlot(hash, rowId)];
+        }
+
+        public synchronized int getDistinctCount(int hash, int rowId) {
+            final int slot = findSlot(hash, rowId);
+            if (_rows[slot] == null) {
+                return 0;
+            }
+            return _distinctCounts[slot];
+        }
+
+        public synchronized int size() {
+            return _size;
+        }
+
+        /**
+         * Finds the slot of a row id, or the empty slot where it should be
+         * inserted. Empty slots are recognized by not having a row.
+         */
+        private int findSlot(int hash, int rowId) {
+            final int mask = _keys.length - 1;
+            int slot = hash & mask;
+            while (_rows[slot] != null && _keys[slot] != rowId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            final int[] keys = _keys;
+            final InputRow[] rows = _rows;
+            final int[] distinctCounts = _distinctCounts;
+            allocate(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (rows[i] != null) {
+                    final int slot = findSlot(hash(keys[i]), keys[i]);
+                    _keys[slot] = keys[i];
+                    _rows[slot] = rows[i];
+                    _distinctCounts[slot] = distinctCounts[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the spill state of a {@link SpillableCollection}.
+ * 
+ * Spills are requested by the {@link AdaptiveStorageProvider} (typically from
+ * a JMX notification thread), but carried out by the collection itself upon
+ * the next write operation. That way the collection is never migrated while
+ * another thread is using it, given that the collection is used the same
+ * (externally synchronized) way as an on-heap collection.
+ */
+final class SpillSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillSupport.class);
+
+    private static final int STATE_HEAP = 0;
+    private static final int STATE_SPILL_REQUESTED = 1;
+    private static final int STATE_SPILLED = 2;
+
+    private final StorageProvider _storageProvider;
+    private final String _collectionDescription;
+    private final List<CollectionSpillListener> _listeners;
+    private volatile int _state;
+
+    public SpillSupport(StorageProvider storageProvider, String collectionDescription) {
+        _storageProvider = storageProvider;
+        _collectionDescription = collectionDescription;
+        _listeners = new CopyOnWriteArrayList<CollectionSpillListener>();
+        _state = STATE_HEAP;
+    }
+
+    public StorageProvider getStorageProvider() {
+        return _storageProvider;
+    }
+
+    public void addListener(CollectionSpillListener listener) {
+        _listeners.add(listener);
+    }
+
+    public boolean isOnHeap() {
+        return _state == STATE_HEAP;
+    }
+
+    public boolean isSpillRequested() {
+        return _state == STATE_SPILL_REQUESTED;
+    }
+
+    public boolean isSpilled() {
+        return _state == STATE_SPILLED;
+    }
+
+    public void requestSpill() {
+        if (_state == STATE_HEAP) {
+            _state = STATE_SPILL_REQUESTED;
+        }
+    }
+
+    public void onSpilled(int size) {
+        _state = STATE_SPILLED;
+
+        final CollectionSpilledMessage message = new CollectionSpilledMessage(_collectionDescription, size,
+                new Date(), _storageProvider);
+        logger.info("Spilled {} with {} elements to {}", new Object[] { _collectionDescription, size,
+                _storageProvider });
+        for (CollectionSpillListener listener : _listeners) {
+            listener.onCollectionSpilled(message);
+        }
+    }
+
+    public void onSpillFailed(RuntimeException e) {
+        // stay on the heap, the spill may be requested again later
+        _state = STATE_HEAP;
+        logger.warn("Failed to spill " + _collectionDescription + " to " + _storageProvider, e);
+    }
+}
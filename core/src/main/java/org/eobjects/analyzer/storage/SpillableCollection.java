@@ -0,0 +1,45 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+/**
+ * Interface for collections which start out on the heap, but which may be
+ * spilled (migrated) to a disk-backed {@link StorageProvider} when the heap
+ * gets under pressure.
+ * 
+ * @see AdaptiveStorageProvider
+ */
+public interface SpillableCollection {
+
+    /**
+     * Determines if the collection has been spilled to disk.
+     * 
+     * @return
+     */
+    public boolean isSpilled();
+
+    /**
+     * Adds a listener which will be notified if/when the collection is
+     * spilled to disk.
+     * 
+     * @param listener
+     */
+    public void addSpillListener(CollectionSpillListener listener);
+}
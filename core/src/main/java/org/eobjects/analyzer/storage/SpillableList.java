@@ -0,0 +1,130 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.metamodel.util.FileHelper;
+
+/**
+ * A {@link List} which starts out as an {@link ArrayList} on the heap and which
+ * is migrated to a disk-backed {@link StorageProvider} when requested.
+ * 
+ * @param <E>
+ */
+final class SpillableList<E> extends AbstractList<E> implements List<E>, Spillable, Closeable {
+
+    private final Class<E> _valueType;
+    private final SpillSupport _spillSupport;
+    private List<E> _list;
+
+    public SpillableList(Class<E> valueType, StorageProvider spillStorageProvider) {
+        _valueType = valueType;
+        _spillSupport = new SpillSupport(spillStorageProvider, "List<" + valueType.getSimpleName() + ">");
+        _list = new ArrayList<E>();
+    }
+
+    private void spillIfRequested() {
+        if (!_spillSupport.isSpillRequested()) {
+            return;
+        }
+        try {
+            final List<E> list = _spillSupport.getStorageProvider().createList(_valueType);
+            list.addAll(_list);
+            _list = list;
+        } catch (RuntimeException e) {
+            _spillSupport.onSpillFailed(e);
+            return;
+        }
+        _spillSupport.onSpilled(_list.size());
+    }
+
+    @Override
+    public SpillSupport getSpillSupport() {
+        return _spillSupport;
+    }
+
+    @Override
+    public boolean isSpilled() {
+        return _spillSupport.isSpilled();
+    }
+
+    @Override
+    public void addSpillListener(CollectionSpillListener listener) {
+        _spillSupport.addListener(listener);
+    }
+
+    @Override
+    public int size() {
+        return _list.size();
+    }
+
+    @Override
+    public E get(int index) {
+        return _list.get(index);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return _list.set(index, element);
+    }
+
+    @Override
+    public boolean add(E e) {
+        spillIfRequested();
+        modCount++;
+        return _list.add(e);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        spillIfRequested();
+        modCount++;
+        _list.add(index, element);
+    }
+
+    @Override
+    public E remove(int index) {
+        modCount++;
+        return _list.remove(index);
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        _list.clear();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return _list.iterator();
+    }
+
+    @Override
+    public void close() {
+        if (_list instanceof Closeable) {
+            FileHelper.safeClose(_list);
+        }
+    }
+}
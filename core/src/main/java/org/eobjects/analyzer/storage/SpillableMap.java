@@ -0,0 +1,124 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.Closeable;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.metamodel.util.FileHelper;
+
+/**
+ * A {@link Map} which starts out as a {@link HashMap} on the heap and which is
+ * migrated to a disk-backed {@link StorageProvider} when requested.
+ * 
+ * @param <K>
+ * @param <V>
+ */
+final class SpillableMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Spillable, Closeable {
+
+    private final Class<K> _keyType;
+    private final Class<V> _valueType;
+    private final SpillSupport _spillSupport;
+    private Map<K, V> _map;
+
+    public SpillableMap(Class<K> keyType, Class<V> valueType, StorageProvider spillStorageProvider) {
+        _keyType = keyType;
+        _valueType = valueType;
+        _spillSupport = new SpillSupport(spillStorageProvider, "Map<" + keyType.getSimpleName() + ","
+                + valueType.getSimpleName() + ">");
+        _map = new HashMap<K, V>();
+    }
+
+    private void spillIfRequested() {
+        if (!_spillSupport.isSpillRequested()) {
+            return;
+        }
+        try {
+            final Map<K, V> map = _spillSupport.getStorageProvider().createMap(_keyType, _valueType);
+            map.putAll(_map);
+            _map = map;
+        } catch (RuntimeException e) {
+            _spillSupport.onSpillFailed(e);
+            return;
+        }
+        _spillSupport.onSpilled(_map.size());
+    }
+
+    @Override
+    public SpillSupport getSpillSupport() {
+        return _spillSupport;
+    }
+
+    @Override
+    public boolean isSpilled() {
+        return _spillSupport.isSpilled();
+    }
+
+    @Override
+    public void addSpillListener(CollectionSpillListener listener) {
+        _spillSupport.addListener(listener);
+    }
+
+    @Override
+    public int size() {
+        return _map.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return _map.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        return _map.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        spillIfRequested();
+        return _map.put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return _map.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        _map.clear();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return _map.entrySet();
+    }
+
+    @Override
+    public void close() {
+        if (_map instanceof Closeable) {
+            FileHelper.safeClose(_map);
+        }
+    }
+}
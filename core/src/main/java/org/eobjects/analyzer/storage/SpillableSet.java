@@ -0,0 +1,115 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.Closeable;
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.metamodel.util.FileHelper;
+
+/**
+ * A {@link Set} which starts out as a {@link HashSet} on the heap and which is
+ * migrated to a disk-backed {@link StorageProvider} when requested.
+ * 
+ * @param <E>
+ */
+final class SpillableSet<E> extends AbstractSet<E> implements Set<E>, Spillable, Closeable {
+
+    private final Class<E> _valueType;
+    private final SpillSupport _spillSupport;
+    private Set<E> _set;
+
+    public SpillableSet(Class<E> valueType, StorageProvider spillStorageProvider) {
+        _valueType = valueType;
+        _spillSupport = new SpillSupport(spillStorageProvider, "Set<" + valueType.getSimpleName() + ">");
+        _set = new HashSet<E>();
+    }
+
+    private void spillIfRequested() {
+        if (!_spillSupport.isSpillRequested()) {
+            return;
+        }
+        try {
+            final Set<E> set = _spillSupport.getStorageProvider().createSet(_valueType);
+            set.addAll(_set);
+            _set = set;
+        } catch (RuntimeException e) {
+            _spillSupport.onSpillFailed(e);
+            return;
+        }
+        _spillSupport.onSpilled(_set.size());
+    }
+
+    @Override
+    public SpillSupport getSpillSupport() {
+        return _spillSupport;
+    }
+
+    @Override
+    public boolean isSpilled() {
+        return _spillSupport.isSpilled();
+    }
+
+    @Override
+    public void addSpillListener(CollectionSpillListener listener) {
+        _spillSupport.addListener(listener);
+    }
+
+    @Override
+    public int size() {
+        return _set.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return _set.contains(o);
+    }
+
+    @Override
+    public boolean add(E e) {
+        spillIfRequested();
+        return _set.add(e);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return _set.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        _set.clear();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return _set.iterator();
+    }
+
+    @Override
+    public void close() {
+        if (_set instanceof Closeable) {
+            FileHelper.safeClose(_set);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util;
+
+/**
+ * An open addressing (linear probing) hash map from primitive long keys to
+ * primitive long values. Used to keep track of eg. row ids, row locations or
+ * value counts without boxing the keys or values.
+ * 
+ * The map can also be used as a set of longs (or ints), see
+ * {@link #add(long)}. The values are only allocated once a value is put into
+ * the map, so a set does not hold memory for them.
+ * 
+ * The slots of the map can be iterated using {@link #getCapacity()},
+ * {@link #isUsed(int)}, {@link #getKeyAt(int)} and {@link #getValueAt(int)}.
+ * 
+ * Like the java.util collections, the map is not thread-safe.
+ */
+public final class LongHashMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] _keys;
+    private long[] _values;
+    private boolean[] _used;
+    private int _size;
+    private int _threshold;
+
+    public LongHashMap() {
+        this(0);
+    }
+
+    /**
+     * Creates a map with room for a number of keys before it needs to grow.
+     * 
+     * @param expectedSize
+     */
+    public LongHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity = capacity << 1;
+        }
+        allocate(capacity, false);
+    }
+
+    private void allocate(int capacity, boolean values) {
+        _keys = new long[capacity];
+        _values = (values ? new long[capacity] : null);
+        _used = new boolean[capacity];
+        _threshold = capacity * 3 / 4;
+    }
+
+    /**
+     * Adds a key (with a value of 0) if it is not already in the map.
+     * 
+     * @param key
+     * @return true if the key was added, false if it was already in the map
+     */
+    public boolean add(long key) {
+        final int slot = findSlot(key);
+        if (_used[slot]) {
+            return false;
+        }
+        insert(slot, key, 0);
+        return true;
+    }
+
+    public boolean containsKey(long key) {
+        return _used[findSlot(key)];
+    }
+
+    /**
+     * Gets the value of a key.
+     * 
+     * @param key
+     * @param defaultValue
+     *            the value to return if the key is not in the map
+     * @return
+     */
+    public long get(long key, long defaultValue) {
+        final int slot = findSlot(key);
+        if (!_used[slot]) {
+            return defaultValue;
+        }
+        return (_values == null ? 0 : _values[slot]);
+    }
+
+    /**
+     * Sets the value of a key.
+     * 
+     * @param key
+     * @param value
+     * @return true if the key was added, false if it was already in the map
+     */
+    public boolean put(long key, long value) {
+        final int slot = findSlot(key);
+        if (_used[slot]) {
+            getValues()[slot] = value;
+            return false;
+        }
+        insert(slot, key, value);
+        return true;
+    }
+
+    /**
+     * Adds to the value of a key, eg. to count occurrences of keys. Keys that
+     * are not in the map start out with a value of 0.
+     * 
+     * @param key
+     * @param delta
+     * @return the new value of the key
+     */
+    public long addTo(long key, long delta) {
+        final int slot = findSlot(key);
+        if (_used[slot]) {
+            final long[] values = getValues();
+            values[slot] += delta;
+            return values[slot];
+        }
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    /**
+     * @return the number of keys in the map
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * @return the number of slots in the map
+     */
+    public int getCapacity() {
+        return _keys.length;
+    }
+
+    public boolean isUsed(int slot) {
+        return _used[slot];
+    }
+
+    public long getKeyAt(int slot) {
+        return _keys[slot];
+    }
+
+    public long getValueAt(int slot) {
+        return (_values == null ? 0 : _values[slot]);
+    }
+
+    private long[] getValues() {
+        if (_values == null) {
+            _values = new long[_keys.length];
+        }
+        return _values;
+    }
+
+    private void insert(int slot, long key, long value) {
+        _keys[slot] = key;
+        _used[slot] = true;
+        if (value != 0) {
+            getValues()[slot] = value;
+        }
+        _size++;
+        if (_size > _threshold) {
+            grow();
+        }
+    }
+
+    private int findSlot(long key) {
+        final int mask = _keys.length - 1;
+        int slot = hash(key) & mask;
+        while (_used[slot] && _keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        final long[] keys = _keys;
+        final long[] values = _values;
+        final boolean[] used = _used;
+        allocate(keys.length * 2, values != null);
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                final int slot = findSlot(keys[i]);
+                _keys[slot] = keys[i];
+                _used[slot] = true;
+                if (values != null) {
+                    _values[slot] = values[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a key (using the murmur3 finalizer), so that
+     * sequential keys, such as row ids, are spread over a hash table.
+     * 
+     * @param key
+     * @return
+     */
+    public static int hash(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
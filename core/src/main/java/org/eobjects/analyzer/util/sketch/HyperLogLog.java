@@ -0,0 +1,212 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sketch;
+
+import java.io.Serializable;
+
+/**
+ * A HyperLogLog cardinality estimator. Estimates the number of distinct values
+ * that have been added, using a fixed amount of memory (2^precision bytes).
+ * 
+ * The relative standard error of the estimate is approximately
+ * 1.04/sqrt(2^precision), see {@link #getRelativeStandardError()}.
+ * 
+ * Two estimators with the same precision can be merged, which yields the same
+ * estimator as if all values had been added to a single instance. This makes
+ * it suitable for distributed and partitioned execution.
+ * 
+ * This class is not thread-safe.
+ */
+public final class HyperLogLog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final int _precision;
+    private final byte[] _registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * 
+     * @param precision
+     *            the number of bits used to select a register. The number of
+     *            registers (and bytes of memory) will be 2^precision.
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and "
+                    + MAX_PRECISION + ", got: " + precision);
+        }
+        _precision = precision;
+        _registers = new byte[1 << precision];
+    }
+
+    /**
+     * Copy constructor
+     * 
+     * @param hyperLogLog
+     */
+    public HyperLogLog(HyperLogLog hyperLogLog) {
+        _precision = hyperLogLog._precision;
+        _registers = hyperLogLog._registers.clone();
+    }
+
+    /**
+     * Adds a value to the estimator. Values are identified by their string
+     * representation.
+     * 
+     * @param value
+     */
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    /**
+     * Adds a 64 bit hash of a value to the estimator.
+     * 
+     * @param hash
+     */
+    public void addHash(long hash) {
+        final int index = (int) (hash >>> (64 - _precision));
+        // the remaining bits, with a sentinel bit to bound the rank
+        final long remaining = (hash << _precision) | (1L << (_precision - 1));
+        final byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > _registers[index]) {
+            _registers[index] = rank;
+        }
+    }
+
+    /**
+     * Merges another estimator into this one.
+     * 
+     * @param other
+     * @throws IllegalArgumentException
+     *             if the other estimator has a different precision
+     */
+    public void merge(HyperLogLog other) throws IllegalArgumentException {
+        if (other._precision != _precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog with precision " + other._precision
+                    + " into HyperLogLog with precision " + _precision);
+        }
+        final byte[] otherRegisters = other._registers;
+        for (int i = 0; i < _registers.length; i++) {
+            if (otherRegisters[i] > _registers[i]) {
+                _registers[i] = otherRegisters[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the estimated number of distinct values added.
+     * 
+     * @return
+     */
+    public long estimate() {
+        final int m = _registers.length;
+        double sum = 0;
+        int zeroRegisters = 0;
+        for (int i = 0; i < m; i++) {
+            final byte register = _registers[i];
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+
+        final double estimate = getAlpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeroRegisters > 0) {
+            // small range correction: linear counting
+            return Math.round(m * Math.log((double) m / zeroRegisters));
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return _precision;
+    }
+
+    /**
+     * Gets the relative standard error of {@link #estimate()}. Roughly 65% of
+     * estimates will be within this error and 95% within twice this error.
+     * 
+     * @return
+     */
+    public double getRelativeStandardError() {
+        return getRelativeStandardError(_precision);
+    }
+
+    /**
+     * Gets the relative standard error of a HyperLogLog estimator with a
+     * particular precision.
+     * 
+     * @param precision
+     * @return
+     */
+    public static double getRelativeStandardError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    /**
+     * Computes a 64 bit hash of a string. The hash is stable across JVMs, so
+     * that estimators built on different machines can be merged.
+     * 
+     * @param value
+     * @return
+     */
+    public static long hash(String value) {
+        // FNV-1a over the characters, finalized with the MurmurHash3 mixer
+        long h = 0xcbf29ce484222325L;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static double getAlpha(int m) {
+        switch (m) {
+        case 16:
+            return 0.673;
+        case 32:
+            return 0.697;
+        case 64:
+            return 0.709;
+        default:
+            return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HyperLogLog[precision=" + _precision + ",estimate=" + estimate() + "]";
+    }
+}
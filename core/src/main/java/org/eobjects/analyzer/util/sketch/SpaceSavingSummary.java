@@ -0,0 +1,306 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sketch;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A Space-Saving summary of the most frequent values in a stream. The summary
+ * keeps a fixed number of counters. When a value that is not monitored arrives
+ * and all counters are in use, the counter with the lowest count is taken over
+ * by the new value, and the count of the evicted value is recorded as the
+ * (maximum) error of the new counter.
+ * 
+ * The counts of monitored values are never underestimated, and overestimated by
+ * at most {@link #getMaxError()}, which is bounded by total count / capacity.
+ * Every value with a true count above {@link #getMaxError()} is guaranteed to
+ * be monitored.
+ * 
+ * Summaries with the same capacity can be merged, keeping the same error
+ * guarantees.
+ * 
+ * This class is not thread-safe.
+ */
+public final class SpaceSavingSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * A monitored value and its (approximate) count.
+     */
+    public static final class Counter implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String _value;
+        private final long _id;
+        private long _count;
+        private long _error;
+
+        private Counter(String value, long id, long count, long error) {
+            _value = value;
+            _id = id;
+            _count = count;
+            _error = error;
+        }
+
+        public String getValue() {
+            return _value;
+        }
+
+        /**
+         * Gets the counted number of occurrences, which may overestimate the
+         * true count by at most {@link #getError()}.
+         * 
+         * @return
+         */
+        public long getCount() {
+            return _count;
+        }
+
+        /**
+         * Gets the maximum overestimation of {@link #getCount()}.
+         * 
+         * @return
+         */
+        public long getError() {
+            return _error;
+        }
+
+        /**
+         * Gets the number of occurrences that the value is guaranteed to have.
+         * 
+         * @return
+         */
+        public long getGuaranteedCount() {
+            return _count - _error;
+        }
+
+        @Override
+        public String toString() {
+            return "Counter[value=" + _value + ",count=" + _count + ",error=" + _error + "]";
+        }
+    }
+
+    private static final class CounterComparator implements Comparator<Counter>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(Counter o1, Counter o2) {
+            if (o1._count != o2._count) {
+                return o1._count < o2._count ? -1 : 1;
+            }
+            if (o1._id != o2._id) {
+                return o1._id < o2._id ? -1 : 1;
+            }
+            return 0;
+        }
+    }
+
+    private final int _capacity;
+    private final Map<String, Counter> _counters;
+    private final TreeSet<Counter> _orderedCounters;
+    private long _totalCount;
+    private long _nextId;
+
+    public SpaceSavingSummary() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 
+     * @param capacity
+     *            the number of values to monitor
+     */
+    public SpaceSavingSummary(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be a positive integer");
+        }
+        _capacity = capacity;
+        _counters = new HashMap<String, Counter>();
+        _orderedCounters = new TreeSet<Counter>(new CounterComparator());
+    }
+
+    /**
+     * Copy constructor
+     * 
+     * @param summary
+     */
+    public SpaceSavingSummary(SpaceSavingSummary summary) {
+        this(summary._capacity);
+        for (Counter counter : summary._orderedCounters) {
+            addCounter(counter._value, counter._count, counter._error);
+        }
+        _totalCount = summary._totalCount;
+    }
+
+    /**
+     * Adds a number of occurrences of a value to the summary
+     * 
+     * @param value
+     * @param count
+     */
+    public void add(String value, long count) {
+        if (count <= 0) {
+            return;
+        }
+        _totalCount += count;
+
+        final Counter counter = _counters.get(value);
+        if (counter != null) {
+            _orderedCounters.remove(counter);
+            counter._count += count;
+            _orderedCounters.add(counter);
+        } else if (_counters.size() < _capacity) {
+            addCounter(value, count, 0);
+        } else {
+            final Counter evicted = _orderedCounters.pollFirst();
+            _counters.remove(evicted._value);
+            addCounter(value, evicted._count + count, evicted._count);
+        }
+    }
+
+    /**
+     * Merges another summary into this one.
+     * 
+     * @param other
+     * @throws IllegalArgumentException
+     *             if the other summary has a different capacity
+     */
+    public void merge(SpaceSavingSummary other) throws IllegalArgumentException {
+        if (other._capacity != _capacity) {
+            throw new IllegalArgumentException("Cannot merge summary with capacity " + other._capacity
+                    + " into summary with capacity " + _capacity);
+        }
+
+        // values that are not monitored in a full summary may have occurred up
+        // to the minimum count of that summary
+        final long thisMinimum = getMaxError();
+        final long otherMinimum = other.getMaxError();
+
+        final List<Counter> merged = new ArrayList<Counter>(_counters.size() + other._counters.size());
+        for (Counter counter : _counters.values()) {
+            final Counter otherCounter = other._counters.get(counter._value);
+            if (otherCounter == null) {
+                merged.add(new Counter(counter._value, 0, counter._count + otherMinimum, counter._error
+                        + otherMinimum));
+            } else {
+                merged.add(new Counter(counter._value, 0, counter._count + otherCounter._count, counter._error
+                        + otherCounter._error));
+            }
+        }
+        for (Counter otherCounter : other._counters.values()) {
+            if (!_counters.containsKey(otherCounter._value)) {
+                merged.add(new Counter(otherCounter._value, 0, otherCounter._count + thisMinimum,
+                        otherCounter._error + thisMinimum));
+            }
+        }
+
+        Collections.sort(merged, Collections.reverseOrder(new CounterComparator()));
+
+        _counters.clear();
+        _orderedCounters.clear();
+        final int size = Math.min(_capacity, merged.size());
+        for (int i = 0; i < size; i++) {
+            final Counter counter = merged.get(i);
+            addCounter(counter._value, counter._count, counter._error);
+        }
+        _totalCount += other._totalCount;
+    }
+
+    /**
+     * Gets the most frequent monitored values, ordered by descending count.
+     * 
+     * @param n
+     *            the max number of values to return
+     * @return
+     */
+    public List<Counter> getTopCounters(int n) {
+        final List<Counter> result = new ArrayList<Counter>(Math.min(n, _counters.size()));
+        final Iterator<Counter> it = _orderedCounters.descendingIterator();
+        while (it.hasNext() && result.size() < n) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    /**
+     * Gets the counter of a particular value, if it is monitored.
+     * 
+     * @param value
+     * @return the counter, or null if the value is not monitored
+     */
+    public Counter getCounter(String value) {
+        return _counters.get(value);
+    }
+
+    /**
+     * Gets the maximum overestimation of any count in this summary. This is
+     * also an upper bound for the true count of values that are not monitored.
+     * 
+     * @return
+     */
+    public long getMaxError() {
+        if (_counters.size() < _capacity) {
+            return 0;
+        }
+        return _orderedCounters.first()._count;
+    }
+
+    public long getTotalCount() {
+        return _totalCount;
+    }
+
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * Gets the number of values currently monitored
+     * 
+     * @return
+     */
+    public int size() {
+        return _counters.size();
+    }
+
+    private void addCounter(String value, long count, long error) {
+        final Counter counter = new Counter(value, _nextId++, count, error);
+        _counters.put(value, counter);
+        _orderedCounters.add(counter);
+    }
+
+    @Override
+    public String toString() {
+        return "SpaceSavingSummary[capacity=" + _capacity + ",size=" + _counters.size() + ",totalCount="
+                + _totalCount + "]";
+    }
+}
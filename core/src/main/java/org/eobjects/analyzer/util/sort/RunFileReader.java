@@ -0,0 +1,100 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a run file written by a {@link RunFileWriter}, one record at a time.
+ */
+final class RunFileReader<R> implements Closeable {
+
+    private final SortKeyCodec<R> _codec;
+    private final DataInputStream _in;
+    private final int _index;
+    private R _row;
+    private int _count;
+
+    /**
+     * 
+     * @param file
+     * @param codec
+     * @param compressed
+     * @param index
+     *            the index of the run, used to break ties when merging
+     * @throws IOException
+     */
+    @SuppressWarnings("resource")
+    public RunFileReader(File file, SortKeyCodec<R> codec, boolean compressed, int index) throws IOException {
+        _codec = codec;
+        _index = index;
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        InputStream in = Channels.newInputStream(channel);
+        if (compressed) {
+            in = new GZIPInputStream(in, RunFileWriter.BUFFER_SIZE);
+        }
+        _in = new DataInputStream(new BufferedInputStream(in, RunFileWriter.BUFFER_SIZE));
+    }
+
+    /**
+     * Advances to the next record of the run.
+     * 
+     * @return true if a record was read, or false if the end of the run was
+     *         reached
+     * @throws IOException
+     */
+    public boolean next() throws IOException {
+        final int count = _in.readInt();
+        if (count < 0) {
+            _row = null;
+            _count = 0;
+            return false;
+        }
+        _count = count;
+        _row = _codec.read(_in);
+        return true;
+    }
+
+    public R getRow() {
+        return _row;
+    }
+
+    public int getCount() {
+        return _count;
+    }
+
+    public int getIndex() {
+        return _index;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _in.close();
+    }
+}
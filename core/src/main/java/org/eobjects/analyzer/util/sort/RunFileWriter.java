@@ -0,0 +1,85 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a sorted run of rows and their counts to a temporary file of a
+ * {@link SortMerger}.
+ * 
+ * Each record consists of the count (a positive int) followed by the row, as
+ * encoded by a {@link SortKeyCodec}. The run is terminated by a negative count.
+ */
+final class RunFileWriter<R> implements Closeable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int END_OF_RUN = -1;
+
+    private final SortKeyCodec<R> _codec;
+    private final DataOutputStream _out;
+    private int _recordCount;
+
+    @SuppressWarnings("resource")
+    public RunFileWriter(File file, SortKeyCodec<R> codec, boolean compressed) throws IOException {
+        _codec = codec;
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream out = Channels.newOutputStream(channel);
+        if (compressed) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    // favour speed, run files are short-lived
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        }
+        _out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+    }
+
+    public void write(R row, int count) throws IOException {
+        _out.writeInt(count);
+        _codec.write(_out, row);
+        _recordCount++;
+    }
+
+    public int getRecordCount() {
+        return _recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            _out.writeInt(END_OF_RUN);
+        } finally {
+            _out.close();
+        }
+    }
+}
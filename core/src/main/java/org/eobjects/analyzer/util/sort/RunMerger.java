@@ -0,0 +1,126 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.metamodel.util.FileHelper;
+
+/**
+ * Merges a number of sorted run files into a single sorted and deduplicated
+ * sequence of rows, using a heap of {@link RunFileReader}s.
+ */
+final class RunMerger<R> implements Closeable {
+
+    private final Comparator<? super R> _comparator;
+    private final List<RunFileReader<R>> _runReaders;
+    private final PriorityQueue<RunFileReader<R>> _heap;
+    private R _row;
+    private int _count;
+
+    public RunMerger(List<File> runFiles, SortKeyCodec<R> codec, boolean compressed,
+            final Comparator<? super R> comparator) throws IOException {
+        _comparator = comparator;
+        _runReaders = new ArrayList<RunFileReader<R>>(runFiles.size());
+        _heap = new PriorityQueue<RunFileReader<R>>(Math.max(1, runFiles.size()),
+                new Comparator<RunFileReader<R>>() {
+                    @Override
+                    public int compare(RunFileReader<R> o1, RunFileReader<R> o2) {
+                        final int diff = comparator.compare(o1.getRow(), o2.getRow());
+                        if (diff == 0) {
+                            return o1.getIndex() - o2.getIndex();
+                        }
+                        return diff;
+                    }
+                });
+
+        try {
+            for (int i = 0; i < runFiles.size(); i++) {
+                final RunFileReader<R> runReader = new RunFileReader<R>(runFiles.get(i), codec, compressed, i);
+                _runReaders.add(runReader);
+                if (runReader.next()) {
+                    _heap.add(runReader);
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Advances to the next (distinct) row of the merged runs.
+     * 
+     * @return true if a row is available, or false if all runs have been
+     *         consumed
+     * @throws IOException
+     */
+    public boolean next() throws IOException {
+        if (_heap.isEmpty()) {
+            _row = null;
+            _count = 0;
+            return false;
+        }
+
+        RunFileReader<R> runReader = _heap.poll();
+        final R row = runReader.getRow();
+        int count = runReader.getCount();
+        advance(runReader);
+
+        // sum up the counts of the same row in other runs
+        while (!_heap.isEmpty() && _comparator.compare(_heap.peek().getRow(), row) == 0) {
+            runReader = _heap.poll();
+            count += runReader.getCount();
+            advance(runReader);
+        }
+
+        _row = row;
+        _count = count;
+        return true;
+    }
+
+    private void advance(RunFileReader<R> runReader) throws IOException {
+        if (runReader.next()) {
+            _heap.add(runReader);
+        }
+    }
+
+    public R getRow() {
+        return _row;
+    }
+
+    public int getCount() {
+        return _count;
+    }
+
+    @Override
+    public void close() {
+        for (RunFileReader<R> runReader : _runReaders) {
+            FileHelper.safeClose(runReader);
+        }
+        _heap.clear();
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * {@link SortKeyCodec} for any {@link Serializable} row type, which writes
+ * length-prefixed, java-serialized bytes. This is the default codec of the
+ * {@link SortMerger}, but for well known row types a dedicated codec (eg.
+ * {@link StringKeyCodec}) will be a lot faster and more compact.
+ * 
+ * @param <R>
+ */
+public class SerializableKeyCodec<R extends Serializable> implements SortKeyCodec<R> {
+
+    @Override
+    public void write(DataOutput out, R row) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(row);
+        }
+        final byte[] bytes = baos.toByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public R read(DataInput in) throws IOException {
+        final int length = in.readInt();
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            @SuppressWarnings("unchecked")
+            final R row = (R) ois.readObject();
+            return row;
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+import java.util.Comparator;
+
+/**
+ * Unsorted, array-based buffer of rows and counts, used by the
+ * {@link SortMerger}. Appending is a constant time operation; sorting and
+ * deduplication is deferred until the buffer has room for twice the max
+ * number of rows, or until {@link #sortAndDeduplicate()} is invoked. The
+ * buffer is full when it holds the max number of distinct rows, so input with
+ * many duplicates does not fill it up.
+ */
+final class SortBuffer<R> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final int _maxSize;
+    private final int _maxCapacity;
+    private final Comparator<? super R> _comparator;
+    private Object[] _rows;
+    private int[] _counts;
+    private int _size;
+    private boolean _sorted;
+
+    /**
+     * 
+     * @param maxSize
+     *            the max number of distinct rows in the buffer
+     * @param comparator
+     *            comparator for row sorting and deduplication
+     */
+    public SortBuffer(int maxSize, Comparator<? super R> comparator) {
+        _maxSize = maxSize;
+        _maxCapacity = (int) Math.min(Integer.MAX_VALUE - 8, maxSize * 2L);
+        _comparator = comparator;
+        final int capacity = Math.min(_maxCapacity, INITIAL_CAPACITY);
+        _rows = new Object[capacity];
+        _counts = new int[capacity];
+        _sorted = true;
+    }
+
+    /**
+     * Determines if the buffer holds the max number of distinct rows. When the
+     * buffer has reached it's capacity, it is deduplicated first, to count the
+     * distinct rows.
+     * 
+     * @return
+     */
+    public boolean isFull() {
+        if (_size < _maxCapacity) {
+            return false;
+        }
+        sortAndDeduplicate();
+        return _size >= _maxSize;
+    }
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    public void add(R row, int count) {
+        if (_size == _rows.length) {
+            final int capacity = (int) Math.min(_maxCapacity, _rows.length * 2L);
+            final Object[] rows = new Object[capacity];
+            final int[] counts = new int[capacity];
+            System.arraycopy(_rows, 0, rows, 0, _size);
+            System.arraycopy(_counts, 0, counts, 0, _size);
+            _rows = rows;
+            _counts = counts;
+        }
+        _rows[_size] = row;
+        _counts[_size] = count;
+        _size++;
+        _sorted = false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public R getRow(int index) {
+        return (R) _rows[index];
+    }
+
+    public int getCount(int index) {
+        return _counts[index];
+    }
+
+    /**
+     * Sorts the buffer and merges rows that are equal according to the
+     * comparator, summing up their counts.
+     */
+    public void sortAndDeduplicate() {
+        if (_sorted) {
+            return;
+        }
+        final Comparator<? super R> comparator = _comparator;
+        sort(comparator, 0, _size - 1);
+
+        int distinct = 0;
+        for (int i = 1; i < _size; i++) {
+            if (comparator.compare(getRow(distinct), getRow(i)) == 0) {
+                _counts[distinct] += _counts[i];
+            } else {
+                distinct++;
+                _rows[distinct] = _rows[i];
+                _counts[distinct] = _counts[i];
+            }
+        }
+        for (int i = distinct + 1; i < _size; i++) {
+            _rows[i] = null;
+        }
+        _size = distinct + 1;
+        _sorted = true;
+    }
+
+    /**
+     * Three-way quicksort of the parallel row and count arrays. Three-way
+     * partitioning makes ranges of equal rows (duplicates) cheap.
+     */
+    private void sort(Comparator<? super R> comparator, int low, int high) {
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            final int middle = (low + high) >>> 1;
+            // median of three
+            if (comparator.compare(getRow(middle), getRow(low)) < 0) {
+                swap(middle, low);
+            }
+            if (comparator.compare(getRow(high), getRow(low)) < 0) {
+                swap(high, low);
+            }
+            if (comparator.compare(getRow(high), getRow(middle)) < 0) {
+                swap(high, middle);
+            }
+            final R pivot = getRow(middle);
+
+            int lt = low;
+            int gt = high;
+            int i = low;
+            while (i <= gt) {
+                final int diff = comparator.compare(getRow(i), pivot);
+                if (diff < 0) {
+                    swap(lt++, i++);
+                } else if (diff > 0) {
+                    swap(i, gt--);
+                } else {
+                    i++;
+                }
+            }
+
+            // recurse into the smaller part, loop on the larger part
+            if (lt - low < high - gt) {
+                sort(comparator, low, lt - 1);
+                low = gt + 1;
+            } else {
+                sort(comparator, gt + 1, high);
+                high = lt - 1;
+            }
+        }
+
+        // insertion sort for small ranges
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && comparator.compare(getRow(j), getRow(j - 1)) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        final Object row = _rows[i];
+        _rows[i] = _rows[j];
+        _rows[j] = row;
+        final int count = _counts[i];
+        _counts[i] = _counts[j];
+        _counts[j] = count;
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes and decodes the rows of a {@link SortMerger} to and from its
+ * temporary run files.
+ * 
+ * @param <R>
+ *            the row type
+ */
+public interface SortKeyCodec<R> {
+
+    /**
+     * Writes a (non-null) row to a run file
+     * 
+     * @param out
+     * @param row
+     * @throws IOException
+     */
+    public void write(DataOutput out, R row) throws IOException;
+
+    /**
+     * Reads a row, previously written by {@link #write(DataOutput, Object)},
+     * from a run file
+     * 
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public R read(DataInput in) throws IOException;
+}
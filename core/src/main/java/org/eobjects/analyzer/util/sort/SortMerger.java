@@ -0,0 +1,407 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.metamodel.util.FileHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sorter and deduplicator that uses temporary files as storage to support high
+ * volume sorted data.
+ * 
+ * Appended rows are collected in an unsorted in-memory buffer, which is
+ * deduplicated as it fills up. When the buffer holds the max number of
+ * distinct rows, it is sorted and written to a temporary "run" file in a
+ * compact binary format, using a {@link SortKeyCodec} to encode the rows.
+ * Optionally this is done by a background thread, while appending continues
+ * into a fresh buffer, see {@link #setBackgroundFlush(boolean)}. When merging the final result, the runs are merged using a
+ * heap, so that each row costs O(log(runs)) comparisons. If there are more runs
+ * than the max fan-in, groups of runs are first merged into intermediate runs,
+ * to limit the number of simultaneously open files.
+ * 
+ * The merged rows are passed to a {@link SortedRowHandler}. Use
+ * {@link SortMergeWriter} to write them to a file instead.
+ * 
+ * Note: This class is NOT thread-safe.
+ * 
+ * @param <R>
+ *            the row type, HAS to be serializable
+ */
+public class SortMerger<R extends Serializable> implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SortMerger.class);
+
+    public static final int DEFAULT_MAX_FAN_IN = 128;
+
+    private static final long FLUSH_THREAD_KEEP_ALIVE_SECONDS = 10;
+
+    private static final ThreadFactory FLUSH_THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "SortMerger-flush");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    /**
+     * Max number of distinct rows in the "records in memory" buffer
+     */
+    private final int _bufferSize;
+
+    /**
+     * Comparator for row sorting
+     */
+    private final Comparator<? super R> _comparator;
+
+    /**
+     * Codec for writing and reading rows to/from the temporary files
+     */
+    private final SortKeyCodec<R> _codec;
+
+    /**
+     * Whether or not to compress the temporary files
+     */
+    private final boolean _compressTempFiles;
+
+    /**
+     * List of temporary files containing values
+     */
+    private final List<File> _tempFiles;
+
+    /**
+     * Buffer containing (unsorted) rows in memory
+     */
+    private SortBuffer<R> _buffer;
+    private int _nullCount;
+
+    private int _maxFanIn = DEFAULT_MAX_FAN_IN;
+    private boolean _backgroundFlush = false;
+    private ExecutorService _flushExecutor;
+    private Future<Void> _pendingFlush;
+
+    public SortMerger(Comparator<? super R> comparator) {
+        this(50000, comparator);
+    }
+
+    public SortMerger(int bufferSize, Comparator<? super R> comparator) {
+        this(bufferSize, comparator, new SerializableKeyCodec<R>(), false);
+    }
+
+    /**
+     * 
+     * @param bufferSize
+     *            the number of distinct rows to keep in memory before writing
+     *            them to a temporary file
+     * @param comparator
+     *            comparator for row sorting
+     * @param codec
+     *            codec for writing rows to the temporary files
+     * @param compressTempFiles
+     *            whether or not to compress the temporary files. Compression
+     *            costs CPU, but reduces disk I/O for large or repetitive rows.
+     */
+    public SortMerger(int bufferSize, Comparator<? super R> comparator, SortKeyCodec<R> codec,
+            boolean compressTempFiles) {
+        _bufferSize = bufferSize;
+        _tempFiles = new ArrayList<File>();
+        _buffer = new SortBuffer<R>(bufferSize, comparator);
+        _comparator = comparator;
+        _codec = codec;
+        _compressTempFiles = compressTempFiles;
+    }
+
+    public void append(R line) {
+        append(line, 1);
+    }
+
+    public void append(R line, int frequency) {
+        if (line == null) {
+            // special handling of null
+            _nullCount += frequency;
+        } else {
+            if (_buffer.isFull()) {
+                flushBuffer();
+            }
+            _buffer.add(line, frequency);
+        }
+    }
+
+    private void flushBuffer() {
+        logger.debug("flushBuffer()");
+
+        // only one buffer may be in flight at any time
+        awaitPendingFlush();
+
+        final File file;
+        try {
+            file = createTempFile();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        _tempFiles.add(file);
+
+        final SortBuffer<R> buffer = _buffer;
+        _buffer = new SortBuffer<R>(_bufferSize, _comparator);
+
+        if (_backgroundFlush) {
+            if (_flushExecutor == null) {
+                // the flush thread expires when idle, so that it is not leaked
+                // if the merger is never merged or closed
+                _flushExecutor = new ThreadPoolExecutor(0, 1, FLUSH_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), FLUSH_THREAD_FACTORY);
+            }
+            _pendingFlush = _flushExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    writeRun(file, buffer);
+                    return null;
+                }
+            });
+        } else {
+            try {
+                writeRun(file, buffer);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private void writeRun(File file, SortBuffer<R> buffer) throws IOException {
+        buffer.sortAndDeduplicate();
+        logger.info("Writing {} rows to temporary file: {}", buffer.size(), file);
+        final RunFileWriter<R> runWriter = new RunFileWriter<R>(file, _codec, _compressTempFiles);
+        try {
+            final int size = buffer.size();
+            for (int i = 0; i < size; i++) {
+                runWriter.write(buffer.getRow(i), buffer.getCount(i));
+            }
+        } finally {
+            runWriter.close();
+        }
+    }
+
+    private void awaitPendingFlush() {
+        if (_pendingFlush == null) {
+            return;
+        }
+        try {
+            _pendingFlush.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            _pendingFlush = null;
+        }
+    }
+
+    private void shutdownFlushExecutor() {
+        if (_flushExecutor != null) {
+            _flushExecutor.shutdown();
+            _flushExecutor = null;
+        }
+    }
+
+    /**
+     * Merges groups of temporary files until there are no more than the max
+     * fan-in left.
+     * 
+     * @throws IOException
+     */
+    private void mergeTempFilesToFanIn() throws IOException {
+        while (_tempFiles.size() > _maxFanIn) {
+            final List<File> runFiles = new ArrayList<File>(_tempFiles.subList(0, _maxFanIn));
+            final File mergedFile = createTempFile();
+            logger.info("Merging {} temporary files into temporary file: {}", runFiles.size(), mergedFile);
+
+            final RunMerger<R> merger = new RunMerger<R>(runFiles, _codec, _compressTempFiles, _comparator);
+            try {
+                final RunFileWriter<R> runWriter = new RunFileWriter<R>(mergedFile, _codec, _compressTempFiles);
+                try {
+                    while (merger.next()) {
+                        runWriter.write(merger.getRow(), merger.getCount());
+                    }
+                } finally {
+                    runWriter.close();
+                }
+            } finally {
+                merger.close();
+            }
+
+            _tempFiles.subList(0, _maxFanIn).clear();
+            _tempFiles.add(mergedFile);
+            deleteFiles(runFiles);
+        }
+    }
+
+    private void deleteFiles(List<File> files) {
+        for (File file : files) {
+            if (!file.delete()) {
+                logger.debug("Could not delete temporary file: {}", file);
+            }
+        }
+    }
+
+    /**
+     * Sets whether or not full buffers should be written to temporary files by
+     * a background thread, while appending continues into a new buffer. Note
+     * that this doubles the memory used for buffering rows. Defaults to false.
+     * 
+     * @param backgroundFlush
+     */
+    public void setBackgroundFlush(boolean backgroundFlush) {
+        _backgroundFlush = backgroundFlush;
+    }
+
+    /**
+     * Sets the max number of temporary files to merge at a time. Defaults to
+     * {@link #DEFAULT_MAX_FAN_IN}.
+     * 
+     * @param maxFanIn
+     */
+    public void setMaxFanIn(int maxFanIn) {
+        if (maxFanIn < 2) {
+            throw new IllegalArgumentException("Max fan-in must be at least 2");
+        }
+        _maxFanIn = maxFanIn;
+    }
+
+    protected File createTempFile() throws IOException {
+        return File.createTempFile("sort_merge", ".dat");
+    }
+
+    /**
+     * Should null rows (if any) be merged in the beginning or in the end of
+     * the sorted rows? Subclasses can overwrite this method to define that
+     * behaviour.
+     * 
+     * @return
+     */
+    protected boolean writeNullsFirst() {
+        return true;
+    }
+
+    /**
+     * Merges the sorted and deduplicated rows and passes them to a handler.
+     * Null rows are passed as a single null row along with their count.
+     * 
+     * @param handler
+     * @return the handled count of rows
+     */
+    public int merge(final SortedRowHandler<R> handler) {
+        RunMerger<R> merger = null;
+        try {
+            int rowCount = 0;
+
+            final boolean writeNullsFirst = writeNullsFirst();
+
+            if (_nullCount > 0 && writeNullsFirst) {
+                handler.handleRow(null, _nullCount);
+                rowCount++;
+            }
+
+            if (_tempFiles.isEmpty()) {
+                logger.info("No temp files created yet, passing buffer directly to handler");
+                _buffer.sortAndDeduplicate();
+                final int size = _buffer.size();
+                for (int i = 0; i < size; i++) {
+                    handler.handleRow(_buffer.getRow(i), _buffer.getCount(i));
+                    rowCount++;
+                }
+                _buffer = new SortBuffer<R>(_bufferSize, _comparator);
+
+                if (_nullCount > 0 && !writeNullsFirst) {
+                    handler.handleRow(null, _nullCount);
+                    rowCount++;
+                }
+
+                return rowCount;
+            }
+
+            if (!_buffer.isEmpty()) {
+                flushBuffer();
+            }
+
+            awaitPendingFlush();
+            mergeTempFilesToFanIn();
+
+            merger = new RunMerger<R>(_tempFiles, _codec, _compressTempFiles, _comparator);
+            while (merger.next()) {
+                handler.handleRow(merger.getRow(), merger.getCount());
+                rowCount++;
+            }
+
+            if (_nullCount > 0 && !writeNullsFirst) {
+                handler.handleRow(null, _nullCount);
+                rowCount++;
+            }
+
+            return rowCount;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            FileHelper.safeClose(merger);
+            shutdownFlushExecutor();
+        }
+    }
+
+    /**
+     * Deletes the temporary files of this sorter and clears the buffer.
+     */
+    @Override
+    public void close() {
+        try {
+            awaitPendingFlush();
+        } catch (IllegalStateException e) {
+            logger.debug("Flushing to temporary file failed while closing", e);
+        }
+        shutdownFlushExecutor();
+        deleteFiles(_tempFiles);
+        _tempFiles.clear();
+        _buffer = new SortBuffer<R>(_bufferSize, _comparator);
+        _nullCount = 0;
+    }
+
+    /**
+     * @return the number of temporary files that rows have been written to
+     */
+    public int getTempFileCount() {
+        return _tempFiles.size();
+    }
+}
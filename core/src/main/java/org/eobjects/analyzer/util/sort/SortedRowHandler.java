@@ -0,0 +1,40 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+/**
+ * Handles the sorted and deduplicated rows of a {@link SortMerger}.
+ * 
+ * @param <R>
+ *            the row type
+ */
+public interface SortedRowHandler<R> {
+
+    /**
+     * Handles a single sorted row
+     * 
+     * @param row
+     *            the row, or null for the null rows (if any)
+     * @param count
+     *            the number of times the row was appended
+     * @throws Exception
+     */
+    public void handleRow(R row, int count) throws Exception;
+}
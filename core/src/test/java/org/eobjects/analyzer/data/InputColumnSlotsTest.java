@@ -0,0 +1,51 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.data;
+
+import junit.framework.TestCase;
+
+public class InputColumnSlotsTest extends TestCase {
+
+	public void testGetSlot() throws Exception {
+		InputColumn<String> fooColumn = new MockInputColumn<String>("foo", String.class);
+		InputColumn<String> barColumn = new MockInputColumn<String>("bar", String.class);
+		InputColumn<String> bazColumn = new MockInputColumn<String>("baz", String.class);
+
+		InputColumnSlots slots = new InputColumnSlots(new InputColumn<?>[] { fooColumn, null, barColumn, fooColumn });
+		assertEquals(4, slots.size());
+		assertEquals(0, slots.getSlot(fooColumn));
+		assertEquals(2, slots.getSlot(barColumn));
+		assertEquals(-1, slots.getSlot(bazColumn));
+		assertNull(slots.getColumn(1));
+	}
+
+	public void testGetSlotOfColumnCompiledIntoAnotherLayout() throws Exception {
+		InputColumn<String> fooColumn = new MockInputColumn<String>("foo", String.class);
+		InputColumn<String> barColumn = new MockInputColumn<String>("bar", String.class);
+
+		InputColumnSlots slots1 = new InputColumnSlots(new InputColumn<?>[] { fooColumn, barColumn });
+		InputColumnSlots slots2 = new InputColumnSlots(new InputColumn<?>[] { barColumn, fooColumn });
+
+		assertEquals(0, slots1.getSlot(fooColumn));
+		assertEquals(1, slots1.getSlot(barColumn));
+		assertEquals(1, slots2.getSlot(fooColumn));
+		assertEquals(0, slots2.getSlot(barColumn));
+	}
+}
@@ -41,4 +41,24 @@ public class MetaModelInputRowTest extends TestCase {
 		assertTrue(row.containsInputColumn(new MetaModelInputColumn(new MutableColumn("bar"))));
 		assertFalse(row.containsInputColumn(new MetaModelInputColumn(new MutableColumn("baz"))));
 	}
+
+	public void testGetValueUsingSlots() throws Exception {
+		MutableColumn fooColumn = new MutableColumn("foo");
+		MutableColumn barColumn = new MutableColumn("bar");
+		SelectItem[] items = new SelectItem[] { new SelectItem(fooColumn), new SelectItem(barColumn) };
+		Object[] values = new Object[] { "baz", "qux" };
+
+		InputColumn<?> fooInputColumn = new MetaModelInputColumn(fooColumn);
+		InputColumn<?> barInputColumn = new MetaModelInputColumn(barColumn);
+
+		// only the "bar" column is in the layout
+		InputColumnSlots slots = new InputColumnSlots(new InputColumn<?>[] { null, barInputColumn });
+
+		DataSetHeader header = new SimpleDataSetHeader(items);
+		MetaModelInputRow row = new MetaModelInputRow(1, new DefaultRow(header, values), slots);
+
+		assertEquals("qux", row.getValue(barInputColumn));
+		assertEquals("qux", row.getValue(new MetaModelInputColumn(barColumn)));
+		assertEquals("baz", row.getValue(fooInputColumn));
+	}
 }
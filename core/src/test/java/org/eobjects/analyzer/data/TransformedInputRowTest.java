@@ -19,6 +19,10 @@
  */
 package org.eobjects.analyzer.data;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import org.apache.metamodel.data.DataSetHeader;
@@ -89,4 +93,84 @@ public class TransformedInputRowTest extends TestCase {
 		assertNull(row1.getValue(inputColumn3));
 		assertEquals("w", row2.getValue(inputColumn3));
 	}
+
+	public void testGetValueUsingSlots() throws Exception {
+		InputColumn<String> inputColumn1 = new MockInputColumn<String>("foo", String.class);
+		InputColumn<String> inputColumn2 = new MockInputColumn<String>("bar", String.class);
+		InputColumn<String> inputColumn3 = new MockInputColumn<String>("baz", String.class);
+		InputColumn<String> inputColumn4 = new MockInputColumn<String>("w", String.class);
+
+		List<InputColumn<?>> columns = new ArrayList<InputColumn<?>>();
+		columns.add(inputColumn1);
+		columns.add(inputColumn2);
+		columns.add(inputColumn3);
+		InputColumnSlots slots = new InputColumnSlots(columns);
+
+		TransformedInputRow row1 = new TransformedInputRow(new MockInputRow(), null, slots);
+		row1.addValue(inputColumn1, "f");
+		row1.addValue(inputColumn2, null);
+		assertEquals("f", row1.getValue(inputColumn1));
+		assertNull(row1.getValue(inputColumn2));
+		assertTrue(row1.containsInputColumn(inputColumn2));
+		assertFalse(row1.containsInputColumn(inputColumn3));
+
+		// a column outside of the layout
+		row1.addValue(inputColumn4, "w");
+		assertEquals("w", row1.getValue(inputColumn4));
+		assertEquals("[foo, bar, w]", getNames(row1.getTransformedInputColumns()));
+
+		TransformedInputRow row2 = new TransformedInputRow(row1, 42, slots);
+		row2.addValue(inputColumn3, "b");
+		assertEquals(42, row2.getId());
+		assertEquals("f", row2.getValue(inputColumn1));
+		assertEquals("b", row2.getValue(inputColumn3));
+		assertEquals("w", row2.getValue(inputColumn4));
+		assertNull(row1.getValue(inputColumn3));
+
+		// only values added to row2 itself are "transformed" columns of row2
+		assertEquals("[baz]", getNames(row2.getTransformedInputColumns()));
+
+		// a value added to a child frame shadows the value of the parent frame
+		TransformedInputRow row3 = new TransformedInputRow(row2, null, slots);
+		row3.addValue(inputColumn1, "f2");
+		assertEquals("f2", row3.getValue(inputColumn1));
+		assertEquals("b", row3.getValue(inputColumn3));
+		assertEquals("f", row2.getValue(inputColumn1));
+
+		// frames behind a row without the layout are reached by delegation
+		TransformedInputRow row4 = new TransformedInputRow(new TransformedInputRow(row3), null, slots);
+		assertEquals("f2", row4.getValue(inputColumn1));
+		assertTrue(row4.containsInputColumn(inputColumn3));
+		assertEquals("[]", getNames(row4.getTransformedInputColumns()));
+	}
+
+	public void testGetTransformedInputColumnsInAddedOrder() throws Exception {
+		InputColumn<String> inputColumn1 = new MockInputColumn<String>("foo", String.class);
+		InputColumn<String> inputColumn2 = new MockInputColumn<String>("bar", String.class);
+		InputColumn<String> inputColumn3 = new MockInputColumn<String>("w", String.class);
+
+		List<InputColumn<?>> columns = new ArrayList<InputColumn<?>>();
+		columns.add(inputColumn1);
+		columns.add(inputColumn2);
+		InputColumnSlots slots = new InputColumnSlots(columns);
+
+		TransformedInputRow row = new TransformedInputRow(new MockInputRow(), null, slots);
+		row.addValue(inputColumn2, "b");
+		row.addValue(inputColumn3, "w");
+		row.addValue(inputColumn1, "f");
+		row.addValue(inputColumn2, "b2");
+		row.addValue(inputColumn3, "w2");
+
+		assertEquals("[bar, w, foo]", getNames(row.getTransformedInputColumns()));
+		assertEquals("b2", row.getValue(inputColumn2));
+		assertEquals("w2", row.getValue(inputColumn3));
+	}
+
+	private String getNames(Collection<InputColumn<?>> columns) {
+		List<String> names = new ArrayList<String>();
+		for (InputColumn<?> column : columns) {
+			names.add(column.getName());
+		}
+		return names.toString();
+	}
 }
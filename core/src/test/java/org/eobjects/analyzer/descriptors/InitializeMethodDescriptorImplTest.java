@@ -23,6 +23,9 @@ import java.lang.reflect.Method;
 
 import junit.framework.TestCase;
 
+import org.eobjects.analyzer.beans.api.Close;
+import org.eobjects.analyzer.beans.api.Initialize;
+
 public class InitializeMethodDescriptorImplTest extends TestCase {
 
 	private boolean executed;
@@ -38,7 +41,28 @@ public class InitializeMethodDescriptorImplTest extends TestCase {
 		assertEquals("InitializeMethodDescriptorImpl[method=doInitialize]", initializeMethodDescriptorImpl.toString());
 	}
 
+	public void testIsDistributed() throws Exception {
+		Method m = getClass().getDeclaredMethod("doInitialize");
+		assertTrue(new InitializeMethodDescriptorImpl(m, null).isDistributed());
+
+		m = getClass().getDeclaredMethod("doInitializeOnce");
+		assertFalse(new InitializeMethodDescriptorImpl(m, null).isDistributed());
+
+		// the distributed property of @Close does not apply to initialization
+		m = getClass().getDeclaredMethod("doInitializeAndCloseOnce");
+		assertTrue(new InitializeMethodDescriptorImpl(m, null).isDistributed());
+	}
+
 	public void doInitialize() {
 		executed = true;
 	}
+
+	@Initialize(distributed = false)
+	public void doInitializeOnce() {
+	}
+
+	@Initialize
+	@Close(distributed = false)
+	public void doInitializeAndCloseOnce() {
+	}
 }
@@ -0,0 +1,137 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.concurrent;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfiguration;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfigurationImpl;
+import org.eobjects.analyzer.connection.Datastore;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.job.AnalysisJob;
+import org.eobjects.analyzer.job.builder.AnalysisJobBuilder;
+import org.eobjects.analyzer.job.runner.AnalysisResultFuture;
+import org.eobjects.analyzer.job.runner.AnalysisRunner;
+import org.eobjects.analyzer.job.runner.AnalysisRunnerImpl;
+import org.eobjects.analyzer.job.tasks.Task;
+import org.eobjects.analyzer.result.ListResult;
+import org.eobjects.analyzer.test.MockAnalyzer;
+import org.eobjects.analyzer.test.TestHelper;
+
+public class ForkJoinTaskRunnerTest extends TestCase {
+
+    public void testGetSettings() throws Exception {
+        final TaskRunnerSettings settings = new TaskRunnerSettings().setRowBatchSize(50).setScanPartitions(2);
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(settings);
+        try {
+            settings.setRowBatchSize(10);
+
+            final TaskRunnerSettings runnerSettings = taskRunner.getSettings();
+            assertEquals(Runtime.getRuntime().availableProcessors(), runnerSettings.getNumThreads());
+            assertEquals(50, runnerSettings.getRowBatchSize());
+            assertEquals(2, runnerSettings.getScanPartitions());
+
+            runnerSettings.setRowBatchSize(10);
+            assertEquals(50, taskRunner.getSettings().getRowBatchSize());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testRunNestedTasksAndAwait() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(4);
+        try {
+            final AtomicInteger counter = new AtomicInteger();
+            final int numTasks = 1000;
+            final Task leafTask = new Task() {
+                @Override
+                public void execute() throws Exception {
+                    counter.incrementAndGet();
+                }
+            };
+            final JoinTaskListener joinListener = new JoinTaskListener(numTasks, new TaskListener() {
+                @Override
+                public void onBegin(Task task) {
+                }
+
+                @Override
+                public void onComplete(Task task) {
+                }
+
+                @Override
+                public void onError(Task task, Throwable throwable) {
+                    fail(throwable.getMessage());
+                }
+            });
+
+            // a task which forks other tasks from within the pool
+            taskRunner.run(new Task() {
+                @Override
+                public void execute() throws Exception {
+                    for (int i = 0; i < numTasks; i++) {
+                        taskRunner.run(leafTask, joinListener);
+                    }
+                }
+            }, null);
+
+            while (counter.get() < numTasks) {
+                taskRunner.assistExecution();
+            }
+            assertEquals(numTasks, counter.get());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testRunJob() throws Throwable {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(new TaskRunnerSettings().setNumThreads(4)
+                .setRowBatchSize(10));
+        final AnalyzerBeansConfiguration configuration = new AnalyzerBeansConfigurationImpl().replace(taskRunner);
+
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("PUBLIC.ORDERFACT.STATUS", "PUBLIC.ORDERFACT.COMMENTS");
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        try {
+            final AnalysisRunner runner = new AnalysisRunnerImpl(configuration);
+            final AnalysisResultFuture resultFuture = runner.run(job);
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+
+            final List<InputRow> rows1 = ((ListResult<InputRow>) resultFuture.getResults().get(0)).getValues();
+            final List<InputRow> rows2 = ((ListResult<InputRow>) resultFuture.getResults().get(1)).getValues();
+            assertEquals(2996, rows1.size());
+            assertEquals(2996, rows2.size());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+}
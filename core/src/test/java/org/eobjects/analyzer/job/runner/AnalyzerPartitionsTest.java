@@ -0,0 +1,155 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.beans.api.Analyzer;
+import org.eobjects.analyzer.beans.api.AnalyzerBean;
+import org.eobjects.analyzer.beans.api.Close;
+import org.eobjects.analyzer.beans.api.Configured;
+import org.eobjects.analyzer.beans.api.Distributed;
+import org.eobjects.analyzer.beans.api.Initialize;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfiguration;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfigurationImpl;
+import org.eobjects.analyzer.connection.Datastore;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.job.AnalysisJob;
+import org.eobjects.analyzer.job.builder.AnalysisJobBuilder;
+import org.eobjects.analyzer.job.concurrent.MultiThreadedTaskRunner;
+import org.eobjects.analyzer.job.concurrent.TaskRunnerSettings;
+import org.eobjects.analyzer.result.AnalyzerResult;
+import org.eobjects.analyzer.result.AnalyzerResultReducer;
+import org.eobjects.analyzer.test.TestHelper;
+
+public class AnalyzerPartitionsTest extends TestCase {
+
+    private static final AtomicInteger initializeCount = new AtomicInteger();
+    private static final AtomicInteger initializeOnceCount = new AtomicInteger();
+    private static final AtomicInteger closeCount = new AtomicInteger();
+
+    @Distributed(reducer = CountResultReducer.class)
+    public static class CountResult implements AnalyzerResult {
+        private static final long serialVersionUID = 1L;
+
+        private final int _count;
+
+        public CountResult(int count) {
+            _count = count;
+        }
+
+        public int getCount() {
+            return _count;
+        }
+    }
+
+    public static class CountResultReducer implements AnalyzerResultReducer<CountResult> {
+        @Override
+        public CountResult reduce(Collection<? extends CountResult> results) {
+            int count = 0;
+            for (CountResult result : results) {
+                count += result.getCount();
+            }
+            return new CountResult(count);
+        }
+    }
+
+    @AnalyzerBean("Partitioned counter")
+    public static class CountingAnalyzer implements Analyzer<CountResult> {
+
+        @Configured
+        InputColumn<?>[] columns;
+
+        private int _count;
+
+        @Initialize(distributed = false)
+        public void initOnce() {
+            initializeOnceCount.incrementAndGet();
+        }
+
+        @Initialize
+        public void init() {
+            initializeCount.incrementAndGet();
+            _count = 0;
+        }
+
+        @Override
+        public void run(InputRow row, int distinctCount) {
+            // not synchronized, every thread has it's own instance
+            _count += distinctCount;
+        }
+
+        @Override
+        public CountResult getResult() {
+            return new CountResult(_count);
+        }
+
+        @Close
+        public void close() {
+            closeCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        initializeCount.set(0);
+        initializeOnceCount.set(0);
+        closeCount.set(0);
+    }
+
+    public void testRunPartitionedAnalyzer() throws Throwable {
+        final MultiThreadedTaskRunner taskRunner = new MultiThreadedTaskRunner(new TaskRunnerSettings()
+                .setNumThreads(4).setPartitionedAnalyzers(true));
+        final AnalyzerBeansConfiguration configuration = new AnalyzerBeansConfigurationImpl().replace(taskRunner);
+
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("PUBLIC.ORDERFACT.STATUS");
+            builder.addAnalyzer(CountingAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        try {
+            final AnalysisRunner runner = new AnalysisRunnerImpl(configuration);
+            final AnalysisResultFuture resultFuture = runner.run(job);
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+
+            final CountResult result = (CountResult) resultFuture.getResults().get(0);
+            assertEquals(2996, result.getCount());
+        } finally {
+            taskRunner.shutdown();
+        }
+
+        // non-distributed initialization happens only once, but all
+        // partitions are initialized and closed
+        assertEquals(1, initializeOnceCount.get());
+        assertTrue(initializeCount.get() >= 1);
+        assertEquals(initializeCount.get(), closeCount.get());
+    }
+}
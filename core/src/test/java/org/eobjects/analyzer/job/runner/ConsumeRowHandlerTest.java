@@ -22,6 +22,7 @@ package org.eobjects.analyzer.job.runner;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eobjects.analyzer.beans.filter.MaxRowsFilter;
 import org.eobjects.analyzer.configuration.AnalyzerBeansConfiguration;
 import org.eobjects.analyzer.configuration.AnalyzerBeansConfigurationImpl;
 import org.eobjects.analyzer.connection.PojoDatastore;
@@ -32,6 +33,7 @@ import org.eobjects.analyzer.data.MockInputRow;
 import org.eobjects.analyzer.job.AnalysisJob;
 import org.eobjects.analyzer.job.builder.AnalysisJobBuilder;
 import org.eobjects.analyzer.job.builder.AnalyzerJobBuilder;
+import org.eobjects.analyzer.job.builder.FilterJobBuilder;
 import org.eobjects.analyzer.job.builder.TransformerJobBuilder;
 import org.eobjects.analyzer.job.runner.ConsumeRowHandler.Configuration;
 import org.eobjects.analyzer.job.tasks.MockMultiRowTransformer;
@@ -164,4 +166,40 @@ public class ConsumeRowHandlerTest extends TestCase {
         List<InputColumn<?>> outputColumns = outputRow.getInputColumns();
         assertEquals(6, outputColumns.size());
     }
+
+    public void testRequirementSkipsConsumer() throws Exception {
+        final FilterJobBuilder<MaxRowsFilter, MaxRowsFilter.Category> filter = ajb.addFilter(MaxRowsFilter.class);
+        filter.setConfiguredProperty("Max rows", 1);
+
+        final TransformerJobBuilder<MockTransformer> tr1 = ajb.addTransformer(MockTransformer.class);
+        tr1.addInputColumn(nameColumn);
+        tr1.setRequirement(filter, MaxRowsFilter.Category.VALID);
+
+        final TransformerJobBuilder<MockTransformer> tr2 = ajb.addTransformer(MockTransformer.class);
+        tr2.addInputColumn(countryColumn);
+
+        final AnalysisJob job = ajb.toAnalysisJob(false);
+
+        final Configuration configuration = new Configuration();
+        configuration.includeAnalyzers = false;
+
+        final ConsumeRowHandler handler = new ConsumeRowHandler(job, analyzerBeansConfiguration, configuration);
+        assertEquals(3, handler.getConsumers().size());
+
+        final InputColumn<?> output1 = tr1.getOutputColumns().get(0);
+        final InputColumn<?> output2 = tr2.getOutputColumns().get(0);
+
+        List<InputRow> result = handler.consumeRow(
+                new MockInputRow().put(nameColumn, "Kasper").put(countryColumn, "DK")).getRows();
+        assertEquals(1, result.size());
+        assertEquals("mocked: Kasper", result.get(0).getValue(output1));
+        assertEquals("mocked: DK", result.get(0).getValue(output2));
+
+        // the filter is not satisfied anymore, but the unconditional
+        // transformer is still executed
+        result = handler.consumeRow(new MockInputRow().put(nameColumn, "Vera").put(countryColumn, "NL")).getRows();
+        assertEquals(1, result.size());
+        assertNull(result.get(0).getValue(output1));
+        assertEquals("mocked: NL", result.get(0).getValue(output2));
+    }
 }
@@ -0,0 +1,128 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.beans.filter.MaxRowsFilter;
+import org.eobjects.analyzer.job.AbstractFilterOutcome;
+import org.eobjects.analyzer.job.FilterJob;
+import org.eobjects.analyzer.job.FilterOutcome;
+import org.eobjects.analyzer.job.HasFilterOutcomes;
+
+public class FilterOutcomesImplTest extends TestCase {
+
+    private static class MockFilterOutcome extends AbstractFilterOutcome {
+
+        private static final long serialVersionUID = 1L;
+
+        // a distinct source for every outcome, making them all different
+        private final HasFilterOutcomes _source = new HasFilterOutcomes() {
+            @Override
+            public Collection<FilterOutcome> getFilterOutcomes() {
+                return Collections.<FilterOutcome> singleton(MockFilterOutcome.this);
+            }
+        };
+
+        @Override
+        public HasFilterOutcomes getSource() {
+            return _source;
+        }
+
+        @Override
+        public FilterJob getFilterJob() {
+            return null;
+        }
+
+        @Override
+        public Enum<?> getCategory() {
+            return MaxRowsFilter.Category.VALID;
+        }
+    }
+
+    private List<FilterOutcome> createOutcomes(int count) {
+        final List<FilterOutcome> outcomes = new ArrayList<FilterOutcome>();
+        for (int i = 0; i < count; i++) {
+            outcomes.add(new MockFilterOutcome());
+        }
+        return outcomes;
+    }
+
+    public void testWithoutIndex() throws Exception {
+        final List<FilterOutcome> outcomes = createOutcomes(3);
+
+        final FilterOutcomesImpl filterOutcomes = new FilterOutcomesImpl(outcomes.subList(0, 1));
+        assertTrue(filterOutcomes.contains(outcomes.get(0)));
+        assertFalse(filterOutcomes.contains(outcomes.get(1)));
+
+        filterOutcomes.add(outcomes.get(1));
+        assertTrue(filterOutcomes.contains(outcomes.get(1)));
+        assertEquals(2, filterOutcomes.getOutcomes().length);
+
+        final FilterOutcomes clone = filterOutcomes.clone();
+        clone.add(outcomes.get(2));
+        assertTrue(clone.contains(outcomes.get(2)));
+        assertFalse(filterOutcomes.contains(outcomes.get(2)));
+    }
+
+    public void testWithIndex() throws Exception {
+        final List<FilterOutcome> outcomes = createOutcomes(100);
+        final FilterOutcomeIndex index = new FilterOutcomeIndex(outcomes.subList(0, 90));
+        assertEquals(90, index.size());
+        assertEquals(2, index.getWordCount());
+
+        final long[] initialOutcomes = index.createMask(Arrays.asList(outcomes.get(3), outcomes.get(70)));
+        final FilterOutcomesImpl filterOutcomes = new FilterOutcomesImpl(index, initialOutcomes);
+        assertTrue(filterOutcomes.contains(outcomes.get(3)));
+        assertTrue(filterOutcomes.contains(outcomes.get(70)));
+        assertFalse(filterOutcomes.contains(outcomes.get(4)));
+
+        // an outcome that is not in the index
+        filterOutcomes.add(outcomes.get(95));
+        filterOutcomes.add(outcomes.get(64));
+        assertTrue(filterOutcomes.contains(outcomes.get(95)));
+        assertTrue(filterOutcomes.contains(outcomes.get(64)));
+
+        assertEquals(new HashSet<FilterOutcome>(Arrays.asList(outcomes.get(3), outcomes.get(64), outcomes.get(70),
+                outcomes.get(95))), new HashSet<FilterOutcome>(Arrays.asList(filterOutcomes.getOutcomes())));
+
+        // the initial outcomes are copied, not modified
+        assertFalse(new FilterOutcomesImpl(index, initialOutcomes).contains(outcomes.get(64)));
+
+        assertTrue(filterOutcomes.containsAny(index.createMask(Arrays.asList(outcomes.get(1), outcomes.get(64)))));
+        assertFalse(filterOutcomes.containsAny(index.createMask(Arrays.asList(outcomes.get(1), outcomes.get(65)))));
+
+        final FilterOutcomes clone = filterOutcomes.clone();
+        clone.add(outcomes.get(80));
+        clone.add(outcomes.get(99));
+        assertTrue(clone.contains(outcomes.get(80)));
+        assertTrue(clone.contains(outcomes.get(99)));
+        assertTrue(clone.contains(outcomes.get(95)));
+        assertFalse(filterOutcomes.contains(outcomes.get(80)));
+        assertFalse(filterOutcomes.contains(outcomes.get(99)));
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.beans.api.Analyzer;
+import org.eobjects.analyzer.beans.api.AnalyzerBean;
+import org.eobjects.analyzer.beans.api.Configured;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfiguration;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfigurationImpl;
+import org.eobjects.analyzer.connection.Datastore;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.job.AnalysisJob;
+import org.eobjects.analyzer.job.builder.AnalysisJobBuilder;
+import org.eobjects.analyzer.job.concurrent.MultiThreadedTaskRunner;
+import org.eobjects.analyzer.job.concurrent.TaskRunnerSettings;
+import org.eobjects.analyzer.result.NumberResult;
+import org.eobjects.analyzer.test.TestHelper;
+
+public class PublisherTaskRunnerTest extends TestCase {
+
+    @AnalyzerBean("Concurrency measuring analyzer")
+    public static class ConcurrencyAnalyzer implements Analyzer<NumberResult> {
+
+        @Configured
+        InputColumn<?> column;
+
+        private final AtomicInteger _current = new AtomicInteger();
+        private final AtomicInteger _max = new AtomicInteger();
+
+        @Override
+        public void run(InputRow row, int distinctCount) {
+            final int current = _current.incrementAndGet();
+            while (true) {
+                final int max = _max.get();
+                if (current <= max || _max.compareAndSet(max, current)) {
+                    break;
+                }
+            }
+            // a bit of work to let tasks overlap
+            for (int i = 0; i < 100; i++) {
+                Thread.yield();
+            }
+            _current.decrementAndGet();
+        }
+
+        @Override
+        public NumberResult getResult() {
+            return new NumberResult(_max.get());
+        }
+    }
+
+    public void testThreadBudgetPerTable() throws Throwable {
+        final MultiThreadedTaskRunner taskRunner = new MultiThreadedTaskRunner(new TaskRunnerSettings()
+                .setNumThreads(8).setMaxThreadsPerTable(2));
+        final AnalyzerBeansConfiguration configuration = new AnalyzerBeansConfigurationImpl().replace(taskRunner);
+
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("PUBLIC.ORDERFACT.STATUS", "PUBLIC.CUSTOMERS.CITY");
+            builder.addAnalyzer(ConcurrencyAnalyzer.class).addInputColumn(
+                    builder.getSourceColumnByName("PUBLIC.ORDERFACT.STATUS"));
+            builder.addAnalyzer(ConcurrencyAnalyzer.class).addInputColumn(
+                    builder.getSourceColumnByName("PUBLIC.CUSTOMERS.CITY"));
+            job = builder.toAnalysisJob();
+        }
+
+        final Map<String, RowThroughputMetrics> throughputs = new ConcurrentHashMap<String, RowThroughputMetrics>();
+        try {
+            final AnalysisRunner runner = new AnalysisRunnerImpl(configuration, new AnalysisListenerAdaptor() {
+                @Override
+                public void rowProcessingSuccess(AnalysisJob job, RowProcessingMetrics metrics) {
+                    throughputs.put(metrics.getTable().getName(), metrics.getRowThroughputMetrics());
+                }
+            });
+            final AnalysisResultFuture resultFuture = runner.run(job);
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+
+            for (Object result : resultFuture.getResults()) {
+                // the budget of 2 workers, plus the dispatching thread when
+                // the publisher's queue is full
+                final int maxConcurrency = ((NumberResult) result).getNumber().intValue();
+                assertTrue("Concurrency was: " + maxConcurrency, maxConcurrency <= 3);
+            }
+        } finally {
+            taskRunner.shutdown();
+        }
+
+        assertEquals(2, throughputs.size());
+        assertEquals(2996, throughputs.get("ORDERFACT").getRowCount());
+        assertEquals(122, throughputs.get("CUSTOMERS").getRowCount());
+        assertEquals(2, throughputs.get("ORDERFACT").getThreadBudget());
+        assertTrue(throughputs.get("ORDERFACT").getRowsPerSecond() > 0);
+    }
+
+    public void testEvenThreadBudget() throws Throwable {
+        final MultiThreadedTaskRunner taskRunner = new MultiThreadedTaskRunner(new TaskRunnerSettings()
+                .setNumThreads(8).setRowBatchSize(10));
+        final AnalyzerBeansConfiguration configuration = new AnalyzerBeansConfigurationImpl().replace(taskRunner);
+
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("PUBLIC.ORDERFACT.STATUS", "PUBLIC.CUSTOMERS.CITY");
+            builder.addAnalyzer(ConcurrencyAnalyzer.class).addInputColumn(
+                    builder.getSourceColumnByName("PUBLIC.ORDERFACT.STATUS"));
+            builder.addAnalyzer(ConcurrencyAnalyzer.class).addInputColumn(
+                    builder.getSourceColumnByName("PUBLIC.CUSTOMERS.CITY"));
+            job = builder.toAnalysisJob();
+        }
+
+        final RowProcessingPublishers publishers = new RowProcessingPublishers(job, null,
+                configuration.getTaskRunner(), null, null);
+        assertEquals(4, publishers.getThreadBudget());
+        publishers.onPublisherFinished();
+        assertEquals(8, publishers.getThreadBudget());
+
+        try {
+            final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+            assertEquals(2, resultFuture.getResults().size());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+}
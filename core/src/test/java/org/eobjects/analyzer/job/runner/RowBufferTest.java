@@ -0,0 +1,97 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfiguration;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfigurationImpl;
+import org.eobjects.analyzer.connection.CsvDatastore;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.job.AnalysisJob;
+import org.eobjects.analyzer.job.builder.AnalysisJobBuilder;
+import org.eobjects.analyzer.job.concurrent.MultiThreadedTaskRunner;
+import org.eobjects.analyzer.job.concurrent.TaskRunnerSettings;
+import org.eobjects.analyzer.result.ListResult;
+import org.eobjects.analyzer.test.MockAnalyzer;
+
+public class RowBufferTest extends TestCase {
+
+    public void testDisabledBuffer() throws Exception {
+        RowBuffer rowBuffer = new RowBuffer(0);
+        assertFalse(rowBuffer.isEnabled());
+        assertEquals(0, rowBuffer.getCapacity());
+        assertEquals(0, rowBuffer.getOccupancy());
+    }
+
+    public void testRunJobWithRowBuffer() throws Throwable {
+        runJob(new MultiThreadedTaskRunner(new TaskRunnerSettings().setNumThreads(4).setRowBufferSize(3)));
+    }
+
+    public void testRunJobWithRowBufferAndBatches() throws Throwable {
+        runJob(new MultiThreadedTaskRunner(new TaskRunnerSettings().setNumThreads(4).setRowBatchSize(5)
+                .setRowBufferSize(2)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runJob(MultiThreadedTaskRunner taskRunner) throws Throwable {
+        final AnalyzerBeansConfiguration configuration = new AnalyzerBeansConfigurationImpl().replace(taskRunner);
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(new CsvDatastore("Names", "src/test/resources/example-name-lengths.csv"));
+            builder.addSourceColumns("name");
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        final AtomicReference<RowBufferMetrics> metricsRef = new AtomicReference<RowBufferMetrics>();
+
+        final ListResult<InputRow> result;
+        try {
+            final AnalysisRunner runner = new AnalysisRunnerImpl(configuration, new AnalysisListenerAdaptor() {
+                @Override
+                public void rowProcessingSuccess(AnalysisJob job, RowProcessingMetrics metrics) {
+                    metricsRef.set(metrics.getRowBufferMetrics());
+                }
+            });
+            final AnalysisResultFuture resultFuture = runner.run(job);
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+            result = (ListResult<InputRow>) resultFuture.getResults().get(0);
+        } finally {
+            taskRunner.shutdown();
+        }
+
+        final List<InputRow> rows = result.getValues();
+        assertEquals(12, rows.size());
+
+        final RowBufferMetrics metrics = metricsRef.get();
+        assertNotNull(metrics);
+        assertEquals(taskRunner.getSettings().getRowBufferSize(), metrics.getCapacity());
+        assertEquals(12, metrics.getRowsRead());
+        assertTrue(metrics.getProducerStallMillis() >= 0);
+        assertTrue(metrics.getConsumerStallMillis() >= 0);
+    }
+}
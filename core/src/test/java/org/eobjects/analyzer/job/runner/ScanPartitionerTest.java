@@ -0,0 +1,253 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.runner;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.jdbc.JdbcDataContext;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Table;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfiguration;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfigurationImpl;
+import org.eobjects.analyzer.connection.Datastore;
+import org.eobjects.analyzer.connection.DatastoreConnection;
+import org.eobjects.analyzer.connection.JdbcDatastore;
+import org.eobjects.analyzer.connection.PerformanceCharacteristics;
+import org.eobjects.analyzer.connection.PerformanceCharacteristicsImpl;
+import org.eobjects.analyzer.connection.UpdateableDatastoreConnection;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.job.AnalysisJob;
+import org.eobjects.analyzer.job.builder.AnalysisJobBuilder;
+import org.eobjects.analyzer.job.concurrent.MultiThreadedTaskRunner;
+import org.eobjects.analyzer.job.concurrent.TaskRunnerSettings;
+import org.eobjects.analyzer.result.ListResult;
+import org.eobjects.analyzer.test.MockAnalyzer;
+import org.eobjects.analyzer.test.TestHelper;
+
+public class ScanPartitionerTest extends TestCase {
+
+    private final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+    private UpdateableDatastoreConnection con;
+    private DataContext dataContext;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        con = (UpdateableDatastoreConnection) datastore.openConnection();
+        dataContext = con.getDataContext();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        con.close();
+    }
+
+    public void testPartitionByKeyRange() throws Exception {
+        final Table table = dataContext.getDefaultSchema().getTableByName("CUSTOMERS");
+        final Query query = dataContext.query().from(table).select("CUSTOMERNUMBER", "CUSTOMERNAME").toQuery();
+
+        final List<ScanPartition> partitions = new ScanPartitioner(datastore, dataContext).partition(query, 4);
+        assertEquals(4, partitions.size());
+
+        int rowCount = 0;
+        int lastOffset = -1;
+        for (ScanPartition partition : partitions) {
+            assertTrue(partition.getRowIdOffset() > lastOffset);
+            assertEquals(rowCount, partition.getRowIdOffset());
+            lastOffset = partition.getRowIdOffset();
+            rowCount += count(partition.getQuery());
+        }
+        assertEquals(122, rowCount);
+
+        // customer numbers range from 103 to 496
+        assertEquals("SELECT \"CUSTOMERS\".\"CUSTOMERNUMBER\", \"CUSTOMERS\".\"CUSTOMERNAME\" "
+                + "FROM PUBLIC.\"CUSTOMERS\" WHERE \"CUSTOMERS\".\"CUSTOMERNUMBER\" < 201", partitions.get(0)
+                .getQuery().toSql());
+        assertEquals("SELECT \"CUSTOMERS\".\"CUSTOMERNUMBER\", \"CUSTOMERS\".\"CUSTOMERNAME\" "
+                + "FROM PUBLIC.\"CUSTOMERS\" WHERE \"CUSTOMERS\".\"CUSTOMERNUMBER\" >= 398", partitions.get(3)
+                .getQuery().toSql());
+    }
+
+    public void testPartitionByOffset() throws Exception {
+        final Datastore pagingDatastore = new PagingDatastore(datastore);
+
+        final Table table = dataContext.getDefaultSchema().getTableByName("ORDERFACT");
+        final Query query = dataContext.query().from(table).select("ORDERNUMBER").toQuery();
+
+        final List<ScanPartition> partitions = new ScanPartitioner(pagingDatastore, dataContext).partition(query, 4);
+        assertEquals(4, partitions.size());
+
+        assertEquals(0, partitions.get(0).getRowIdOffset());
+        assertEquals(749, partitions.get(1).getRowIdOffset());
+        assertEquals(1498, partitions.get(2).getRowIdOffset());
+        assertEquals(2247, partitions.get(3).getRowIdOffset());
+
+        assertEquals(1, partitions.get(0).getQuery().getFirstRow().intValue());
+        assertEquals(749, partitions.get(0).getQuery().getMaxRows().intValue());
+        assertEquals(2248, partitions.get(3).getQuery().getFirstRow().intValue());
+        assertNull(partitions.get(3).getQuery().getMaxRows());
+    }
+
+    public void testNoPartitioningOfSingleConnection() throws Exception {
+        final Table table = dataContext.getDefaultSchema().getTableByName("CUSTOMERS");
+        final Query query = dataContext.query().from(table).select("CUSTOMERNUMBER").toQuery();
+
+        // a JDBC datastore without multiple connections
+        final JdbcDatastore singleConnectionDatastore = new JdbcDatastore("orderdb", con.getUpdateableDataContext());
+        assertFalse(singleConnectionDatastore.isMultipleConnections());
+        assertNull(new ScanPartitioner(singleConnectionDatastore, dataContext).partition(query, 4));
+
+        // a JDBC data context on a single connection
+        final Connection connection = ((JdbcDataContext) dataContext).getConnection();
+        try {
+            final JdbcDataContext connectionDataContext = new JdbcDataContext(connection);
+            assertNull(new ScanPartitioner(datastore, connectionDataContext).partition(query, 4));
+        } finally {
+            connection.close();
+        }
+    }
+
+    public void testNoPartitioning() throws Exception {
+        final ScanPartitioner partitioner = new ScanPartitioner(datastore, dataContext);
+
+        // no primary key and no consistent record order
+        final Table orderFact = dataContext.getDefaultSchema().getTableByName("ORDERFACT");
+        assertNull(partitioner.partition(dataContext.query().from(orderFact).select("ORDERNUMBER").toQuery(), 4));
+
+        // a varchar primary key
+        final Table products = dataContext.getDefaultSchema().getTableByName("PRODUCTS");
+        assertNull(partitioner.partition(dataContext.query().from(products).select("PRODUCTCODE").toQuery(), 4));
+
+        final Table customers = dataContext.getDefaultSchema().getTableByName("CUSTOMERS");
+        final Query query = dataContext.query().from(customers).select("CUSTOMERNUMBER").toQuery();
+
+        // a single partition
+        assertNull(partitioner.partition(query, 1));
+
+        // a query which is already paged
+        final Query maxRowsQuery = query.clone().setMaxRows(10);
+        assertNull(partitioner.partition(maxRowsQuery, 4));
+    }
+
+    public void testRowIdsInSameRangeAsSingleScan() throws Throwable {
+        final Map<Integer, Object> singleScan = runJob(0);
+        final Map<Integer, Object> partitionedScan = runJob(4);
+
+        assertEquals(122, singleScan.size());
+
+        // the same records and the same (unique) row ids, but the records are
+        // not necessarily numbered in the same order
+        assertEquals(singleScan.keySet(), partitionedScan.keySet());
+        assertEquals(new HashSet<Object>(singleScan.values()), new HashSet<Object>(partitionedScan.values()));
+    }
+
+    /**
+     * Datastore which prefers query optimization and has a consistent record
+     * order, and thus allows offset based partitions.
+     */
+    private static final class PagingDatastore implements Datastore {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Datastore _delegate;
+
+        public PagingDatastore(Datastore delegate) {
+            _delegate = delegate;
+        }
+
+        @Override
+        public String getName() {
+            return _delegate.getName();
+        }
+
+        @Override
+        public String getDescription() {
+            return _delegate.getDescription();
+        }
+
+        @Override
+        public void setDescription(String description) {
+            _delegate.setDescription(description);
+        }
+
+        @Override
+        public DatastoreConnection openConnection() {
+            return _delegate.openConnection();
+        }
+
+        @Override
+        public PerformanceCharacteristics getPerformanceCharacteristics() {
+            return new PerformanceCharacteristicsImpl(true, true);
+        }
+    }
+
+    private Map<Integer, Object> runJob(int scanPartitions) throws Throwable {
+        final MultiThreadedTaskRunner taskRunner = new MultiThreadedTaskRunner(new TaskRunnerSettings()
+                .setNumThreads(4).setRowBatchSize(10).setScanPartitions(scanPartitions));
+        final AnalyzerBeansConfiguration configuration = new AnalyzerBeansConfigurationImpl().replace(taskRunner);
+
+        final AnalysisJob job;
+        final InputColumn<?> column;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("PUBLIC.CUSTOMERS.CUSTOMERNUMBER");
+            column = builder.getSourceColumnByName("CUSTOMERNUMBER");
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumn(column);
+            job = builder.toAnalysisJob();
+        }
+
+        try {
+            final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+
+            @SuppressWarnings("unchecked")
+            final ListResult<InputRow> result = (ListResult<InputRow>) resultFuture.getResults().get(0);
+            final Map<Integer, Object> values = new HashMap<Integer, Object>();
+            for (InputRow row : result.getValues()) {
+                assertNull(values.put(row.getId(), row.getValue(column)));
+            }
+            return values;
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    private int count(Query query) {
+        final Query countQuery = query.clone();
+        countQuery.getSelectClause().removeItems();
+        countQuery.selectCount();
+        try (DataSet dataSet = dataContext.executeQuery(countQuery)) {
+            assertTrue(dataSet.next());
+            return ((Number) dataSet.getRow().getValue(0)).intValue();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.tasks;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfiguration;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfigurationImpl;
+import org.eobjects.analyzer.connection.CsvDatastore;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.job.AnalysisJob;
+import org.eobjects.analyzer.job.builder.AnalysisJobBuilder;
+import org.eobjects.analyzer.job.concurrent.MultiThreadedTaskRunner;
+import org.eobjects.analyzer.job.concurrent.TaskRunnerSettings;
+import org.eobjects.analyzer.job.runner.AnalysisListenerAdaptor;
+import org.eobjects.analyzer.job.runner.AnalysisResultFuture;
+import org.eobjects.analyzer.job.runner.AnalysisRunner;
+import org.eobjects.analyzer.job.runner.AnalysisRunnerImpl;
+import org.eobjects.analyzer.job.runner.RowProcessingMetrics;
+import org.eobjects.analyzer.result.ListResult;
+import org.eobjects.analyzer.test.MockAnalyzer;
+
+public class ConsumeRowBatchTaskTest extends TestCase {
+
+    @SuppressWarnings("unchecked")
+    public void testRunJobWithRowBatches() throws Throwable {
+        final MultiThreadedTaskRunner taskRunner = new MultiThreadedTaskRunner(new TaskRunnerSettings()
+                .setNumThreads(4).setRowBatchSize(5));
+        final AnalyzerBeansConfiguration configuration = new AnalyzerBeansConfigurationImpl().replace(taskRunner);
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(new CsvDatastore("Names", "src/test/resources/example-name-lengths.csv"));
+            builder.addSourceColumns("name");
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        final Set<Integer> progressRowNumbers = new HashSet<Integer>();
+        final AtomicInteger progressCount = new AtomicInteger();
+
+        final ListResult<InputRow> result;
+        try {
+            AnalysisRunner runner = new AnalysisRunnerImpl(configuration, new AnalysisListenerAdaptor() {
+                @Override
+                public void rowProcessingProgress(AnalysisJob job, RowProcessingMetrics metrics, InputRow row,
+                        int currentRow) {
+                    progressCount.incrementAndGet();
+                    synchronized (progressRowNumbers) {
+                        progressRowNumbers.add(currentRow);
+                    }
+                }
+            });
+            AnalysisResultFuture resultFuture = runner.run(job);
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+            result = (ListResult<InputRow>) resultFuture.getResults().get(0);
+        } finally {
+            taskRunner.shutdown();
+        }
+
+        final List<InputRow> rows = result.getValues();
+        assertEquals(12, rows.size());
+
+        final Set<Integer> ids = new HashSet<Integer>();
+        for (InputRow row : rows) {
+            ids.add(row.getId());
+        }
+        assertEquals(12, ids.size());
+
+        // 12 rows in batches of 5 makes 3 progress notifications
+        assertEquals(3, progressCount.get());
+        assertTrue(progressRowNumbers.contains(5));
+        assertTrue(progressRowNumbers.contains(10));
+        assertTrue(progressRowNumbers.contains(12));
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.reference;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.connection.Datastore;
+import org.eobjects.analyzer.connection.DatastoreCatalogImpl;
+import org.eobjects.analyzer.test.TestHelper;
+
+public class DatastoreDictionaryTest extends TestCase {
+
+    private final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+
+    public void testQueryValuesByDefault() throws Exception {
+        final DatastoreDictionary dictionary = createDictionary();
+        assertEquals(0, dictionary.getLoadIntoMemoryThreshold());
+
+        dictionary.init();
+        try {
+            assertFalse(dictionary.getValues().load());
+            assertLookups(dictionary);
+        } finally {
+            dictionary.close();
+        }
+    }
+
+    public void testLoadIntoMemory() throws Exception {
+        final DatastoreDictionary dictionary = createDictionary();
+        dictionary.setLoadIntoMemoryThreshold(1000);
+
+        dictionary.init();
+        try {
+            assertTrue(dictionary.getValues().load());
+            assertLookups(dictionary);
+        } finally {
+            dictionary.close();
+        }
+    }
+
+    public void testLoadNumberColumnIntoMemory() throws Exception {
+        final DatastoreDictionary dictionary = new DatastoreDictionary("dict", "orderdb",
+                "CUSTOMERS.CUSTOMERNUMBER");
+        dictionary._datastoreCatalog = new DatastoreCatalogImpl(datastore);
+        dictionary.setLoadIntoMemoryThreshold(1000);
+
+        dictionary.init();
+        try {
+            assertTrue(dictionary.getValues().load());
+            assertTrue(dictionary.containsValue("103"));
+            assertTrue(dictionary.containsValue("103.0"));
+            assertTrue(dictionary.containsValue("496"));
+            assertFalse(dictionary.containsValue("1"));
+            assertFalse(dictionary.containsValue("foo"));
+        } finally {
+            dictionary.close();
+        }
+    }
+
+    public void testQueryValuesAboveThreshold() throws Exception {
+        final DatastoreDictionary dictionary = createDictionary();
+        // the EMPLOYEES table has more records than this
+        dictionary.setLoadIntoMemoryThreshold(10);
+
+        dictionary.init();
+        try {
+            assertFalse(dictionary.getValues().load());
+            assertLookups(dictionary);
+            // cached lookups
+            assertLookups(dictionary);
+        } finally {
+            dictionary.close();
+        }
+    }
+
+    public void testNeverLoadIntoMemory() throws Exception {
+        final DatastoreDictionary dictionary = createDictionary();
+        dictionary.setLoadIntoMemoryThreshold(0);
+        assertFalse(dictionary.getValues().load());
+        assertLookups(dictionary);
+    }
+
+    public void testLookupAfterClearCache() throws Exception {
+        final DatastoreDictionary dictionary = createDictionary();
+        dictionary.setLoadIntoMemoryThreshold(1000);
+
+        dictionary.init();
+        try {
+            final DatastoreReferenceValues values = dictionary.getValues();
+            assertTrue(values.load());
+            values.clearCache();
+            assertLookups(dictionary);
+            values.clearCache();
+            assertTrue(values.load());
+        } finally {
+            dictionary.close();
+        }
+    }
+
+    public void testEqualsIncludesThreshold() throws Exception {
+        final DatastoreDictionary dictionary1 = createDictionary();
+        final DatastoreDictionary dictionary2 = createDictionary();
+        assertEquals(dictionary1.getValues(), dictionary2.getValues());
+
+        final DatastoreDictionary dictionary3 = createDictionary();
+        dictionary3.setLoadIntoMemoryThreshold(1000);
+        assertFalse(dictionary1.getValues().equals(dictionary3.getValues()));
+    }
+
+    private DatastoreDictionary createDictionary() {
+        final DatastoreDictionary dictionary = new DatastoreDictionary("dict", "orderdb", "EMPLOYEES.LASTNAME");
+        dictionary._datastoreCatalog = new DatastoreCatalogImpl(datastore);
+        return dictionary;
+    }
+
+    private void assertLookups(DatastoreDictionary dictionary) {
+        assertTrue(dictionary.containsValue("Murphy"));
+        assertTrue(dictionary.containsValue("Patterson"));
+        assertFalse(dictionary.containsValue("Gates"));
+        assertFalse(dictionary.containsValue("murphy"));
+        assertFalse(dictionary.containsValue(null));
+    }
+}
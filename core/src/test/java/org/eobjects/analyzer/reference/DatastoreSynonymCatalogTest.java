@@ -20,6 +20,8 @@
 package org.eobjects.analyzer.reference;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
 
@@ -51,6 +53,34 @@ public class DatastoreSynonymCatalogTest {
 		assertEquals("DNK", _dataStoreBasedSynonymCatalog.getMasterTerm("DK"));
 	}
 
+	@Test
+	public void shouldNotLoadIntoMemoryByDefault() {
+		assertEquals(0, _dataStoreBasedSynonymCatalog.getLoadIntoMemoryThreshold());
+		assertFalse(_dataStoreBasedSynonymCatalog.load());
+		assertEquals("DNK", _dataStoreBasedSynonymCatalog.getMasterTerm("Danmark"));
+	}
+
+	@Test
+	public void shouldLoadIntoMemoryWithinThreshold() {
+		_dataStoreBasedSynonymCatalog.setLoadIntoMemoryThreshold(3);
+		assertTrue(_dataStoreBasedSynonymCatalog.load());
+		assertEquals("DNK", _dataStoreBasedSynonymCatalog.getMasterTerm("Danmark"));
+		assertEquals("GBR", _dataStoreBasedSynonymCatalog.getMasterTerm("UK"));
+		assertEquals(null, _dataStoreBasedSynonymCatalog.getMasterTerm("ALB"));
+		assertEquals(null, _dataStoreBasedSynonymCatalog.getMasterTerm("foobar"));
+	}
+
+	@Test
+	public void shouldQueryTermsAboveThreshold() {
+		_dataStoreBasedSynonymCatalog.setLoadIntoMemoryThreshold(2);
+		assertFalse(_dataStoreBasedSynonymCatalog.load());
+		assertEquals("DNK", _dataStoreBasedSynonymCatalog.getMasterTerm("Danmark"));
+		assertEquals("GBR", _dataStoreBasedSynonymCatalog.getMasterTerm("UK"));
+		assertEquals("ALB", _dataStoreBasedSynonymCatalog.getMasterTerm("Albania"));
+		assertEquals(null, _dataStoreBasedSynonymCatalog.getMasterTerm("ALB"));
+		assertEquals(null, _dataStoreBasedSynonymCatalog.getMasterTerm("foobar"));
+	}
+
 	@Test
 	public void shouldReturnAllSynonyms() {
 		Collection<Synonym> synonyms = _dataStoreBasedSynonymCatalog.getSynonyms();
@@ -0,0 +1,164 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.reference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class StringPatternSetTest extends TestCase {
+
+    private static final String[] EXPRESSIONS = { "[a-z]+@[a-z]+\\.dk", "\\+45 ?\\d{8}", "\\d{4}", "^\\d{3,5}$",
+            "[A-Z]{2}-\\d{2,}", "(?:foo|bar)+baz?", "a|ab", "(a|ab)(c|bcd)", "colou?r", "[^aeiou\\s]{3}",
+            "\\w+\\W\\w+", "\\bDK\\b", ".", "", "x*", "[-.a]", "[a-c-]", "\\S+\\s\\S+", "[\\d\\-]{5,7}", "a{0}b",
+            "\\x41\\u0042", "\\.\\*\\?", "[^\\n]+", "a.c", "(?:ab){2,3}", "\\t|\\r|\\n", "[0-9A-Fa-f]{2}:",
+            "ab*?c", "ø+", "\\$\\d+\\.\\d{2}" };
+
+    private static final String[] UNSUPPORTED_EXPRESSIONS = { "(a)\\1", "(?i)abc", "a(?=b)", "a++b", "\\p{Lu}",
+            "[a-z&&[^b]]", "\\Qa.b\\E", "(?<name>a)\\k<name>", "a]", "\\x{41}", "[[a]]", "\\R" };
+
+    private static final String[] INVALID_EXPRESSIONS = { "a{2", "(a", "a)", "*a", "[a", "\\", "[b-a]", "\\y" };
+
+    private static final String[] STRINGS = { "", "a", "ab", "abc", "abcd", "kasper@eobjects.dk", "+45 12345678",
+            "+4512345678", "1234", "123", "123456", "DK-12", "dk-1", "foofoobar", "foobarbaz", "color", "colour",
+            "hello world", "DK", "DKK", "xyz", "a-c", "12-34", "AB", "ab\ncd", "aXc", "a\nc", "ababab", "\t",
+            "0f:", "abbbc", "søø", "$12.50", ".*?", " ", "æøå", "a😀c", "😀" };
+
+    public void testSameResultsAsIndividualMatching() throws Exception {
+        final StringPattern[] stringPatterns = createStringPatterns();
+        final StringPatternSet stringPatternSet = new StringPatternSet(stringPatterns);
+        assertEquals(EXPRESSIONS.length * 2, stringPatternSet.getAutomatonPatternCount());
+
+        for (String string : STRINGS) {
+            assertMatches(stringPatterns, stringPatternSet, string);
+        }
+        assertMatches(stringPatterns, stringPatternSet, null);
+    }
+
+    public void testSameResultsAsIndividualMatchingRandomStrings() throws Exception {
+        final StringPattern[] stringPatterns = createStringPatterns();
+        final StringPatternSet stringPatternSet = new StringPatternSet(stringPatterns);
+
+        final char[] alphabet = "abcorDK0123456789+-.@ \n\tz$ø".toCharArray();
+        final Random random = new Random(0);
+        for (int i = 0; i < 20000; i++) {
+            final char[] chars = new char[random.nextInt(14)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            assertMatches(stringPatterns, stringPatternSet, new String(chars));
+        }
+    }
+
+    public void testUnsupportedExpressionsAreMatchedIndividually() throws Exception {
+        final List<StringPattern> stringPatterns = new ArrayList<StringPattern>();
+        for (String expression : UNSUPPORTED_EXPRESSIONS) {
+            stringPatterns.add(new RegexStringPattern(expression, expression, false));
+        }
+        stringPatterns.add(new RegexStringPattern("digits", "\\d+", true));
+        stringPatterns.add(new LengthStringPattern());
+
+        final StringPatternSet stringPatternSet = new StringPatternSet(
+                stringPatterns.toArray(new StringPattern[stringPatterns.size()]));
+        assertEquals(1, stringPatternSet.getAutomatonPatternCount());
+
+        final List<String> expressions = new ArrayList<String>(Arrays.asList(UNSUPPORTED_EXPRESSIONS));
+        expressions.addAll(Arrays.asList(INVALID_EXPRESSIONS));
+        for (String expression : expressions) {
+            final RegexNfa nfa = new RegexNfa();
+            assertEquals(expression, -1, nfa.addExpression(expression));
+            assertEquals(0, nfa.getStateCount());
+        }
+
+        final boolean[] result = stringPatternSet.matches("12345");
+        assertTrue(result[result.length - 2]);
+        assertFalse(result[result.length - 1]);
+    }
+
+    public void testConcurrentMatching() throws Exception {
+        final StringPattern[] stringPatterns = createStringPatterns();
+        final StringPatternSet stringPatternSet = new StringPatternSet(stringPatterns);
+
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 100; j++) {
+                            for (String string : STRINGS) {
+                                assertMatches(stringPatterns, stringPatternSet, string);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals("[]", errors.toString());
+    }
+
+    /**
+     * A string pattern which is not regex based
+     */
+    private static final class LengthStringPattern extends AbstractReferenceData implements StringPattern {
+
+        private static final long serialVersionUID = 1L;
+
+        public LengthStringPattern() {
+            super("length");
+        }
+
+        @Override
+        public boolean matches(String string) {
+            return string != null && string.length() == 3;
+        }
+    }
+
+    private StringPattern[] createStringPatterns() {
+        final List<StringPattern> stringPatterns = new ArrayList<StringPattern>();
+        for (String expression : EXPRESSIONS) {
+            stringPatterns.add(new RegexStringPattern(expression, expression, false));
+            stringPatterns.add(new RegexStringPattern(expression + " (entire string)", expression, true));
+        }
+        return stringPatterns.toArray(new StringPattern[stringPatterns.size()]);
+    }
+
+    private static void assertMatches(StringPattern[] stringPatterns, StringPatternSet stringPatternSet,
+            String string) {
+        final boolean[] expected = new boolean[stringPatterns.length];
+        for (int i = 0; i < stringPatterns.length; i++) {
+            expected[i] = stringPatterns[i].matches(string);
+        }
+        final boolean[] actual = stringPatternSet.matches(string);
+        assertEquals("Matching '" + string + "'", Arrays.toString(expected), Arrays.toString(actual));
+    }
+}
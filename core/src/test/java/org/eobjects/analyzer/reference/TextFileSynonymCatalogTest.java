@@ -42,6 +42,34 @@ public class TextFileSynonymCatalogTest extends TestCase {
         assertEquals("DNK", cat.getMasterTerm("DNK"));
     }
 
+    public void testCaseInsensitiveSynonyms() throws Exception {
+        SynonymCatalog cat = new TextFileSynonymCatalog("foobar", "src/test/resources/synonym-countries.txt", false,
+                "UTF-8");
+        assertEquals("DNK", cat.getMasterTerm("denmark"));
+        assertEquals("DNK", cat.getMasterTerm("dnk"));
+        assertEquals("GBR", cat.getMasterTerm("ENGLAND"));
+        assertNull(cat.getMasterTerm("foobar"));
+        assertNull(cat.getMasterTerm(""));
+        assertNull(cat.getMasterTerm(null));
+
+        cat = new TextFileSynonymCatalog("foobar", "src/test/resources/synonym-countries.txt", true, "UTF-8");
+        assertNull(cat.getMasterTerm("denmark"));
+        assertNull(cat.getMasterTerm("dnk"));
+    }
+
+    public void testFirstLineWins() throws Exception {
+        File file = new File("target/TextBasedSynonymCatalogTest-first-line-wins.txt");
+        FileHelper.writeStringAsFile(file, "foo,fo,Bar\nbar,baar,fo");
+        SynonymCatalog cat = new TextFileSynonymCatalog("sc", file, true, "UTF-8");
+        assertEquals("foo", cat.getMasterTerm("fo"));
+        assertEquals("foo", cat.getMasterTerm("Bar"));
+        assertEquals("bar", cat.getMasterTerm("bar"));
+
+        cat = new TextFileSynonymCatalog("sc", file, false, "UTF-8");
+        assertEquals("foo", cat.getMasterTerm("bar"));
+        assertEquals("bar", cat.getMasterTerm("BAAR"));
+    }
+
     public void testSerializationAndDeserialization() throws Exception {
         SynonymCatalog cat = new TextFileSynonymCatalog("foobar", "src/test/resources/synonym-countries.txt", true,
                 "UTF-8");
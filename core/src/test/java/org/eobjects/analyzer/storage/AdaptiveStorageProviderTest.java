@@ -0,0 +1,130 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class AdaptiveStorageProviderTest extends TestCase {
+
+	private AdaptiveStorageProvider _storageProvider;
+	private MemoryMappedStorageProvider _spillStorageProvider;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		_spillStorageProvider = new MemoryMappedStorageProvider(new File("target/test_adaptive_storage"));
+		_storageProvider = new AdaptiveStorageProvider(_spillStorageProvider, 0.9f);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		_storageProvider.close();
+	}
+
+	public void testSpillLargestCollections() throws Exception {
+		final List<CollectionSpilledMessage> messages = new ArrayList<CollectionSpilledMessage>();
+		final CollectionSpillListener listener = new CollectionSpillListener() {
+			@Override
+			public void onCollectionSpilled(CollectionSpilledMessage message) {
+				messages.add(message);
+			}
+		};
+
+		CollectionFactoryImpl collectionFactory = new CollectionFactoryImpl(_storageProvider);
+		collectionFactory.addSpillListener(listener);
+
+		Map<String, Integer> bigMap = collectionFactory.createMap(String.class, Integer.class);
+		Set<String> mediumSet = collectionFactory.createSet(String.class);
+		List<Integer> smallList = collectionFactory.createList(Integer.class);
+
+		for (int i = 0; i < 1000; i++) {
+			bigMap.put("key" + i, i);
+			if (i < 600) {
+				mediumSet.add("value" + i);
+			}
+			if (i < 100) {
+				smallList.add(i);
+			}
+		}
+
+		// the map holds more than half of the elements
+		assertEquals(1, _storageProvider.spillLargestCollections());
+		assertFalse(((SpillableCollection) bigMap).isSpilled());
+
+		// spilling happens upon the next write
+		assertEquals(500, bigMap.get("key500").intValue());
+		assertFalse(((SpillableCollection) bigMap).isSpilled());
+		bigMap.put("foo", -1);
+		assertTrue(((SpillableCollection) bigMap).isSpilled());
+		assertEquals(1001, bigMap.size());
+		assertEquals(500, bigMap.get("key500").intValue());
+		assertEquals(-1, bigMap.get("foo").intValue());
+
+		assertEquals(1, messages.size());
+		assertEquals("Map<String,Integer>", messages.get(0).getCollectionDescription());
+		assertEquals(1000, messages.get(0).getSize());
+		assertSame(_spillStorageProvider, messages.get(0).getStorageProvider());
+
+		// spilled collections are not requested again
+		assertEquals(1, _storageProvider.spillLargestCollections());
+		smallList.add(-1);
+		assertFalse(((SpillableCollection) smallList).isSpilled());
+		mediumSet.add("foo");
+		assertTrue(((SpillableCollection) mediumSet).isSpilled());
+		assertEquals(601, mediumSet.size());
+		assertTrue(mediumSet.contains("value599"));
+		assertEquals("Set<String>", messages.get(1).getCollectionDescription());
+
+		assertEquals(1, _storageProvider.spillLargestCollections());
+		smallList.add(-2);
+		assertTrue(((SpillableCollection) smallList).isSpilled());
+		assertEquals(102, smallList.size());
+		assertEquals(99, smallList.get(99).intValue());
+		assertEquals(-2, smallList.get(101).intValue());
+
+		assertEquals(3, messages.size());
+		assertEquals(0, _storageProvider.spillLargestCollections());
+
+		collectionFactory.close();
+	}
+
+	public void testEmptyCollectionsAreNotSpilled() throws Exception {
+		Set<String> set = _storageProvider.createSet(String.class);
+		assertEquals(0, _storageProvider.spillLargestCollections());
+		set.add("foo");
+		assertFalse(((SpillableCollection) set).isSpilled());
+	}
+
+	public void testInvalidThreshold() throws Exception {
+		try {
+			new AdaptiveStorageProvider(_spillStorageProvider, 1.5f);
+			fail("Exception expected");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Heap usage threshold must be between 0 and 1, was: 1.5", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.eobjects.analyzer.util.ImmutableEntry;
+import org.junit.Ignore;
+
+/**
+ * A benchmark program (which is why it is @Ignore'd) used to compare the
+ * throughput and memory usage of the {@link InMemoryRowAnnotationFactory} with
+ * the previous implementation, which was based on boxed row ids in
+ * synchronized sets.
+ */
+@Ignore
+public class InMemoryRowAnnotationFactoryBenchmarkTest extends TestCase {
+
+    private static final int NUM_ROWS = 500000;
+
+    // the number of annotations that the StringAnalyzer creates per column
+    private static final int NUM_ANNOTATIONS = 13;
+
+    /**
+     * The previous implementation of {@link InMemoryRowAnnotationFactory}.
+     */
+    private static class LegacyInMemoryRowAnnotationFactory extends AbstractRowAnnotationFactory {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<RowAnnotation, Set<Integer>> _annotatedRows = new ConcurrentHashMap<RowAnnotation, Set<Integer>>();
+        private final Map<Integer, Map.Entry<InputRow, Integer>> _distinctCounts = new ConcurrentHashMap<Integer, Map.Entry<InputRow, Integer>>();
+
+        public LegacyInMemoryRowAnnotationFactory(int storedRowsThreshold) {
+            super(storedRowsThreshold);
+        }
+
+        @Override
+        protected void resetRows(RowAnnotation annotation) {
+            _annotatedRows.remove(annotation);
+        }
+
+        @Override
+        protected int getDistinctCount(InputRow row) {
+            return _distinctCounts.get(row.getId()).getValue();
+        }
+
+        @Override
+        protected void storeRowAnnotation(int rowId, RowAnnotation annotation) {
+            Set<Integer> rowIds = _annotatedRows.get(annotation);
+            if (rowIds == null) {
+                rowIds = Collections.synchronizedSet(new LinkedHashSet<Integer>());
+                _annotatedRows.put(annotation, rowIds);
+            }
+            rowIds.add(rowId);
+        }
+
+        @Override
+        protected void storeRowValues(int rowId, InputRow row, int distinctCount) {
+            _distinctCounts.put(rowId, new ImmutableEntry<InputRow, Integer>(row, distinctCount));
+        }
+
+        @Override
+        public InputRow[] getRows(RowAnnotation annotation) {
+            Set<Integer> rowIds = _annotatedRows.get(annotation);
+            if (rowIds == null) {
+                return new InputRow[0];
+            }
+            InputRow[] rows = new InputRow[rowIds.size()];
+            int i = 0;
+            for (Integer rowId : rowIds) {
+                rows[i] = _distinctCounts.get(rowId).getKey();
+                i++;
+            }
+            return rows;
+        }
+
+        @Override
+        public void transferAnnotations(RowAnnotation from, RowAnnotation to) {
+            ((RowAnnotationImpl) to).incrementRowCount(from.getRowCount());
+        }
+    }
+
+    public void testCompareImplementations() throws Exception {
+        System.out.println(getName() + " beginning.");
+        System.out.println("(" + NUM_ROWS + " rows, " + NUM_ANNOTATIONS + " annotations)");
+
+        // warm up
+        run(null, true, 1000, 1);
+        run(null, false, 1000, 1);
+
+        run("1) Legacy, threshold 1000", true, 1000, 1);
+        run("2) Primitive, threshold 1000", false, 1000, 1);
+        run("3) Legacy, no threshold", true, Integer.MAX_VALUE, 1);
+        run("4) Primitive, no threshold", false, Integer.MAX_VALUE, 1);
+        run("5) Legacy, no threshold, 4 threads", true, Integer.MAX_VALUE, 4);
+        run("6) Primitive, no threshold, 4 threads", false, Integer.MAX_VALUE, 4);
+
+        System.out.println(getName() + " finished.");
+    }
+
+    // the factory of the current run. Kept in a field to make sure that it is
+    // reachable while measuring the memory it retains
+    private AbstractRowAnnotationFactory _factory;
+
+    private void run(String name, boolean legacy, int threshold, int threadCount) throws Exception {
+        final MockInputColumn<String> column = new MockInputColumn<String>("value", String.class);
+        final InputRow[] rows = new InputRow[NUM_ROWS];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows[i] = new MockInputRow(i).put(column, "value" + (i % 100));
+        }
+
+        if (legacy) {
+            _factory = new LegacyInMemoryRowAnnotationFactory(threshold);
+        } else {
+            _factory = new InMemoryRowAnnotationFactory(threshold);
+        }
+
+        final RowAnnotation[] annotations = new RowAnnotation[NUM_ANNOTATIONS];
+        for (int i = 0; i < annotations.length; i++) {
+            annotations[i] = _factory.createAnnotation();
+        }
+
+        final long memoryBefore = getUsedMemory();
+        final long timeBefore = System.currentTimeMillis();
+        annotate(_factory, annotations, rows, threadCount);
+        final long timeAfter = System.currentTimeMillis();
+
+        int storedRows = 0;
+        for (RowAnnotation annotation : annotations) {
+            storedRows += _factory.getRows(annotation).length;
+        }
+        final long timeRead = System.currentTimeMillis();
+
+        // the rows are referenced before and after annotating, so the
+        // difference is the memory retained by the factory
+        final long memoryAfter = getUsedMemory();
+        _factory = null;
+
+        if (name != null) {
+            System.out.println(name + " results:");
+            System.out.println("- stored annotated rows: " + storedRows);
+            System.out.println("- annotate time: " + (timeAfter - timeBefore));
+            System.out.println("- read time: " + (timeRead - timeAfter));
+            System.out.println("- retained memory (KB): " + ((memoryAfter - memoryBefore) / 1024));
+        }
+
+        assertTrue(storedRows > 0);
+        assertEquals(NUM_ROWS, rows.length);
+    }
+
+    private void annotate(final AbstractRowAnnotationFactory factory, final RowAnnotation[] annotations,
+            final InputRow[] rows, final int threadCount) throws InterruptedException {
+        final Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int firstRow = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = firstRow; i < rows.length; i += threadCount) {
+                        final InputRow row = rows[i];
+                        for (int j = 0; j < annotations.length; j++) {
+                            // annotate roughly half of the rows per annotation
+                            if (((i + j) & 1) == 0) {
+                                factory.annotate(row, 1, annotations[j]);
+                            }
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private long getUsedMemory() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
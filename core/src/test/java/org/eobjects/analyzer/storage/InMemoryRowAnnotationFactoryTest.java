@@ -19,6 +19,11 @@
  */
 package org.eobjects.analyzer.storage;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.data.MockInputColumn;
 import org.eobjects.analyzer.data.MockInputRow;
 
@@ -73,4 +78,88 @@ public class InMemoryRowAnnotationFactoryTest extends TestCase {
 		
 		assertEquals(7, a.getRowCount());
 	}
+
+	public void testAnnotateSameRowTwice() throws Exception {
+		InMemoryRowAnnotationFactory f = new InMemoryRowAnnotationFactory();
+		RowAnnotation a1 = f.createAnnotation();
+		RowAnnotation a2 = f.createAnnotation();
+
+		MockInputColumn<String> col = new MockInputColumn<String>("greeting", String.class);
+		MockInputRow row = new MockInputRow(1).put(col, "hello");
+
+		f.annotate(row, 1, a1);
+		f.annotate(row, 1, a1);
+		f.annotate(row, 1, a2);
+
+		assertEquals(1, f.getRows(a1).length);
+		assertSame(row, f.getRows(a1)[0]);
+		assertEquals(1, f.getInMemoryRowCount(a1));
+		assertEquals(1, f.getValueCounts(a1, col).get("hello").intValue());
+		assertEquals(1, f.getRows(a2).length);
+	}
+
+	public void testManyRowsConcurrently() throws Exception {
+		final InMemoryRowAnnotationFactory f = new InMemoryRowAnnotationFactory(Integer.MAX_VALUE);
+		final RowAnnotation a = f.createAnnotation();
+		final MockInputColumn<Integer> col = new MockInputColumn<Integer>("number", Integer.class);
+
+		final int threadCount = 4;
+		final int rowsPerThread = 10000;
+		final Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int offset = t * rowsPerThread;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = offset; i < offset + rowsPerThread; i++) {
+						f.annotate(new MockInputRow(i).put(col, i % 10), 1, a);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(threadCount * rowsPerThread, a.getRowCount());
+		final InputRow[] rows = f.getRows(a);
+		assertEquals(threadCount * rowsPerThread, rows.length);
+
+		final Set<Integer> ids = new HashSet<Integer>();
+		for (InputRow row : rows) {
+			ids.add(row.getId());
+		}
+		assertEquals(threadCount * rowsPerThread, ids.size());
+		assertEquals(threadCount * rowsPerThread / 10, f.getValueCounts(a, col).get(7).intValue());
+	}
+
+	public void testSerializeAndDeserialize() throws Exception {
+		InMemoryRowAnnotationFactory f = new InMemoryRowAnnotationFactory();
+		RowAnnotation a = f.createAnnotation();
+
+		MockInputColumn<String> col = new MockInputColumn<String>("greeting", String.class);
+		f.annotate(new MockInputRow(1).put(col, "hello"), 3, a);
+		f.annotate(new MockInputRow(Integer.MIN_VALUE).put(col, "hi"), 1, a);
+		f.annotate(new MockInputRow(2).put(col, "hi"), 1, a);
+
+		Object[] deserialized = (Object[]) SerializationUtils.deserialize(SerializationUtils
+				.serialize(new Object[] { f, a, col }));
+		InMemoryRowAnnotationFactory f2 = (InMemoryRowAnnotationFactory) deserialized[0];
+		RowAnnotation a2 = (RowAnnotation) deserialized[1];
+		@SuppressWarnings("unchecked")
+		MockInputColumn<String> col2 = (MockInputColumn<String>) deserialized[2];
+
+		InputRow[] rows = f2.getRows(a2);
+		assertEquals(3, rows.length);
+		assertEquals(1, rows[0].getId());
+		assertEquals(Integer.MIN_VALUE, rows[1].getId());
+		assertEquals(2, rows[2].getId());
+		assertEquals(3, f2.getValueCounts(a2, col2).get("hello").intValue());
+		assertEquals(2, f2.getValueCounts(a2, col2).get("hi").intValue());
+
+		// the deserialized factory can still be used for annotating
+		f2.annotate(new MockInputRow(4).put(col2, "hello"), 1, a2);
+		assertEquals(4, f2.getValueCounts(a2, col2).get("hello").intValue());
+	}
 }
@@ -0,0 +1,226 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+public class MemoryMappedStorageProviderTest extends TestCase {
+
+	private File _directory;
+	private MemoryMappedStorageProvider _storageProvider;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		_directory = new File("target/test_memory_mapped_storage");
+		if (_directory.exists()) {
+			for (File file : _directory.listFiles()) {
+				file.delete();
+			}
+		}
+		// a small chunk size makes values cross the chunk boundaries
+		_storageProvider = new MemoryMappedStorageProvider(_directory, 1000, 64);
+	}
+
+	public void testMap() throws Exception {
+		Map<String, Integer> map = _storageProvider.createMap(String.class, Integer.class);
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+
+		for (int i = 0; i < 5000; i++) {
+			String key = "key" + (i % 2000);
+			Integer count = map.get(key);
+			map.put(key, count == null ? 1 : count + 1);
+
+			count = expected.get(key);
+			expected.put(key, count == null ? 1 : count + 1);
+		}
+
+		assertEquals(2000, map.size());
+		assertEquals(expected, map);
+		assertEquals(3, map.get("key0").intValue());
+		assertEquals(2, map.get("key1999").intValue());
+		assertNull(map.get("foo"));
+		assertFalse(map.containsKey("foo"));
+
+		map.put(null, null);
+		assertTrue(map.containsKey(null));
+		assertNull(map.get(null));
+		assertEquals(2001, map.size());
+
+		assertEquals(3, map.remove("key0").intValue());
+		assertNull(map.remove("key0"));
+		assertNull(map.remove(null));
+		assertEquals(1999, map.size());
+
+		Iterator<Entry<String, Integer>> it = map.entrySet().iterator();
+		int iterated = 0;
+		while (it.hasNext()) {
+			Entry<String, Integer> entry = it.next();
+			iterated++;
+			if (entry.getKey().endsWith("7")) {
+				it.remove();
+			} else if (entry.getKey().endsWith("8")) {
+				entry.setValue(entry.getValue() + 100);
+			}
+		}
+		assertEquals(1999, iterated);
+		assertEquals(1799, map.size());
+		assertNull(map.get("key7"));
+		assertEquals(103, map.get("key8").intValue());
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get("key8"));
+		map.put("foo", 42);
+		assertEquals(42, map.get("foo").intValue());
+		assertEquals(1, map.size());
+	}
+
+	public void testLookupKeysOfOtherTypes() throws Exception {
+		Map<String, Integer> map = _storageProvider.createMap(String.class, Integer.class);
+		map.put("1", 1);
+
+		assertFalse(map.containsKey(1));
+		assertNull(map.get(1));
+		assertNull(map.remove(1));
+		assertEquals(1, map.size());
+
+		Set<Long> set = _storageProvider.createSet(Long.class);
+		set.add(1l);
+		assertFalse(set.contains(1));
+		assertFalse(set.remove("1"));
+		assertTrue(set.contains(1l));
+	}
+
+	public void testMapOfSerializedValues() throws Exception {
+		Map<Integer, Object> map = _storageProvider.createMap(Integer.class, Object.class);
+		map.put(1, "foo");
+		map.put(2, new Date(1000L));
+		map.put(3, 1.5d);
+		map.put(1, "a longer value than foo");
+
+		assertEquals("{1=a longer value than foo, 2=" + new Date(1000L) + ", 3=1.5}",
+				new TreeMap<Integer, Object>(map).toString());
+	}
+
+	public void testSet() throws Exception {
+		Set<Long> set = _storageProvider.createSet(Long.class);
+		for (long i = 0; i < 3000; i++) {
+			assertTrue(set.add(i));
+		}
+		assertFalse(set.add(0l));
+		assertEquals(3000, set.size());
+		assertTrue(set.contains(2999l));
+		assertFalse(set.contains(3000l));
+
+		assertTrue(set.remove(1000l));
+		assertFalse(set.remove(1000l));
+		assertFalse(set.contains(1000l));
+		assertEquals(2999, set.size());
+
+		long sum = 0;
+		for (Long value : set) {
+			sum += value;
+		}
+		assertEquals(2999l * 3000l / 2 - 1000, sum);
+	}
+
+	public void testList() throws Exception {
+		List<String> list = _storageProvider.createList(String.class);
+		for (int i = 0; i < 1000; i++) {
+			list.add("value" + i);
+		}
+		list.add(null);
+		assertEquals(1001, list.size());
+		assertEquals("value0", list.get(0));
+		assertEquals("value999", list.get(999));
+		assertNull(list.get(1000));
+
+		list.add(0, "first");
+		assertEquals("first", list.get(0));
+		assertEquals("value0", list.get(1));
+		assertEquals(1002, list.size());
+
+		assertEquals("value0", list.remove(1));
+		assertEquals("value1", list.get(1));
+		assertEquals(1001, list.size());
+
+		assertEquals("value1", list.set(1, "value1 replaced"));
+		assertEquals("value2", list.set(2, "value9"));
+		assertEquals("value1 replaced", list.get(1));
+		assertEquals("value9", list.get(2));
+		assertEquals("value3", list.get(3));
+
+		assertEquals(999, list.indexOf("value999"));
+		assertEquals(-1, list.indexOf("value2"));
+
+		try {
+			list.get(1001);
+			fail("Exception expected");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+
+		list.clear();
+		assertTrue(list.isEmpty());
+		list.add("foo");
+		assertEquals("[foo]", list.toString());
+	}
+
+	public void testCloseDeletesFiles() throws Exception {
+		Map<String, String> map = _storageProvider.createMap(String.class, String.class);
+		Set<String> set = _storageProvider.createSet(String.class);
+		List<String> list = _storageProvider.createList(String.class);
+		map.put("foo", "bar");
+		set.add("foo");
+		list.add("foo");
+
+		assertEquals(6, _directory.listFiles().length);
+
+		CollectionFactoryImpl collectionFactory = new CollectionFactoryImpl(_storageProvider);
+		collectionFactory.createMap(String.class, String.class).put("foo", "bar");
+		assertEquals(8, _directory.listFiles().length);
+		collectionFactory.close();
+		assertEquals(6, _directory.listFiles().length);
+
+		((Closeable) map).close();
+		((Closeable) set).close();
+		((Closeable) list).close();
+
+		assertEquals(0, _directory.listFiles().length);
+	}
+
+	public void testRowAnnotationFactory() throws Exception {
+		RowAnnotationFactory annotationFactory = _storageProvider.createRowAnnotationFactory();
+		assertTrue(annotationFactory instanceof PagedRowAnnotationFactory);
+		((PagedRowAnnotationFactory) annotationFactory).close();
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.eobjects.analyzer.data.TransformedInputRow;
+
+public class PagedRowAnnotationFactoryTest extends TestCase {
+
+	private final MockInputColumn<String> col1 = new MockInputColumn<String>("greeting", String.class);
+	private final MockInputColumn<Object> col2 = new MockInputColumn<Object>("value", Object.class);
+
+	public void testGetValueCounts() throws Exception {
+		PagedRowAnnotationFactory f = new PagedRowAnnotationFactory();
+		RowAnnotation a = f.createAnnotation();
+
+		f.annotate(new MockInputRow(1).put(col1, "hello").put(col2, "world"), 3, a);
+		f.annotate(new MockInputRow(2).put(col1, "hi").put(col2, "world"), 2, a);
+
+		assertEquals(3, f.getValueCounts(a, col1).get("hello").intValue());
+		assertEquals(2, f.getValueCounts(a, col1).get("hi").intValue());
+		assertEquals(5, f.getValueCounts(a, col2).get("world").intValue());
+
+		f.reset(a);
+
+		assertEquals(0, f.getRows(a).length);
+		assertEquals(0, f.getValueCounts(a, col1).size());
+		f.close();
+	}
+
+	public void testValueTypes() throws Exception {
+		PagedRowAnnotationFactory f = new PagedRowAnnotationFactory();
+		RowAnnotation a = f.createAnnotation();
+
+		Object[] values = new Object[] { null, "", "æøå", 42, 42l, 4.2d, true, new Date(1234567890l),
+				new BigDecimal("1.5"), new Object() {
+					@Override
+					public String toString() {
+						return "foo";
+					}
+				} };
+		for (int i = 0; i < values.length; i++) {
+			f.annotate(new MockInputRow(i).put(col2, values[i]), 1, a);
+		}
+
+		InputRow[] rows = f.getRows(a);
+		assertEquals(values.length, rows.length);
+		for (int i = 0; i < values.length - 1; i++) {
+			assertEquals(i, rows[i].getId());
+			assertEquals(values[i], rows[i].getValue(col2));
+		}
+		// non-serializable values are stored as strings
+		assertEquals("foo", rows[values.length - 1].getValue(col2));
+		f.close();
+	}
+
+	public void testTransformedRowIsFlattened() throws Exception {
+		PagedRowAnnotationFactory f = new PagedRowAnnotationFactory();
+		RowAnnotation a = f.createAnnotation();
+
+		TransformedInputRow row = new TransformedInputRow(new MockInputRow(7).put(col1, "hello"));
+		row.addValue(col2, "world");
+		f.annotate(row, 1, a);
+
+		InputRow storedRow = f.getRows(a)[0];
+		assertTrue(storedRow instanceof MockInputRow);
+		assertEquals(7, storedRow.getId());
+		assertEquals("hello", storedRow.getValue(col1));
+		assertEquals("world", storedRow.getValue(col2));
+		f.close();
+	}
+
+	public void testRowsWithDifferentColumns() throws Exception {
+		PagedRowAnnotationFactory f = new PagedRowAnnotationFactory();
+		RowAnnotation a = f.createAnnotation();
+
+		f.annotate(new MockInputRow(1).put(col1, "hello").put(col2, "world"), 1, a);
+		f.annotate(new MockInputRow(2).put(col2, "foo"), 1, a);
+		f.annotate(new MockInputRow(3).put(col1, "hi").put(col2, "there"), 1, a);
+
+		InputRow[] rows = f.getRows(a);
+		assertEquals(3, rows.length);
+		assertEquals("[MockInputColumn[name=greeting], MockInputColumn[name=value]]", rows[0].getInputColumns().toString());
+		assertEquals("[MockInputColumn[name=value]]", rows[1].getInputColumns().toString());
+		assertEquals("foo", rows[1].getValue(col2));
+		assertEquals("[MockInputColumn[name=greeting], MockInputColumn[name=value]]", rows[2].getInputColumns().toString());
+		assertEquals("hi", rows[2].getValue(col1));
+		f.close();
+	}
+
+	public void testRowsWithoutStoredValuesAreLeftOut() throws Exception {
+		PagedRowAnnotationFactory f = new PagedRowAnnotationFactory();
+		RowAnnotation a = f.createAnnotation();
+
+		f.annotate(new MockInputRow(1).put(col1, "hello"), 1, a);
+		f.storeRowAnnotation(2, a);
+		f.annotate(new MockInputRow(3).put(col1, "hi"), 1, a);
+
+		InputRow[] rows = f.getRows(a);
+		assertEquals(2, rows.length);
+		assertEquals(1, rows[0].getId());
+		assertEquals(3, rows[1].getId());
+		f.close();
+	}
+
+	public void testManyPagesWithSmallCache() throws Exception {
+		RowPageCache cache = new RowPageCache(2 * 1024);
+		PagedRowAnnotationFactory f = new PagedRowAnnotationFactory(Integer.MAX_VALUE, null, cache, 1024);
+		RowAnnotation a1 = f.createAnnotation();
+		RowAnnotation a2 = f.createAnnotation();
+
+		final int rowCount = 5000;
+		for (int i = 0; i < rowCount; i++) {
+			MockInputRow row = new MockInputRow(i).put(col1, "row number " + i).put(col2, i);
+			f.annotate(row, 1, a1);
+			if (i % 3 == 0) {
+				f.annotate(row, 1, a2);
+			}
+		}
+
+		assertEquals(rowCount, f.getStoredRowCount());
+		assertTrue(f.getPageFile().length() > 0);
+
+		InputRow[] rows = f.getRows(a1);
+		assertEquals(rowCount, rows.length);
+		for (int i = 0; i < rowCount; i++) {
+			assertEquals(i, rows[i].getId());
+			assertEquals("row number " + i, rows[i].getValue(col1));
+			assertEquals(i, rows[i].getValue(col2));
+		}
+		assertTrue(cache.getCurrentBytes() <= cache.getMaxBytes());
+
+		rows = f.getRows(a2);
+		assertEquals(rowCount / 3 + 1, rows.length);
+		assertEquals(3, rows[1].getId());
+		assertEquals(1, f.getValueCounts(a2, col2).get(3).intValue());
+
+		File file = f.getPageFile();
+		f.close();
+		assertFalse(file.exists());
+		assertEquals(0, cache.getCurrentBytes());
+	}
+
+	public void testSerializeAsInMemoryFactory() throws Exception {
+		PagedRowAnnotationFactory f = new PagedRowAnnotationFactory(500);
+		RowAnnotation a = f.createAnnotation();
+
+		f.annotate(new MockInputRow(1).put(col1, "hello"), 1, a);
+		f.annotate(new MockInputRow(Integer.MIN_VALUE).put(col1, "hi"), 1, a);
+		f.annotate(new MockInputRow(3).put(col1, "hey"), 2, a);
+
+		Object[] deserialized = (Object[]) SerializationUtils.deserialize(SerializationUtils
+				.serialize(new Object[] { f, a, col1 }));
+		f.close();
+
+		assertTrue(deserialized[0] instanceof InMemoryRowAnnotationFactory);
+		InMemoryRowAnnotationFactory f2 = (InMemoryRowAnnotationFactory) deserialized[0];
+		RowAnnotation a2 = (RowAnnotation) deserialized[1];
+		@SuppressWarnings("unchecked")
+		MockInputColumn<String> col = (MockInputColumn<String>) deserialized[2];
+		assertEquals(500, f2.getStoredRowsThreshold().intValue());
+
+		InputRow[] rows = f2.getRows(a2);
+		assertEquals(3, rows.length);
+		assertEquals(1, rows[0].getId());
+		assertEquals(Integer.MIN_VALUE, rows[1].getId());
+		assertEquals("hey", rows[2].getValue(col));
+		assertEquals(2, f2.getValueCounts(a2, col).get("hey").intValue());
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util;
+
+import junit.framework.TestCase;
+
+public class LongHashMapTest extends TestCase {
+
+    public void testSet() throws Exception {
+        final LongHashMap set = new LongHashMap();
+        assertTrue(set.add(0));
+        assertTrue(set.add(-1));
+        assertTrue(set.add(Integer.MIN_VALUE));
+        assertFalse(set.add(0));
+        assertFalse(set.add(-1));
+
+        assertEquals(3, set.size());
+        assertTrue(set.containsKey(0));
+        assertTrue(set.containsKey(Integer.MIN_VALUE));
+        assertFalse(set.containsKey(1));
+        assertEquals(0, set.get(-1, 42));
+        assertEquals(42, set.get(1, 42));
+    }
+
+    public void testPutAndAddTo() throws Exception {
+        final LongHashMap map = new LongHashMap();
+        assertTrue(map.put(5, 500));
+        assertFalse(map.put(5, 501));
+        assertEquals(501, map.get(5, -1));
+
+        assertEquals(3, map.addTo(Long.MAX_VALUE, 3));
+        assertEquals(5, map.addTo(Long.MAX_VALUE, 2));
+        assertEquals(5, map.get(Long.MAX_VALUE, -1));
+        assertEquals(2, map.size());
+    }
+
+    public void testGrowAndIterateSlots() throws Exception {
+        final LongHashMap map = new LongHashMap(10);
+        for (int i = 0; i < 10000; i++) {
+            map.addTo(i % 1000, i);
+        }
+        assertEquals(1000, map.size());
+
+        int count = 0;
+        long total = 0;
+        for (int slot = 0; slot < map.getCapacity(); slot++) {
+            if (map.isUsed(slot)) {
+                assertEquals(map.get(map.getKeyAt(slot), -1), map.getValueAt(slot));
+                total += map.getValueAt(slot);
+                count++;
+            }
+        }
+        assertEquals(1000, count);
+        assertEquals(10000L * 9999 / 2, total);
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sketch;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.lang.SerializationUtils;
+
+public class HyperLogLogTest extends TestCase {
+
+    public void testEstimateSmallCardinality() throws Exception {
+        final HyperLogLog hll = new HyperLogLog();
+        assertEquals(0, hll.estimate());
+
+        for (int i = 0; i < 100; i++) {
+            hll.add("value" + i);
+            hll.add("value" + i);
+        }
+        assertEquals(100, hll.estimate());
+    }
+
+    public void testEstimateWithinErrorBound() throws Exception {
+        final HyperLogLog hll = new HyperLogLog(12);
+        final int n = 200000;
+        for (int i = 0; i < n; i++) {
+            hll.add("v" + i);
+        }
+
+        final double error = Math.abs(hll.estimate() - n) / (double) n;
+        assertTrue("Error was " + error, error < 3 * hll.getRelativeStandardError());
+    }
+
+    public void testMerge() throws Exception {
+        final HyperLogLog hll1 = new HyperLogLog(12);
+        final HyperLogLog hll2 = new HyperLogLog(12);
+        final HyperLogLog all = new HyperLogLog(12);
+        for (int i = 0; i < 30000; i++) {
+            hll1.add("v" + i);
+            all.add("v" + i);
+        }
+        for (int i = 20000; i < 50000; i++) {
+            hll2.add("v" + i);
+            all.add("v" + i);
+        }
+
+        final HyperLogLog merged = new HyperLogLog(hll1);
+        merged.merge(hll2);
+        assertEquals(all.estimate(), merged.estimate());
+
+        // the copy constructor should not share registers
+        assertTrue(hll1.estimate() < merged.estimate());
+
+        try {
+            merged.merge(new HyperLogLog(10));
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cannot merge HyperLogLog with precision 10 into HyperLogLog with precision 12",
+                    e.getMessage());
+        }
+    }
+
+    public void testSerialize() throws Exception {
+        final HyperLogLog hll = new HyperLogLog(8);
+        for (int i = 0; i < 1000; i++) {
+            hll.add("v" + i);
+        }
+
+        final HyperLogLog copy = (HyperLogLog) SerializationUtils.clone(hll);
+        assertEquals(hll.estimate(), copy.estimate());
+        assertEquals(8, copy.getPrecision());
+    }
+
+    public void testInvalidPrecision() throws Exception {
+        try {
+            new HyperLogLog(2);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Precision must be between 4 and 18, got: 2", e.getMessage());
+        }
+    }
+}
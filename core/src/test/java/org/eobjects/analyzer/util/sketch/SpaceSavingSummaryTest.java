@@ -0,0 +1,130 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sketch;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.eobjects.analyzer.util.sketch.SpaceSavingSummary.Counter;
+
+public class SpaceSavingSummaryTest extends TestCase {
+
+    public void testExactBelowCapacity() throws Exception {
+        final SpaceSavingSummary summary = new SpaceSavingSummary(10);
+        summary.add("foo", 3);
+        summary.add("bar", 1);
+        summary.add("foo", 2);
+        summary.add("baz", 4);
+
+        assertEquals(0, summary.getMaxError());
+        assertEquals(10, summary.getTotalCount());
+
+        final List<Counter> top = summary.getTopCounters(2);
+        assertEquals(2, top.size());
+        assertEquals("foo", top.get(0).getValue());
+        assertEquals(5, top.get(0).getCount());
+        assertEquals("baz", top.get(1).getValue());
+        assertEquals(4, top.get(1).getCount());
+
+        assertNull(summary.getCounter("hello"));
+        assertEquals(1, summary.getCounter("bar").getCount());
+    }
+
+    public void testHeavyHittersAboveCapacity() throws Exception {
+        final SpaceSavingSummary summary = new SpaceSavingSummary(100);
+        for (int i = 0; i < 10000; i++) {
+            summary.add("unique" + i, 1);
+            if (i % 10 == 0) {
+                summary.add("frequent1", 1);
+            }
+            if (i % 20 == 0) {
+                summary.add("frequent2", 1);
+            }
+        }
+
+        assertEquals(100, summary.size());
+        assertTrue(summary.getMaxError() <= summary.getTotalCount() / summary.getCapacity());
+
+        final List<Counter> top = summary.getTopCounters(2);
+        assertEquals("frequent1", top.get(0).getValue());
+        assertEquals("frequent2", top.get(1).getValue());
+
+        for (Counter counter : top) {
+            assertTrue(counter.getError() <= summary.getMaxError());
+        }
+        assertTrue(top.get(0).getGuaranteedCount() <= 1000);
+        assertTrue(top.get(0).getCount() >= 1000);
+        assertTrue(top.get(1).getGuaranteedCount() <= 500);
+        assertTrue(top.get(1).getCount() >= 500);
+    }
+
+    public void testMerge() throws Exception {
+        final SpaceSavingSummary summary1 = new SpaceSavingSummary(3);
+        summary1.add("a", 10);
+        summary1.add("b", 5);
+        summary1.add("c", 1);
+
+        final SpaceSavingSummary summary2 = new SpaceSavingSummary(3);
+        summary2.add("a", 2);
+        summary2.add("d", 8);
+        summary2.add("e", 2);
+
+        final SpaceSavingSummary merged = new SpaceSavingSummary(summary1);
+        merged.merge(summary2);
+
+        assertEquals(28, merged.getTotalCount());
+        assertEquals(3, merged.size());
+
+        final List<Counter> top = merged.getTopCounters(3);
+        assertEquals("a", top.get(0).getValue());
+        assertEquals(12, top.get(0).getCount());
+        assertEquals(0, top.get(0).getError());
+
+        // "d" may have occurred up to once in summary 1
+        assertEquals("d", top.get(1).getValue());
+        assertEquals(9, top.get(1).getCount());
+        assertEquals(1, top.get(1).getError());
+
+        // "b" may have occurred up to twice in summary 2
+        assertEquals("b", top.get(2).getValue());
+        assertEquals(7, top.get(2).getCount());
+        assertEquals(2, top.get(2).getError());
+
+        // the original should be untouched
+        assertEquals(16, summary1.getTotalCount());
+        assertEquals(10, summary1.getCounter("a").getCount());
+    }
+
+    public void testSerialize() throws Exception {
+        final SpaceSavingSummary summary = new SpaceSavingSummary(2);
+        summary.add("foo", 2);
+        summary.add("bar", 1);
+
+        final SpaceSavingSummary copy = (SpaceSavingSummary) SerializationUtils.clone(summary);
+        assertEquals(3, copy.getTotalCount());
+
+        copy.add("baz", 1);
+        assertEquals(2, copy.size());
+        assertEquals(2, copy.getCounter("baz").getCount());
+        assertEquals(1, copy.getCounter("baz").getError());
+    }
+}
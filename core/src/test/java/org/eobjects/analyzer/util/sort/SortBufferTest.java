@@ -0,0 +1,92 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+public class SortBufferTest extends TestCase {
+
+    public void testSortAndDeduplicateRandomRows() throws Exception {
+        final Random random = new Random(1);
+        for (int distinct : new int[] { 1, 5, 100, 10000 }) {
+            final SortBuffer<Integer> buffer = new SortBuffer<Integer>(20000, new IntegerComparator());
+            final Map<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+            for (int j = 0; j < 50000 && !buffer.isFull(); j++) {
+                final Integer row = random.nextInt(distinct);
+                final int count = 1 + random.nextInt(3);
+                buffer.add(row, count);
+                final Integer existing = expected.get(row);
+                expected.put(row, existing == null ? count : existing + count);
+            }
+
+            buffer.sortAndDeduplicate();
+
+            assertEquals(expected.size(), buffer.size());
+            int i = 0;
+            for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+                assertEquals(entry.getKey(), buffer.getRow(i));
+                assertEquals(entry.getValue().intValue(), buffer.getCount(i));
+                i++;
+            }
+        }
+    }
+
+    public void testSortPresortedRows() throws Exception {
+        final SortBuffer<Integer> buffer = new SortBuffer<Integer>(5000, new IntegerComparator());
+        for (int i = 5000; i > 0; i--) {
+            buffer.add(i, 1);
+        }
+        buffer.sortAndDeduplicate();
+        assertEquals(5000, buffer.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i + 1, buffer.getRow(i).intValue());
+        }
+    }
+
+    public void testFullWhenMaxDistinctRows() throws Exception {
+        final SortBuffer<Integer> buffer = new SortBuffer<Integer>(100, new IntegerComparator());
+        for (int i = 0; i < 100000; i++) {
+            assertFalse(buffer.isFull());
+            buffer.add(i % 10, 1);
+        }
+        buffer.sortAndDeduplicate();
+        assertEquals(10, buffer.size());
+        assertEquals(10000, buffer.getCount(0));
+
+        int i = 10;
+        while (!buffer.isFull()) {
+            buffer.add(i++, 1);
+        }
+        assertTrue(buffer.size() >= 100);
+        assertTrue(buffer.size() <= 200);
+    }
+
+    private static class IntegerComparator implements Comparator<Integer> {
+        @Override
+        public int compare(Integer o1, Integer o2) {
+            return o1.compareTo(o2);
+        }
+    }
+}
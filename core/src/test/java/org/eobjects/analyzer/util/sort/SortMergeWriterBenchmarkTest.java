@@ -0,0 +1,110 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.ToStringComparator;
+import org.junit.Ignore;
+
+/**
+ * A benchmark program (which is why it is @Ignore'd) used to compare the
+ * throughput of the {@link SortMergeWriter} with different
+ * {@link SortKeyCodec}s, with/without compression of the temporary files,
+ * with/without background flushing and with different merge fan-ins.
+ */
+@Ignore
+public class SortMergeWriterBenchmarkTest extends TestCase {
+
+    private static final int NUM_ROWS = 2000000;
+    private static final int NUM_DISTINCT_ROWS = 1000000;
+    private static final int BUFFER_SIZE = 20000;
+
+    public void testCodecs() throws Exception {
+        System.out.println(getName() + " beginning.");
+        System.out.println("(" + NUM_ROWS + " rows, " + NUM_DISTINCT_ROWS + " distinct, buffer size " + BUFFER_SIZE
+                + ")");
+
+        run("1) SerializableKeyCodec", new SerializableKeyCodec<String>(), false, true,
+                SortMergeWriter.DEFAULT_MAX_FAN_IN);
+        run("2) StringKeyCodec", new StringKeyCodec(), false, true, SortMergeWriter.DEFAULT_MAX_FAN_IN);
+        run("3) StringKeyCodec, compressed", new StringKeyCodec(), true, true, SortMergeWriter.DEFAULT_MAX_FAN_IN);
+        run("4) StringKeyCodec, synchronous flush", new StringKeyCodec(), false, false,
+                SortMergeWriter.DEFAULT_MAX_FAN_IN);
+        run("5) StringKeyCodec, max fan-in 10", new StringKeyCodec(), false, true, 10);
+
+        System.out.println(getName() + " finished.");
+    }
+
+    private void run(String name, SortKeyCodec<String> codec, boolean compressed, boolean backgroundFlush,
+            int maxFanIn) throws Exception {
+        final long timeBefore = System.currentTimeMillis();
+
+        final SortMergeWriter<String, Writer> sorter = new SortMergeWriter<String, Writer>(BUFFER_SIZE,
+                ToStringComparator.getComparator(), codec, compressed) {
+            @Override
+            protected void writeHeader(Writer writer) throws IOException {
+            }
+
+            @Override
+            protected void writeRow(Writer writer, String row, int count) throws IOException {
+                if (count > 1) {
+                    writer.write(row);
+                    writer.write('\n');
+                }
+            }
+
+            @Override
+            protected Writer createWriter(File file) {
+                return FileHelper.getBufferedWriter(file);
+            }
+        };
+
+        sorter.setBackgroundFlush(backgroundFlush);
+        sorter.setMaxFanIn(maxFanIn);
+
+        final Random random = new Random(0);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            sorter.append("customer-key-" + random.nextInt(NUM_DISTINCT_ROWS));
+        }
+        final long timeAppended = System.currentTimeMillis();
+
+        final File file = File.createTempFile("sort_merge_benchmark", ".txt");
+        final int rowCount = sorter.write(file);
+        final long timeAfter = System.currentTimeMillis();
+
+        System.out.println(name + " results:");
+        System.out.println("- temp files: " + sorter.getTempFileCount());
+        System.out.println("- append time: " + (timeAppended - timeBefore));
+        System.out.println("- merge time: " + (timeAfter - timeAppended));
+        System.out.println("- TOTAL time: " + (timeAfter - timeBefore));
+
+        sorter.close();
+        file.delete();
+
+        assertTrue(rowCount > 0);
+    }
+}
@@ -22,8 +22,11 @@ package org.eobjects.analyzer.util.sort;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -240,6 +243,177 @@ public class SortMergeWriterTest extends TestCase {
         }
     }
 
+    public void testNoTempFilesForDuplicateRows() throws Exception {
+        final SortMerger<String> sorter = new SortMerger<String>(10, ToStringComparator.getComparator()) {
+            @Override
+            protected File createTempFile() throws IOException {
+                throw new IllegalStateException("This test is not supposed to require temp files!");
+            }
+        };
+
+        for (int i = 0; i < 10000; i++) {
+            sorter.append("v" + (i % 5));
+        }
+
+        final List<String> rows = new ArrayList<String>();
+        assertEquals(5, sorter.merge(new SortedRowHandler<String>() {
+            @Override
+            public void handleRow(String row, int count) {
+                rows.add(row + "," + count);
+            }
+        }));
+        assertEquals("[v0,2000, v1,2000, v2,2000, v3,2000, v4,2000]", rows.toString());
+    }
+
+    public void testWriteToWriterAndClose() throws Exception {
+        final List<File> tempFiles = new ArrayList<File>();
+        SortMergeWriter<String, StringWriter> sorter = new SortMergeWriter<String, StringWriter>(2,
+                ToStringComparator.getComparator()) {
+
+            @Override
+            protected StringWriter createWriter(File file) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected void writeRow(StringWriter writer, String row, int count) throws IOException {
+                writer.write(row + "," + count + "\n");
+            }
+
+            protected void writeHeader(StringWriter writer) throws IOException {
+            };
+
+            @Override
+            protected File createTempFile() throws IOException {
+                File file = super.createTempFile();
+                tempFiles.add(file);
+                return file;
+            }
+        };
+
+        sorter.append("foo");
+        sorter.append("bar");
+        sorter.append("baz");
+        sorter.append("foo", 2);
+        sorter.append("bar");
+
+        StringWriter writer = new StringWriter();
+        assertEquals(3, sorter.write(writer));
+        assertEquals("bar,2\nbaz,1\nfoo,3\n", writer.toString());
+
+        assertEquals(tempFiles.size(), sorter.getTempFileCount());
+        assertFalse(tempFiles.isEmpty());
+        for (File file : tempFiles) {
+            assertTrue(file.exists());
+        }
+
+        sorter.close();
+        assertEquals(0, sorter.getTempFileCount());
+        for (File file : tempFiles) {
+            assertFalse(file.exists());
+        }
+    }
+
+    public void testStringKeyCodecWithCompression() throws Exception {
+        final SortMergeWriter<String, StringWriter> sorter = new SortMergeWriter<String, StringWriter>(3,
+                ToStringComparator.getComparator(), new StringKeyCodec(), true) {
+
+            @Override
+            protected StringWriter createWriter(File file) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected void writeRow(StringWriter writer, String row, int count) throws IOException {
+                writer.write(row + "," + count + "\n");
+            }
+
+            protected void writeHeader(StringWriter writer) throws IOException {
+            };
+        };
+
+        final String[] values = { "\u00e6bler", "foo", "", "bar", "\u00f8l", "foo", "\u65e5\u672c", "bar", "",
+                "foo" };
+        for (int i = 0; i < 10; i++) {
+            for (String value : values) {
+                sorter.append(value);
+            }
+        }
+        assertTrue(sorter.getTempFileCount() > 1);
+
+        final StringWriter writer = new StringWriter();
+        assertEquals(6, sorter.write(writer));
+        assertEquals(",20\nbar,20\nfoo,30\n\u00e6bler,10\n\u00f8l,10\n\u65e5\u672c,10\n", writer.toString());
+        sorter.close();
+    }
+
+    public void testMultiPassMerge() throws Exception {
+        doMultiPassMerge(true);
+        doMultiPassMerge(false);
+    }
+
+    private void doMultiPassMerge(boolean backgroundFlush) throws Exception {
+        final List<File> tempFiles = new ArrayList<File>();
+        final SortMergeWriter<String, StringWriter> sorter = new SortMergeWriter<String, StringWriter>(2,
+                ToStringComparator.getComparator(), new StringKeyCodec(), false) {
+
+            @Override
+            protected StringWriter createWriter(File file) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected void writeRow(StringWriter writer, String row, int count) throws IOException {
+                writer.write(row + "," + count + "\n");
+            }
+
+            protected void writeHeader(StringWriter writer) throws IOException {
+            };
+
+            @Override
+            protected File createTempFile() throws IOException {
+                File file = super.createTempFile();
+                tempFiles.add(file);
+                return file;
+            }
+        };
+        sorter.setBackgroundFlush(backgroundFlush);
+        sorter.setMaxFanIn(3);
+
+        for (int i = 0; i < 50; i++) {
+            sorter.append("v" + (i % 13));
+        }
+        final int runCount = sorter.getTempFileCount();
+        assertTrue(runCount > 3);
+
+        final StringWriter writer = new StringWriter();
+        assertEquals(13, sorter.write(writer));
+
+        // the runs have been merged down to the fan-in
+        assertTrue(sorter.getTempFileCount() <= 3);
+        assertTrue(tempFiles.size() > runCount);
+        int existingFiles = 0;
+        for (File file : tempFiles) {
+            if (file.exists()) {
+                existingFiles++;
+            }
+        }
+        assertEquals(sorter.getTempFileCount(), existingFiles);
+
+        final String[] lines = writer.toString().split("\n");
+        assertEquals(13, lines.length);
+        assertEquals("v0,4", lines[0]);
+        assertEquals("v1,4", lines[1]);
+        assertEquals("v10,4", lines[2]);
+        assertEquals("v11,3", lines[3]);
+        assertEquals("v9,4", lines[12]);
+
+        sorter.close();
+        for (File file : tempFiles) {
+            assertFalse(file.exists());
+        }
+    }
+
     private void doSortTests(int threshold) throws Exception {
         SortMergeWriter<String, Writer> sorter = new SortMergeWriter<String, Writer>(threshold,
                 ToStringComparator.getComparator()) {
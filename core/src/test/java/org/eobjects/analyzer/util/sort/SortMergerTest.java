@@ -0,0 +1,58 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.util.sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.util.ToStringComparator;
+
+public class SortMergerTest extends TestCase {
+
+    public void testMergeToHandler() throws Exception {
+        final SortMerger<String> sorter = new SortMerger<String>(2, ToStringComparator.getComparator(),
+                new StringKeyCodec(), false);
+        try {
+            sorter.append("foo");
+            sorter.append("bar");
+            sorter.append(null);
+            sorter.append("foo", 2);
+            sorter.append("baz");
+            sorter.append(null);
+            sorter.append("bar");
+            assertTrue(sorter.getTempFileCount() > 0);
+
+            final List<String> rows = new ArrayList<String>();
+            final int rowCount = sorter.merge(new SortedRowHandler<String>() {
+                @Override
+                public void handleRow(String row, int count) {
+                    rows.add(row + "," + count);
+                }
+            });
+
+            assertEquals(4, rowCount);
+            assertEquals("[null,2, bar,2, baz,1, foo,3]", rows.toString());
+        } finally {
+            sorter.close();
+        }
+    }
+}
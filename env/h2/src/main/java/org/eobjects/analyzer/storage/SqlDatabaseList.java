@@ -23,27 +23,71 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
+/**
+ * List backed by a SQL database table. Appended elements are buffered and
+ * inserted in JDBC batches, which are flushed when the batch size is reached
+ * or before any other modification or iteration of the list.
+ * 
+ * @param <E>
+ */
 class SqlDatabaseList<E> extends AbstractList<E> implements List<E>, SqlDatabaseCollection {
 
 	private final Connection _connection;
 	private final String _tableName;
+	private final List<E> _pendingElements;
+	private PreparedStatement _getStatement;
+	private PreparedStatement _insertStatement;
 	private volatile int _size;
 
 	public SqlDatabaseList(Connection connection, String tableName, String valueTypeName) {
 		_connection = connection;
 		_tableName = tableName;
+		_pendingElements = new ArrayList<E>();
 		_size = 0;
 
 		SqlDatabaseUtils.performUpdate(_connection, SqlDatabaseUtils.CREATE_TABLE_PREFIX + tableName
 				+ " (list_index INTEGER PRIMARY KEY, list_value " + valueTypeName + ")");
 	}
 
+	/**
+	 * Inserts the buffered, appended elements into the table.
+	 */
+	private void flush() {
+		if (_pendingElements.isEmpty()) {
+			return;
+		}
+		try {
+			if (_insertStatement == null) {
+				_insertStatement = _connection.prepareStatement("INSERT INTO " + _tableName + " VALUES(?, ?)");
+			}
+			int index = _size - _pendingElements.size();
+			int batchCount = 0;
+			for (E elem : _pendingElements) {
+				_insertStatement.setInt(1, index);
+				_insertStatement.setObject(2, elem);
+				_insertStatement.addBatch();
+				index++;
+				batchCount++;
+				if (batchCount == SqlDatabaseWriteBehindCache.DEFAULT_BATCH_SIZE) {
+					_insertStatement.executeBatch();
+					batchCount = 0;
+				}
+			}
+			_insertStatement.executeBatch();
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+		_pendingElements.clear();
+	}
+
 	@Override
 	public synchronized E remove(int index) {
+		flush();
 		E oldValue = get(index);
 		SqlDatabaseUtils.performUpdate(_connection, "DELETE FROM " + _tableName + " WHERE list_index=" + index);
 		SqlDatabaseUtils.performUpdate(_connection, "UPDATE " + _tableName
@@ -54,17 +98,26 @@ class SqlDatabaseList<E> extends AbstractList<E> implements List<E>, SqlDatabase
 
 	@Override
 	public synchronized void clear() {
+		_pendingElements.clear();
 		SqlDatabaseUtils.performUpdate(_connection, "DELETE FROM " + _tableName);
 		_size = 0;
 	}
 
 	@Override
-	public E get(int index) {
-		Statement st = null;
+	public synchronized E get(int index) {
+		final int firstPendingIndex = _size - _pendingElements.size();
+		if (index >= firstPendingIndex && index < _size) {
+			return _pendingElements.get(index - firstPendingIndex);
+		}
+
 		ResultSet rs = null;
 		try {
-			st = _connection.createStatement();
-			rs = st.executeQuery("SELECT list_value FROM " + _tableName + " WHERE list_index=" + index + ";");
+			if (_getStatement == null) {
+				_getStatement = _connection.prepareStatement("SELECT list_value FROM " + _tableName
+						+ " WHERE list_index=?");
+			}
+			_getStatement.setInt(1, index);
+			rs = _getStatement.executeQuery();
 			if (rs.next()) {
 				@SuppressWarnings("unchecked")
 				E result = (E) rs.getObject(1);
@@ -77,7 +130,7 @@ class SqlDatabaseList<E> extends AbstractList<E> implements List<E>, SqlDatabase
 		} catch (SQLException e) {
 			throw new IllegalStateException(e);
 		} finally {
-			SqlDatabaseUtils.safeClose(rs, st);
+			SqlDatabaseUtils.safeClose(rs, null);
 		}
 	}
 
@@ -87,27 +140,16 @@ class SqlDatabaseList<E> extends AbstractList<E> implements List<E>, SqlDatabase
 	}
 
 	public synchronized boolean add(E elem) {
-		PreparedStatement st = null;
-		try {
-			if (_size == 0) {
-				// first time is different
-				st = _connection.prepareStatement("INSERT INTO " + _tableName + " VALUES(0, ?)");
-			} else {
-				st = _connection.prepareStatement("INSERT INTO " + _tableName + " VALUES((SELECT MAX(list_index)+1 FROM "
-						+ _tableName + "), ?)");
-			}
-			st.setObject(1, elem);
-			st.execute();
-			_size++;
-		} catch (SQLException e) {
-			throw new IllegalStateException(e);
-		} finally {
-			SqlDatabaseUtils.safeClose(null, st);
+		_pendingElements.add(elem);
+		_size++;
+		if (_pendingElements.size() >= SqlDatabaseWriteBehindCache.DEFAULT_BATCH_SIZE) {
+			flush();
 		}
 		return true;
 	}
 
 	public synchronized void add(int index, E element) {
+		flush();
 		SqlDatabaseUtils.performUpdate(_connection, "UPDATE " + _tableName
 				+ " SET list_index = list_index+1 WHERE list_index > " + index);
 		PreparedStatement st = null;
@@ -125,6 +167,7 @@ class SqlDatabaseList<E> extends AbstractList<E> implements List<E>, SqlDatabase
 	};
 
 	public synchronized E set(int index, E element) {
+		flush();
 		E oldValue = get(index);
 		PreparedStatement st = null;
 		try {
@@ -140,6 +183,53 @@ class SqlDatabaseList<E> extends AbstractList<E> implements List<E>, SqlDatabase
 		return oldValue;
 	};
 
+	@Override
+	public Iterator<E> iterator() {
+		return new SqlDatabasePagedIterator<E>() {
+
+			private int _returned = 0;
+			private int _removed = 0;
+
+			@Override
+			protected List<E> readPage(boolean firstPage, E lastValue) throws SQLException {
+				// the elements that have been removed shift the index of the
+				// next element
+				return readValues(this, _returned - _removed);
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			protected E readValue(ResultSet rs) throws SQLException {
+				return (E) rs.getObject(1);
+			}
+
+			@Override
+			public E next() {
+				final E value = super.next();
+				_returned++;
+				return value;
+			}
+
+			@Override
+			protected void remove(E value) {
+				// the index of the current element is shifted by the
+				// elements that have already been removed
+				SqlDatabaseList.this.remove(_returned - 1 - _removed);
+				_removed++;
+			}
+		};
+	}
+
+	/**
+	 * Reads a page of values, starting from a particular index, for an
+	 * iterator.
+	 */
+	private synchronized List<E> readValues(SqlDatabasePagedIterator<E> iterator, int fromIndex) throws SQLException {
+		flush();
+		return iterator.readPage(_connection, "SELECT list_value FROM " + _tableName
+				+ " WHERE list_index >= ? ORDER BY list_index", fromIndex);
+	}
+
 	@Override
 	public String getTableName() {
 		return _tableName;
@@ -148,6 +238,8 @@ class SqlDatabaseList<E> extends AbstractList<E> implements List<E>, SqlDatabase
 	@Override
 	protected void finalize() throws Throwable {
 		super.finalize();
+		SqlDatabaseUtils.safeClose(null, _getStatement);
+		SqlDatabaseUtils.safeClose(null, _insertStatement);
 		SqlDatabaseUtils.performUpdate(_connection, "DROP TABLE " + getTableName());
 	}
 }
@@ -20,25 +20,22 @@
 package org.eobjects.analyzer.storage;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.AbstractMap;
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.eobjects.analyzer.util.CollectionUtils2;
+import org.eobjects.analyzer.storage.SqlDatabaseWriteBehindCache.CachedEntry;
 
 final class SqlDatabaseMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, SqlDatabaseCollection {
 
-    private final Map<K, V> _cache = CollectionUtils2.<K, V> createCache(1000, 60).asMap();
-    
     private final Connection _connection;
     private final String _tableName;
-    private final PreparedStatement _getPreparedStatement;
-    private final PreparedStatement _updatePreparedStatement;
-    private final PreparedStatement _insertPreparedStatement;
+    private final SqlDatabaseWriteBehindCache<V> _cache;
     private volatile int _size;
 
     public SqlDatabaseMap(Connection connection, String tableName, String keyTypeName, String valueTypeName) {
@@ -48,15 +45,7 @@ final class SqlDatabaseMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
         SqlDatabaseUtils.performUpdate(_connection, SqlDatabaseUtils.CREATE_TABLE_PREFIX + tableName + " (map_key "
                 + keyTypeName + " PRIMARY KEY, map_value " + valueTypeName + ")");
 
-        try {
-            _getPreparedStatement = _connection.prepareStatement("SELECT map_value FROM " + _tableName
-                    + " WHERE map_key = ?;");
-            _updatePreparedStatement = _connection.prepareStatement("UPDATE " + _tableName
-                    + " SET map_value = ? WHERE map_key = ?;");
-            _insertPreparedStatement = _connection.prepareStatement("INSERT INTO  " + _tableName + " VALUES (?,?);");
-        } catch (SQLException e) {
-            throw new IllegalStateException(e);
-        }
+        _cache = new SqlDatabaseWriteBehindCache<V>(_connection, _tableName, "map_key", "map_value");
     }
 
     @Override
@@ -64,114 +53,86 @@ final class SqlDatabaseMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
         return _size;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public synchronized V get(Object key) {
-        V v = _cache.get(key);
-        if (v != null) {
-            return v;
-        }
-
-        ResultSet rs = null;
-        try {
-            _getPreparedStatement.setObject(1, key);
-            rs = _getPreparedStatement.executeQuery();
-            if (rs.next()) {
-                return (V) rs.getObject(1);
-            }
-            return null;
-        } catch (SQLException e) {
-            throw new IllegalStateException(e);
-        } finally {
-            SqlDatabaseUtils.safeClose(rs, null);
-        }
+        return _cache.getEntry(key).getValue();
     }
 
     @Override
     public synchronized boolean containsKey(Object key) {
-        if (_cache.containsKey(key)) {
-            return true;
-        }
-
-        ResultSet rs = null;
-        PreparedStatement st = null;
-        try {
-            st = _connection.prepareStatement("SELECT COUNT(*) FROM  " + _tableName + " WHERE map_key = ?");
-            st.setObject(1, key);
-            rs = st.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-            return false;
-        } catch (SQLException e) {
-            throw new IllegalStateException(e);
-        } finally {
-            SqlDatabaseUtils.safeClose(rs, st);
-        }
+        return _cache.getEntry(key).exists();
     }
 
     public synchronized V put(K key, V value) {
-        try {
-            final V v;
-            if (containsKey(key)) {
-                v = get(key);
-                _updatePreparedStatement.setObject(1, value);
-                _updatePreparedStatement.setObject(2, key);
-                _updatePreparedStatement.executeUpdate();
-            } else {
-                _insertPreparedStatement.setObject(1, key);
-                _insertPreparedStatement.setObject(2, value);
-                _insertPreparedStatement.executeUpdate();
-                _size++;
-                v = null;
-            }
-            _cache.put(key, value);
-            return v;
-        } catch (SQLException e) {
-            throw new IllegalStateException(e);
+        final CachedEntry<V> entry = _cache.getEntry(key);
+        final V previousValue = entry.getValue();
+        if (!entry.exists()) {
+            _size++;
         }
+        _cache.write(entry, value);
+        return previousValue;
     };
 
     @Override
     public synchronized V remove(Object key) {
-        if (containsKey(key)) {
-            V result = get(key);
-            PreparedStatement st = null;
-            try {
-                st = _connection.prepareStatement("DELETE FROM " + _tableName + " WHERE map_key = ?");
-                st.setObject(1, key);
-                st.executeUpdate();
-                _size--;
-            } catch (SQLException e) {
-                throw new IllegalStateException(e);
-            } finally {
-                SqlDatabaseUtils.safeClose(null, st);
-            }
-            _cache.remove(key);
-            return result;
+        final CachedEntry<V> entry = _cache.getEntry(key);
+        if (!entry.exists()) {
+            return null;
         }
-        return null;
+        final V previousValue = entry.getValue();
+        _cache.remove(key, entry);
+        _size--;
+        return previousValue;
     }
 
     @Override
-    public synchronized Set<java.util.Map.Entry<K, V>> entrySet() {
-        PreparedStatement st = null;
-        ResultSet rs = null;
-        try {
-            Set<Entry<K, V>> result = new HashSet<Map.Entry<K, V>>();
-            st = _connection.prepareStatement("SELECT map_key FROM " + _tableName + " ORDER BY map_key ASC;");
-            rs = st.executeQuery();
-            while (rs.next()) {
-                @SuppressWarnings("unchecked")
-                K key = (K) rs.getObject(1);
-                result.add(new SqlDatabaseEntry(key));
+    public Set<java.util.Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return entryIterator();
+            }
+
+            @Override
+            public int size() {
+                return SqlDatabaseMap.this.size();
+            }
+        };
+    }
+
+    private Iterator<Entry<K, V>> entryIterator() {
+        return new SqlDatabasePagedIterator<Entry<K, V>>() {
+            @Override
+            protected List<Entry<K, V>> readPage(boolean firstPage, Entry<K, V> lastEntry) throws SQLException {
+                return readEntries(this, firstPage, lastEntry);
             }
-            return result;
-        } catch (SQLException e) {
-            throw new IllegalStateException(e);
-        } finally {
-            SqlDatabaseUtils.safeClose(rs, st);
+
+            @SuppressWarnings("unchecked")
+            @Override
+            protected Entry<K, V> readValue(ResultSet rs) throws SQLException {
+                return new SqlDatabaseEntry((K) rs.getObject(1), (V) rs.getObject(2));
+            }
+
+            @Override
+            protected void remove(Entry<K, V> entry) {
+                SqlDatabaseMap.this.remove(entry.getKey());
+            }
+        };
+    }
+
+    /**
+     * Reads a page of entries, ordered by key, for an iterator. Entries that
+     * are written while iterating are flushed before every page.
+     */
+    private synchronized List<Entry<K, V>> readEntries(SqlDatabasePagedIterator<Entry<K, V>> iterator,
+            boolean firstPage, Entry<K, V> lastEntry) throws SQLException {
+        _cache.flush();
+        if (firstPage) {
+            return iterator.readPage(_connection, "SELECT map_key, map_value FROM " + _tableName
+                    + " ORDER BY map_key ASC");
         }
+        return iterator.readPage(_connection, "SELECT map_key, map_value FROM " + _tableName
+                + " WHERE map_key > ? ORDER BY map_key ASC", lastEntry.getKey());
     }
 
     @Override
@@ -182,9 +143,11 @@ final class SqlDatabaseMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     private class SqlDatabaseEntry implements Entry<K, V> {
 
         private final K _key;
+        private V _value;
 
-        public SqlDatabaseEntry(K key) {
+        public SqlDatabaseEntry(K key, V value) {
             _key = key;
+            _value = value;
         }
 
         @Override
@@ -194,11 +157,12 @@ final class SqlDatabaseMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
 
         @Override
         public V getValue() {
-            return get(_key);
+            return _value;
         }
 
         @Override
         public V setValue(V value) {
+            _value = value;
             return put(_key, value);
         }
 
@@ -211,6 +175,7 @@ final class SqlDatabaseMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     @Override
     protected void finalize() throws Throwable {
         super.finalize();
+        _cache.close();
         SqlDatabaseUtils.performUpdate(_connection, "DROP TABLE " + getTableName());
     }
 }
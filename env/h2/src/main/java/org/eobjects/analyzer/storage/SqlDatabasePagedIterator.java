@@ -0,0 +1,148 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator which reads the elements of a SQL database collection in pages of
+ * {@link SqlDatabaseUtils#FETCH_SIZE} records. Every page is read with a
+ * separate query and it's result set and statement are closed right away, so
+ * an iterator that is abandoned before it is exhausted does not keep any
+ * database resources open.
+ * 
+ * @param <E>
+ */
+abstract class SqlDatabasePagedIterator<E> implements Iterator<E> {
+
+	private List<E> _page;
+	private int _pageIndex;
+	private boolean _lastPage;
+	private E _currentValue;
+
+	public SqlDatabasePagedIterator() {
+		_page = null;
+		_pageIndex = 0;
+		_lastPage = false;
+	}
+
+	/**
+	 * Reads the next page of elements.
+	 * 
+	 * @param firstPage
+	 *            whether this is the first page of the iteration
+	 * @param lastValue
+	 *            the last element of the previous page, if this is not the
+	 *            first page
+	 * @return the elements of the page, at most
+	 *         {@link SqlDatabaseUtils#FETCH_SIZE} of them
+	 * @throws SQLException
+	 */
+	protected abstract List<E> readPage(boolean firstPage, E lastValue) throws SQLException;
+
+	/**
+	 * Reads an element from the current record of the result set
+	 * 
+	 * @param rs
+	 * @return
+	 * @throws SQLException
+	 */
+	protected abstract E readValue(ResultSet rs) throws SQLException;
+
+	/**
+	 * Removes an element (the current element of the iterator) from the
+	 * collection
+	 * 
+	 * @param value
+	 */
+	protected abstract void remove(E value);
+
+	/**
+	 * Executes the query of a page and reads it's elements. The statement is
+	 * closed when the page has been read.
+	 * 
+	 * @param connection
+	 * @param sql
+	 * @param parameters
+	 * @return
+	 * @throws SQLException
+	 */
+	protected final List<E> readPage(Connection connection, String sql, Object... parameters) throws SQLException {
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			st = connection.prepareStatement(sql);
+			for (int i = 0; i < parameters.length; i++) {
+				st.setObject(i + 1, parameters[i]);
+			}
+			st.setMaxRows(SqlDatabaseUtils.FETCH_SIZE);
+			rs = st.executeQuery();
+			final List<E> page = new ArrayList<E>();
+			while (rs.next()) {
+				page.add(readValue(rs));
+			}
+			return page;
+		} finally {
+			SqlDatabaseUtils.safeClose(rs, st);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (_page != null && _pageIndex < _page.size()) {
+			return true;
+		}
+		if (_lastPage) {
+			return false;
+		}
+		final boolean firstPage = (_page == null);
+		final E lastValue = (firstPage ? null : _page.get(_page.size() - 1));
+		try {
+			_page = readPage(firstPage, lastValue);
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+		_pageIndex = 0;
+		_lastPage = _page.size() < SqlDatabaseUtils.FETCH_SIZE;
+		return !_page.isEmpty();
+	}
+
+	@Override
+	public E next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		_currentValue = _page.get(_pageIndex);
+		_pageIndex++;
+		return _currentValue;
+	}
+
+	@Override
+	public void remove() {
+		remove(_currentValue);
+	}
+}
@@ -23,40 +23,79 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.data.MockInputRow;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.eobjects.analyzer.util.LongHashMap;
 
+/**
+ * {@link RowAnnotationFactory} which stores annotated rows in an SQL database.
+ * 
+ * Row values are stored in one table (with a column per input column) and
+ * annotations are stored in a narrow table of (annotation id, row id) pairs.
+ * The ids of written rows and annotated rows are kept in memory, so that
+ * annotating a row does not require any queries to the database. Inserts are
+ * made with cached prepared statements (one per column layout of the rows) and
+ * are sent to the database in JDBC batches, which are flushed when the batch
+ * size is reached or before the annotations are read.
+ */
 public class SqlDatabaseRowAnnotationFactory implements RowAnnotationFactory {
 
-    private final static Logger logger = LoggerFactory.getLogger(SqlDatabaseRowAnnotationFactory.class);
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
     private final Map<InputColumn<?>, String> _inputColumnNames = new LinkedHashMap<InputColumn<?>, String>();
-    private final Map<RowAnnotation, String> _annotationColumnNames = new HashMap<RowAnnotation, String>();
+    private final Map<RowAnnotation, Integer> _annotationIds = new HashMap<RowAnnotation, Integer>();
+    private final Map<RowAnnotation, LongHashMap> _annotatedRowIds = new HashMap<RowAnnotation, LongHashMap>();
+    private final LongHashMap _rowIds = new LongHashMap();
+    private final Map<List<InputColumn<?>>, PreparedStatement> _insertRowStatements = new HashMap<List<InputColumn<?>>, PreparedStatement>();
     private final Connection _connection;
     private final String _tableName;
-    private final AtomicInteger _nextColumnIndex = new AtomicInteger(1);
+    private final String _annotationTableName;
+    private final int _batchSize;
+    private PreparedStatement _insertAnnotationStatement;
+    private int _nextColumnIndex = 1;
+    private int _pendingCount = 0;
 
     public SqlDatabaseRowAnnotationFactory(Connection connection, String tableName) {
+        this(connection, tableName, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 
+     * @param connection
+     * @param tableName
+     *            the name of the table to store rows in. The annotations are
+     *            stored in a table with the same name, suffixed with "_ann"
+     * @param batchSize
+     *            the number of inserts to batch before sending them to the
+     *            database
+     */
+    public SqlDatabaseRowAnnotationFactory(Connection connection, String tableName, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be a positive number");
+        }
         _connection = connection;
         _tableName = tableName;
+        _annotationTableName = tableName + "_ann";
+        _batchSize = batchSize;
         String intType = SqlDatabaseUtils.getSqlType(Integer.class);
-        performUpdate(SqlDatabaseUtils.CREATE_TABLE_PREFIX + tableName + " (id " + intType
+        performUpdate(SqlDatabaseUtils.CREATE_TABLE_PREFIX + _tableName + " (id " + intType
                 + " PRIMARY KEY, distinct_count " + intType + ")");
+        performUpdate(SqlDatabaseUtils.CREATE_TABLE_PREFIX + _annotationTableName + " (annotation_id " + intType
+                + ", row_id " + intType + ", PRIMARY KEY (annotation_id, row_id))");
     }
 
     @Override
     protected void finalize() throws Throwable {
         super.finalize();
+        closeStatements();
+        performUpdate("DROP TABLE " + _annotationTableName);
         performUpdate("DROP TABLE " + _tableName);
     }
 
@@ -64,39 +103,15 @@ public class SqlDatabaseRowAnnotationFactory implements RowAnnotationFactory {
         SqlDatabaseUtils.performUpdate(_connection, sql);
     }
 
+    public int getBatchSize() {
+        return _batchSize;
+    }
+
     @Override
     public RowAnnotation createAnnotation() {
         return new RowAnnotationImpl();
     }
 
-    private boolean containsRow(InputRow row) {
-        ResultSet rs = null;
-        PreparedStatement st = null;
-        try {
-            st = _connection.prepareStatement("SELECT COUNT(*) FROM " + _tableName + " WHERE id = ?");
-            boolean contains;
-            st.setInt(1, row.getId());
-            rs = st.executeQuery();
-            if (rs.next()) {
-                int count = rs.getInt(1);
-                if (count == 0) {
-                    contains = false;
-                } else if (count == 1) {
-                    contains = true;
-                } else {
-                    throw new IllegalStateException(count + " rows with id=" + row.getId() + " exists in database!");
-                }
-            } else {
-                contains = false;
-            }
-            return contains;
-        } catch (SQLException e) {
-            throw new IllegalStateException(e);
-        } finally {
-            SqlDatabaseUtils.safeClose(rs, st);
-        }
-    }
-
     @Override
     public void annotate(InputRow[] rows, RowAnnotation annotation) {
         for (InputRow row : rows) {
@@ -106,112 +121,141 @@ public class SqlDatabaseRowAnnotationFactory implements RowAnnotationFactory {
 
     @Override
     public synchronized void annotate(InputRow row, int distinctCount, RowAnnotation annotation) {
-        RowAnnotationImpl a = (RowAnnotationImpl) annotation;
-
-        List<InputColumn<?>> inputColumns = row.getInputColumns();
-        List<String> columnNames = new ArrayList<String>(inputColumns.size());
-        List<Object> values = new ArrayList<Object>(inputColumns.size());
-        for (InputColumn<?> inputColumn : inputColumns) {
-            String columnName = getColumnName(inputColumn, true);
-            columnNames.add(columnName);
-            Object value = row.getValue(inputColumn);
-            values.add(value);
+        final int rowId = row.getId();
+        final LongHashMap annotatedRowIds = getAnnotatedRowIds(annotation);
+        if (annotatedRowIds.containsKey(rowId)) {
+            return;
         }
 
-        String annotationColumnName = getColumnName(annotation, true);
-
-        if (containsRow(row)) {
-            PreparedStatement st = null;
-            ResultSet rs = null;
-
-            boolean annotated;
-            try {
-                st = _connection.prepareStatement("SELECT " + annotationColumnName + " FROM " + _tableName
-                        + " WHERE id=?");
-                st.setInt(1, row.getId());
-                rs = st.executeQuery();
-                if (rs.next()) {
-                    annotated = rs.getBoolean(1);
-                } else {
-                    logger.error("No rows returned on annotation status for id={}", row.getId());
-                    annotated = false;
-                }
-            } catch (SQLException e) {
-                throw new IllegalStateException(e);
-            } finally {
-                SqlDatabaseUtils.safeClose(rs, st);
+        try {
+            if (!_rowIds.containsKey(rowId)) {
+                insertRow(row, distinctCount);
+                _rowIds.add(rowId);
             }
 
-            if (!annotated) {
-                try {
-                    st = _connection.prepareStatement("UPDATE " + _tableName + " SET " + annotationColumnName
-                            + "=TRUE WHERE id=?");
-                    st.setInt(1, row.getId());
-                    st.executeUpdate();
-                    a.incrementRowCount(distinctCount);
-                } catch (SQLException e) {
-                    throw new IllegalStateException(e);
-                } finally {
-                    SqlDatabaseUtils.safeClose(null, st);
-                }
+            final PreparedStatement st = getInsertAnnotationStatement();
+            st.setInt(1, getAnnotationId(annotation));
+            st.setInt(2, rowId);
+            st.addBatch();
+            annotatedRowIds.add(rowId);
+            _pendingCount++;
+
+            if (_pendingCount >= _batchSize) {
+                flush();
             }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ((RowAnnotationImpl) annotation).incrementRowCount(distinctCount);
+    }
+
+    private void insertRow(InputRow row, int distinctCount) throws SQLException {
+        final List<InputColumn<?>> inputColumns = row.getInputColumns();
+        PreparedStatement st = _insertRowStatements.get(inputColumns);
+        if (st == null) {
+            final List<InputColumn<?>> layout = new ArrayList<InputColumn<?>>(inputColumns);
+            st = prepareInsertRowStatement(layout);
+            _insertRowStatements.put(layout, st);
+        }
+
+        st.setInt(1, row.getId());
+        st.setInt(2, distinctCount);
+        int parameterIndex = 3;
+        for (InputColumn<?> inputColumn : inputColumns) {
+            st.setObject(parameterIndex, row.getValue(inputColumn));
+            parameterIndex++;
+        }
+        st.addBatch();
+        _pendingCount++;
+    }
 
-        } else {
-            StringBuilder sb = new StringBuilder();
-            sb.append("INSERT INTO ");
-            sb.append(_tableName);
-            sb.append(" (id,distinct_count");
+    private PreparedStatement prepareInsertRowStatement(List<InputColumn<?>> inputColumns) throws SQLException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("INSERT INTO ");
+        sb.append(_tableName);
+        sb.append(" (id,distinct_count");
+        for (InputColumn<?> inputColumn : inputColumns) {
             sb.append(',');
-            sb.append(annotationColumnName);
-            for (String columnName : columnNames) {
-                sb.append(',');
-                sb.append(columnName);
-            }
-            sb.append(") VALUES (?,?,?");
-            for (int i = 0; i < values.size(); i++) {
-                sb.append(",?");
+            sb.append(getColumnName(inputColumn, true));
+        }
+        sb.append(") VALUES (?,?");
+        for (int i = 0; i < inputColumns.size(); i++) {
+            sb.append(",?");
+        }
+        sb.append(")");
+        return _connection.prepareStatement(sb.toString());
+    }
+
+    private PreparedStatement getInsertAnnotationStatement() throws SQLException {
+        if (_insertAnnotationStatement == null) {
+            _insertAnnotationStatement = _connection.prepareStatement("INSERT INTO " + _annotationTableName
+                    + " (annotation_id,row_id) VALUES (?,?)");
+        }
+        return _insertAnnotationStatement;
+    }
+
+    /**
+     * Sends all pending inserts to the database.
+     */
+    public synchronized void flush() {
+        if (_pendingCount == 0) {
+            return;
+        }
+        try {
+            // rows are inserted before the annotations that refer to them
+            for (PreparedStatement st : _insertRowStatements.values()) {
+                st.executeBatch();
             }
-            sb.append(")");
-
-            PreparedStatement st = null;
-            try {
-                st = _connection.prepareStatement(sb.toString());
-                st.setInt(1, row.getId());
-                st.setInt(2, distinctCount);
-                st.setBoolean(3, true);
-                for (int i = 0; i < values.size(); i++) {
-                    st.setObject(i + 4, values.get(i));
-                }
-                st.executeUpdate();
-                a.incrementRowCount(distinctCount);
-            } catch (SQLException e) {
-                throw new IllegalStateException(e);
-            } finally {
-                SqlDatabaseUtils.safeClose(null, st);
+            if (_insertAnnotationStatement != null) {
+                _insertAnnotationStatement.executeBatch();
             }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
         }
+        _pendingCount = 0;
     }
 
-    private String getColumnName(RowAnnotation annotation, boolean createIfNonExisting) {
-        String columnName = _annotationColumnNames.get(annotation);
-        if (columnName == null) {
-            if (createIfNonExisting) {
-                int index = _nextColumnIndex.getAndIncrement();
-                columnName = "col" + index;
-                performUpdate("ALTER TABLE " + _tableName + " ADD COLUMN " + columnName + " "
-                        + SqlDatabaseUtils.getSqlType(Boolean.class) + " DEFAULT FALSE");
-                _annotationColumnNames.put(annotation, columnName);
-            }
+    private void closeStatements() {
+        for (PreparedStatement st : _insertRowStatements.values()) {
+            SqlDatabaseUtils.safeClose(null, st);
         }
-        return columnName;
+        _insertRowStatements.clear();
+        if (_insertAnnotationStatement != null) {
+            SqlDatabaseUtils.safeClose(null, _insertAnnotationStatement);
+            _insertAnnotationStatement = null;
+        }
+    }
+
+    private LongHashMap getAnnotatedRowIds(RowAnnotation annotation) {
+        LongHashMap rowIds = _annotatedRowIds.get(annotation);
+        if (rowIds == null) {
+            rowIds = new LongHashMap();
+            _annotatedRowIds.put(annotation, rowIds);
+        }
+        return rowIds;
+    }
+
+    private int getAnnotationId(RowAnnotation annotation) {
+        Integer id = _annotationIds.get(annotation);
+        if (id == null) {
+            id = _annotationIds.size() + 1;
+            _annotationIds.put(annotation, id);
+        }
+        return id.intValue();
     }
 
     private String getColumnName(InputColumn<?> inputColumn, boolean createIfNonExisting) {
         String columnName = _inputColumnNames.get(inputColumn);
         if (columnName == null) {
             if (createIfNonExisting) {
-                int index = _nextColumnIndex.getAndIncrement();
-                columnName = "col" + index;
+                // the table is altered, so pending inserts are flushed and
+                // the cached statements are prepared again
+                flush();
+                closeStatements();
+
+                columnName = "col" + _nextColumnIndex;
+                _nextColumnIndex++;
                 Class<?> javaType = inputColumn.getDataType();
 
                 performUpdate("ALTER TABLE " + _tableName + " ADD COLUMN " + columnName + " "
@@ -224,39 +268,42 @@ public class SqlDatabaseRowAnnotationFactory implements RowAnnotationFactory {
 
     @Override
     public synchronized void reset(RowAnnotation annotation) {
-        String columnName = getColumnName(annotation, false);
-        if (columnName != null) {
-            performUpdate("UPDATE " + _tableName + " SET " + columnName + " = FALSE");
+        final Integer annotationId = _annotationIds.get(annotation);
+        if (annotationId != null) {
+            flush();
+            performUpdate("DELETE FROM " + _annotationTableName + " WHERE annotation_id = " + annotationId);
+            _annotatedRowIds.remove(annotation);
         }
     }
 
     @Override
-    public InputRow[] getRows(RowAnnotation annotation) {
-        String annotationColumnName = getColumnName(annotation, false);
-        if (annotationColumnName == null) {
+    public synchronized InputRow[] getRows(RowAnnotation annotation) {
+        final Integer annotationId = _annotationIds.get(annotation);
+        if (annotationId == null) {
             return new InputRow[0];
         }
+        flush();
+
+        final List<InputColumn<?>> inputColumns = new ArrayList<InputColumn<?>>(_inputColumnNames.keySet());
+        final StringBuilder sb = new StringBuilder();
+        sb.append("SELECT r.id");
+        for (InputColumn<?> inputColumn : inputColumns) {
+            sb.append(",r.");
+            sb.append(_inputColumnNames.get(inputColumn));
+        }
+        sb.append(" FROM ");
+        sb.append(_annotationTableName);
+        sb.append(" a INNER JOIN ");
+        sb.append(_tableName);
+        sb.append(" r ON a.row_id = r.id WHERE a.annotation_id = ? ORDER BY a.row_id");
+
         ResultSet rs = null;
-        Statement st = null;
+        PreparedStatement st = null;
         try {
-            st = _connection.createStatement();
-
-            StringBuilder sb = new StringBuilder();
-            sb.append("SELECT id");
-            ArrayList<InputColumn<?>> inputColumns = new ArrayList<InputColumn<?>>(_inputColumnNames.keySet());
-            for (InputColumn<?> inputColumn : inputColumns) {
-                sb.append(',');
-                String columnName = _inputColumnNames.get(inputColumn);
-                sb.append(columnName);
-            }
-            sb.append(" FROM ");
-            sb.append(_tableName);
-            sb.append(" WHERE ");
-            sb.append(annotationColumnName);
-            sb.append(" = TRUE");
-
-            rs = st.executeQuery(sb.toString());
-            List<InputRow> rows = new ArrayList<InputRow>();
+            st = _connection.prepareStatement(sb.toString());
+            st.setInt(1, annotationId.intValue());
+            rs = st.executeQuery();
+            final List<InputRow> rows = new ArrayList<InputRow>();
             while (rs.next()) {
                 int id = rs.getInt(1);
                 MockInputRow row = new MockInputRow(id);
@@ -277,23 +324,27 @@ public class SqlDatabaseRowAnnotationFactory implements RowAnnotationFactory {
     }
 
     @Override
-    public Map<Object, Integer> getValueCounts(RowAnnotation annotation, InputColumn<?> inputColumn) {
-        HashMap<Object, Integer> map = new HashMap<Object, Integer>();
+    public synchronized Map<Object, Integer> getValueCounts(RowAnnotation annotation, InputColumn<?> inputColumn) {
+        final HashMap<Object, Integer> map = new HashMap<Object, Integer>();
 
-        String inputColumnName = getColumnName(inputColumn, false);
+        final String inputColumnName = getColumnName(inputColumn, false);
         if (inputColumnName == null) {
             return map;
         }
 
-        String annotationColumnName = getColumnName(annotation, false);
-        if (annotationColumnName == null) {
+        final Integer annotationId = _annotationIds.get(annotation);
+        if (annotationId == null) {
             return map;
         }
+        flush();
+
         ResultSet rs = null;
         PreparedStatement st = null;
         try {
-            st = _connection.prepareStatement("SELECT " + inputColumnName + ", SUM(distinct_count) FROM " + _tableName
-                    + " WHERE " + annotationColumnName + " = TRUE GROUP BY " + inputColumnName);
+            st = _connection.prepareStatement("SELECT r." + inputColumnName + ", SUM(r.distinct_count) FROM "
+                    + _annotationTableName + " a INNER JOIN " + _tableName
+                    + " r ON a.row_id = r.id WHERE a.annotation_id = ? GROUP BY r." + inputColumnName);
+            st.setInt(1, annotationId.intValue());
             rs = st.executeQuery();
             while (rs.next()) {
                 Object value = rs.getObject(1);
@@ -312,7 +363,7 @@ public class SqlDatabaseRowAnnotationFactory implements RowAnnotationFactory {
     public void transferAnnotations(RowAnnotation from, RowAnnotation to) {
         final int increment = from.getRowCount();
         ((RowAnnotationImpl) to).incrementRowCount(increment);
-        
+
         // TODO: Copy records to new annotation also?
     }
 }
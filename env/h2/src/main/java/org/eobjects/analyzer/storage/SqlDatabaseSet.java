@@ -20,17 +20,20 @@
 package org.eobjects.analyzer.storage;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.AbstractSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
+import org.eobjects.analyzer.storage.SqlDatabaseWriteBehindCache.CachedEntry;
+
 final class SqlDatabaseSet<E> extends AbstractSet<E> implements Set<E>, SqlDatabaseCollection {
 
 	private final Connection _connection;
 	private final String _tableName;
+	private final SqlDatabaseWriteBehindCache<Void> _cache;
 	private volatile int _size;
 
 	public SqlDatabaseSet(Connection connection, String tableName, String valueTypeName) {
@@ -39,77 +42,69 @@ final class SqlDatabaseSet<E> extends AbstractSet<E> implements Set<E>, SqlDatab
 
 		SqlDatabaseUtils.performUpdate(_connection, SqlDatabaseUtils.CREATE_TABLE_PREFIX + tableName + " (set_value " + valueTypeName
 				+ " PRIMARY KEY)");
+
+		_cache = new SqlDatabaseWriteBehindCache<Void>(_connection, _tableName, "set_value", null);
 	}
 
 	public synchronized boolean add(E elem) {
-		if (contains(elem)) {
+		final CachedEntry<Void> entry = _cache.getEntry(elem);
+		if (entry.exists()) {
 			return false;
 		}
-		PreparedStatement st = null;
-		try {
-			st = _connection.prepareStatement("INSERT INTO " + _tableName + " VALUES(?)");
-			st.setObject(1, elem);
-			st.executeUpdate();
-			_size++;
-			return true;
-		} catch (SQLException e) {
-			throw new IllegalStateException(e);
-		} finally {
-			SqlDatabaseUtils.safeClose(null, st);
-		}
+		_cache.write(entry, null);
+		_size++;
+		return true;
 	};
 
 	@Override
-	public boolean remove(Object o) {
-		if (!contains(o)) {
+	public synchronized boolean remove(Object o) {
+		final CachedEntry<Void> entry = _cache.getEntry(o);
+		if (!entry.exists()) {
 			return false;
 		}
-
-		PreparedStatement st = null;
-		try {
-			st = _connection.prepareStatement("DELETE FROM " + _tableName + " WHERE set_value=?");
-			st.setObject(1, o);
-			st.executeUpdate();
-			_size--;
-			return true;
-		} catch (SQLException e) {
-			throw new IllegalStateException(e);
-		} finally {
-			SqlDatabaseUtils.safeClose(null, st);
-		}
+		_cache.remove(o, entry);
+		_size--;
+		return true;
 	}
 
 	@Override
-	public boolean contains(Object o) {
-		ResultSet rs = null;
-		PreparedStatement st = null;
-		try {
-			st = _connection.prepareStatement("SELECT COUNT(*) FROM " + _tableName + " WHERE set_value=?");
-			st.setObject(1, o);
-			rs = st.executeQuery();
-			if (rs.next()) {
-				return rs.getInt(1) > 0;
-			}
-			return false;
-		} catch (SQLException e) {
-			throw new IllegalStateException(e);
-		} finally {
-			SqlDatabaseUtils.safeClose(rs, st);
-		}
+	public synchronized boolean contains(Object o) {
+		return _cache.getEntry(o).exists();
 	}
 
 	@Override
 	public Iterator<E> iterator() {
-		PreparedStatement st = null;
-		ResultSet rs = null;
-		try {
-			st = _connection.prepareCall("SELECT set_value FROM " + _tableName);
-			rs = st.executeQuery();
-			return new SqlDatabaseSetIterator<E>(this, rs, st);
-		} catch (SQLException e) {
-			SqlDatabaseUtils.safeClose(rs, st);
-			throw new IllegalStateException(e);
+		return new SqlDatabasePagedIterator<E>() {
+			@Override
+			protected List<E> readPage(boolean firstPage, E lastValue) throws SQLException {
+				return readValues(this, firstPage, lastValue);
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			protected E readValue(ResultSet rs) throws SQLException {
+				return (E) rs.getObject(1);
+			}
+
+			@Override
+			protected void remove(E value) {
+				SqlDatabaseSet.this.remove(value);
+			}
+		};
+	}
+
+	/**
+	 * Reads a page of values, ordered by value, for an iterator. Values that
+	 * are added while iterating are flushed before every page.
+	 */
+	private synchronized List<E> readValues(SqlDatabasePagedIterator<E> iterator, boolean firstPage, E lastValue)
+			throws SQLException {
+		_cache.flush();
+		if (firstPage) {
+			return iterator.readPage(_connection, "SELECT set_value FROM " + _tableName + " ORDER BY set_value ASC");
 		}
+		return iterator.readPage(_connection, "SELECT set_value FROM " + _tableName
+				+ " WHERE set_value > ? ORDER BY set_value ASC", lastValue);
 	}
 
 	@Override
@@ -125,6 +120,7 @@ final class SqlDatabaseSet<E> extends AbstractSet<E> implements Set<E>, SqlDatab
 	@Override
 	protected void finalize() throws Throwable {
 		super.finalize();
+		_cache.close();
 		SqlDatabaseUtils.performUpdate(_connection, "DROP TABLE " + getTableName());
 	}
 }
@@ -42,6 +42,7 @@ public abstract class SqlDatabaseStorageProvider implements StorageProvider {
 
 	private final AtomicInteger _nextTableId = new AtomicInteger(1);
 	private final Connection _connection;
+	private int _rowAnnotationBatchSize = SqlDatabaseRowAnnotationFactory.DEFAULT_BATCH_SIZE;
 
 	public SqlDatabaseStorageProvider(String driverClassName, String connectionUrl) {
 		this(driverClassName, connectionUrl, null, null);
@@ -82,6 +83,20 @@ public abstract class SqlDatabaseStorageProvider implements StorageProvider {
 		}
 	}
 
+	/**
+	 * Gets the number of inserts that row annotation factories of this storage
+	 * provider batch before sending them to the database.
+	 * 
+	 * @return
+	 */
+	public int getRowAnnotationBatchSize() {
+		return _rowAnnotationBatchSize;
+	}
+
+	public void setRowAnnotationBatchSize(int rowAnnotationBatchSize) {
+		_rowAnnotationBatchSize = rowAnnotationBatchSize;
+	}
+
 	/**
 	 * Subclasses can override this method to control table name generation
 	 * 
@@ -120,7 +135,8 @@ public abstract class SqlDatabaseStorageProvider implements StorageProvider {
 	public final RowAnnotationFactory createRowAnnotationFactory() {
 		String tableName = getNextTableName();
 		logger.info("Creating table {} for RowAnnotationFactory", tableName);
-		SqlDatabaseRowAnnotationFactory factory = new SqlDatabaseRowAnnotationFactory(_connection, tableName);
+		SqlDatabaseRowAnnotationFactory factory = new SqlDatabaseRowAnnotationFactory(_connection, tableName,
+				_rowAnnotationBatchSize);
 		return factory;
 	}
 }
@@ -35,6 +35,12 @@ public final class SqlDatabaseUtils {
 
 	public final static String CREATE_TABLE_PREFIX = "CREATE CACHED TABLE ";
 
+	/**
+	 * The number of records that are read at a time (as a page) when iterating
+	 * through the records of a table
+	 */
+	public final static int FETCH_SIZE = 1000;
+
 	private SqlDatabaseUtils() {
 		// prevent instantiation
 	}
@@ -82,6 +88,23 @@ public final class SqlDatabaseUtils {
 		throw new UnsupportedOperationException("Unsupported value type: " + valueType);
 	}
 
+	/**
+	 * Determines if the database of a connection supports the (non-standard)
+	 * "MERGE INTO ... KEY (...) VALUES (...)" statement
+	 * 
+	 * @param connection
+	 * @return
+	 */
+	public static boolean isMergeSupported(Connection connection) {
+		try {
+			final String productName = connection.getMetaData().getDatabaseProductName();
+			return "H2".equalsIgnoreCase(productName);
+		} catch (SQLException e) {
+			logger.debug("could not determine database product name", e);
+			return false;
+		}
+	}
+
 	public static void performUpdate(Connection connection, String sql) {
 		Statement st = null;
 		try {
@@ -0,0 +1,338 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * A write-behind cache for the keyed SQL database collections (
+ * {@link SqlDatabaseMap} and {@link SqlDatabaseSet}).
+ * 
+ * Recently used keys are cached along with their value and whether or not
+ * they exist in the collection (and in the database). Writes are kept in the
+ * cache as dirty entries and are written to the database in JDBC batches when
+ * the cache is full or when the collection needs the database to be up to
+ * date (eg. before iterating it). Since the cache knows whether a key has
+ * previously been written, new keys are written with plain INSERT statements
+ * and changed values of existing keys with MERGE statements (where the
+ * database supports it) or UPDATE statements.
+ * Statements are prepared when first needed and reused.
+ * 
+ * The cache is not thread-safe, the collections using it synchronize access
+ * to it.
+ * 
+ * @param <V>
+ *            the value type, or {@link Void} for sets
+ */
+final class SqlDatabaseWriteBehindCache<V> {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final Connection _connection;
+    private final String _tableName;
+    private final String _keyColumnName;
+    private final String _valueColumnName;
+    private final int _capacity;
+    private final int _batchSize;
+    private final boolean _hasValues;
+    private final LinkedHashMap<Object, CachedEntry<V>> _entries;
+    private PreparedStatement _selectStatement;
+    private PreparedStatement _insertStatement;
+    private PreparedStatement _updateStatement;
+    private PreparedStatement _mergeStatement;
+    private PreparedStatement _deleteStatement;
+    private int _dirtyCount;
+
+    /**
+     * 
+     * @param connection
+     * @param tableName
+     * @param keyColumnName
+     * @param valueColumnName
+     *            the name of the value column, or null if the table only has
+     *            a key column
+     */
+    public SqlDatabaseWriteBehindCache(Connection connection, String tableName, String keyColumnName,
+            String valueColumnName) {
+        this(connection, tableName, keyColumnName, valueColumnName, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    public SqlDatabaseWriteBehindCache(Connection connection, String tableName, String keyColumnName,
+            String valueColumnName, int capacity, int batchSize) {
+        _connection = connection;
+        _tableName = tableName;
+        _keyColumnName = keyColumnName;
+        _valueColumnName = valueColumnName;
+        _capacity = capacity;
+        _batchSize = batchSize;
+        _hasValues = valueColumnName != null;
+        _entries = new LinkedHashMap<Object, CachedEntry<V>>(16, 0.75f, true);
+        _dirtyCount = 0;
+    }
+
+    /**
+     * Prepares the statements of the cache, when first needed.
+     */
+    private void prepareStatements() throws SQLException {
+        if (_selectStatement != null) {
+            return;
+        }
+
+        final String columns;
+        final String parameters;
+        if (_hasValues) {
+            columns = _keyColumnName + "," + _valueColumnName;
+            parameters = "?,?";
+        } else {
+            columns = _keyColumnName;
+            parameters = "?";
+        }
+
+        _deleteStatement = _connection.prepareStatement("DELETE FROM " + _tableName + " WHERE " + _keyColumnName
+                + " = ?");
+        _insertStatement = _connection.prepareStatement("INSERT INTO " + _tableName + " (" + columns + ") VALUES ("
+                + parameters + ")");
+        if (_hasValues) {
+            if (SqlDatabaseUtils.isMergeSupported(_connection)) {
+                _mergeStatement = _connection.prepareStatement("MERGE INTO " + _tableName + " (" + columns
+                        + ") KEY (" + _keyColumnName + ") VALUES (" + parameters + ")");
+            } else {
+                _updateStatement = _connection.prepareStatement("UPDATE " + _tableName + " SET "
+                        + _valueColumnName + " = ? WHERE " + _keyColumnName + " = ?");
+            }
+        }
+        _selectStatement = _connection.prepareStatement("SELECT " + (_hasValues ? _valueColumnName : _keyColumnName)
+                + " FROM " + _tableName + " WHERE " + _keyColumnName + " = ?");
+    }
+
+    /**
+     * Gets the cached entry of a key, reading it from the database if it is
+     * not cached.
+     * 
+     * @param key
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public CachedEntry<V> getEntry(Object key) {
+        CachedEntry<V> entry = _entries.get(key);
+        if (entry != null) {
+            return entry;
+        }
+
+        ResultSet rs = null;
+        try {
+            prepareStatements();
+            _selectStatement.setObject(1, key);
+            rs = _selectStatement.executeQuery();
+            if (rs.next()) {
+                final V value = _hasValues ? (V) rs.getObject(1) : null;
+                entry = new CachedEntry<V>(value, true);
+            } else {
+                entry = new CachedEntry<V>(null, false);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            SqlDatabaseUtils.safeClose(rs, null);
+        }
+
+        evictIfFull();
+        _entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Writes a value to an entry (previously retrieved using
+     * {@link #getEntry(Object)}). The value will be written to the database
+     * later.
+     * 
+     * @param entry
+     * @param value
+     */
+    public void write(CachedEntry<V> entry, V value) {
+        entry._value = value;
+        entry._exists = true;
+        if (!entry._dirty) {
+            entry._dirty = true;
+            _dirtyCount++;
+        }
+    }
+
+    /**
+     * Removes a key from the collection. If the key has been written to the
+     * database, it is deleted immediately.
+     * 
+     * @param key
+     * @param entry
+     *            the entry of the key, previously retrieved using
+     *            {@link #getEntry(Object)}
+     */
+    public void remove(Object key, CachedEntry<V> entry) {
+        if (entry._persisted) {
+            try {
+                prepareStatements();
+                _deleteStatement.setObject(1, key);
+                _deleteStatement.executeUpdate();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        if (entry._dirty) {
+            entry._dirty = false;
+            _dirtyCount--;
+        }
+        entry._value = null;
+        entry._exists = false;
+        entry._persisted = false;
+    }
+
+    /**
+     * Writes all dirty entries to the database.
+     */
+    public void flush() {
+        if (_dirtyCount == 0) {
+            return;
+        }
+
+        try {
+            prepareStatements();
+            int batchCount = 0;
+            for (Entry<Object, CachedEntry<V>> mapEntry : _entries.entrySet()) {
+                final CachedEntry<V> entry = mapEntry.getValue();
+                if (entry._dirty) {
+                    addToBatch(mapEntry.getKey(), entry);
+                    entry._dirty = false;
+                    entry._persisted = true;
+                    batchCount++;
+                    if (batchCount == _batchSize) {
+                        executeBatches();
+                        batchCount = 0;
+                    }
+                }
+            }
+            executeBatches();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        _dirtyCount = 0;
+    }
+
+    private void addToBatch(Object key, CachedEntry<V> entry) throws SQLException {
+        if (!entry._persisted) {
+            _insertStatement.setObject(1, key);
+            if (_hasValues) {
+                _insertStatement.setObject(2, entry._value);
+            }
+            _insertStatement.addBatch();
+        } else if (_mergeStatement != null) {
+            _mergeStatement.setObject(1, key);
+            _mergeStatement.setObject(2, entry._value);
+            _mergeStatement.addBatch();
+        } else if (_updateStatement != null) {
+            _updateStatement.setObject(1, entry._value);
+            _updateStatement.setObject(2, key);
+            _updateStatement.addBatch();
+        }
+    }
+
+    private void executeBatches() throws SQLException {
+        _insertStatement.executeBatch();
+        if (_mergeStatement != null) {
+            _mergeStatement.executeBatch();
+        }
+        if (_updateStatement != null) {
+            _updateStatement.executeBatch();
+        }
+    }
+
+    private void evictIfFull() {
+        if (_entries.size() < _capacity) {
+            return;
+        }
+
+        // dirty entries are written before evicting, and a quarter of the
+        // cache is evicted at a time to amortize the flushing
+        flush();
+        final Iterator<CachedEntry<V>> it = _entries.values().iterator();
+        final int targetSize = _capacity * 3 / 4;
+        while (_entries.size() > targetSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Discards all cached entries, without writing them.
+     */
+    public void clear() {
+        _entries.clear();
+        _dirtyCount = 0;
+    }
+
+    public void close() {
+        if (_selectStatement == null) {
+            return;
+        }
+        SqlDatabaseUtils.safeClose(null, _selectStatement);
+        SqlDatabaseUtils.safeClose(null, _deleteStatement);
+        SqlDatabaseUtils.safeClose(null, _insertStatement);
+        if (_mergeStatement != null) {
+            SqlDatabaseUtils.safeClose(null, _mergeStatement);
+        }
+        if (_updateStatement != null) {
+            SqlDatabaseUtils.safeClose(null, _updateStatement);
+        }
+    }
+
+    /**
+     * The cached state of a key
+     * 
+     * @param <V>
+     */
+    static final class CachedEntry<V> {
+
+        private V _value;
+        private boolean _exists;
+        private boolean _persisted;
+        private boolean _dirty;
+
+        private CachedEntry(V value, boolean exists) {
+            _value = value;
+            _exists = exists;
+            _persisted = exists;
+            _dirty = false;
+        }
+
+        public V getValue() {
+            return _value;
+        }
+
+        public boolean exists() {
+            return _exists;
+        }
+    }
+}
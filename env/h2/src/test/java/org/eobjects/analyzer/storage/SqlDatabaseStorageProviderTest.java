@@ -174,6 +174,126 @@ public class SqlDatabaseStorageProviderTest extends TestCase {
 		assertEquals("[2, 3]", Arrays.toString(set.toArray()));
 	}
 
+	public void testManyElementsBeyondCacheCapacity() throws Exception {
+		testManyElementsBeyondCacheCapacity(h2sp);
+		testManyElementsBeyondCacheCapacity(hsqlsp);
+	}
+
+	private void testManyElementsBeyondCacheCapacity(StorageProvider sp) throws Exception {
+		final int count = SqlDatabaseWriteBehindCache.DEFAULT_CAPACITY * 2 + 7;
+
+		// counter map, like the ones of value distributions
+		Map<Integer, Integer> map = sp.createMap(Integer.class, Integer.class);
+		for (int round = 0; round < 2; round++) {
+			for (int i = 0; i < count; i++) {
+				Integer previous = map.get(i);
+				map.put(i, previous == null ? 1 : previous + 1);
+			}
+		}
+		assertEquals(count, map.size());
+		assertEquals(2, map.get(0).intValue());
+		assertEquals(2, map.get(count - 1).intValue());
+		assertEquals(Integer.valueOf(2), map.remove(5));
+		assertFalse(map.containsKey(5));
+		assertEquals(count - 1, map.size());
+
+		int iterated = 0;
+		for (Entry<Integer, Integer> entry : map.entrySet()) {
+			assertEquals(2, entry.getValue().intValue());
+			iterated++;
+		}
+		assertEquals(count - 1, iterated);
+
+		Set<Integer> set = sp.createSet(Integer.class);
+		for (int i = 0; i < count; i++) {
+			assertTrue(set.add(i));
+		}
+		assertFalse(set.add(0));
+		assertFalse(set.add(count - 1));
+		assertTrue(set.remove(count / 2));
+		assertFalse(set.contains(count / 2));
+		assertTrue(set.contains(count / 3));
+		assertEquals(count - 1, set.size());
+
+		iterated = 0;
+		for (Iterator<Integer> it = set.iterator(); it.hasNext();) {
+			it.next();
+			iterated++;
+		}
+		assertEquals(count - 1, iterated);
+
+		List<Integer> list = sp.createList(Integer.class);
+		for (int i = 0; i < 1500; i++) {
+			list.add(i);
+		}
+		assertEquals(1500, list.size());
+		assertEquals(1499, list.get(1499).intValue());
+		assertEquals(10, list.get(10).intValue());
+
+		// remove all even numbers while iterating
+		for (Iterator<Integer> it = list.iterator(); it.hasNext();) {
+			if (it.next().intValue() % 2 == 0) {
+				it.remove();
+			}
+		}
+		assertEquals(750, list.size());
+		assertEquals(1, list.get(0).intValue());
+		assertEquals(1499, list.get(749).intValue());
+
+		list.add(5000);
+		assertEquals(5000, list.get(750).intValue());
+		assertEquals(751, list.size());
+	}
+
+	public void testIterateInPages() throws Exception {
+		testIterateInPages(h2sp);
+		testIterateInPages(hsqlsp);
+	}
+
+	private void testIterateInPages(StorageProvider sp) throws Exception {
+		final int count = SqlDatabaseUtils.FETCH_SIZE * 2 + 500;
+
+		Map<Integer, String> map = sp.createMap(Integer.class, String.class);
+		Set<Integer> set = sp.createSet(Integer.class);
+		for (int i = 0; i < count; i++) {
+			map.put(i, "v" + i);
+			set.add(i);
+		}
+
+		// abandoned iterations leave nothing open that blocks later changes
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, map.entrySet().iterator().next().getKey().intValue());
+			assertEquals(0, set.iterator().next().intValue());
+		}
+
+		// remove all even keys while iterating
+		int iterated = 0;
+		for (Iterator<Entry<Integer, String>> it = map.entrySet().iterator(); it.hasNext();) {
+			Entry<Integer, String> entry = it.next();
+			assertEquals(iterated, entry.getKey().intValue());
+			assertEquals("v" + iterated, entry.getValue());
+			if (iterated % 2 == 0) {
+				it.remove();
+			}
+			iterated++;
+		}
+		assertEquals(count, iterated);
+		assertEquals(count / 2, map.size());
+
+		iterated = 0;
+		for (Iterator<Integer> it = set.iterator(); it.hasNext();) {
+			assertEquals(iterated, it.next().intValue());
+			if (iterated % 2 == 0) {
+				it.remove();
+			}
+			iterated++;
+		}
+		assertEquals(count, iterated);
+		assertEquals(count / 2, set.size());
+		assertFalse(set.contains(0));
+		assertTrue(set.contains(count - 1));
+	}
+
 	public void testFinalize() throws Exception {
 		testFinalize(h2sp);
 		testFinalize(hsqlsp);
@@ -281,4 +401,59 @@ public class SqlDatabaseStorageProviderTest extends TestCase {
 		rows = f.getRows(a2);
 		assertEquals(3, rows.length);
 	}
+	public void testRowAnnotationFactoryBatchesAndReset() throws Exception {
+		testRowAnnotationFactoryBatchesAndReset(new H2StorageProvider());
+		testRowAnnotationFactoryBatchesAndReset(new HsqldbStorageProvider());
+	}
+
+	private void testRowAnnotationFactoryBatchesAndReset(SqlDatabaseStorageProvider sp) throws Exception {
+		sp.setRowAnnotationBatchSize(3);
+		RowAnnotationFactory f = sp.createRowAnnotationFactory();
+		assertEquals(3, ((SqlDatabaseRowAnnotationFactory) f).getBatchSize());
+
+		RowAnnotation a1 = f.createAnnotation();
+		RowAnnotation a2 = f.createAnnotation();
+
+		InputColumn<String> col1 = new MockInputColumn<String>("foo", String.class);
+		InputColumn<Integer> col2 = new MockInputColumn<Integer>("bar", Integer.class);
+
+		for (int i = 0; i < 10; i++) {
+			f.annotate(new MockInputRow(i).put(col1, "v" + (i % 2)), 1, a1);
+		}
+		// rows with a new column layout, some of which are already stored
+		for (int i = 8; i < 14; i++) {
+			f.annotate(new MockInputRow(i).put(col1, "v" + (i % 2)).put(col2, i), 2, a2);
+		}
+
+		assertEquals(10, a1.getRowCount());
+		assertEquals(12, a2.getRowCount());
+
+		InputRow[] rows = f.getRows(a1);
+		assertEquals(10, rows.length);
+		assertEquals(0, rows[0].getId());
+		assertEquals(null, rows[0].getValue(col2));
+
+		rows = f.getRows(a2);
+		assertEquals(6, rows.length);
+		assertEquals(8, rows[0].getId());
+		// row 8 was stored before the second column was added
+		assertEquals(null, rows[0].getValue(col2));
+		assertEquals(Integer.valueOf(10), rows[2].getValue(col2));
+
+		Map<Object, Integer> valueCounts = f.getValueCounts(a1, col1);
+		assertEquals(5, valueCounts.get("v0").intValue());
+		assertEquals(5, valueCounts.get("v1").intValue());
+
+		// rows 8 and 9 were stored with a distinct count of 1
+		valueCounts = f.getValueCounts(a2, col1);
+		assertEquals(5, valueCounts.get("v0").intValue());
+		assertEquals(5, valueCounts.get("v1").intValue());
+
+		f.reset(a1);
+		assertEquals(0, f.getRows(a1).length);
+		assertEquals(6, f.getRows(a2).length);
+
+		f.annotate(new MockInputRow(3).put(col1, "v1"), 1, a1);
+		assertEquals(1, f.getRows(a1).length);
+	}
 }
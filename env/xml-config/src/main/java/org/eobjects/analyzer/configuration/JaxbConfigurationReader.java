@@ -45,6 +45,7 @@ import org.apache.commons.vfs2.FileSystemException;
 import org.eobjects.analyzer.beans.api.RenderingFormat;
 import org.eobjects.analyzer.configuration.jaxb.AbstractDatastoreType;
 import org.eobjects.analyzer.configuration.jaxb.AccessDatastoreType;
+import org.eobjects.analyzer.configuration.jaxb.AdaptiveStorageProviderType;
 import org.eobjects.analyzer.configuration.jaxb.BerkeleyDbStorageProviderType;
 import org.eobjects.analyzer.configuration.jaxb.CassandraDatastoreType;
 import org.eobjects.analyzer.configuration.jaxb.ClasspathScannerType;
@@ -70,6 +71,7 @@ import org.eobjects.analyzer.configuration.jaxb.H2StorageProviderType;
 import org.eobjects.analyzer.configuration.jaxb.HbaseDatastoreType.TableDef.Column;
 import org.eobjects.analyzer.configuration.jaxb.HsqldbStorageProviderType;
 import org.eobjects.analyzer.configuration.jaxb.InMemoryStorageProviderType;
+import org.eobjects.analyzer.configuration.jaxb.MemoryMappedStorageProviderType;
 import org.eobjects.analyzer.configuration.jaxb.JdbcDatastoreType;
 import org.eobjects.analyzer.configuration.jaxb.JdbcDatastoreType.TableTypes;
 import org.eobjects.analyzer.configuration.jaxb.JsonDatastoreType;
@@ -123,9 +125,11 @@ import org.eobjects.analyzer.descriptors.ComponentDescriptor;
 import org.eobjects.analyzer.descriptors.ConfiguredPropertyDescriptor;
 import org.eobjects.analyzer.descriptors.DescriptorProvider;
 import org.eobjects.analyzer.descriptors.Descriptors;
+import org.eobjects.analyzer.job.concurrent.ForkJoinTaskRunner;
 import org.eobjects.analyzer.job.concurrent.MultiThreadedTaskRunner;
 import org.eobjects.analyzer.job.concurrent.SingleThreadedTaskRunner;
 import org.eobjects.analyzer.job.concurrent.TaskRunner;
+import org.eobjects.analyzer.job.concurrent.TaskRunnerSettings;
 import org.eobjects.analyzer.lifecycle.LifeCycleHelper;
 import org.eobjects.analyzer.reference.DatastoreDictionary;
 import org.eobjects.analyzer.reference.DatastoreSynonymCatalog;
@@ -140,11 +144,13 @@ import org.eobjects.analyzer.reference.StringPattern;
 import org.eobjects.analyzer.reference.SynonymCatalog;
 import org.eobjects.analyzer.reference.TextFileDictionary;
 import org.eobjects.analyzer.reference.TextFileSynonymCatalog;
+import org.eobjects.analyzer.storage.AdaptiveStorageProvider;
 import org.eobjects.analyzer.storage.BerkeleyDbStorageProvider;
 import org.eobjects.analyzer.storage.CombinedStorageProvider;
 import org.eobjects.analyzer.storage.H2StorageProvider;
 import org.eobjects.analyzer.storage.HsqldbStorageProvider;
 import org.eobjects.analyzer.storage.InMemoryStorageProvider;
+import org.eobjects.analyzer.storage.MemoryMappedStorageProvider;
 import org.eobjects.analyzer.storage.StorageProvider;
 import org.eobjects.analyzer.util.CollectionUtils2;
 import org.eobjects.analyzer.util.JaxbValidationEventHandler;
@@ -383,6 +389,14 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
             return new CombinedStorageProvider(collectionsStorageProvider, rowAnnotationStorageProvider);
         }
 
+        final AdaptiveStorageProviderType adaptiveStorageProvider = storageProviderType.getAdaptive();
+        if (adaptiveStorageProvider != null) {
+            final StorageProvider spillStorageProvider = createStorageProvider(
+                    adaptiveStorageProvider.getSpillStorage(), injectionManager);
+            final float heapUsageThreshold = adaptiveStorageProvider.getHeapUsageThreshold();
+            return new AdaptiveStorageProvider(spillStorageProvider, heapUsageThreshold);
+        }
+
         final InMemoryStorageProviderType inMemoryStorageProvider = storageProviderType.getInMemory();
         if (inMemoryStorageProvider != null) {
             int maxRowsThreshold = inMemoryStorageProvider.getMaxRowsThreshold();
@@ -437,6 +451,23 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
             }
         }
 
+        final MemoryMappedStorageProviderType memoryMappedStorageProvider = storageProviderType.getMemoryMapped();
+        if (memoryMappedStorageProvider != null) {
+            String directoryPath = memoryMappedStorageProvider.getTempDirectory();
+            if (directoryPath == null) {
+                directoryPath = _interceptor.getTemporaryStorageDirectory();
+            }
+
+            directoryPath = createFilename(directoryPath);
+
+            final int maxRowsThreshold = memoryMappedStorageProvider.getMaxRowsThreshold();
+            if (directoryPath == null) {
+                return new MemoryMappedStorageProvider(FileHelper.getTempDir(), maxRowsThreshold);
+            } else {
+                return new MemoryMappedStorageProvider(new File(directoryPath), maxRowsThreshold);
+            }
+        }
+
         throw new IllegalStateException("Unknown storage provider type: " + storageProviderType);
     }
 
@@ -471,6 +502,7 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
 
                         final DatastoreDictionary dict = new DatastoreDictionary(name, dsName, columnPath);
                         dict.setDescription(ddt.getDescription());
+                        dict.setLoadIntoMemoryThreshold(ddt.getLoadIntoMemoryThreshold());
 
                         dictionaryList.add(dict);
 
@@ -566,6 +598,7 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
                         final DatastoreSynonymCatalog sc = new DatastoreSynonymCatalog(name, dataStoreName,
                                 masterTermColumnPath, synonymColumnPaths);
                         sc.setDescription(datastoreSynonymCatalogType.getDescription());
+                        sc.setLoadIntoMemoryThreshold(datastoreSynonymCatalogType.getLoadIntoMemoryThreshold());
                         synonymCatalogList.add(sc);
 
                         removeVariablePath();
@@ -1268,11 +1301,33 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
         if (singlethreadedTaskrunner != null) {
             taskRunner = new SingleThreadedTaskRunner();
         } else if (multithreadedTaskrunner != null) {
-            Short maxThreads = multithreadedTaskrunner.getMaxThreads();
+            final TaskRunnerSettings settings = new TaskRunnerSettings();
+            final Short maxThreads = multithreadedTaskrunner.getMaxThreads();
             if (maxThreads != null) {
-                taskRunner = new MultiThreadedTaskRunner(maxThreads.intValue());
+                settings.setNumThreads(maxThreads.intValue());
+            }
+            final Integer rowBatchSize = multithreadedTaskrunner.getRowBatchSize();
+            if (rowBatchSize != null) {
+                settings.setRowBatchSize(rowBatchSize.intValue());
+            }
+            final Integer rowBufferSize = multithreadedTaskrunner.getRowBufferSize();
+            if (rowBufferSize != null) {
+                settings.setRowBufferSize(rowBufferSize.intValue());
+            }
+            settings.setPartitionedAnalyzers(multithreadedTaskrunner.isPartitionedAnalyzers());
+            final Integer maxThreadsPerTable = multithreadedTaskrunner.getMaxThreadsPerTable();
+            if (maxThreadsPerTable != null) {
+                settings.setMaxThreadsPerTable(maxThreadsPerTable.intValue());
+            }
+            final Integer scanPartitions = multithreadedTaskrunner.getScanPartitions();
+            if (scanPartitions != null) {
+                settings.setScanPartitions(scanPartitions.intValue());
+            }
+
+            if (multithreadedTaskrunner.isWorkStealing()) {
+                taskRunner = new ForkJoinTaskRunner(settings);
             } else {
-                taskRunner = new MultiThreadedTaskRunner();
+                taskRunner = new MultiThreadedTaskRunner(settings);
             }
         } else if (customTaskrunner != null) {
             taskRunner = createCustomElement(customTaskrunner, TaskRunner.class, injectionManager, true);
@@ -58,17 +58,26 @@ import org.eobjects.analyzer.descriptors.ClasspathScanDescriptorProvider;
 import org.eobjects.analyzer.descriptors.DescriptorProvider;
 import org.eobjects.analyzer.descriptors.Descriptors;
 import org.eobjects.analyzer.descriptors.RendererBeanDescriptor;
+import org.eobjects.analyzer.job.concurrent.ForkJoinTaskRunner;
+import org.eobjects.analyzer.job.concurrent.MultiThreadedTaskRunner;
 import org.eobjects.analyzer.job.concurrent.SingleThreadedTaskRunner;
+import org.eobjects.analyzer.job.concurrent.TaskRunnerSettings;
 import org.eobjects.analyzer.lifecycle.LifeCycleHelper;
+import org.eobjects.analyzer.reference.DatastoreDictionary;
+import org.eobjects.analyzer.reference.DatastoreReferenceValues;
+import org.eobjects.analyzer.reference.DatastoreSynonymCatalog;
 import org.eobjects.analyzer.reference.Dictionary;
 import org.eobjects.analyzer.reference.ReferenceDataCatalog;
 import org.eobjects.analyzer.reference.StringPattern;
 import org.eobjects.analyzer.reference.SynonymCatalog;
 import org.eobjects.analyzer.result.renderer.HtmlRenderingFormat;
 import org.eobjects.analyzer.result.renderer.TextRenderingFormat;
+import org.eobjects.analyzer.storage.AdaptiveStorageProvider;
 import org.eobjects.analyzer.storage.BerkeleyDbStorageProvider;
 import org.eobjects.analyzer.storage.CombinedStorageProvider;
 import org.eobjects.analyzer.storage.HsqldbStorageProvider;
+import org.eobjects.analyzer.storage.InMemoryStorageProvider;
+import org.eobjects.analyzer.storage.MemoryMappedStorageProvider;
 import org.eobjects.analyzer.storage.StorageProvider;
 import org.junit.Assert;
 
@@ -195,6 +204,40 @@ public class JaxbConfigurationReaderTest extends TestCase {
         assertTrue(configuration.getTaskRunner() instanceof SingleThreadedTaskRunner);
     }
 
+    public void testMultiThreadedTaskRunnerWithRowBatchSize() throws Exception {
+        AnalyzerBeansConfiguration configuration = reader.create(new File(
+                "src/test/resources/example-configuration-multithreaded-taskrunner.xml"));
+
+        MultiThreadedTaskRunner taskRunner = (MultiThreadedTaskRunner) configuration.getTaskRunner();
+        try {
+            final TaskRunnerSettings settings = taskRunner.getSettings();
+            assertEquals(8, settings.getNumThreads());
+            assertEquals(100, settings.getRowBatchSize());
+            assertEquals(1000, settings.getRowBufferSize());
+            assertTrue(settings.isPartitionedAnalyzers());
+            assertEquals(3, settings.getMaxThreadsPerTable());
+            assertEquals(4, settings.getScanPartitions());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testWorkStealingTaskRunner() throws Exception {
+        AnalyzerBeansConfiguration configuration = reader.create(new File(
+                "src/test/resources/example-configuration-work-stealing-taskrunner.xml"));
+
+        ForkJoinTaskRunner taskRunner = (ForkJoinTaskRunner) configuration.getTaskRunner();
+        try {
+            final TaskRunnerSettings settings = taskRunner.getSettings();
+            assertEquals(4, settings.getNumThreads());
+            assertEquals(1, settings.getRowBatchSize());
+            assertEquals(0, settings.getRowBufferSize());
+            assertFalse(settings.isPartitionedAnalyzers());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
     public void testCombinedStorage() throws Exception {
         AnalyzerBeansConfiguration configuration = reader.create(new File(
                 "src/test/resources/example-configuration-combined-storage.xml"));
@@ -207,6 +250,31 @@ public class JaxbConfigurationReaderTest extends TestCase {
         assertEquals(HsqldbStorageProvider.class, csp.getRowAnnotationsStorageProvider().getClass());
     }
 
+    public void testMemoryMappedStorage() throws Exception {
+        AnalyzerBeansConfiguration configuration = reader.create(new File(
+                "src/test/resources/example-configuration-memory-mapped-storage.xml"));
+        StorageProvider storageProvider = configuration.getStorageProvider();
+
+        assertEquals(MemoryMappedStorageProvider.class, storageProvider.getClass());
+
+        MemoryMappedStorageProvider mmsp = (MemoryMappedStorageProvider) storageProvider;
+        assertEquals(500, mmsp.getStoredRowsThreshold());
+        assertEquals("temp_memory_mapped", mmsp.getDirectory().getName());
+        assertTrue(mmsp.getDirectory().isDirectory());
+    }
+
+    public void testAdaptiveStorage() throws Exception {
+        AnalyzerBeansConfiguration configuration = reader.create(new File(
+                "src/test/resources/example-configuration-adaptive-storage.xml"));
+        CombinedStorageProvider csp = (CombinedStorageProvider) configuration.getStorageProvider();
+        assertEquals(InMemoryStorageProvider.class, csp.getRowAnnotationsStorageProvider().getClass());
+
+        AdaptiveStorageProvider asp = (AdaptiveStorageProvider) csp.getCollectionsStorageProvider();
+        assertEquals(0.8f, asp.getHeapUsageThreshold());
+        assertEquals(MemoryMappedStorageProvider.class, asp.getSpillStorageProvider().getClass());
+        asp.close();
+    }
+
     public void testAllDatastoreTypes() throws Exception {
         DatastoreCatalog datastoreCatalog = getDataStoreCatalog(getConfiguration());
         String[] datastoreNames = datastoreCatalog.getDatastoreNames();
@@ -384,6 +452,7 @@ public class JaxbConfigurationReaderTest extends TestCase {
 
         Dictionary d = referenceDataCatalog.getDictionary("datastore_dict");
         assertEquals("dict_ds", d.getDescription());
+        assertEquals(100, ((DatastoreDictionary) d).getLoadIntoMemoryThreshold());
         lifeCycleHelper.assignProvidedProperties(Descriptors.ofComponent(d.getClass()), d);
         lifeCycleHelper.initialize(Descriptors.ofComponent(d.getClass()), d);
         assertTrue(d.containsValue("Patterson"));
@@ -431,6 +500,8 @@ public class JaxbConfigurationReaderTest extends TestCase {
 
         s = referenceDataCatalog.getSynonymCatalog("datastore_syn");
         assertEquals("syn_ds", s.getDescription());
+        assertEquals(DatastoreReferenceValues.DEFAULT_LOAD_INTO_MEMORY_THRESHOLD,
+                ((DatastoreSynonymCatalog) s).getLoadIntoMemoryThreshold());
         lifeCycleHelper.assignProvidedProperties(Descriptors.ofComponent(s.getClass()), s);
         lifeCycleHelper.initialize(Descriptors.ofComponent(s.getClass()), s);
 
@@ -0,0 +1,136 @@
+/**
+ * AnalyzerBeans
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.eobjects.analyzer.job.concurrent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import junit.framework.TestCase;
+
+import org.eobjects.analyzer.beans.DateAndTimeAnalyzer;
+import org.eobjects.analyzer.beans.NumberAnalyzer;
+import org.eobjects.analyzer.beans.StringAnalyzer;
+import org.eobjects.analyzer.beans.valuedist.ValueDistributionAnalyzer;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfigurationImpl;
+import org.eobjects.analyzer.connection.Datastore;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.job.AnalysisJob;
+import org.eobjects.analyzer.job.builder.AnalysisJobBuilder;
+import org.eobjects.analyzer.job.runner.AnalysisResultFuture;
+import org.eobjects.analyzer.job.runner.AnalysisRunnerImpl;
+import org.eobjects.analyzer.test.TestHelper;
+import org.junit.Ignore;
+
+/**
+ * A benchmark program (which is why it is @Ignore'd) used to show the
+ * difference in performance between the {@link MultiThreadedTaskRunner} and
+ * the {@link ForkJoinTaskRunner} on a job with multiple analyzers, with and
+ * without partitioned analyzers.
+ */
+@Ignore
+public class TaskRunnersBenchmarkTest extends TestCase {
+
+    private static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int NUM_RUNS = 50;
+
+    private Map<String, TaskRunner> _taskRunners;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _taskRunners = new LinkedHashMap<String, TaskRunner>();
+        _taskRunners.put("1) Multi-threaded", new MultiThreadedTaskRunner(NUM_THREADS));
+        _taskRunners.put("2) Multi-threaded, batches of 100", new MultiThreadedTaskRunner(new TaskRunnerSettings()
+                .setNumThreads(NUM_THREADS).setRowBatchSize(100)));
+        _taskRunners.put("3) Work-stealing", new ForkJoinTaskRunner(NUM_THREADS));
+        _taskRunners.put("4) Work-stealing, batches of 100", new ForkJoinTaskRunner(new TaskRunnerSettings()
+                .setNumThreads(NUM_THREADS).setRowBatchSize(100)));
+        _taskRunners.put("5) Multi-threaded, batches of 100, partitioned analyzers", new MultiThreadedTaskRunner(
+                new TaskRunnerSettings().setNumThreads(NUM_THREADS).setRowBatchSize(100).setPartitionedAnalyzers(true)));
+        _taskRunners.put("6) Work-stealing, batches of 100, partitioned analyzers", new ForkJoinTaskRunner(
+                new TaskRunnerSettings().setNumThreads(NUM_THREADS).setRowBatchSize(100).setPartitionedAnalyzers(true)));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        for (TaskRunner taskRunner : _taskRunners.values()) {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testMultipleAnalyzers() throws Throwable {
+        System.out.println(getName() + " beginning.");
+        System.out.println("(" + NUM_RUNS + " runs with " + NUM_THREADS + " threads)");
+
+        for (Entry<String, TaskRunner> entry : _taskRunners.entrySet()) {
+            final AnalyzerBeansConfigurationImpl configuration = new AnalyzerBeansConfigurationImpl().replace(entry
+                    .getValue());
+            final AnalysisJob job = createJob(configuration);
+
+            // warm up
+            runJob(configuration, job);
+
+            final long timeBefore = System.currentTimeMillis();
+            for (int i = 0; i < NUM_RUNS; i++) {
+                runJob(configuration, job);
+            }
+            final long timeAfter = System.currentTimeMillis();
+
+            System.out.println(entry.getKey() + " results:");
+            System.out.println("- TOTAL time: " + (timeAfter - timeBefore));
+            System.out.println("- avg. time per run: " + ((timeAfter - timeBefore) / NUM_RUNS));
+        }
+        System.out.println(getName() + " finished.");
+    }
+
+    private void runJob(AnalyzerBeansConfigurationImpl configuration, AnalysisJob job) throws Throwable {
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        resultFuture.await();
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private AnalysisJob createJob(AnalyzerBeansConfigurationImpl configuration) {
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("PUBLIC.ORDERFACT.STATUS", "PUBLIC.ORDERFACT.COMMENTS",
+                    "PUBLIC.ORDERFACT.QUANTITYORDERED", "PUBLIC.ORDERFACT.PRICEEACH", "PUBLIC.ORDERFACT.ORDERDATE");
+
+            final InputColumn<?> status = builder.getSourceColumnByName("STATUS");
+            final InputColumn<?> comments = builder.getSourceColumnByName("COMMENTS");
+            final InputColumn<?> quantity = builder.getSourceColumnByName("QUANTITYORDERED");
+            final InputColumn<?> price = builder.getSourceColumnByName("PRICEEACH");
+            final InputColumn<?> orderDate = builder.getSourceColumnByName("ORDERDATE");
+
+            builder.addAnalyzer(StringAnalyzer.class).addInputColumns(status, comments);
+            builder.addAnalyzer(NumberAnalyzer.class).addInputColumns(quantity, price);
+            builder.addAnalyzer(DateAndTimeAnalyzer.class).addInputColumns(orderDate);
+            builder.addAnalyzer(ValueDistributionAnalyzer.class).addInputColumn(status);
+            builder.addAnalyzer(ValueDistributionAnalyzer.class).addInputColumn(quantity);
+
+            return builder.toAnalysisJob();
+        }
+    }
+}
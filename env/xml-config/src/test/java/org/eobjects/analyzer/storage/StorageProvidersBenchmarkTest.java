@@ -29,10 +29,15 @@ import java.util.Set;
 
 import junit.framework.TestCase;
 
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
 import org.eobjects.analyzer.storage.BerkeleyDbStorageProvider;
 import org.eobjects.analyzer.storage.H2StorageProvider;
 import org.eobjects.analyzer.storage.HsqldbStorageProvider;
 import org.eobjects.analyzer.storage.InMemoryStorageProvider;
+import org.eobjects.analyzer.storage.MemoryMappedStorageProvider;
 import org.eobjects.analyzer.storage.StorageProvider;
 import org.junit.Ignore;
 
@@ -56,6 +61,7 @@ public class StorageProvidersBenchmarkTest extends TestCase {
 		_storageProviders.put("2) H2", new H2StorageProvider());
 		_storageProviders.put("3) Hsqldb", new HsqldbStorageProvider());
 		_storageProviders.put("4) Berkeley DB", new BerkeleyDbStorageProvider(new File("target")));
+		_storageProviders.put("5) Memory mapped", new MemoryMappedStorageProvider(new File("target/memory_mapped")));
 	}
 
 	public void testOneBigBatch() throws Exception {
@@ -66,6 +72,88 @@ public class StorageProvidersBenchmarkTest extends TestCase {
 		runBenchmarkTests(50, 50);
 	}
 
+	public void testCounterMaps() throws Exception {
+		System.out.println(getName() + " beginning.");
+		final int numKeys = 20000;
+		final int numIncrements = 100000;
+		System.out.println("(" + numIncrements + " increments of " + numKeys + " counters)");
+
+		for (String cpName : _storageProviders.keySet()) {
+			System.out.println(cpName + " results:");
+
+			long timeBefore = System.currentTimeMillis();
+			StorageProvider cp = _storageProviders.get(cpName);
+			Map<String, Integer> map = cp.createMap(String.class, Integer.class);
+			for (int i = 0; i < numIncrements; i++) {
+				// a skewed distribution of keys, like values in a column
+				String key = "value " + ((i * 31) % (i % 10 == 0 ? numKeys : 100));
+				Integer count = map.get(key);
+				map.put(key, count == null ? 1 : count + 1);
+			}
+
+			long timeAfterCount = System.currentTimeMillis();
+			System.out.println("- time to count values: " + (timeAfterCount - timeBefore));
+
+			int total = 0;
+			for (Integer count : map.values()) {
+				total += count;
+			}
+			assertEquals(numIncrements, total);
+
+			long timeAfterIterate = System.currentTimeMillis();
+			System.out.println("- time to iterate through map: " + (timeAfterIterate - timeAfterCount));
+			System.out.println("- TOTAL time: " + (timeAfterIterate - timeBefore));
+		}
+		System.out.println(getName() + " finished.");
+	}
+
+	public void testRowAnnotations() throws Exception {
+		runRowAnnotationBenchmarkTests(5, 20000);
+	}
+
+	private void runRowAnnotationBenchmarkTests(int numAnnotations, int numRows) {
+		System.out.println(getName() + " beginning.");
+		System.out.println("(" + numAnnotations + " annotations of " + numRows + " rows)");
+
+		final InputColumn<String> col1 = new MockInputColumn<String>("name", String.class);
+		final InputColumn<Integer> col2 = new MockInputColumn<Integer>("number", Integer.class);
+
+		for (String cpName : _storageProviders.keySet()) {
+			System.out.println(cpName + " results:");
+
+			long timeBefore = System.currentTimeMillis();
+			StorageProvider cp = _storageProviders.get(cpName);
+			RowAnnotationFactory factory = cp.createRowAnnotationFactory();
+			RowAnnotation[] annotations = new RowAnnotation[numAnnotations];
+			for (int i = 0; i < numAnnotations; i++) {
+				annotations[i] = factory.createAnnotation();
+			}
+			for (int j = 0; j < numRows; j++) {
+				InputRow row = new MockInputRow(j).put(col1, "name " + (j % 1000)).put(col2, j);
+				// every row gets one or two annotations
+				factory.annotate(row, 1, annotations[j % numAnnotations]);
+				if (j % 3 == 0) {
+					factory.annotate(row, 1, annotations[(j + 1) % numAnnotations]);
+				}
+			}
+
+			long timeAfterAnnotate = System.currentTimeMillis();
+			System.out.println("- time to annotate rows: " + (timeAfterAnnotate - timeBefore));
+
+			for (RowAnnotation annotation : annotations) {
+				for (InputRow row : factory.getRows(annotation)) {
+					row.getValue(col1);
+				}
+				factory.getValueCounts(annotation, col1);
+			}
+
+			long timeAfterRead = System.currentTimeMillis();
+			System.out.println("- time to read rows and value counts: " + (timeAfterRead - timeAfterAnnotate));
+			System.out.println("- TOTAL time: " + (timeAfterRead - timeBefore));
+		}
+		System.out.println(getName() + " finished.");
+	}
+
 	private void runBenchmarkTests(int numCollections, int numElems) {
 		System.out.println(getName() + " beginning.");
 		System.out.println("(" + numCollections + " collections with " + numElems + " elements in them)");